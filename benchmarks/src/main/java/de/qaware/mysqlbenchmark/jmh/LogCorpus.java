@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.jmh;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Generates mysql general query logs resembling the log of an application: a server header, several connections
+ * which connect, run point lookups, range queries, joins, inserts, updates, deletes and transactions with varying
+ * literals and quit, some statements spanning several lines, and timestamps in the format of mysql 5.6 or 5.7.
+ * The same seed always generates the same log.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public final class LogCorpus {
+    /**
+     * Timestamp formats of the general query log
+     */
+    public enum Style {
+        /**
+         * mysql up to 5.6: '140101 10:00:00', only logged if it differs from the previous line
+         */
+        SHORT,
+        /**
+         * mysql 5.7 and later: '2014-01-01T10:00:00.123456Z' on every line
+         */
+        ISO
+    }
+
+    private static final long START = 1388570400000L;
+    private static final String[] TABLES = {"orders", "customers", "articles", "order_items", "stock"};
+    private static final String[] NAMES = {"Smith", "Miller", "O''Brien", "Schmidt", "Dupont", "Garcia", "Kowalski"};
+
+    private final Random random;
+    private final Style style;
+    private final List<String> lines = new ArrayList<String>();
+    private final SimpleDateFormat isoFormat = utcFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'000Z'");
+    private final SimpleDateFormat shortFormat = utcFormat("yyMMdd H:mm:ss");
+    private long time = START;
+    private String lastShortTimestamp;
+    private int statements;
+
+    /**
+     * Constructor
+     *
+     * @param seed  seed of the random literals
+     * @param style timestamp format
+     */
+    private LogCorpus(long seed, Style style) {
+        this.random = new Random(seed);
+        this.style = style;
+    }
+
+    /**
+     * Generate the lines of a log
+     *
+     * @param statements  number of statements, at least
+     * @param connections number of connections open at the same time
+     * @param style       timestamp format
+     * @param seed        seed of the random literals
+     * @return lines of the log
+     */
+    public static List<String> generate(int statements, int connections, Style style, long seed) {
+        LogCorpus corpus = new LogCorpus(seed, style);
+        corpus.header();
+        int[] open = new int[Math.max(1, connections)];
+        int nextID = 1;
+        for (int i = 0; i < open.length; i++) {
+            open[i] = nextID++;
+            corpus.connect(open[i]);
+        }
+
+        while (corpus.statements < statements) {
+            int slot = corpus.random.nextInt(open.length);
+            // connections of a pool live long, but are replaced now and then
+            if (corpus.random.nextInt(500) == 0) {
+                corpus.line(open[slot], "Quit", "");
+                open[slot] = nextID++;
+                corpus.connect(open[slot]);
+            }
+            corpus.statement(open[slot]);
+        }
+        for (int id : open) {
+            corpus.line(id, "Quit", "");
+        }
+        return corpus.lines;
+    }
+
+    /**
+     * Generate a log file, deleted when the JVM exits
+     *
+     * @param statements  number of statements, at least
+     * @param connections number of connections open at the same time
+     * @param style       timestamp format
+     * @param seed        seed of the random literals
+     * @return the log file
+     * @throws IOException if the file can't be written
+     */
+    public static File write(int statements, int connections, Style style, long seed) throws IOException {
+        File file = File.createTempFile("general-" + style.name().toLowerCase(Locale.ENGLISH) + "-", ".log");
+        file.deleteOnExit();
+        BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+        try {
+            for (String line : generate(statements, connections, style, seed)) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    /**
+     * The lines mysql writes when it opens the log
+     */
+    private void header() {
+        lines.add("/usr/sbin/mysqld, Version: 5.7.25-log (MySQL Community Server (GPL)). started with:");
+        lines.add("Tcp port: 3306  Unix socket: /var/run/mysqld/mysqld.sock");
+        lines.add("Time                 Id Command    Argument");
+    }
+
+    /**
+     * Open a connection and initialize it like a connection pool does
+     *
+     * @param id connection id
+     */
+    private void connect(int id) {
+        line(id, "Connect", "app@10.0.0." + (1 + random.nextInt(20)) + " on shop using TCP/IP");
+        line(id, "Query", "SET NAMES utf8");
+        line(id, "Query", "SET autocommit=1");
+    }
+
+    /**
+     * One statement or transaction in the mix of a typical web shop
+     *
+     * @param id connection id
+     */
+    private void statement(int id) {
+        int kind = random.nextInt(100);
+        if (kind < 35) {
+            query(id, "SELECT * FROM " + table() + " WHERE id = " + random.nextInt(1000000));
+        } else if (kind < 45) {
+            query(id, "SELECT id, name, price FROM articles WHERE category_id IN (" + numbers(2 + random.nextInt(10))
+                    + ") AND price BETWEEN " + random.nextInt(50) + " AND " + (50 + random.nextInt(500))
+                    + " ORDER BY price LIMIT 20");
+        } else if (kind < 52) {
+            // statements sent with line breaks are logged on several lines
+            query(id, "SELECT o.id, o.created, c.name\nFROM orders o\nJOIN customers c ON c.id = o.customer_id\n"
+                    + "WHERE c.name = '" + NAMES[random.nextInt(NAMES.length)] + "'\nAND o.created > '2014-0"
+                    + (1 + random.nextInt(9)) + "-01'");
+        } else if (kind < 60) {
+            query(id, "SELECT COUNT(*) FROM order_items WHERE order_id = " + random.nextInt(1000000));
+        } else if (kind < 75) {
+            StringBuilder values = new StringBuilder();
+            int rows = 1 + random.nextInt(5);
+            for (int i = 0; i < rows; i++) {
+                values.append(i > 0 ? ", " : "").append('(').append(random.nextInt(1000000)).append(", ")
+                        .append(random.nextInt(10000)).append(", ").append(1 + random.nextInt(9)).append(", '")
+                        .append(String.format(Locale.ENGLISH, "%.2f", random.nextDouble() * 100)).append("')");
+            }
+            query(id, "INSERT INTO order_items (order_id, article_id, quantity, price) VALUES " + values);
+        } else if (kind < 85) {
+            query(id, "UPDATE stock SET quantity = quantity - " + (1 + random.nextInt(5)) + ", updated = NOW() WHERE"
+                    + " article_id = " + random.nextInt(10000));
+        } else if (kind < 88) {
+            query(id, "DELETE FROM sessions WHERE last_access < " + (START / 1000 - random.nextInt(86400)));
+        } else if (kind < 97) {
+            int orderID = random.nextInt(1000000);
+            query(id, "START TRANSACTION");
+            query(id, "INSERT INTO orders (id, customer_id, created) VALUES (" + orderID + ", "
+                    + random.nextInt(100000) + ", NOW())");
+            query(id, "UPDATE customers SET last_order = " + orderID + " WHERE id = " + random.nextInt(100000));
+            query(id, random.nextInt(20) == 0 ? "ROLLBACK" : "COMMIT");
+        } else {
+            query(id, random.nextBoolean() ? "SHOW WARNINGS" : "SELECT @@session.tx_isolation");
+        }
+    }
+
+    /**
+     * Add a statement
+     *
+     * @param id  connection id
+     * @param sql the statement
+     */
+    private void query(int id, String sql) {
+        line(id, "Query", sql);
+        statements++;
+    }
+
+    /**
+     * A random table
+     *
+     * @return table name
+     */
+    private String table() {
+        return TABLES[random.nextInt(TABLES.length)];
+    }
+
+    /**
+     * Comma separated random numbers, e.g. for an IN list
+     *
+     * @param count number of numbers
+     * @return the list
+     */
+    private String numbers(int count) {
+        StringBuilder numbers = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            numbers.append(i > 0 ? "," : "").append(random.nextInt(500));
+        }
+        return numbers.toString();
+    }
+
+    /**
+     * Add a line, timestamps advance by up to two milliseconds per line
+     *
+     * @param id       connection id
+     * @param command  the command, e.g. Query
+     * @param argument the argument, may contain line breaks
+     */
+    private void line(int id, String command, String argument) {
+        time += random.nextInt(3);
+        String prefix;
+        if (style == Style.ISO) {
+            prefix = isoFormat.format(new Date(time)) + "\t";
+        } else {
+            String timestamp = shortFormat.format(new Date(time));
+            prefix = timestamp.equals(lastShortTimestamp) ? "\t\t" : timestamp + "\t";
+            lastShortTimestamp = timestamp;
+        }
+        String text = prefix + String.format(Locale.ENGLISH, "%5d", id) + " " + command + "\t" + argument;
+        for (String line : text.split("\n")) {
+            lines.add(line);
+        }
+    }
+
+    /**
+     * Create a date format for the utc timezone
+     *
+     * @param pattern date pattern
+     * @return the format
+     */
+    private static SimpleDateFormat utcFormat(String pattern) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.ENGLISH);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.jmh;
+
+import de.qaware.mysqlbenchmark.QueryBenchmark;
+import de.qaware.mysqlbenchmark.logfile.LogEntry;
+import de.qaware.mysqlbenchmark.logfile.QueryParser;
+import de.qaware.mysqlbenchmark.sql.SQLStatementExecutor;
+import etm.core.configuration.EtmManager;
+import etm.core.monitor.EtmMonitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of measuring one statement: the whole path of {@link QueryBenchmark#executeStatement(SQLStatementExecutor,
+ * LogEntry)} on a connection of the {@link NoopDriver}, and for comparison the bare JETM measurement point.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MeasurementBenchmark {
+    @Param({"false", "true"})
+    private boolean fingerprint;
+
+    @Param({"0", "100"})
+    private int statementCache;
+
+    private List<LogEntry> entries;
+    private SQLStatementExecutor executor;
+    private QueryBenchmark benchmark;
+    private EtmMonitor monitor;
+    private int next;
+
+    /**
+     * Parse a generated log and start the benchmark on a connection to nowhere
+     *
+     * @throws SQLException if the connection can't be opened
+     */
+    @Setup
+    public void setup() throws SQLException {
+        QueryParser parser = new QueryParser();
+        for (String line : LogCorpus.generate(20000, 20, LogCorpus.Style.ISO, 42)) {
+            parser.parseLine(line, null, Collections.<String>emptyList());
+        }
+        entries = parser.getEntries();
+
+        NoopDriver.register();
+        executor = new SQLStatementExecutor(statementCache);
+        executor.initConnection(NoopDriver.URL, "benchmark", "benchmark");
+        benchmark = new QueryBenchmark(executor);
+        benchmark.setFingerprinting(fingerprint);
+        benchmark.start();
+        monitor = EtmManager.getEtmMonitor();
+    }
+
+    /**
+     * Stop the benchmark and close the connection
+     *
+     * @throws SQLException if the connection can't be closed
+     */
+    @TearDown
+    public void tearDown() throws SQLException {
+        benchmark.stop();
+        executor.closeConnection();
+    }
+
+    /**
+     * Execute and measure the next statement of the log
+     */
+    @Benchmark
+    public void executeStatement() {
+        benchmark.executeStatement(executor, nextEntry());
+    }
+
+    /**
+     * Create and collect a JETM measurement point named like the next statement, the part of
+     * {@link #executeStatement()} done by JETM
+     */
+    @Benchmark
+    public void etmPoint() {
+        monitor.createPoint(nextEntry().getStatement()).collect();
+    }
+
+    /**
+     * The next entry of the log, starting over at the end
+     *
+     * @return log entry
+     */
+    private LogEntry nextEntry() {
+        LogEntry entry = entries.get(next);
+        if (++next == entries.size()) {
+            next = 0;
+        }
+        return entry;
+    }
+}
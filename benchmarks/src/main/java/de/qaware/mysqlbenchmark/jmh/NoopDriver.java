@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.jmh;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * JDBC driver for urls starting with {@value #URL}, whose connections accept every call and return immediately:
+ * statements have no results and update nothing. Benchmarks running statements through this driver measure only
+ * the overhead of the benchmark tool.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public final class NoopDriver implements Driver {
+    /**
+     * Url of a connection to nowhere
+     */
+    public static final String URL = "jdbc:noop:";
+
+    private static boolean registered;
+
+    /**
+     * Answers all calls to JDBC objects: returns further JDBC objects, no results and default values.
+     */
+    private static final InvocationHandler HANDLER = new InvocationHandler() {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            Class<?> type = method.getReturnType();
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            } else if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            } else if ("toString".equals(name)) {
+                return "noop " + method.getDeclaringClass().getSimpleName();
+            } else if (type.isInterface() && type.getName().startsWith("java.sql.")) {
+                return create(type);
+            } else if (type == boolean.class) {
+                return "getAutoCommit".equals(name) || "isValid".equals(name);
+            } else if (type == int.class) {
+                // no result set and no update count: the statement is done
+                return "getUpdateCount".equals(name) ? -1 : 0;
+            } else if (type == long.class) {
+                return 0L;
+            } else if (type == int[].class) {
+                return new int[0];
+            } else if (type == String.class) {
+                return "";
+            }
+            return null;
+        }
+    };
+
+    private NoopDriver() {
+        // registered by register()
+    }
+
+    /**
+     * Register the driver with the DriverManager, once.
+     *
+     * @throws SQLException if the driver can't be registered
+     */
+    public static synchronized void register() throws SQLException {
+        if (!registered) {
+            DriverManager.registerDriver(new NoopDriver());
+            registered = true;
+        }
+    }
+
+    /**
+     * Create a proxy for a JDBC interface
+     *
+     * @param type the interface
+     * @param <T>  type of the interface
+     * @return a proxy accepting every call
+     */
+    private static <T> T create(Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(NoopDriver.class.getClassLoader(), new Class<?>[]{type}, HANDLER));
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) {
+        return acceptsURL(url) ? create(Connection.class) : null;
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith(URL);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException("No logging");
+    }
+}
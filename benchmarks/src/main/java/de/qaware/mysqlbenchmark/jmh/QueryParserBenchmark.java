@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.jmh;
+
+import de.qaware.mysqlbenchmark.logfile.LogEntry;
+import de.qaware.mysqlbenchmark.logfile.LogEntryListener;
+import de.qaware.mysqlbenchmark.logfile.QueryParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing speed of the general query log: single lines with {@link QueryParser#parseLine(String, String, List)} and
+ * whole files with {@link QueryParser#parseLogFile(String, String, List)} and every backend, with a few or many
+ * ignored prefixes.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryParserBenchmark {
+    /**
+     * Prefixes usually ignored when replaying a log of an application
+     */
+    private static final List<String> IGNORE_PREFIXES = Arrays.asList("SET ", "SHOW ");
+
+    @Param({"ISO", "SHORT"})
+    private LogCorpus.Style style;
+
+    @Param({"100000"})
+    private int statements;
+
+    @Param({"2", "50"})
+    private int ignoredPrefixes;
+
+    private List<String> ignorePrefixes;
+
+    private String[] lines;
+    private QueryParser lineParser;
+    private int next;
+    private long parsed;
+
+    /**
+     * Counts the parsed statements
+     */
+    private final LogEntryListener counter = new LogEntryListener() {
+        @Override
+        public void entryParsed(LogEntry entry) {
+            parsed++;
+        }
+
+        @Override
+        public void connectionClosed(String connectionID) {
+            // nothing to count
+        }
+    };
+
+    /**
+     * The log file and the backend reading it, only needed for {@link #parseLogFile(LogFile)}
+     */
+    @State(Scope.Thread)
+    public static class LogFile {
+        @Param({"REGEX", "SCANNER", "PARALLEL"})
+        private QueryParser.Backend backend;
+
+        private File file;
+
+        /**
+         * Generate the log file
+         *
+         * @param benchmark the benchmark, for the size and style of the log
+         * @throws IOException if the file can't be written
+         */
+        @Setup
+        public void setup(QueryParserBenchmark benchmark) throws IOException {
+            file = LogCorpus.write(benchmark.statements, 20, benchmark.style, 42);
+        }
+    }
+
+    /**
+     * Generate the log in memory
+     */
+    @Setup
+    public void setup() {
+        List<String> corpus = LogCorpus.generate(statements, 20, style, 42);
+        lines = corpus.toArray(new String[corpus.size()]);
+        lineParser = new QueryParser(counter);
+
+        // the usual prefixes, followed by calls of stored procedures which don't occur in the log
+        ignorePrefixes = new ArrayList<String>(IGNORE_PREFIXES);
+        for (int i = ignorePrefixes.size(); i < ignoredPrefixes; i++) {
+            ignorePrefixes.add("CALL proc_" + i);
+        }
+    }
+
+    /**
+     * Parse one line of the log, the regular expression parser is the only one parsing single lines
+     *
+     * @return statements parsed so far
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long parseLine() {
+        lineParser.parseLine(lines[next], null, ignorePrefixes);
+        if (++next == lines.length) {
+            next = 0;
+        }
+        return parsed;
+    }
+
+    /**
+     * Parse the whole log file with the selected backend
+     *
+     * @param log the log file and backend
+     * @return statements parsed so far
+     * @throws IOException if the file can't be read
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long parseLogFile(LogFile log) throws IOException {
+        QueryParser parser = new QueryParser(counter);
+        parser.setBackend(log.backend);
+        parser.parseLogFile(log.file.getPath(), null, ignorePrefixes);
+        return parsed;
+    }
+}
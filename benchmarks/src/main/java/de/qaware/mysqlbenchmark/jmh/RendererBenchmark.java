@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.jmh;
+
+import de.qaware.mysqlbenchmark.QueryBenchmark;
+import de.qaware.mysqlbenchmark.sql.SQLStatementExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering the results of a run with many distinct statements in every format, e.g. with
+ * {@link de.qaware.mysqlbenchmark.jetm.CsvRenderer}, including the percentile columns.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class RendererBenchmark {
+    @Param({"CSV", "JETM", "JSON"})
+    private QueryBenchmark.Format format;
+
+    @Param({"1000", "100000"})
+    private int points;
+
+    private SQLStatementExecutor executor;
+    private QueryBenchmark benchmark;
+    private final CountingWriter writer = new CountingWriter();
+
+    /**
+     * Run one statement per measurement point on a connection to nowhere
+     *
+     * @throws SQLException if the connection can't be opened
+     */
+    @Setup
+    public void setup() throws SQLException {
+        NoopDriver.register();
+        executor = new SQLStatementExecutor();
+        executor.initConnection(NoopDriver.URL, "benchmark", "benchmark");
+        benchmark = new QueryBenchmark(executor);
+
+        List<String> statements = new ArrayList<String>(points);
+        for (int i = 0; i < points; i++) {
+            statements.add("SELECT id, name, price FROM articles WHERE id = " + i);
+        }
+        benchmark.processQueries(statements);
+    }
+
+    /**
+     * Close the connection
+     *
+     * @throws SQLException if the connection can't be closed
+     */
+    @TearDown
+    public void tearDown() throws SQLException {
+        executor.closeConnection();
+    }
+
+    /**
+     * Render the results
+     *
+     * @return number of rendered characters
+     * @throws IOException never, the writer discards everything
+     */
+    @Benchmark
+    public long render() throws IOException {
+        writer.count = 0;
+        benchmark.writeResult(format, writer);
+        return writer.count;
+    }
+
+    /**
+     * Discards everything, only counts the characters
+     */
+    private static final class CountingWriter extends Writer {
+        private long count;
+
+        @Override
+        public void write(int c) {
+            count++;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void write(String text, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void flush() {
+            // nothing buffered
+        }
+
+        @Override
+        public void close() {
+            // nothing to close
+        }
+    }
+}
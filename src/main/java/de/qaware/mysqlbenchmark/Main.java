@@ -18,16 +18,12 @@ package de.qaware.mysqlbenchmark;
 
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.ParameterException;
-import com.beust.jcommander.Strings;
+import de.qaware.mysqlbenchmark.compare.CompareCommand;
 import de.qaware.mysqlbenchmark.console.Parameters;
-import de.qaware.mysqlbenchmark.logfile.QueryParser;
-import de.qaware.mysqlbenchmark.sql.SQLStatementExecutor;
+import de.qaware.mysqlbenchmark.mode.BenchmarkMode;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.sql.SQLException;
+import java.util.Arrays;
 
 /**
  * Entry point for starting the benchmark tool
@@ -36,7 +32,6 @@ import java.sql.SQLException;
  * @author Felix Kelm felix.kelm@qaware.de
  */
 final class Main {
-    private static QueryParser parser = new QueryParser();
     private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(Main.class);
 
     private Main() {
@@ -46,10 +41,17 @@ final class Main {
     /**
      * Main entry point.
      *
-     * @param args args are described in the class {@link de.qaware.mysqlbenchmark.console.Parameters}
+     * @param args args are described in the class {@link de.qaware.mysqlbenchmark.console.Parameters}, or the
+     *             compare command followed by the args described in
+     *             {@link de.qaware.mysqlbenchmark.console.CompareParameters}
      */
     public static void main(String[] args) {
 
+        // compare two result files instead of running the benchmark
+        if (args.length > 0 && CompareCommand.NAME.equals(args[0])) {
+            System.exit(CompareCommand.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+
         /**
          * Read command line parameters using jcommander
          */
@@ -67,59 +69,22 @@ final class Main {
             return;
         }
 
-        SQLStatementExecutor executor = new SQLStatementExecutor();
+        // compile the log, ramp, sweep or replay in iterations, every mode checks its own parameters
+        BenchmarkMode mode;
+        try {
+            mode = BenchmarkMode.select(params);
+            mode.prepare();
+        } catch (IOException e) {
+            LOG.error(e.getMessage(), e.getCause());
+            return;
+        } catch (IllegalArgumentException e) {
+            LOG.error(e.getMessage(), e.getCause());
+            return;
+        }
 
         /**
          * parse the logfile and run queries
          */
-        try {
-            if(!new File(params.getInputFile()).exists()){
-                LOG.error("The log file '{}' was not found. Please check your -log parameter.", params.getInputFile());
-                return;
-            }
-
-            parser.parseLogFile(params.getInputFile(), params.getConnectionID(), params.getIgnorePrefixes());
-            LOG.info("Read " + parser.getQueries().size() + " queries from file '" + params.getInputFile() + "'.");
-
-            executor.initConnection(params.getServer() + params.getDatabase(), params.getUsername(), params.getPassword());
-            QueryBenchmark benchmark = new QueryBenchmark(executor);
-
-            // process queries
-            try {
-                LOG.info("Executing benchmark...");
-                benchmark.processQueries(parser.getQueries());
-                LOG.info("Benchmark completed");
-            } catch (Exception e) {
-                LOG.error("Error processing queries.", e);
-            }
-            // get time measurements
-            String result = benchmark.getResult(QueryBenchmark.Format.get(params.getFormat()));
-
-            if (params.isVerbose()) {
-                LOG.info(result);
-            }
-
-            // write result to file if needed
-            if (!Strings.isStringEmpty(params.getResultfilename())) {
-                FileWriter writer = new FileWriter(params.getResultfilename());
-                LOG.info("Writing result to " + params.getResultfilename());
-                writer.write(result);
-                writer.close();
-            }
-
-        } catch (FileNotFoundException e) {
-            LOG.error("File not found.", e);
-        } catch (IOException e) {
-            LOG.error("IO Exception.", e);
-        } catch (SQLException e) {
-            LOG.error("SQL Exception.", e);
-        } finally {
-            try {
-                executor.closeConnection();
-            } catch (Exception e) {
-                /* Intentionally Swallow  Exception */
-                LOG.error("Could not close sql connection.");
-            }
-        }
+        mode.run();
     }
 }
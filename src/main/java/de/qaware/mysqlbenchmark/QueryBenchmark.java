@@ -16,18 +16,50 @@
 
 package de.qaware.mysqlbenchmark;
 
+import de.qaware.mysqlbenchmark.fingerprint.FingerprintStatistics;
+import de.qaware.mysqlbenchmark.fingerprint.QueryFingerprint;
+import de.qaware.mysqlbenchmark.histogram.LatencyHistogram;
+import de.qaware.mysqlbenchmark.histogram.LatencyStatistics;
+import de.qaware.mysqlbenchmark.jetm.ColumnProvider;
+import de.qaware.mysqlbenchmark.jetm.CompositeColumnProvider;
 import de.qaware.mysqlbenchmark.jetm.CsvRenderer;
-import de.qaware.mysqlbenchmark.sql.SQLStatementExecutor;
+import de.qaware.mysqlbenchmark.jetm.JsonRenderer;
+import de.qaware.mysqlbenchmark.jetm.TextRenderer;
+import de.qaware.mysqlbenchmark.logfile.LogEntry;
+import de.qaware.mysqlbenchmark.logfile.RecordedExecution;
+import de.qaware.mysqlbenchmark.logfile.RecordedStatistics;
+import de.qaware.mysqlbenchmark.monitor.IntervalReporter;
+import de.qaware.mysqlbenchmark.monitor.ThroughputWindow;
+import de.qaware.mysqlbenchmark.replay.ReplayScheduler;
+import de.qaware.mysqlbenchmark.replay.TransactionGrouper;
+import de.qaware.mysqlbenchmark.sql.BatchStatistics;
+import de.qaware.mysqlbenchmark.sql.ExecutionResult;
+import de.qaware.mysqlbenchmark.sql.ExecutionStatistics;
+import de.qaware.mysqlbenchmark.sql.StatementExecutor;
+import de.qaware.mysqlbenchmark.sql.StatementTemplate;
+import de.qaware.mysqlbenchmark.sql.TransactionControl;
+import de.qaware.mysqlbenchmark.sql.TransactionStatistics;
 import etm.core.configuration.BasicEtmConfigurator;
 import etm.core.configuration.EtmManager;
+import etm.core.monitor.EtmException;
 import etm.core.monitor.EtmMonitor;
 import etm.core.monitor.EtmPoint;
 import etm.core.renderer.MeasurementRenderer;
-import etm.core.renderer.SimpleTextRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Executes a list of SQL statements. Results can be retrieved in the formats: JETM-formatting and CSV.
@@ -35,15 +67,49 @@ import java.util.List;
  * @author Felix Kelm felix.kelm@qaware.de
  */
 public class QueryBenchmark {
+    private static final Logger LOG = LoggerFactory.getLogger(QueryBenchmark.class);
+    private static final double NANOS_PER_SECOND = 1000000000d;
+    private static final String QUERY_POINT_PREFIX = "Query: ";
+    private static final String BATCH_POINT_PREFIX = "Batch: ";
+    private static final String COMMIT_POINT = "Commit";
+    private static final String ROLLBACK_POINT = "Rollback";
+    private static final String MEASUREMENT_POINT = "Measurement";
+    private static final String ALL_STATEMENTS = "All statements";
+    private static final double NANOS_PER_MILLISECOND = 1000000d;
+
     private EtmMonitor etmMonitor;
-    private SQLStatementExecutor executor;
+    private EtmPoint measurementPoint;
+    private StatementExecutor executor;
+    private ReplayScheduler scheduler;
+    private FingerprintStatistics fingerprints;
+    private final LatencyStatistics latencies = new LatencyStatistics();
+    private final LatencyStatistics correctedLatencies = new LatencyStatistics();
+    private ExecutionStatistics executions;
+    private final RecordedStatistics recordings = new RecordedStatistics();
+    private IntervalReporter intervalReporter;
+    private final BatchStatistics batches = new BatchStatistics();
+    private int batchSize;
+    private final TransactionStatistics transactions = new TransactionStatistics();
+    private boolean transactional;
+
+    private final AtomicLong executedStatements = new AtomicLong();
+    private final ThroughputWindow throughput = new ThroughputWindow();
+    private final AtomicLong failedStatements = new AtomicLong();
+    private final AtomicLong inFlightStatements = new AtomicLong();
+    private final Object pauseLock = new Object();
+    private volatile boolean paused;
+    private volatile long totalStatements = -1;
+    private int connections = 1;
+    private String configurationName;
+    private long startTime;
+    private long stopTime;
 
     /**
      * Constructor
      *
      * @param executor executor to execute the sql queries.
      */
-    public QueryBenchmark(SQLStatementExecutor executor) {
+    public QueryBenchmark(StatementExecutor executor) {
         this.executor = executor;
     }
 
@@ -54,41 +120,726 @@ public class QueryBenchmark {
      * @throws SQLException
      */
     public void processQueries(List<String> queries) throws SQLException {
-        // start jetm for time measurements
+        start();
+        try {
+            for (String query : queries) {
+                executeStatement(executor, query);
+            }
+        } finally {
+            stop();
+        }
+    }
+
+    /**
+     * Run the log entries in log order against the executor and measure timings with jetm. If a
+     * {@link ReplayScheduler} is set, every entry waits for its original time offset. If transactions are replayed,
+     * the statements of every transaction are executed together, see {@link TransactionGrouper}.
+     *
+     * @param entries log entries to execute
+     */
+    public void processEntries(List<LogEntry> entries) {
+        start();
+        try {
+            if (transactional) {
+                for (List<LogEntry> unit : TransactionGrouper.group(entries)) {
+                    for (LogEntry entry : unit) {
+                        executeStatement(executor, entry);
+                    }
+                    endSession(executor);
+                }
+            } else {
+                for (LogEntry entry : entries) {
+                    executeStatement(executor, entry);
+                }
+            }
+            endSession(executor);
+        } finally {
+            stop();
+        }
+    }
+
+    /**
+     * Start jetm for time measurements and open the aggregation measurement point spanning the whole run. The
+     * measurements of a previous run are discarded.
+     */
+    public void start() {
         BasicEtmConfigurator.configure();
         etmMonitor = EtmManager.getEtmMonitor();
         etmMonitor.start();
+        // every run is measured on its own, e.g. after a warmup pass
+        etmMonitor.reset();
 
-        // one aggregation measurement point
-        EtmPoint mpoint = etmMonitor.createPoint("Measurement");
+        executedStatements.set(0);
+        throughput.reset();
+        failedStatements.set(0);
+        latencies.clear();
+        correctedLatencies.clear();
+        batches.clear();
+        transactions.clear();
+        recordings.clear();
+        executor.getPrepareStatistics().clear();
+        if (executions != null) {
+            executions.clear();
+        }
+        if (fingerprints != null) {
+            fingerprints.clear();
+        }
+        startTime = System.nanoTime();
+        if (scheduler != null) {
+            scheduler.start();
+            if (paused) {
+                scheduler.pause();
+            }
+        }
+        measurementPoint = etmMonitor.createPoint(MEASUREMENT_POINT);
+        if (intervalReporter != null) {
+            intervalReporter.start();
+        }
+    }
+
+    /**
+     * Collect the aggregation measurement point and stop jetm.
+     */
+    public void stop() {
+        if (intervalReporter != null) {
+            intervalReporter.stop();
+        }
+        if (latencies.getUntrackedCount() > 0) {
+            LOG.warn("Latency percentiles are kept for {} distinct statements, {} further executions are only part of"
+                    + " the totals. Use -fingerprint to measure statements by their shape.",
+                    latencies.getPointNames().size(), latencies.getUntrackedCount());
+        }
+        measurementPoint.collect();
+        stopTime = System.nanoTime();
+        etmMonitor.stop();
+    }
+
+    /**
+     * Execute one statement on the given executor and measure its timing. May be called concurrently from
+     * several threads as long as each thread uses its own executor.
+     *
+     * @param statementExecutor the executor to run the statement on
+     * @param query             the statement to execute
+     */
+    public void executeStatement(StatementExecutor statementExecutor, String query) {
+        execute(statementExecutor, query, null, false, 0);
+    }
+
+    /**
+     * Execute one log entry on the given executor and measure its timing. If a {@link ReplayScheduler} is set,
+     * the call blocks until the entry is due. The waiting time is not part of the measurement, but the latency from
+     * the intended start time is recorded as well, correcting for coordinated omission: a statement which starts late
+     * because earlier statements were slow has its full delay counted.
+     * <p/>
+     * With a batch size, writing statements are collected in a batch of the executor instead, which is executed when
+     * it is full or the next statement does not fit into it. Call {@link #endSession(StatementExecutor)} when the
+     * replay of the connection is finished.
+     * <p/>
+     * If transactions are replayed, begin, commit, rollback and changes of autocommit are executed with the
+     * transaction methods of the executor and the transactions are measured.
+     *
+     * @param statementExecutor the executor to run the statement on
+     * @param entry             the log entry to execute
+     */
+    public void executeStatement(StatementExecutor statementExecutor, LogEntry entry) {
+        if (transactional) {
+            TransactionControl control = TransactionControl.of(entry.getStatement());
+            if (control != TransactionControl.NONE) {
+                if (scheduler != null) {
+                    scheduler.awaitStart(entry);
+                }
+                executeTransactionControl(statementExecutor, control);
+                return;
+            }
+            if (!statementExecutor.isAutoCommit() && !statementExecutor.isInTransaction()) {
+                // without autocommit every statement starts a transaction
+                statementExecutor.begin();
+            }
+        }
+
+        if (batchSize > 0 && StatementTemplate.isWrite(entry.getStatement())) {
+            if (scheduler != null) {
+                scheduler.awaitStart(entry);
+            }
+            addBatch(statementExecutor, entry);
+            return;
+        }
+
+        // statements are executed in log order
+        flushBatch(statementExecutor);
+        if (scheduler != null) {
+            long intendedStart = scheduler.awaitStart(entry);
+            execute(statementExecutor, entry.getStatement(), entry.getRecorded(), true, intendedStart);
+        } else {
+            execute(statementExecutor, entry.getStatement(), entry.getRecorded(), false, 0);
+        }
+    }
+
+    /**
+     * Execute one statement and record its timings.
+     *
+     * @param statementExecutor the executor to run the statement on
+     * @param query             the statement to execute
+     * @param recorded          the execution of the statement recorded in the log, may be null
+     * @param scheduled         true if the statement has an intended start time
+     * @param intendedStart     the intended start time comparable to {@link System#nanoTime()}
+     */
+    private void execute(StatementExecutor statementExecutor, String query, RecordedExecution recorded,
+                         boolean scheduled, long intendedStart) {
+        awaitResume();
+
+        // one measurement point for every query or fingerprint
+        String pointName = QUERY_POINT_PREFIX
+                + (fingerprints != null ? fingerprints.record(query) : QueryFingerprint.singleLine(query));
+        EtmPoint qpoint = etmMonitor.createPoint(pointName);
+        long begin = System.nanoTime();
+        boolean failed = true;
+        inFlightStatements.incrementAndGet();
         try {
-            for (String query : queries) {
-                // one measurement point for every query
-                EtmPoint qpoint = etmMonitor.createPoint("Query: " + query);
-                try {
-                    executor.executeStatement(query);
-                } finally {
-                    qpoint.collect();
+            if (executions != null) {
+                ExecutionResult result = statementExecutor.executeAndFetch(query);
+                if (result != null) {
+                    executions.record(pointName, result);
+                    failed = false;
+                }
+            } else {
+                failed = !statementExecutor.executeStatement(query);
+            }
+        } finally {
+            long end = System.nanoTime();
+            inFlightStatements.decrementAndGet();
+            latencies.record(pointName, end - begin);
+            if (recorded != null) {
+                recordings.record(pointName, recorded);
+            }
+            if (scheduled) {
+                correctedLatencies.record(pointName, end - intendedStart);
+            }
+            if (intervalReporter != null) {
+                intervalReporter.record(pointName, end - (scheduled ? intendedStart : begin), failed);
+            }
+            if (failed) {
+                failedStatements.incrementAndGet();
+            }
+            qpoint.collect();
+            countExecuted(1);
+        }
+    }
+
+    /**
+     * Add a writing statement to the batch of the executor. A pending batch which the statement does not fit into
+     * is executed first, the batch is executed when it is full.
+     *
+     * @param statementExecutor the executor collecting the batch
+     * @param entry             the log entry to add
+     */
+    private void addBatch(StatementExecutor statementExecutor, LogEntry entry) {
+        awaitResume();
+
+        StatementTemplate template = StatementTemplate.parse(entry.getStatement());
+        if (!statementExecutor.isBatchCompatible(entry.getConnectionID(), template)) {
+            flushBatch(statementExecutor);
+        }
+        if (!statementExecutor.addBatch(entry.getConnectionID(), template)) {
+            failedStatements.incrementAndGet();
+            countExecuted(1);
+            return;
+        }
+        if (statementExecutor.getBatchCount() >= batchSize) {
+            flushBatch(statementExecutor);
+        }
+    }
+
+    /**
+     * Execute a statement controlling the transaction of the executor.
+     *
+     * @param statementExecutor the executor to run the statement on
+     * @param control           the kind of statement
+     */
+    private void executeTransactionControl(StatementExecutor statementExecutor, TransactionControl control) {
+        awaitResume();
+        flushBatch(statementExecutor);
+
+        boolean failed = false;
+        switch (control) {
+            case BEGIN:
+                // a begin commits the running transaction implicitly
+                if (statementExecutor.isInTransaction()) {
+                    endTransaction(statementExecutor, true, true);
+                }
+                failed = !statementExecutor.begin();
+                break;
+            case COMMIT:
+            case ROLLBACK:
+                if (statementExecutor.isInTransaction()) {
+                    endTransaction(statementExecutor, control == TransactionControl.COMMIT, false);
+                    return;
+                }
+                break;
+            case AUTOCOMMIT_ON:
+                if (statementExecutor.isInTransaction()) {
+                    endTransaction(statementExecutor, true, true);
+                }
+                failed = !statementExecutor.setAutoCommit(true);
+                break;
+            case AUTOCOMMIT_OFF:
+                failed = !statementExecutor.setAutoCommit(false);
+                break;
+            default:
+                break;
+        }
+        if (failed) {
+            failedStatements.incrementAndGet();
+        }
+        countExecuted(1);
+    }
+
+    /**
+     * Commit or roll back the running transaction of the executor and record the timing of the commit or rollback
+     * and of the whole transaction. An implicit end is done by the tool for a statement of the log which ends the
+     * transaction as a side effect, or for a session ending within a transaction. It is no statement of the log, so
+     * it is not counted as executed or failed statement.
+     *
+     * @param statementExecutor the executor running the transaction
+     * @param commit            true to commit, false to roll back
+     * @param implicit          true if the log has no statement for this commit or rollback
+     */
+    private void endTransaction(StatementExecutor statementExecutor, boolean commit, boolean implicit) {
+        String pointName = commit ? COMMIT_POINT : ROLLBACK_POINT;
+        EtmPoint tpoint = etmMonitor.createPoint(pointName);
+        long begin = System.nanoTime();
+        boolean failed = true;
+        inFlightStatements.incrementAndGet();
+        try {
+            failed = !statementExecutor.end(commit);
+        } finally {
+            long end = System.nanoTime();
+            inFlightStatements.decrementAndGet();
+            latencies.record(pointName, end - begin);
+            if (intervalReporter != null) {
+                intervalReporter.record(pointName, end - begin, failed);
+            }
+            if (failed) {
+                transactions.failed();
+            } else if (commit) {
+                transactions.committed(end - statementExecutor.getTransactionStart(), end - begin);
+            } else {
+                transactions.rolledBack();
+            }
+            tpoint.collect();
+            if (implicit) {
+                transactions.endedImplicitly();
+            } else {
+                if (failed) {
+                    failedStatements.incrementAndGet();
                 }
+                countExecuted(1);
             }
+        }
+    }
+
+    /**
+     * Finish the replay of a connection: the pending batch of the executor is executed and a transaction which was
+     * not ended in the log is rolled back, like the server does when a connection is closed.
+     *
+     * @param statementExecutor the executor of the connection
+     */
+    public void endSession(StatementExecutor statementExecutor) {
+        flushBatch(statementExecutor);
+        if (statementExecutor.isInTransaction()) {
+            LOG.warn("Rolling back a transaction which was not ended in the log.");
+            endTransaction(statementExecutor, false, true);
+        }
+    }
+
+    /**
+     * Execute the pending batch of the executor and record its timing. There is one measurement point for every
+     * statement template, its latency is the latency of whole batches.
+     *
+     * @param statementExecutor the executor holding the batch
+     */
+    private void flushBatch(StatementExecutor statementExecutor) {
+        int count = statementExecutor.getBatchCount();
+        if (count == 0) {
+            return;
+        }
+
+        String pointName = BATCH_POINT_PREFIX + QueryFingerprint.singleLine(statementExecutor.getBatchTemplate());
+        EtmPoint bpoint = etmMonitor.createPoint(pointName);
+        long begin = System.nanoTime();
+        long rows = -1;
+        inFlightStatements.addAndGet(count);
+        try {
+            rows = statementExecutor.executeBatch();
         } finally {
-            mpoint.collect();
-            etmMonitor.stop();
+            long nanos = System.nanoTime() - begin;
+            inFlightStatements.addAndGet(-count);
+            latencies.record(pointName, nanos);
+            batches.record(count, rows, nanos);
+            if (intervalReporter != null) {
+                intervalReporter.record(pointName, nanos, rows < 0);
+            }
+            if (rows < 0) {
+                failedStatements.addAndGet(count);
+            }
+            bpoint.collect();
+            countExecuted(count);
+        }
+    }
+
+    /**
+     * Count executed statements and sample the throughput.
+     *
+     * @param count number of statements
+     */
+    private void countExecuted(int count) {
+        throughput.sample(executedStatements.addAndGet(count));
+    }
+
+    /**
+     * Block the calling thread while the benchmark is paused.
+     */
+    private void awaitResume() {
+        if (!paused) {
+            return;
+        }
+        synchronized (pauseLock) {
+            while (paused) {
+                try {
+                    pauseLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop starting new statements until {@link #resume()} is called. Statements in flight are finished, the
+     * {@link ReplayScheduler} excludes the pause from the schedule.
+     */
+    public void pause() {
+        synchronized (pauseLock) {
+            paused = true;
+            if (scheduler != null) {
+                scheduler.pause();
+            }
+        }
+    }
+
+    /**
+     * Continue a paused benchmark.
+     */
+    public void resume() {
+        synchronized (pauseLock) {
+            paused = false;
+            if (scheduler != null) {
+                scheduler.resume();
+            }
+            pauseLock.notifyAll();
+        }
+    }
+
+    /**
+     * Check if the benchmark is paused
+     *
+     * @return true if paused
+     */
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Replace the executor, e.g. to replay the same workload with another driver configuration. Its connection has to
+     * be initialized before statements are executed on it.
+     *
+     * @param executor executor to execute the sql queries.
+     */
+    public void setExecutor(StatementExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Create an executor for another connection with the same settings as the executor of this benchmark.
+     *
+     * @return a new executor without connection
+     */
+    public StatementExecutor createExecutor() {
+        return executor.newExecutor();
+    }
+
+    /**
+     * Open a measurement point for a whole replayed session. The caller has to collect the point when the session is
+     * finished.
+     *
+     * @param connectionID the connection id of the session from the log
+     * @return the measurement point
+     */
+    public EtmPoint createSessionPoint(String connectionID) {
+        return etmMonitor.createPoint("Session: " + connectionID);
+    }
+
+    /**
+     * Name the configuration the statements are executed with, e.g. in a driver sweep. Only used for reporting.
+     *
+     * @param configurationName name written into the JSON results, null for none
+     */
+    public void setConfigurationName(String configurationName) {
+        this.configurationName = configurationName;
+    }
+
+    /**
+     * Name of the configuration the statements are executed with
+     *
+     * @return name, null if not set
+     */
+    public String getConfigurationName() {
+        return configurationName;
+    }
+
+    /**
+     * Set the number of connections the statements are executed on. Only used for reporting.
+     *
+     * @param connections number of connections
+     */
+    public void setConnections(int connections) {
+        this.connections = connections;
+    }
+
+    /**
+     * Replay the statements at their original time offsets. Set to null to replay as fast as possible.
+     *
+     * @param scheduler the scheduler releasing the statements
+     */
+    public void setScheduler(ReplayScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Aggregate the measurements by the fingerprint of the statements instead of the raw statements. Statements which
+     * differ only in literal values share one measurement point.
+     *
+     * @param fingerprinting true to aggregate by fingerprint
+     */
+    public void setFingerprinting(boolean fingerprinting) {
+        this.fingerprints = fingerprinting ? new FingerprintStatistics() : null;
+    }
+
+    /**
+     * Read all results of the statements, measuring execute and fetch time, rows and bytes separately. Allows
+     * statements without results like inserts and updates.
+     *
+     * @param fetchResults true to read all results
+     */
+    public void setFetchResults(boolean fetchResults) {
+        this.executions = fetchResults ? new ExecutionStatistics() : null;
+    }
+
+    /**
+     * Execute consecutive writing statements of the same connection with the same template in JDBC batches of up to
+     * this size. Not combined with a constant rate.
+     *
+     * @param batchSize maximum number of statements per batch, 0 to execute every statement on its own
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Replay transactions: begin, commit, rollback and changes of autocommit in the log control the transactions of
+     * the executors, and transactions per second, transaction and commit latency are reported.
+     *
+     * @param transactional true to replay transactions
+     */
+    public void setTransactional(boolean transactional) {
+        this.transactional = transactional;
+    }
+
+    /**
+     * Check if transactions are replayed
+     *
+     * @return true if transactions are replayed
+     */
+    public boolean isTransactional() {
+        return transactional;
+    }
+
+    /**
+     * Report throughput, errors and latency percentiles periodically while the benchmark runs. Set to null to report
+     * the final results only.
+     *
+     * @param intervalReporter the reporter
+     */
+    public void setIntervalReporter(IntervalReporter intervalReporter) {
+        this.intervalReporter = intervalReporter;
+    }
+
+    /**
+     * Set the number of statements of one run, used to report the progress of a run.
+     *
+     * @param totalStatements number of statements, -1 if not known
+     */
+    public void setTotalStatements(long totalStatements) {
+        this.totalStatements = totalStatements;
+    }
+
+    /**
+     * Number of statements of one run
+     *
+     * @return number of statements, -1 if not known
+     */
+    public long getTotalStatements() {
+        return totalStatements;
+    }
+
+    /**
+     * The scheduler releasing the statements
+     *
+     * @return scheduler, null if replaying as fast as possible
+     */
+    public ReplayScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Number of statements being executed right now
+     *
+     * @return statements in flight
+     */
+    public long getInFlightStatements() {
+        return inFlightStatements.get();
+    }
+
+    /**
+     * Throughput of the current run over the last seconds, see {@link ThroughputWindow}
+     *
+     * @return statements per second
+     */
+    public double getCurrentThroughput() {
+        return throughput.getThroughput(executedStatements.get());
+    }
+
+    /**
+     * Latency histograms of every statement or fingerprint of the current run
+     *
+     * @return latency statistics with nanosecond values
+     */
+    public LatencyStatistics getLatencyStatistics() {
+        return latencies;
+    }
+
+    /**
+     * Number of statements which failed in the last run
+     *
+     * @return failed statements
+     */
+    public long getFailedStatements() {
+        return failedStatements.get();
+    }
+
+    /**
+     * Number of statements executed in the last run
+     *
+     * @return executed statements
+     */
+    public long getExecutedStatements() {
+        return executedStatements.get();
+    }
+
+    /**
+     * Total throughput of the last run
+     *
+     * @return executed statements per second
+     */
+    public double getThroughput() {
+        double seconds = (stopTime - startTime) / NANOS_PER_SECOND;
+        return seconds > 0 ? executedStatements.get() / seconds : 0;
+    }
+
+    /**
+     * Latency histogram of all statements of the last run
+     *
+     * @return histogram with nanosecond values
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies.getTotal();
+    }
+
+    /**
+     * Average latency of every statement of the last run and of all statements together
+     *
+     * @return average latency in milliseconds by measurement point name
+     */
+    public Map<String, Double> getMeanLatencies() {
+        Map<String, Double> means = new LinkedHashMap<String, Double>();
+        means.put(ALL_STATEMENTS, latencies.getTotal().getMean() / NANOS_PER_MILLISECOND);
+        for (String pointName : new TreeSet<String>(latencies.getPointNames())) {
+            means.put(pointName, latencies.getHistogram(pointName).getMean() / NANOS_PER_MILLISECOND);
         }
+        return means;
     }
 
     /**
-     * Export format for measurements. Currently supported formats are CSV and JETM-Style.
+     * Latency histogram of all scheduled statements of the last run, measured from their intended start time
+     *
+     * @return histogram with nanosecond values, empty without {@link ReplayScheduler}
+     */
+    public LatencyHistogram getCorrectedLatencies() {
+        return correctedLatencies.getTotal();
+    }
+
+    /**
+     * Short summary of the last run: executed statements, duration, throughput and latency percentiles.
+     *
+     * @return summary
+     */
+    public String getSummary() {
+        String summary = String.format(Locale.ENGLISH,
+                "Executed %d statements on %d connection(s) in %.3f s (%.1f statements/s)",
+                executedStatements.get(), connections, (stopTime - startTime) / NANOS_PER_SECOND, getThroughput())
+                + (failedStatements.get() > 0
+                        ? String.format(Locale.ENGLISH, ", %d statements failed", failedStatements.get()) : "")
+                + System.getProperty("line.separator") + LatencyStatistics.format("Latency", latencies.getTotal());
+        if (correctedLatencies.getTotal().getCount() > 0) {
+            summary += System.getProperty("line.separator")
+                    + LatencyStatistics.format("Latency from intended start (corrected for coordinated omission)",
+                    correctedLatencies.getTotal());
+        }
+        if (scheduler != null) {
+            summary += System.getProperty("line.separator") + scheduler.getSummary();
+        }
+        if (!recordings.isEmpty()) {
+            summary += System.getProperty("line.separator") + recordings.getSummary(latencies.getTotal());
+        }
+        if (transactional) {
+            summary += System.getProperty("line.separator")
+                    + transactions.getSummary((stopTime - startTime) / NANOS_PER_SECOND);
+        }
+        if (batchSize > 0) {
+            summary += System.getProperty("line.separator")
+                    + batches.getSummary((stopTime - startTime) / NANOS_PER_SECOND);
+        }
+        if (executor.isStatementCacheEnabled()) {
+            summary += System.getProperty("line.separator") + executor.getPrepareStatistics().getSummary();
+        }
+        return summary;
+    }
+
+    /**
+     * Export format for measurements. Currently supported formats are CSV, JETM-Style and JSON.
      */
     public enum Format {
         JETM("jetm"),
-        CSV("csv");
+        CSV("csv"),
+        JSON("json");
 
         private Format(String format) {
         }
 
         /**
-         * Get the format from string. If the string is "csv" (ignoring case), the Format.CSV is returned, else JETM.
+         * Get the format from string. If the string is "csv" or "json" (ignoring case), the Format.CSV or Format.JSON
+         * is returned, else JETM.
          *
          * @param format string describing the format
          * @return a format for exporting the measurements
@@ -96,6 +847,8 @@ public class QueryBenchmark {
         public static Format get(String format) {
             if (format != null && "csv".equals(format.toLowerCase())) {
                 return CSV;
+            } else if (format != null && "json".equals(format.toLowerCase())) {
+                return JSON;
             } else {
                 return JETM;
             }
@@ -103,27 +856,161 @@ public class QueryBenchmark {
     }
 
     /**
-     * Get results for printing to console or writing to files
+     * Get results for printing to console or writing to files. Keeps the whole result in memory, use
+     * {@link #writeResult(Format, java.io.Writer)} for large results.
      *
      * @return result
      */
     public String getResult(Format format) {
         StringWriter sw = new StringWriter();
+        try {
+            writeResult(format, sw);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write to a string.", e);
+        }
+        return sw.getBuffer().toString();
+    }
+
+    /**
+     * Write the results of the last run. The measurements are streamed to the writer one point at a time.
+     *
+     * @param format the format
+     * @param writer the writer to write to, flushed but not closed
+     * @throws IOException if writing failed
+     */
+    public void writeResult(Format format, Writer writer) throws IOException {
+        if (etmMonitor == null) {
+            writer.write("No monitor initialized.");
+            writer.flush();
+            return;
+        }
 
         MeasurementRenderer renderer = null;
         switch (format) {
             case JETM:
-                renderer = new SimpleTextRenderer(sw);
+                writer.write(getSummary());
+                writer.write(System.getProperty("line.separator"));
+                TextRenderer textRenderer = new TextRenderer(writer, Locale.ENGLISH);
+                textRenderer.setColumnProvider(getColumnProvider());
+                renderer = textRenderer;
                 break;
             case CSV:
-                renderer = new CsvRenderer(sw);
+                CsvRenderer csvRenderer = new CsvRenderer(writer, Locale.ENGLISH);
+                csvRenderer.setColumnProvider(getColumnProvider());
+                renderer = csvRenderer;
+                break;
+            case JSON:
+                JsonRenderer jsonRenderer = new JsonRenderer(writer);
+                if (configurationName != null) {
+                    jsonRenderer.setProperty("configuration", configurationName);
+                }
+                jsonRenderer.setProperty("statements", executedStatements.get());
+                jsonRenderer.setProperty("failedStatements", failedStatements.get());
+                jsonRenderer.setProperty("connections", connections);
+                jsonRenderer.setProperty("seconds", (stopTime - startTime) / NANOS_PER_SECOND);
+                jsonRenderer.setProperty("throughput", getThroughput());
+                jsonRenderer.setColumnProvider(getColumnProvider());
+                renderer = jsonRenderer;
                 break;
         }
-        if (etmMonitor == null) {
-            return "No monitor initialized.";
+
+        try {
+            etmMonitor.render(renderer);
+        } catch (EtmException e) {
+            // the renderers report write errors as unchecked exception
+            throw new IOException(e.getMessage(), e);
         }
+    }
 
-        etmMonitor.render(renderer);
-        return sw.getBuffer().toString();
+    /**
+     * Additional result columns: latency percentiles of every statement and of all statements in the measurement
+     * point, the same from the intended start time for scheduled statements, execute and fetch times, rows and bytes
+     * if results are read, distinct statements and an example per fingerprint, and the times recorded in a slow
+     * query log next to the replayed ones.
+     *
+     * @return column provider
+     */
+    private ColumnProvider getColumnProvider() {
+        ColumnProvider percentiles = new ColumnProvider() {
+            @Override
+            public List<String> getHeadlines() {
+                return LatencyStatistics.PERCENTILE_NAMES;
+            }
+
+            @Override
+            public Object[] getValues(String pointName) {
+                LatencyHistogram histogram = MEASUREMENT_POINT.equals(pointName)
+                        ? latencies.getTotal() : latencies.getHistogram(pointName);
+                return histogram == null ? null : LatencyStatistics.getPercentiles(histogram);
+            }
+        };
+        List<ColumnProvider> providers = new ArrayList<ColumnProvider>();
+        providers.add(percentiles);
+        if (correctedLatencies.getTotal().getCount() > 0) {
+            providers.add(new ColumnProvider() {
+                @Override
+                public List<String> getHeadlines() {
+                    List<String> headlines = new ArrayList<String>();
+                    for (String name : LatencyStatistics.PERCENTILE_NAMES) {
+                        headlines.add("Corrected " + name);
+                    }
+                    return headlines;
+                }
+
+                @Override
+                public Object[] getValues(String pointName) {
+                    LatencyHistogram histogram = MEASUREMENT_POINT.equals(pointName)
+                            ? correctedLatencies.getTotal() : correctedLatencies.getHistogram(pointName);
+                    return histogram == null ? null : LatencyStatistics.getPercentiles(histogram);
+                }
+            });
+        }
+        if (executions != null) {
+            providers.add(new ColumnProvider() {
+                @Override
+                public List<String> getHeadlines() {
+                    return Arrays.asList("Avg Execute", "Avg Fetch", "Rows", "Bytes");
+                }
+
+                @Override
+                public Object[] getValues(String pointName) {
+                    return executions.getValues(pointName);
+                }
+            });
+        }
+        if (!recordings.isEmpty()) {
+            providers.add(new ColumnProvider() {
+                @Override
+                public List<String> getHeadlines() {
+                    return Arrays.asList("Recorded Avg", "Recorded p99", "Replay Ratio", "Recorded Lock",
+                            "Rows Examined");
+                }
+
+                @Override
+                public Object[] getValues(String pointName) {
+                    return MEASUREMENT_POINT.equals(pointName) ? recordings.getValues(null, latencies.getTotal())
+                            : recordings.getValues(pointName, latencies.getHistogram(pointName));
+                }
+            });
+        }
+        if (fingerprints != null) {
+            providers.add(new ColumnProvider() {
+                @Override
+                public List<String> getHeadlines() {
+                    return Arrays.asList("Distinct", "Example");
+                }
+
+                @Override
+                public Object[] getValues(String pointName) {
+                    if (!pointName.startsWith(QUERY_POINT_PREFIX)) {
+                        return null;
+                    }
+                    String fingerprint = pointName.substring(QUERY_POINT_PREFIX.length());
+                    return new Object[]{fingerprints.getDistinctStatements(fingerprint),
+                            fingerprints.getExample(fingerprint)};
+                }
+            });
+        }
+        return new CompositeColumnProvider(providers);
     }
 }
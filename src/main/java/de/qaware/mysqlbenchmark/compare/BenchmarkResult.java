@@ -0,0 +1,436 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.compare;
+
+import de.qaware.mysqlbenchmark.fingerprint.QueryFingerprint;
+import de.qaware.mysqlbenchmark.jetm.JsonReader;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.text.NumberFormat;
+import java.text.ParsePosition;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The measurements of a result file written by the benchmark in JETM, CSV or JSON format: one table or JSON line per
+ * measured iteration and the throughput of every iteration.
+ * <p/>
+ * The renderers pad every cell to the width of its column and write numbers with {@link Locale#ENGLISH}. The rows of
+ * a table are therefore cut at the column separators of its headline, so statements containing a separator keep their
+ * columns, and numbers in any other format are rejected.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class BenchmarkResult {
+    private static final String NAME_COLUMN = "Measurement Point";
+    private static final String COUNT_COLUMN = "#";
+    private static final String MEASUREMENT_POINT = "Measurement";
+    private static final String QUERY_POINT_PREFIX = "Query: ";
+    private static final String SESSION_POINT_PREFIX = "Session: ";
+    private static final char TEXT_SEPARATOR = '|';
+    private static final char CSV_SEPARATOR = ';';
+    private static final Pattern THROUGHPUT_PATTERN = Pattern.compile("\\(([\\d.]+) statements/s\\)");
+    private static final Pattern COUNT_PATTERN = Pattern.compile("\\d+");
+    private static final Pattern TIME_PATTERN = Pattern.compile("-?(\\d{1,3}(,\\d{3})*|\\d+)\\.\\d+");
+
+    private final List<Map<String, ResultRow>> iterations;
+    private final List<Double> throughputs;
+
+    private BenchmarkResult(List<Map<String, ResultRow>> iterations, List<Double> throughputs) {
+        this.iterations = iterations;
+        this.throughputs = throughputs;
+    }
+
+    /**
+     * Read a result file. Every table with a '#' column and every JSON line with points is one iteration, the
+     * combination of several iterations is skipped. The throughput is taken from the summary line in front of a table
+     * or the throughput member of a JSON line, or computed from the executions and the duration of the run in CSV
+     * files.
+     *
+     * @param fileName the result file
+     * @return the result
+     * @throws IOException if the file can't be read or contains no measurements
+     */
+    public static BenchmarkResult read(String fileName) throws IOException {
+        List<Map<String, ResultRow>> iterations = new ArrayList<Map<String, ResultRow>>();
+        List<Double> throughputs = new ArrayList<Double>();
+
+        BufferedReader reader = new BufferedReader(new FileReader(fileName));
+        try {
+            Map<String, Integer> columns = null;
+            Map<String, ResultRow> rows = null;
+            String headline = null;
+            double duration = Double.NaN;
+            double throughput = Double.NaN;
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (rows != null) {
+                    if (line.startsWith("|-")) {
+                        continue;
+                    }
+                    String[] cells = cut(line, headline);
+                    boolean nextHeadline = cells != null && NAME_COLUMN.equals(cells[0]);
+                    if (cells != null && !nextHeadline) {
+                        if (cells[0].length() == 0) {
+                            continue;
+                        }
+                        ResultRow row;
+                        try {
+                            row = new ResultRow(cells[0], count(cells, columns), time(cells, columns, "Average"),
+                                    time(cells, columns, "p50"), time(cells, columns, "p90"),
+                                    time(cells, columns, "p99"));
+                        } catch (NumberFormatException e) {
+                            throw new IOException(String.format(Locale.ENGLISH, "Line %d of '%s': %s", lineNumber,
+                                    fileName, e.getMessage()), e);
+                        }
+                        if (MEASUREMENT_POINT.equals(row.getName())) {
+                            duration = row.getAverage();
+                        } else if (!row.getName().startsWith(SESSION_POINT_PREFIX)) {
+                            rows.put(row.getName(), row);
+                        }
+                        continue;
+                    } else if (!nextHeadline && line.startsWith("|") && headline.charAt(0) == TEXT_SEPARATOR) {
+                        throw new IOException(String.format(Locale.ENGLISH, "Line %d of '%s' does not match the"
+                                + " columns of the table.", lineNumber, fileName));
+                    }
+                    // the table ended
+                    addIteration(iterations, throughputs, rows, duration);
+                    rows = null;
+                }
+
+                if (line.startsWith("{")) {
+                    Map<String, ResultRow> jsonRows = new LinkedHashMap<String, ResultRow>();
+                    try {
+                        Map<?, ?> iteration = (Map<?, ?>) JsonReader.read(line);
+                        if (!iteration.containsKey("points") || iteration.containsKey("iterations")) {
+                            // the combination of several iterations or the statistics of a replay
+                            continue;
+                        }
+                        throughputs.add(number(iteration, "throughput"));
+                        duration = readPoints(iteration.get("points"), jsonRows);
+                    } catch (IOException e) {
+                        throw new IOException(String.format(Locale.ENGLISH, "Line %d of '%s': %s", lineNumber,
+                                fileName, e.getMessage()), e);
+                    }
+                    addIteration(iterations, throughputs, jsonRows, duration);
+                    continue;
+                }
+
+                String[] cells = split(line);
+                if (cells == null) {
+                    // summary line of the text format
+                    Matcher matcher = THROUGHPUT_PATTERN.matcher(line);
+                    if (matcher.find()) {
+                        throughput = Double.parseDouble(matcher.group(1));
+                    }
+                } else if (NAME_COLUMN.equals(cells[0])) {
+                    columns = new HashMap<String, Integer>();
+                    for (int i = 0; i < cells.length; i++) {
+                        columns.put(cells[i], i);
+                    }
+                    if (columns.containsKey(COUNT_COLUMN)) {
+                        rows = new LinkedHashMap<String, ResultRow>();
+                        headline = line;
+                        duration = Double.NaN;
+                        throughputs.add(throughput);
+                    }
+                    throughput = Double.NaN;
+                }
+            }
+            addIteration(iterations, throughputs, rows, duration);
+        } finally {
+            reader.close();
+        }
+
+        if (iterations.isEmpty()) {
+            throw new IOException("No measurements found in '" + fileName + "'.");
+        }
+        return new BenchmarkResult(iterations, throughputs);
+    }
+
+    /**
+     * Finish the table of an iteration. Without throughput from a summary line the throughput is computed from the
+     * executions and the duration of the run.
+     *
+     * @param iterations  all iterations
+     * @param throughputs throughput of every iteration, the last one belongs to the finished table
+     * @param rows        rows of the finished table, null if there is none
+     * @param duration    duration of the run in milliseconds
+     */
+    private static void addIteration(List<Map<String, ResultRow>> iterations, List<Double> throughputs,
+                                     Map<String, ResultRow> rows, double duration) {
+        if (rows == null) {
+            return;
+        }
+        iterations.add(rows);
+        int last = throughputs.size() - 1;
+        if (Double.isNaN(throughputs.get(last)) && duration > 0) {
+            long executions = 0;
+            for (ResultRow row : rows.values()) {
+                executions += row.getCount();
+            }
+            throughputs.set(last, executions / (duration / 1000));
+        }
+    }
+
+    /**
+     * Read the points of a JSON line and their children into rows
+     *
+     * @param points the array of points
+     * @param rows   receives the rows
+     * @return duration of the run in milliseconds, NaN if not found
+     * @throws IOException if the points are not written by the JSON renderer
+     */
+    private static double readPoints(Object points, Map<String, ResultRow> rows) throws IOException {
+        if (!(points instanceof List)) {
+            throw new IOException("The points are not an array.");
+        }
+        double duration = Double.NaN;
+        for (Object value : (List<?>) points) {
+            if (!(value instanceof Map) || !(((Map<?, ?>) value).get("name") instanceof String)) {
+                throw new IOException("A point is not an object with a name.");
+            }
+            Map<?, ?> point = (Map<?, ?>) value;
+            String name = (String) point.get("name");
+            double count = number(point, "count");
+            if (Double.isNaN(count) || count < 0 || count != Math.rint(count)) {
+                throw new IOException("The count of the point '" + name + "' is not a count.");
+            }
+            ResultRow row = new ResultRow(name, (long) count, number(point, "average"), number(point, "p50"),
+                    number(point, "p90"), number(point, "p99"));
+            if (MEASUREMENT_POINT.equals(name)) {
+                duration = row.getAverage();
+            } else if (!name.startsWith(SESSION_POINT_PREFIX)) {
+                rows.put(name, row);
+            }
+            if (point.containsKey("children")) {
+                double childDuration = readPoints(point.get("children"), rows);
+                duration = Double.isNaN(duration) ? childDuration : duration;
+            }
+        }
+        return duration;
+    }
+
+    /**
+     * A number member of a JSON object
+     *
+     * @param object the object
+     * @param name   name of the member
+     * @return the number, NaN if the member is missing or null
+     * @throws IOException if the member is not a number
+     */
+    private static double number(Map<?, ?> object, String name) throws IOException {
+        Object value = object.get(name);
+        if (value == null) {
+            return Double.NaN;
+        } else if (!(value instanceof Double)) {
+            throw new IOException("'" + value + "' is not a number in member " + name + ".");
+        }
+        return (Double) value;
+    }
+
+    /**
+     * Split a headline into trimmed cells
+     *
+     * @param line a line of the result file
+     * @return cells, null if the line is not a table line or a separator line
+     */
+    private static String[] split(String line) {
+        if (line.startsWith("|")) {
+            if (line.startsWith("|-")) {
+                return null;
+            }
+            String content = line.substring(1, line.lastIndexOf('|') > 0 ? line.lastIndexOf('|') : line.length());
+            return trim(content.split("\\|", -1));
+        } else if (line.indexOf(CSV_SEPARATOR) >= 0) {
+            return trim(line.split(";", -1));
+        }
+        return null;
+    }
+
+    private static String[] trim(String[] cells) {
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = cells[i].trim();
+        }
+        return cells;
+    }
+
+    /**
+     * Cut a row of a table into trimmed cells at the column separators of its headline. Separators within a cell,
+     * e.g. in the statement, don't start a new column.
+     *
+     * @param line     a line of the result file
+     * @param headline the headline of the table
+     * @return cells, null if the line has not the columns of the table
+     */
+    private static String[] cut(String line, String headline) {
+        if (line.length() != headline.length()) {
+            return null;
+        }
+        char separator = headline.charAt(0) == TEXT_SEPARATOR ? TEXT_SEPARATOR : CSV_SEPARATOR;
+        List<String> cells = new ArrayList<String>();
+        int start = separator == TEXT_SEPARATOR ? 1 : 0;
+        for (int i = start; i < headline.length(); i++) {
+            if (headline.charAt(i) == separator) {
+                if (line.charAt(i) != separator) {
+                    return null;
+                }
+                cells.add(line.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        if (separator == CSV_SEPARATOR) {
+            cells.add(line.substring(start).trim());
+        }
+        return cells.toArray(new String[cells.size()]);
+    }
+
+    /**
+     * Value of the count column
+     *
+     * @param cells   cells of the row
+     * @param columns column index by headline
+     * @return the count
+     * @throws NumberFormatException if the cell is not a count
+     */
+    private static long count(String[] cells, Map<String, Integer> columns) {
+        String value = cells[columns.get(COUNT_COLUMN)];
+        if (!COUNT_PATTERN.matcher(value).matches()) {
+            throw new NumberFormatException("'" + value + "' is not a count in column " + COUNT_COLUMN);
+        }
+        return Long.parseLong(value);
+    }
+
+    /**
+     * Value of a time column, written with {@link Locale#ENGLISH} and fraction digits like 1,234.567
+     *
+     * @param cells   cells of the row
+     * @param columns column index by headline
+     * @param column  headline of the column
+     * @return milliseconds, NaN if the column is missing or empty
+     * @throws NumberFormatException if the cell is not a time in this format
+     */
+    private static double time(String[] cells, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        String value = index == null ? "" : cells[index];
+        if (value.length() == 0 || "NaN".equals(value)) {
+            return Double.NaN;
+        }
+        ParsePosition position = new ParsePosition(0);
+        Number number = NumberFormat.getNumberInstance(Locale.ENGLISH).parse(value, position);
+        if (!TIME_PATTERN.matcher(value).matches() || number == null || position.getIndex() != value.length()) {
+            throw new NumberFormatException("'" + value + "' is not a time in column " + column
+                    + ", expected English number format as written by the benchmark independent of the locale");
+        }
+        return number.doubleValue();
+    }
+
+    /**
+     * Combine the statements sharing a fingerprint into one measurement point, so results recorded with and without
+     * -fingerprint or with different literals can be compared. Other measurement points are kept.
+     *
+     * @return a result with one row per fingerprint
+     */
+    public BenchmarkResult byFingerprint() {
+        List<Map<String, ResultRow>> fingerprinted = new ArrayList<Map<String, ResultRow>>(iterations.size());
+        for (Map<String, ResultRow> rows : iterations) {
+            Map<String, List<ResultRow>> groups = new LinkedHashMap<String, List<ResultRow>>();
+            for (ResultRow row : rows.values()) {
+                String name = row.getName();
+                if (name.startsWith(QUERY_POINT_PREFIX)) {
+                    name = QUERY_POINT_PREFIX
+                            + QueryFingerprint.fingerprint(name.substring(QUERY_POINT_PREFIX.length()));
+                }
+                List<ResultRow> group = groups.get(name);
+                if (group == null) {
+                    group = new ArrayList<ResultRow>();
+                    groups.put(name, group);
+                }
+                group.add(row);
+            }
+            Map<String, ResultRow> combined = new LinkedHashMap<String, ResultRow>();
+            for (Map.Entry<String, List<ResultRow>> group : groups.entrySet()) {
+                List<ResultRow> members = group.getValue();
+                combined.put(group.getKey(), members.size() == 1 && members.get(0).getName().equals(group.getKey())
+                        ? members.get(0) : ResultRow.combine(group.getKey(), members));
+            }
+            fingerprinted.add(combined);
+        }
+        return new BenchmarkResult(fingerprinted, throughputs);
+    }
+
+    /**
+     * Number of measured iterations in the file
+     *
+     * @return iterations
+     */
+    public int getIterations() {
+        return iterations.size();
+    }
+
+    /**
+     * Names of all measurement points of all iterations in the order of their first appearance
+     *
+     * @return names
+     */
+    public List<String> getPointNames() {
+        Map<String, Boolean> names = new LinkedHashMap<String, Boolean>();
+        for (Map<String, ResultRow> rows : iterations) {
+            for (String name : rows.keySet()) {
+                names.put(name, Boolean.TRUE);
+            }
+        }
+        return new ArrayList<String>(names.keySet());
+    }
+
+    /**
+     * The rows of a measurement point in every iteration which measured it
+     *
+     * @param pointName name of the measurement point
+     * @return rows, empty if not measured
+     */
+    public List<ResultRow> getRows(String pointName) {
+        List<ResultRow> rows = new ArrayList<ResultRow>();
+        for (Map<String, ResultRow> iteration : iterations) {
+            ResultRow row = iteration.get(pointName);
+            if (row != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Throughput of every iteration
+     *
+     * @return statements per second, NaN if not known
+     */
+    public List<Double> getThroughputs() {
+        return throughputs;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.compare;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.ParameterException;
+import com.beust.jcommander.Strings;
+import de.qaware.mysqlbenchmark.console.CompareParameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * The compare command: reads the result files of a baseline and a candidate run, reports the changes and acts as
+ * regression gate.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public final class CompareCommand {
+    /**
+     * Name of the command, the first command line argument
+     */
+    public static final String NAME = "compare";
+
+    /**
+     * Exit code if the candidate passed the regression gate
+     */
+    public static final int PASSED = 0;
+
+    /**
+     * Exit code if the candidate regressed beyond the thresholds
+     */
+    public static final int REGRESSION = 1;
+
+    /**
+     * Exit code if the parameters are wrong or the result files can't be read
+     */
+    public static final int ERROR = 2;
+
+    private static final Logger LOG = LoggerFactory.getLogger(CompareCommand.class);
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private CompareCommand() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Run the command
+     *
+     * @param args command line arguments after the command name, described in {@link CompareParameters}
+     * @return exit code
+     */
+    public static int run(String[] args) {
+        final CompareParameters params = new CompareParameters();
+        final JCommander commander = new JCommander(params);
+        commander.setProgramName("MySQL Benckmark Tool " + NAME);
+        try {
+            commander.parse(args);
+        } catch (ParameterException e) {
+            commander.usage();
+            return ERROR;
+        }
+        if (params.isHelp() || params.getFiles().size() != 2) {
+            commander.usage();
+            return params.isHelp() ? PASSED : ERROR;
+        }
+
+        try {
+            BenchmarkResult baseline = BenchmarkResult.read(params.getFiles().get(0));
+            BenchmarkResult candidate = BenchmarkResult.read(params.getFiles().get(1));
+            LOG.info("Comparing {} iteration(s) of '{}' with {} iteration(s) of '{}'.", baseline.getIterations(),
+                    params.getFiles().get(0), candidate.getIterations(), params.getFiles().get(1));
+            if (params.isFingerprint()) {
+                baseline = baseline.byFingerprint();
+                candidate = candidate.byFingerprint();
+            }
+
+            ResultComparison comparison = new ResultComparison(baseline, candidate, params.getMinCount());
+            comparison.setMaxLatencyIncrease(params.getMaxLatencyIncrease());
+            comparison.setMaxP99Increase(params.getMaxP99Increase());
+            comparison.setMaxThroughputDrop(params.getMaxThroughputDrop());
+
+            String result = comparison.getSummary() + LINE_SEPARATOR
+                    + comparison.getTable(params.getTop(), "csv".equalsIgnoreCase(params.getFormat()));
+            if (Strings.isStringEmpty(params.getResultfilename())) {
+                LOG.info(LINE_SEPARATOR + result);
+            } else {
+                LOG.info(comparison.getSummary());
+                FileWriter writer = new FileWriter(params.getResultfilename());
+                LOG.info("Writing comparison to " + params.getResultfilename());
+                writer.write(result);
+                writer.close();
+            }
+            return comparison.isPassed() ? PASSED : REGRESSION;
+        } catch (IOException e) {
+            LOG.error("Could not compare the result files.", e);
+            return ERROR;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.compare;
+
+import de.qaware.mysqlbenchmark.stats.ConfidenceInterval;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Change of one value between the baseline and the candidate, with a test if the change is significant at the 95%
+ * level.
+ * <p/>
+ * If both results have at least two values, e.g. the average latency of several iterations, Welch's t-test is
+ * applied to them. Otherwise latencies are tested with a z-test of the averages, estimating the standard deviation
+ * of single executions from the distance between p50 and p90 of a normal distribution. This is a rough
+ * approximation for skewed latency distributions, run several iterations for a reliable test.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class Delta {
+    /**
+     * Distance between p50 and p90 of a normal distribution in standard deviations
+     */
+    private static final double P90_SIGMAS = 1.2816;
+
+    private final String name;
+    private final double baseline;
+    private final double candidate;
+    private final long baselineCount;
+    private final long candidateCount;
+    private final double baselineP99;
+    private final double candidateP99;
+    private final double statistic;
+    private final boolean tested;
+    private final boolean significant;
+
+    private Delta(String name, double baseline, double candidate, long baselineCount, long candidateCount,
+                  double baselineP99, double candidateP99, double statistic, double critical) {
+        this.name = name;
+        this.baseline = baseline;
+        this.candidate = candidate;
+        this.baselineCount = baselineCount;
+        this.candidateCount = candidateCount;
+        this.baselineP99 = baselineP99;
+        this.candidateP99 = candidateP99;
+        this.statistic = statistic;
+        this.tested = !Double.isNaN(statistic);
+        this.significant = tested && Math.abs(statistic) > critical;
+    }
+
+    /**
+     * Compare the latency of a measurement point.
+     *
+     * @param name      name of the measurement point
+     * @param baseline  rows of the baseline iterations, at least one
+     * @param candidate rows of the candidate iterations, at least one
+     * @return the change of the average latency
+     */
+    public static Delta ofLatency(String name, List<ResultRow> baseline, List<ResultRow> candidate) {
+        ResultRow b = ResultRow.combine(name, baseline);
+        ResultRow c = ResultRow.combine(name, candidate);
+        if (baseline.size() > 1 && candidate.size() > 1) {
+            return welch(name, averages(baseline), averages(candidate), b.getCount(), c.getCount(), b.getP99(),
+                    c.getP99());
+        }
+
+        // z-test of the averages of single executions
+        double baselineSigma = (b.getP90() - b.getP50()) / P90_SIGMAS;
+        double candidateSigma = (c.getP90() - c.getP50()) / P90_SIGMAS;
+        double standardError = Math.sqrt(baselineSigma * baselineSigma / b.getCount()
+                + candidateSigma * candidateSigma / c.getCount());
+        return new Delta(name, b.getAverage(), c.getAverage(), b.getCount(), c.getCount(), b.getP99(), c.getP99(),
+                statistic(c.getAverage() - b.getAverage(), standardError),
+                ConfidenceInterval.tQuantile(Integer.MAX_VALUE));
+    }
+
+    /**
+     * Compare the throughput of all iterations
+     *
+     * @param baseline  throughput of the baseline iterations
+     * @param candidate throughput of the candidate iterations
+     * @return the change of the average throughput, not tested with less than two iterations on either side
+     */
+    public static Delta ofThroughput(List<Double> baseline, List<Double> candidate) {
+        return welch("Throughput", baseline, candidate, baseline.size(), candidate.size(), Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Welch's t-test of two samples
+     *
+     * @param name           name of the compared value
+     * @param baseline       values of the baseline
+     * @param candidate      values of the candidate
+     * @param baselineCount  executions or iterations of the baseline
+     * @param candidateCount executions or iterations of the candidate
+     * @param baselineP99    99th percentile of the baseline latency, NaN if not known
+     * @param candidateP99   99th percentile of the candidate latency, NaN if not known
+     * @return the delta, not tested if one of the samples has less than two values
+     */
+    private static Delta welch(String name, List<Double> baseline, List<Double> candidate, long baselineCount,
+                               long candidateCount, double baselineP99, double candidateP99) {
+        ConfidenceInterval b = ConfidenceInterval.of(baseline);
+        ConfidenceInterval c = ConfidenceInterval.of(candidate);
+        if (b.getCount() < 2 || c.getCount() < 2) {
+            return new Delta(name, b.getMean(), c.getMean(), baselineCount, candidateCount, baselineP99, candidateP99,
+                    Double.NaN, 0);
+        }
+
+        double baselineVariance = b.getStandardDeviation() * b.getStandardDeviation() / b.getCount();
+        double candidateVariance = c.getStandardDeviation() * c.getStandardDeviation() / c.getCount();
+        double variance = baselineVariance + candidateVariance;
+        // Welch-Satterthwaite degrees of freedom
+        double degreesOfFreedom = variance * variance / (baselineVariance * baselineVariance / (b.getCount() - 1)
+                + candidateVariance * candidateVariance / (c.getCount() - 1));
+        int df = Double.isNaN(degreesOfFreedom) ? b.getCount() + c.getCount() - 2 : Math.max(1, (int) degreesOfFreedom);
+        return new Delta(name, b.getMean(), c.getMean(), baselineCount, candidateCount, baselineP99, candidateP99,
+                statistic(c.getMean() - b.getMean(), Math.sqrt(variance)), ConfidenceInterval.tQuantile(df));
+    }
+
+    /**
+     * Test statistic of a difference
+     *
+     * @param difference    difference of the means
+     * @param standardError standard error of the difference
+     * @return the statistic, infinite for a difference without variance, NaN if the standard error is unknown
+     */
+    private static double statistic(double difference, double standardError) {
+        if (Double.isNaN(standardError) || Double.isNaN(difference)) {
+            return Double.NaN;
+        } else if (standardError == 0) {
+            return difference == 0 ? 0 : Math.signum(difference) * Double.POSITIVE_INFINITY;
+        }
+        return difference / standardError;
+    }
+
+    /**
+     * The average latency of every row
+     *
+     * @param rows rows of several iterations
+     * @return averages in milliseconds
+     */
+    private static List<Double> averages(List<ResultRow> rows) {
+        List<Double> averages = new ArrayList<Double>(rows.size());
+        for (ResultRow row : rows) {
+            averages.add(row.getAverage());
+        }
+        return averages;
+    }
+
+    /**
+     * Name of the compared value
+     *
+     * @return name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Value of the baseline
+     *
+     * @return average latency in milliseconds or statements per second
+     */
+    public double getBaseline() {
+        return baseline;
+    }
+
+    /**
+     * Value of the candidate
+     *
+     * @return average latency in milliseconds or statements per second
+     */
+    public double getCandidate() {
+        return candidate;
+    }
+
+    /**
+     * Executions or iterations of the baseline
+     *
+     * @return count
+     */
+    public long getBaselineCount() {
+        return baselineCount;
+    }
+
+    /**
+     * Executions or iterations of the candidate
+     *
+     * @return count
+     */
+    public long getCandidateCount() {
+        return candidateCount;
+    }
+
+    /**
+     * Relative change from the baseline to the candidate
+     *
+     * @return percent, positive if the candidate value is higher
+     */
+    public double getChange() {
+        return change(baseline, candidate);
+    }
+
+    /**
+     * Relative change of the 99th percentile of the latency
+     *
+     * @return percent, NaN if not known
+     */
+    public double getP99Change() {
+        return change(baselineP99, candidateP99);
+    }
+
+    /**
+     * Relative change between two values
+     *
+     * @param from the baseline value
+     * @param to   the candidate value
+     * @return percent
+     */
+    private static double change(double from, double to) {
+        if (from == 0) {
+            return to == 0 ? 0 : Double.POSITIVE_INFINITY;
+        }
+        return (to - from) / from * 100;
+    }
+
+    /**
+     * Test statistic, t or z
+     *
+     * @return statistic, NaN if not tested
+     */
+    public double getStatistic() {
+        return statistic;
+    }
+
+    /**
+     * Check if the change was tested for significance
+     *
+     * @return true if tested
+     */
+    public boolean isTested() {
+        return tested;
+    }
+
+    /**
+     * Check if the change is significant at the 95% level
+     *
+     * @return true if significant, false if not significant or not tested
+     */
+    public boolean isSignificant() {
+        return significant;
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.compare;
+
+import de.qaware.mysqlbenchmark.stats.TextTable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compares the measurement points of two benchmark results, ranks the statements by their latency change and checks
+ * the changes against regression thresholds. Only significant or untested latency changes count as regressions, a
+ * throughput drop only if it is significant.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class ResultComparison {
+    private static final String[] HEADLINES = {"Measurement Point", "Baseline #", "Candidate #", "Baseline Avg",
+            "Candidate Avg", "Change %", "p99 Change %", "t", "Significant", "Verdict"};
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private final List<Delta> statements = new ArrayList<Delta>();
+    private final List<String> onlyInBaseline = new ArrayList<String>();
+    private final List<String> onlyInCandidate = new ArrayList<String>();
+    private final List<String> skipped = new ArrayList<String>();
+    private final long minCount;
+    private final Delta throughput;
+    private double maxLatencyIncrease = 10;
+    private double maxP99Increase = 0;
+    private double maxThroughputDrop = 10;
+
+    /**
+     * Compare two results
+     *
+     * @param baseline  the result before the change
+     * @param candidate the result after the change
+     * @param minCount  measurement points executed less often in one of the results are not compared
+     */
+    public ResultComparison(BenchmarkResult baseline, BenchmarkResult candidate, long minCount) {
+        this.minCount = minCount;
+        List<String> candidateNames = candidate.getPointNames();
+        for (String name : baseline.getPointNames()) {
+            List<ResultRow> candidateRows = candidate.getRows(name);
+            if (candidateRows.isEmpty()) {
+                onlyInBaseline.add(name);
+                continue;
+            }
+            Delta delta = Delta.ofLatency(name, baseline.getRows(name), candidateRows);
+            if (delta.getBaselineCount() >= minCount && delta.getCandidateCount() >= minCount) {
+                statements.add(delta);
+            } else {
+                skipped.add(name);
+            }
+        }
+        for (String name : candidateNames) {
+            if (baseline.getRows(name).isEmpty()) {
+                onlyInCandidate.add(name);
+            }
+        }
+        throughput = Delta.ofThroughput(baseline.getThroughputs(), candidate.getThroughputs());
+
+        // biggest regressions first
+        Collections.sort(statements, new Comparator<Delta>() {
+            @Override
+            public int compare(Delta o1, Delta o2) {
+                return Double.compare(o2.getChange(), o1.getChange());
+            }
+        });
+    }
+
+    /**
+     * Highest increase of a statement's average latency which is not a regression
+     *
+     * @param maxLatencyIncrease percent, default is 10
+     */
+    public void setMaxLatencyIncrease(double maxLatencyIncrease) {
+        this.maxLatencyIncrease = maxLatencyIncrease;
+    }
+
+    /**
+     * Highest increase of a statement's 99th percentile which is not a regression. The percentiles are not tested
+     * for significance.
+     *
+     * @param maxP99Increase percent, 0 to ignore the percentiles
+     */
+    public void setMaxP99Increase(double maxP99Increase) {
+        this.maxP99Increase = maxP99Increase;
+    }
+
+    /**
+     * Highest drop of the throughput which is not a regression
+     *
+     * @param maxThroughputDrop percent, default is 10
+     */
+    public void setMaxThroughputDrop(double maxThroughputDrop) {
+        this.maxThroughputDrop = maxThroughputDrop;
+    }
+
+    /**
+     * Check if a statement regressed beyond the thresholds
+     *
+     * @param delta the change of the statement
+     * @return true for a regression
+     */
+    public boolean isRegression(Delta delta) {
+        boolean latency = delta.getChange() > maxLatencyIncrease && (delta.isSignificant() || !delta.isTested());
+        boolean p99 = maxP99Increase > 0 && delta.getP99Change() > maxP99Increase;
+        return latency || p99;
+    }
+
+    /**
+     * Check if the throughput dropped beyond the threshold. A single iteration on either side can't be tested for
+     * significance, such a drop is reported but is no regression.
+     *
+     * @return true for a regression
+     */
+    public boolean isThroughputRegression() {
+        return throughput.getChange() < -maxThroughputDrop && throughput.isSignificant();
+    }
+
+    /**
+     * All statements which regressed beyond the thresholds, biggest regressions first
+     *
+     * @return regressions
+     */
+    public List<Delta> getRegressions() {
+        List<Delta> regressions = new ArrayList<Delta>();
+        for (Delta delta : statements) {
+            if (isRegression(delta)) {
+                regressions.add(delta);
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * Check if the candidate passes the regression gate
+     *
+     * @return true if neither a statement nor the throughput regressed
+     */
+    public boolean isPassed() {
+        return getRegressions().isEmpty() && !isThroughputRegression();
+    }
+
+    /**
+     * All compared statements, biggest latency increase first
+     *
+     * @return changes
+     */
+    public List<Delta> getStatements() {
+        return statements;
+    }
+
+    /**
+     * Change of the throughput
+     *
+     * @return change
+     */
+    public Delta getThroughput() {
+        return throughput;
+    }
+
+    /**
+     * Measurement points in both results which are not compared, because one of the results executed them less than
+     * the minimum count
+     *
+     * @return names
+     */
+    public List<String> getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Throughput change, compared and skipped statements, regressions and the verdict of the regression gate.
+     *
+     * @return summary
+     */
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder();
+        String drop = "";
+        if (isThroughputRegression()) {
+            drop = String.format(Locale.ENGLISH, ", dropped more than %.1f %%", maxThroughputDrop);
+        } else if (throughput.getChange() < -maxThroughputDrop && !throughput.isTested()) {
+            drop = String.format(Locale.ENGLISH, ", dropped more than %.1f %% but is no regression without several"
+                    + " iterations on both sides", maxThroughputDrop);
+        }
+        summary.append(String.format(Locale.ENGLISH, "Throughput %.1f -> %.1f statements/s (%+.1f %%, %s)%s",
+                throughput.getBaseline(), throughput.getCandidate(), throughput.getChange(), significance(throughput),
+                drop));
+        summary.append(LINE_SEPARATOR).append(String.format(Locale.ENGLISH,
+                "%d of %d statements compared, %d regressions, %d skipped with less than %d executions in a result,"
+                        + " %d only in the baseline, %d only in the candidate", statements.size(),
+                statements.size() + skipped.size() + onlyInBaseline.size() + onlyInCandidate.size(),
+                getRegressions().size(), skipped.size(), minCount, onlyInBaseline.size(), onlyInCandidate.size()));
+        summary.append(LINE_SEPARATOR).append(isPassed() ? "Regression gate passed" : "Regression gate FAILED");
+        return summary.toString();
+    }
+
+    /**
+     * Table of the statements with the biggest latency increase
+     *
+     * @param top number of statements, 0 for all
+     * @param csv true for semicolon separated values, false for a text table like the jetm output
+     * @return the table
+     */
+    public String getTable(int top, boolean csv) {
+        List<String[]> rows = new ArrayList<String[]>();
+        rows.add(HEADLINES);
+        for (Delta delta : top > 0 && top < statements.size() ? statements.subList(0, top) : statements) {
+            rows.add(new String[]{delta.getName(), String.valueOf(delta.getBaselineCount()),
+                    String.valueOf(delta.getCandidateCount()), format("%.3f", delta.getBaseline()),
+                    format("%.3f", delta.getCandidate()), format("%+.1f", delta.getChange()),
+                    format("%+.1f", delta.getP99Change()), format("%.2f", delta.getStatistic()),
+                    significance(delta), isRegression(delta) ? "REGRESSION" : ""});
+        }
+        return TextTable.render(rows, csv);
+    }
+
+    /**
+     * Format a value, NaN as empty string
+     *
+     * @param format format pattern
+     * @param value  the value
+     * @return formatted value
+     */
+    private static String format(String format, double value) {
+        return Double.isNaN(value) ? "" : String.format(Locale.ENGLISH, format, value);
+    }
+
+    /**
+     * Result of the significance test
+     *
+     * @param delta the change
+     * @return yes, no or not tested
+     */
+    private static String significance(Delta delta) {
+        if (!delta.isTested()) {
+            return "not tested";
+        }
+        return delta.isSignificant() ? "significant" : "not significant";
+    }
+}
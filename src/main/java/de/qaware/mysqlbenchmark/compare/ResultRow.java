@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.compare;
+
+/**
+ * One measurement point of one iteration read from a result file. Values which are not in the file are NaN.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class ResultRow {
+    private final String name;
+    private final long count;
+    private final double average;
+    private final double p50;
+    private final double p90;
+    private final double p99;
+
+    /**
+     * Constructor
+     *
+     * @param name    name of the measurement point
+     * @param count   number of executions
+     * @param average average latency in milliseconds
+     * @param p50     median latency in milliseconds
+     * @param p90     90th percentile in milliseconds
+     * @param p99     99th percentile in milliseconds
+     */
+    public ResultRow(String name, long count, double average, double p50, double p90, double p99) {
+        this.name = name;
+        this.count = count;
+        this.average = average;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+    }
+
+    /**
+     * Combine the rows of several measurement points into one, e.g. the statements sharing a fingerprint or the
+     * iterations of a result file. The average is weighted by the executions, the percentiles are approximated by
+     * the weighted average of the percentiles.
+     *
+     * @param name name of the combined measurement point
+     * @param rows the rows to combine, at least one
+     * @return the combined row
+     */
+    public static ResultRow combine(String name, Iterable<ResultRow> rows) {
+        long count = 0;
+        double total = 0;
+        double p50 = 0;
+        double p90 = 0;
+        double p99 = 0;
+        for (ResultRow row : rows) {
+            count += row.count;
+            total += row.average * row.count;
+            p50 += row.p50 * row.count;
+            p90 += row.p90 * row.count;
+            p99 += row.p99 * row.count;
+        }
+        return count == 0 ? new ResultRow(name, 0, Double.NaN, Double.NaN, Double.NaN, Double.NaN)
+                : new ResultRow(name, count, total / count, p50 / count, p90 / count, p99 / count);
+    }
+
+    /**
+     * Name of the measurement point
+     *
+     * @return name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Number of executions
+     *
+     * @return count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Average latency
+     *
+     * @return milliseconds
+     */
+    public double getAverage() {
+        return average;
+    }
+
+    /**
+     * Median latency
+     *
+     * @return milliseconds, NaN if not in the result file
+     */
+    public double getP50() {
+        return p50;
+    }
+
+    /**
+     * 90th percentile of the latency
+     *
+     * @return milliseconds, NaN if not in the result file
+     */
+    public double getP90() {
+        return p90;
+    }
+
+    /**
+     * 99th percentile of the latency
+     *
+     * @return milliseconds, NaN if not in the result file
+     */
+    public double getP99() {
+        return p99;
+    }
+}
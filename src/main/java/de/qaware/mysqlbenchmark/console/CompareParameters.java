@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.console;
+
+import com.beust.jcommander.Parameter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command line parameter definitions of the compare command via jcommander
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class CompareParameters {
+
+    /**
+     * Result files of the baseline and the candidate
+     */
+    @Parameter(description = "<baseline result file> <candidate result file>")
+    private List<String> files = new ArrayList<String>();
+
+    /**
+     * Compare two result files of the benchmark
+     */
+    @Parameter(names = {"-help", "-h"}, description = "Compare two result files of the benchmark, written in JETM,"
+            + " CSV or JSON format. Exits with 1 if the candidate regressed beyond the thresholds.",
+            required = false)
+    private boolean help = false;
+
+    /**
+     * Match the statements by fingerprint instead of their text
+     */
+    @Parameter(names = {"-fingerprint"},
+            description = "Match the statements by fingerprint instead of their text, combining statements which differ"
+                    + " only in their literals.",
+            required = false)
+    private boolean fingerprint = false;
+
+    /**
+     * Highest increase of a statement's average latency which is not a regression
+     */
+    @Parameter(names = {"-maxLatencyIncrease"},
+            description = "Highest increase of a statement's average latency in percent which is not a regression."
+                    + " Only significant increases count.",
+            required = false)
+    private double maxLatencyIncrease = 10;
+
+    /**
+     * Highest increase of a statement's 99th percentile which is not a regression
+     */
+    @Parameter(names = {"-maxP99Increase"},
+            description = "Highest increase of a statement's p99 latency in percent which is not a regression."
+                    + " Percentiles are not tested for significance. 0 ignores the percentiles.",
+            required = false)
+    private double maxP99Increase = 0;
+
+    /**
+     * Highest drop of the throughput which is not a regression
+     */
+    @Parameter(names = {"-maxThroughputDrop"},
+            description = "Highest drop of the throughput in percent which is not a regression. Only significant drops"
+                    + " count, so the throughput is only checked if both results have several iterations.",
+            required = false)
+    private double maxThroughputDrop = 10;
+
+    /**
+     * Statements executed less often in one of the results are not compared
+     */
+    @Parameter(names = {"-minCount"},
+            description = "Statements executed less often in one of the results are not compared, the summary reports"
+                    + " how many were skipped.",
+            required = false)
+    private long minCount = 10;
+
+    /**
+     * Number of statements in the comparison table
+     */
+    @Parameter(names = {"-top"},
+            description = "Number of statements with the biggest latency increase in the comparison table, 0 for all.",
+            required = false)
+    private int top = 20;
+
+    /**
+     * The comparison can be in JETM style or CSV. JETM is default.
+     */
+    @Parameter(names = {"-f"},
+            description = "The comparison can be in JETM style or CSV. JETM is default.",
+            required = false)
+    private String format = "JETM";
+
+    /**
+     * Location of the output file to write the comparison to
+     */
+    @Parameter(names = {"-o"},
+            description = "Location of the output file to write the comparison to. Printed to the console if not set.",
+            required = false)
+    private String resultfilename;
+
+    /**
+     * Result files of the baseline and the candidate
+     *
+     * @return file names
+     */
+    public List<String> getFiles() {
+        return files;
+    }
+
+    /**
+     * display help
+     *
+     * @return true if help should be displayed
+     */
+    public boolean isHelp() {
+        return help;
+    }
+
+    /**
+     * Match the statements by fingerprint
+     *
+     * @return true if statements are matched by fingerprint
+     */
+    public boolean isFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Highest increase of a statement's average latency which is not a regression
+     *
+     * @return percent
+     */
+    public double getMaxLatencyIncrease() {
+        return maxLatencyIncrease;
+    }
+
+    /**
+     * Highest increase of a statement's 99th percentile which is not a regression
+     *
+     * @return percent, 0 if percentiles are ignored
+     */
+    public double getMaxP99Increase() {
+        return maxP99Increase;
+    }
+
+    /**
+     * Highest drop of the throughput which is not a regression
+     *
+     * @return percent
+     */
+    public double getMaxThroughputDrop() {
+        return maxThroughputDrop;
+    }
+
+    /**
+     * Minimum executions of compared statements
+     *
+     * @return executions
+     */
+    public long getMinCount() {
+        return minCount;
+    }
+
+    /**
+     * Number of statements in the comparison table
+     *
+     * @return statements, 0 for all
+     */
+    public int getTop() {
+        return top;
+    }
+
+    /**
+     * Format of the comparison
+     *
+     * @return csv or jetm
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * File to write the comparison to
+     *
+     * @return output filename, null for the console
+     */
+    public String getResultfilename() {
+        return resultfilename;
+    }
+}
@@ -53,6 +53,26 @@ public class Parameters {
             required = false)
     private String server = "jdbc:mysql://localhost:3306/";
 
+    /**
+     * Connection strings to read replicas, reads are sent to them and writes to -s
+     */
+    @Parameter(names = {"-replicas"},
+            description = "Split reads and writes: writes, transactions and statements without autocommit go to -s as"
+                    + " primary, all other selects, shows and explains are spread over the replicas with these"
+                    + " connection strings (without database name). Enter a comma separated list. Throughput and"
+                    + " latency are reported per endpoint.",
+            required = false)
+    private List<String> replicas = new ArrayList<String>();
+
+    /**
+     * How reads are spread over the replicas
+     */
+    @Parameter(names = {"-routing"},
+            description = "How reads are spread over the -replicas: 'round-robin' sends them to every replica in"
+                    + " turn, 'least-in-flight' to the replica with the fewest running statements.",
+            required = false)
+    private String routing = "round-robin";
+
     /**
      * The database name. eg.: -db test_db
      */
@@ -99,21 +119,271 @@ public class Parameters {
     private List<String> ignorePrefixes = new ArrayList<String>();
 
     /**
-     * Only execute queries from the log with this connection id. This parameter is optional
+     * Only execute queries from the log with these connection ids. This parameter is optional
      */
     @Parameter(names = {"-id"},
-            description = "Only execute queries from the log with this connection id. This parameter is optional.",
+            description = "Only execute queries from the log with this connection id, or these comma separated"
+                    + " connection ids. This parameter is optional.",
             required = false)
     private String connectionID;
 
     /**
-     * The result can be in default JETM style or CSV. JETM is default.
+     * Include and exclude rules for the parsed statements
+     */
+    @Parameter(names = {"-filter"},
+            description = "Filter the parsed statements of any log. Either rules separated by ';' or a file with one"
+                    + " rule per line: include|exclude prefix|regex|table|connection|time <value>. Excludes win,"
+                    + " includes of one kind are alternatives, of different kinds must all match. Prefixes and"
+                    + " regexes ignore case, tables and connections are comma separated, time is"
+                    + " <from> <to> as yyyy-MM-dd'T'HH:mm:ss in UTC. e.g. 'exclude prefix SHOW;include table orders'",
+            required = false)
+    private String filter;
+
+    /**
+     * Replay a deterministic sample of the connections or fingerprints
+     */
+    @Parameter(names = {"-sample"},
+            description = "Only replay this share of the statements, e.g. 1%: whole connections are kept or dropped"
+                    + " by a hash of their id, so sessions stay intact and every run replays the same ones. Append"
+                    + " 'fingerprint' to sample by statement fingerprint instead, e.g. '10% fingerprint'.",
+            required = false)
+    private String sample;
+
+    /**
+     * Compile the filtered log into a replay file instead of running the benchmark
+     */
+    @Parameter(names = {"-compile"},
+            description = "Compile the log, filtered by -id, -ignore, -filter and -sample, into a binary replay file"
+                    + " with this name instead of running the benchmark. Replay files can be passed to -log and are"
+                    + " read much faster than the log. Not combined with -ramp, -sweep, -stream, -rate or -speed.",
+            required = false)
+    private String compileFile;
+
+    /**
+     * The result can be in default JETM style, CSV or JSON. JETM is default.
      */
     @Parameter(names = {"-f"},
-            description = "The result can be in default JETM style or CSV. JETM is default.",
+            description = "The result can be in default JETM style, CSV or JSON. JETM is default. JSON writes one line"
+                    + " per iteration with the latency percentiles in milliseconds. Numbers are written in English"
+                    + " format independent of the locale, so the compare command can read them.",
             required = false)
     private String format = "JETM";
 
+    /**
+     * Read all results and measure execute and fetch time, rows and bytes separately
+     */
+    @Parameter(names = {"-fetch"},
+            description = "Read all results of every statement and report average execute and fetch time, rows and"
+                    + " bytes separately. Also replays statements without results like inserts and updates.",
+            required = false)
+    private boolean fetch = false;
+
+    /**
+     * Aggregate measurements by statement fingerprint instead of the raw statement
+     */
+    @Parameter(names = {"-fingerprint"},
+            description = "Aggregate measurements by statement fingerprint: literals are replaced by '?', so statements"
+                    + " differing only in their values share one measurement point.",
+            required = false)
+    private boolean fingerprint = false;
+
+    /**
+     * Replay with prepared statements: literals are bound to cached templates. Size of the cache per connection.
+     */
+    @Parameter(names = {"-prepared"},
+            description = "Replay with server-side prepared statements: literals are extracted from the statements and"
+                    + " bound to templates, which are prepared once and kept in a LRU cache of this size per"
+                    + " connection. 0 prepares every statement with its literals.",
+            required = false)
+    private int statementCacheSize = 0;
+
+    /**
+     * Execute consecutive writing statements of a connection with the same template in JDBC batches of this size
+     */
+    @Parameter(names = {"-batch"},
+            description = "Execute consecutive inserts, updates, deletes and replaces of the same connection which"
+                    + " differ only in their literals in JDBC batches of up to this size, and report written rows/s and"
+                    + " batch latency. 0 executes every statement on its own. Not combined with -rate.",
+            required = false)
+    private int batchSize = 0;
+
+    /**
+     * Let the mysql driver rewrite batches into multi-value inserts or multi-statements
+     */
+    @Parameter(names = {"-rewriteBatched"},
+            description = "Let the mysql driver rewrite the batches of -batch into multi-value inserts or"
+                    + " multi-statements (rewriteBatchedStatements).",
+            required = false)
+    private boolean rewriteBatched = false;
+
+    /**
+     * Replay the transactions of the log and report transactions per second, transaction and commit latency
+     */
+    @Parameter(names = {"-transactions"},
+            description = "Replay BEGIN/START TRANSACTION ... COMMIT/ROLLBACK and SET autocommit as transactions on"
+                    + " one connection and report committed transactions/s and the latency percentiles of transactions"
+                    + " and commits. Without -threads or with -rate every transaction is executed as a unit.",
+            required = false)
+    private boolean transactions = false;
+
+    /**
+     * Replay against an in-process simulated database instead of the mysql server
+     */
+    @Parameter(names = {"-simulate"},
+            description = "Replay against an in-process simulated database instead of the mysql server, to measure the"
+                    + " tool itself. Either a latency distribution and optional error rate for all statements, e.g."
+                    + " 'exp:1ms 0.1%', or a file with one rule per line: <distribution> [<error rate>] <regex>, the"
+                    + " first rule found in a statement applies. Distributions: fixed:<latency>, uniform:<min>-<max>,"
+                    + " exp:<mean>, lognormal:<median>-<p99>, with the unit ns, us, ms or s. -s, -db, -u and -p are"
+                    + " not used.",
+            required = false)
+    private String simulate;
+
+    /**
+     * Replay the workload with every driver configuration and compare them
+     */
+    @Parameter(names = {"-sweep"},
+            description = "Replay the parsed log with several driver configurations in turn, each with -warmup and"
+                    + " -iterations passes, and compare their throughput and latency in one table naming the best"
+                    + " configuration. Either a configuration or a file with one per line: [<name>] <key>=<value>...,"
+                    + " where url replaces -s, driver loads the driver from jars in an isolated class loader,"
+                    + " driverClass names its class and all other keys are connection properties. Values separated"
+                    + " by | are swept, e.g. 'useServerPrepStmts=true|false useCompression=true|false'.",
+            required = false)
+    private String sweep;
+
+    /**
+     * Report throughput, errors and latency percentiles every this many seconds while the benchmark runs
+     */
+    @Parameter(names = {"-interval"},
+            description = "Report throughput, errors and latency percentiles every this many seconds while the"
+                    + " benchmark runs, overall and for the statements which took the most time. 0 disables the"
+                    + " interval reports.",
+            required = false)
+    private double interval = 0;
+
+    /**
+     * Time series file for the interval reports
+     */
+    @Parameter(names = {"-intervalFile"},
+            description = "Append the interval reports to this CSV file, one line per interval and statement.",
+            required = false)
+    private String intervalFile;
+
+    /**
+     * Number of statements reported per interval
+     */
+    @Parameter(names = {"-top"},
+            description = "Number of statements reported per interval besides the overall values.",
+            required = false)
+    private int topStatements = 3;
+
+    /**
+     * Passes over the log before the measured iterations, their measurements are discarded
+     */
+    @Parameter(names = {"-warmup"},
+            description = "Number of passes over the log before the measured iterations. Their measurements are"
+                    + " discarded, they only warm up the server, the connections and the JIT.",
+            required = false)
+    private int warmup = 0;
+
+    /**
+     * Number of measured passes over the log
+     */
+    @Parameter(names = {"-iterations"},
+            description = "Number of measured passes over the log. With more than one iteration every iteration is"
+                    + " reported, followed by the mean and 95% confidence interval of every statement's average latency"
+                    + " and of the throughput.",
+            required = false)
+    private int iterations = 1;
+
+    /**
+     * Number of connections replayed concurrently. Values greater than 1 replay every connection id on its own
+     * connection.
+     */
+    @Parameter(names = {"-threads"},
+            description = "Number of connections replayed concurrently. With values greater than 1 the statements are"
+                    + " grouped by connection id and every group is replayed in log order on its own connection."
+                    + " With -speed, sessions waiting for a free connection start late and count as schedule lag.",
+            required = false)
+    private int threads = 1;
+
+    /**
+     * Replay statements at their original time offsets, scaled by this factor. 0 replays as fast as possible.
+     */
+    @Parameter(names = {"-speed"},
+            description = "Replay statements at their original time offsets from the log, scaled by this factor"
+                    + " (eg.: 0.5, 1, 2, 10). 0 replays as fast as possible.",
+            required = false)
+    private double speed = 0;
+
+    /**
+     * Open loop: start statements at this constant rate on a pool of connections
+     */
+    @Parameter(names = {"-rate"},
+            description = "Start the statements in log order at this constant rate (statements/s) on a pool of -threads"
+                    + " connections, no matter how long earlier statements take. Latency is also reported from the"
+                    + " intended start time of every statement. 0 disables the constant rate. Not combined with -stream"
+                    + " or -speed.",
+            required = false)
+    private double rate = 0;
+
+    /**
+     * Closed loop: replay the log with a growing number of connections to find the saturation point
+     */
+    @Parameter(names = {"-ramp"},
+            description = "Replay the parsed log in steps with a growing number of connections, each for -rampDuration"
+                    + " seconds in a closed loop, and report the throughput and latency of every step as a curve"
+                    + " marking the saturation knee. Either comma separated connection counts, multiples of the"
+                    + " sessions in the log which clone sessions with shifted start offsets, or a doubling range,"
+                    + " e.g. '1,2,4,8', '1x,2x,4x' or '1-64'. Not combined with -stream, -rate, -speed or -sweep.",
+            required = false)
+    private String ramp;
+
+    /**
+     * Duration of every step of the ramp
+     */
+    @Parameter(names = {"-rampDuration"},
+            description = "Seconds every step of the -ramp runs.",
+            required = false)
+    private double rampDuration = 30;
+
+    /**
+     * Parse and execute the log at the same time instead of reading the whole log first
+     */
+    @Parameter(names = {"-stream"},
+            description = "Parse and execute the log at the same time instead of reading the whole log into memory"
+                    + " first.",
+            required = false)
+    private boolean stream = false;
+
+    /**
+     * Capacity of the queue between the log reader and each replay thread in streaming mode
+     */
+    @Parameter(names = {"-queue"},
+            description = "Capacity of the queue between the log reader and each replay thread in streaming mode.",
+            required = false)
+    private int queueCapacity = 10000;
+
+    /**
+     * Implementation for reading the log: regex or scanner
+     */
+    @Parameter(names = {"-parser"},
+            description = "Implementation for reading the log. 'regex' reads line by line, 'scanner' scans the raw"
+                    + " bytes much faster and joins statements spanning several lines, 'parallel' scans parts"
+                    + " of the log on several threads, 'slow' reads a slow query log and reports the recorded query"
+                    + " time of every statement next to the replayed one. regex is default.",
+            required = false)
+    private String parser = "regex";
+
+    /**
+     * Number of threads for the parallel parser
+     */
+    @Parameter(names = {"-parserThreads"},
+            description = "Number of threads for the parallel parser. Default is the number of processors.",
+            required = false)
+    private int parserThreads = Runtime.getRuntime().availableProcessors();
+
     /**
      * mysql username
      *
@@ -196,9 +466,9 @@ public class Parameters {
     }
 
     /**
-     * Only execute queries from the log with this connection id. This parameter is optional
+     * Only execute queries from the log with these connection ids. This parameter is optional
      *
-     * @return connection id
+     * @return connection id or comma separated connection ids
      */
     public String getConnectionID() {
         return connectionID;
@@ -207,9 +477,252 @@ public class Parameters {
     /**
      * Format for exporting results
      *
-     * @return csv or jetm
+     * @return csv, json or jetm
      */
     public String getFormat() {
         return format;
     }
+
+    /**
+     * Number of connections replayed concurrently
+     *
+     * @return number of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Replay speed factor for timestamp-faithful replay
+     *
+     * @return speed factor, 0 if statements should be replayed as fast as possible
+     */
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Parse and execute the log at the same time
+     *
+     * @return true if in streaming mode
+     */
+    public boolean isStream() {
+        return stream;
+    }
+
+    /**
+     * Capacity of the queue between the log reader and each replay thread in streaming mode
+     *
+     * @return queue capacity
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Implementation for reading the log
+     *
+     * @return regex, scanner or parallel
+     */
+    public String getParser() {
+        return parser;
+    }
+
+    /**
+     * Number of threads for the parallel parser
+     *
+     * @return number of threads
+     */
+    public int getParserThreads() {
+        return parserThreads;
+    }
+
+    /**
+     * Aggregate measurements by statement fingerprint
+     *
+     * @return true if measurements are aggregated by fingerprint
+     */
+    public boolean isFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Read all results and measure execute and fetch time separately
+     *
+     * @return true if all results are read
+     */
+    public boolean isFetch() {
+        return fetch;
+    }
+
+    /**
+     * Size of the prepared statement cache per connection
+     *
+     * @return number of cached statements, 0 if statements are not cached
+     */
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /**
+     * Constant rate for the open loop mode
+     *
+     * @return statements per second, 0 if disabled
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Passes over the log before the measured iterations
+     *
+     * @return number of warmup passes
+     */
+    public int getWarmup() {
+        return warmup;
+    }
+
+    /**
+     * Number of measured passes over the log
+     *
+     * @return number of iterations
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Replay file to compile the log into
+     *
+     * @return file name, null if the benchmark should run
+     */
+    public String getCompileFile() {
+        return compileFile;
+    }
+
+    /**
+     * Seconds between interval reports
+     *
+     * @return interval in seconds, 0 if disabled
+     */
+    public double getInterval() {
+        return interval;
+    }
+
+    /**
+     * Time series file for the interval reports
+     *
+     * @return file name, null if not needed
+     */
+    public String getIntervalFile() {
+        return intervalFile;
+    }
+
+    /**
+     * Number of statements reported per interval
+     *
+     * @return number of statements
+     */
+    public int getTopStatements() {
+        return topStatements;
+    }
+
+    /**
+     * Maximum number of writing statements per JDBC batch
+     *
+     * @return batch size, 0 if statements are not batched
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Let the mysql driver rewrite batches
+     *
+     * @return true if batches are rewritten
+     */
+    public boolean isRewriteBatched() {
+        return rewriteBatched;
+    }
+
+    /**
+     * Replay the transactions of the log
+     *
+     * @return true if transactions are replayed
+     */
+    public boolean isTransactions() {
+        return transactions;
+    }
+
+    /**
+     * Configuration of the simulated database
+     *
+     * @return a distribution or a file with rules, null to replay against the mysql server
+     */
+    public String getSimulate() {
+        return simulate;
+    }
+
+    /**
+     * Driver configurations to compare
+     *
+     * @return a configuration or a file with configurations, null to replay once with the default driver
+     */
+    public String getSweep() {
+        return sweep;
+    }
+
+    /**
+     * Include and exclude rules for the parsed statements
+     *
+     * @return rules separated by ';' or file name, null for no rules
+     */
+    public String getFilter() {
+        return filter;
+    }
+
+    /**
+     * Replay a deterministic sample of the connections or fingerprints
+     *
+     * @return sample rate and optional 'fingerprint', null to replay all statements
+     */
+    public String getSample() {
+        return sample;
+    }
+
+    /**
+     * Connection strings to read replicas, reads are sent to them and writes to -s
+     *
+     * @return connection strings without database name, empty if reads and writes are not split
+     */
+    public List<String> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * How reads are spread over the replicas
+     *
+     * @return 'round-robin' or 'least-in-flight'
+     */
+    public String getRouting() {
+        return routing;
+    }
+
+    /**
+     * Closed loop: replay the log with a growing number of connections to find the saturation point
+     *
+     * @return connection counts of the steps, null if no ramp is run
+     */
+    public String getRamp() {
+        return ramp;
+    }
+
+    /**
+     * Duration of every step of the ramp
+     *
+     * @return seconds
+     */
+    public double getRampDuration() {
+        return rampDuration;
+    }
 }
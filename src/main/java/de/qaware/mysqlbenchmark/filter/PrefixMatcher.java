@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.filter;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Checks if a statement starts with any of a set of prefixes, ignoring case. The prefixes are compiled into a trie,
+ * so a statement is read once, however many prefixes there are, instead of once per prefix. Statements can be
+ * checked as text or as UTF-8 bytes, where only ASCII letters are folded to lower case.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public final class PrefixMatcher {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final Node chars;
+    private final Node bytes;
+    private final int size;
+
+    /**
+     * One node of the trie: the labels of its children in ascending order
+     */
+    private static final class Node {
+        private final char[] labels;
+        private final Node[] children;
+        private final boolean terminal;
+
+        private Node(char[] labels, Node[] children, boolean terminal) {
+            this.labels = labels;
+            this.children = children;
+            this.terminal = terminal;
+        }
+
+        private Node next(char label) {
+            int index = labels.length == 1 ? (labels[0] == label ? 0 : -1) : Arrays.binarySearch(labels, label);
+            return index < 0 ? null : children[index];
+        }
+    }
+
+    /**
+     * Node of the trie while it is built
+     */
+    private static final class Builder {
+        private final Map<Character, Builder> children = new TreeMap<Character, Builder>();
+        private boolean terminal;
+
+        private void add(char[] prefix) {
+            Builder node = this;
+            for (char c : prefix) {
+                Builder child = node.children.get(c);
+                if (child == null) {
+                    child = new Builder();
+                    node.children.put(c, child);
+                }
+                node = child;
+            }
+            node.terminal = true;
+        }
+
+        private Node build() {
+            char[] labels = new char[children.size()];
+            Node[] nodes = new Node[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, Builder> child : children.entrySet()) {
+                labels[i] = child.getKey();
+                nodes[i] = child.getValue().build();
+                i++;
+            }
+            return new Node(labels, nodes, terminal);
+        }
+    }
+
+    private PrefixMatcher(Node chars, Node bytes, int size) {
+        this.chars = chars;
+        this.bytes = bytes;
+        this.size = size;
+    }
+
+    /**
+     * Compile the prefixes
+     *
+     * @param prefixes the prefixes, may be null
+     * @return the matcher, matching nothing if there are no prefixes
+     */
+    public static PrefixMatcher compile(Collection<String> prefixes) {
+        Builder chars = new Builder();
+        Builder bytes = new Builder();
+        if (prefixes != null) {
+            for (String prefix : prefixes) {
+                String lowerCase = prefix.toLowerCase(Locale.ENGLISH);
+                chars.add(lowerCase.toCharArray());
+                byte[] utf8 = lowerCase.getBytes(UTF8);
+                char[] labels = new char[utf8.length];
+                for (int i = 0; i < utf8.length; i++) {
+                    labels[i] = (char) (utf8[i] & 0xFF);
+                }
+                bytes.add(labels);
+            }
+        }
+        return new PrefixMatcher(chars.build(), bytes.build(), prefixes == null ? 0 : prefixes.size());
+    }
+
+    /**
+     * Check if there are no prefixes
+     *
+     * @return true if nothing matches
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Check if a text starts with one of the prefixes, ignoring case
+     *
+     * @param text the text
+     * @return true if a prefix matches
+     */
+    public boolean matches(CharSequence text) {
+        Node node = chars;
+        for (int i = 0; !node.terminal; i++) {
+            if (i == text.length()) {
+                return false;
+            }
+            node = node.next(Character.toLowerCase(text.charAt(i)));
+            if (node == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if UTF-8 encoded text starts with one of the prefixes, ignoring the case of ASCII letters
+     *
+     * @param buffer the bytes
+     * @param start  first byte of the text
+     * @param end    end of the text
+     * @return true if a prefix matches
+     */
+    public boolean matches(byte[] buffer, int start, int end) {
+        Node node = bytes;
+        for (int i = start; !node.terminal; i++) {
+            if (i == end) {
+                return false;
+            }
+            int b = buffer[i] & 0xFF;
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            node = node.next((char) b);
+            if (node == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.filter;
+
+import de.qaware.mysqlbenchmark.fingerprint.QueryFingerprint;
+import de.qaware.mysqlbenchmark.logfile.LogEntry;
+import de.qaware.mysqlbenchmark.logfile.LogEntryListener;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Filters the parsed statements of any log by include and exclude rules and deterministic sampling, compiled once
+ * before the log is read. Rules are written one per line:
+ * <pre>
+ * include|exclude prefix &lt;prefix&gt;
+ * include|exclude regex &lt;regular expression&gt;
+ * include|exclude table &lt;table&gt;[,&lt;table&gt;...]
+ * include|exclude connection &lt;id&gt;[,&lt;id&gt;...]
+ * include|exclude time &lt;from&gt; &lt;to&gt;
+ * sample &lt;rate&gt;[%] [connection|fingerprint]
+ * </pre>
+ * A statement matching any exclude rule is dropped. Include rules of the same kind are alternatives, include rules
+ * of different kinds must all match. All prefixes are matched by one {@link PrefixMatcher} and all regular
+ * expressions by one pattern, prefixes and patterns ignore case. Times are in UTC, {@code yyyy-MM-dd'T'HH:mm:ss},
+ * and include the start but not the end; statements without timestamp are not in any time window.
+ * <p/>
+ * Sampling keeps a statement if the hash of its connection id (default) or its fingerprint is below the rate, so
+ * the same connections or fingerprints are kept in every run and sampled connections are replayed completely.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class StatementFilter {
+    private static final String INCLUDE = "include";
+    private static final String EXCLUDE = "exclude";
+    private static final String SAMPLE = "sample";
+    private static final String CONNECTION = "connection";
+    private static final String FINGERPRINT = "fingerprint";
+    private static final String USAGE = "use include|exclude prefix|regex|table|connection|time <value> "
+            + "or sample <rate>[%] [connection|fingerprint]";
+
+    private final Rules include = new Rules();
+    private final Rules exclude = new Rules();
+    private final Set<String> onlyConnections = new HashSet<String>();
+    private double sampleRate = 1;
+    private boolean sampleByFingerprint;
+    private int ruleCount;
+
+    private long checked;
+    private long excluded;
+    private long notIncluded;
+    private long sampledOut;
+
+    /**
+     * The rules of one side, include or exclude, compiled by {@link #compile()}
+     */
+    private static final class Rules {
+        private final List<String> prefixes = new ArrayList<String>();
+        private final List<String> regexes = new ArrayList<String>();
+        private final Set<String> tables = new HashSet<String>();
+        private final Set<String> connections = new HashSet<String>();
+        private final List<long[]> windows = new ArrayList<long[]>();
+        private PrefixMatcher prefixMatcher = PrefixMatcher.compile(null);
+        private Pattern pattern;
+
+        private void compile() {
+            prefixMatcher = PrefixMatcher.compile(prefixes);
+            if (!regexes.isEmpty()) {
+                StringBuilder alternation = new StringBuilder();
+                for (String regex : regexes) {
+                    alternation.append(alternation.length() == 0 ? "" : "|").append("(?:").append(regex).append(')');
+                }
+                pattern = Pattern.compile(alternation.toString(), Pattern.CASE_INSENSITIVE);
+            }
+        }
+
+        private boolean hasConnections() {
+            return !connections.isEmpty();
+        }
+
+        private boolean hasWindows() {
+            return !windows.isEmpty();
+        }
+
+        private boolean hasText() {
+            return !prefixMatcher.isEmpty() || pattern != null;
+        }
+
+        private boolean hasTables() {
+            return !tables.isEmpty();
+        }
+
+        private boolean matchesWindow(long timestamp) {
+            if (timestamp == LogEntry.NO_TIMESTAMP) {
+                return false;
+            }
+            for (long[] window : windows) {
+                if (timestamp >= window[0] && timestamp < window[1]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean matchesText(String statement) {
+            return prefixMatcher.matches(statement) || (pattern != null && pattern.matcher(statement).find());
+        }
+
+        private boolean matchesTables(Set<String> touched) {
+            for (String table : touched) {
+                if (tables.contains(table)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Create a filter from the command line: either the name of a file with one rule per line, empty lines and lines
+     * starting with # are skipped, or rules separated by ';'.
+     *
+     * @param rules file name or rules, may be null
+     * @return the filter, accepting everything if there are no rules
+     * @throws IOException              if the file can't be read
+     * @throws IllegalArgumentException if a rule is invalid
+     */
+    public static StatementFilter configure(String rules) throws IOException {
+        StatementFilter filter = new StatementFilter();
+        if (rules == null) {
+            return filter;
+        } else if (!new File(rules).isFile()) {
+            for (String rule : rules.split(";")) {
+                if (!rule.trim().isEmpty()) {
+                    filter.addRule(rule);
+                }
+            }
+            return filter;
+        }
+
+        BufferedReader reader = new BufferedReader(new FileReader(rules));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty() && !line.trim().startsWith("#")) {
+                    filter.addRule(line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return filter;
+    }
+
+    /**
+     * Add a rule
+     *
+     * @param rule the rule, see {@link StatementFilter}
+     * @throws IllegalArgumentException if the rule is invalid
+     */
+    public void addRule(String rule) {
+        String[] parts = rule.trim().split("\\s+", 3);
+        String action = parts[0].toLowerCase(Locale.ENGLISH);
+        if (SAMPLE.equals(action) && parts.length >= 2) {
+            setSample(parts[1], parts.length == 3 ? parts[2].trim() : CONNECTION, rule);
+            ruleCount++;
+            return;
+        } else if (parts.length != 3 || !(INCLUDE.equals(action) || EXCLUDE.equals(action))) {
+            throw new IllegalArgumentException("Not a filter rule: '" + rule + "', " + USAGE);
+        }
+
+        Rules rules = INCLUDE.equals(action) ? include : exclude;
+        String kind = parts[1].toLowerCase(Locale.ENGLISH);
+        String value = parts[2].trim();
+        if ("prefix".equals(kind)) {
+            rules.prefixes.add(value);
+        } else if ("regex".equals(kind)) {
+            try {
+                Pattern.compile(value);
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("Invalid regular expression in filter rule '" + rule + "'", e);
+            }
+            rules.regexes.add(value);
+        } else if ("table".equals(kind)) {
+            for (String table : value.split(",")) {
+                rules.tables.add(table.trim().replace("`", "").toLowerCase(Locale.ENGLISH));
+            }
+        } else if (CONNECTION.equals(kind)) {
+            for (String id : value.split(",")) {
+                rules.connections.add(id.trim());
+            }
+        } else if ("time".equals(kind)) {
+            rules.windows.add(parseWindow(value, rule));
+        } else {
+            throw new IllegalArgumentException("Not a filter rule: '" + rule + "', " + USAGE);
+        }
+        rules.compile();
+        ruleCount++;
+    }
+
+    /**
+     * Only keep statements of these connections, in addition to all other rules. Unlike include connection rules, which
+     * are alternatives to each other, a statement must match these connections and the include connection rules.
+     *
+     * @param connectionIDs connection ids
+     */
+    public void includeConnections(String... connectionIDs) {
+        onlyConnections.addAll(Arrays.asList(connectionIDs));
+        ruleCount++;
+    }
+
+    /**
+     * Check if the filter has no rules
+     *
+     * @return true if every statement is accepted
+     */
+    public boolean isEmpty() {
+        return ruleCount == 0;
+    }
+
+    /**
+     * Check a statement against all rules and the sample, from the cheapest check to the most expensive one
+     *
+     * @param entry the statement
+     * @return true if the statement is replayed
+     */
+    public boolean accept(LogEntry entry) {
+        checked++;
+        if (exclude.connections.contains(entry.getConnectionID())
+                || (include.hasConnections() && !include.connections.contains(entry.getConnectionID()))
+                || (!onlyConnections.isEmpty() && !onlyConnections.contains(entry.getConnectionID()))) {
+            return reject(exclude.connections.contains(entry.getConnectionID()));
+        }
+        if ((exclude.hasWindows() && exclude.matchesWindow(entry.getTimestamp()))
+                || (include.hasWindows() && !include.matchesWindow(entry.getTimestamp()))) {
+            return reject(exclude.hasWindows() && exclude.matchesWindow(entry.getTimestamp()));
+        }
+
+        String statement = entry.getStatement();
+        if (exclude.hasText() && exclude.matchesText(statement)) {
+            return reject(true);
+        } else if (include.hasText() && !include.matchesText(statement)) {
+            return reject(false);
+        }
+        if (exclude.hasTables() || include.hasTables()) {
+            Set<String> tables = TableNames.extract(statement);
+            if (exclude.matchesTables(tables)) {
+                return reject(true);
+            } else if (include.hasTables() && !include.matchesTables(tables)) {
+                return reject(false);
+            }
+        }
+
+        if (sampleRate < 1 && !isSampled(sampleByFingerprint ? QueryFingerprint.fingerprint(statement)
+                : entry.getConnectionID())) {
+            sampledOut++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Wrap a listener, so it only receives the accepted statements. Closed connections are always passed on.
+     *
+     * @param listener the listener
+     * @return the filtering listener, or the listener itself if the filter has no rules
+     */
+    public LogEntryListener filter(final LogEntryListener listener) {
+        if (isEmpty()) {
+            return listener;
+        }
+        return new LogEntryListener() {
+            @Override
+            public void entryParsed(LogEntry entry) {
+                if (accept(entry)) {
+                    listener.entryParsed(entry);
+                }
+            }
+
+            @Override
+            public void connectionClosed(String connectionID) {
+                listener.connectionClosed(connectionID);
+            }
+        };
+    }
+
+    /**
+     * Summary of the filtered statements
+     *
+     * @return human readable summary
+     */
+    public String getSummary() {
+        return String.format(Locale.ENGLISH, "%d rules, %d statements checked, %d accepted, %d excluded, "
+                        + "%d not included, %d not sampled", ruleCount, checked,
+                checked - excluded - notIncluded - sampledOut, excluded, notIncluded, sampledOut);
+    }
+
+    private boolean reject(boolean byExclude) {
+        if (byExclude) {
+            excluded++;
+        } else {
+            notIncluded++;
+        }
+        return false;
+    }
+
+    /**
+     * Decide by hash if a connection id or fingerprint is in the sample. The hash of the string is mixed with the
+     * finalizer of MurmurHash3, so consecutive connection ids are spread evenly.
+     *
+     * @param key connection id or fingerprint
+     * @return true if the key is in the sample
+     */
+    private boolean isSampled(String key) {
+        long hash = key.hashCode();
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (hash >>> 11) * 0x1.0p-53 < sampleRate;
+    }
+
+    private void setSample(String rate, String by, String rule) {
+        try {
+            double value = rate.endsWith("%") ? Double.parseDouble(rate.substring(0, rate.length() - 1)) / 100
+                    : Double.parseDouble(rate);
+            if (value <= 0 || value > 1) {
+                throw new IllegalArgumentException("The sample rate must be above 0 and at most 100%: '" + rule + "'");
+            }
+            sampleRate = value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a sample rate: '" + rule + "', " + USAGE, e);
+        }
+        if (FINGERPRINT.equalsIgnoreCase(by)) {
+            sampleByFingerprint = true;
+        } else if (CONNECTION.equalsIgnoreCase(by)) {
+            sampleByFingerprint = false;
+        } else {
+            throw new IllegalArgumentException("Not a filter rule: '" + rule + "', " + USAGE);
+        }
+    }
+
+    private static long[] parseWindow(String value, String rule) {
+        String[] times = value.split("\\s+");
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        format.setLenient(false);
+        try {
+            if (times.length != 2) {
+                throw new ParseException(value, 0);
+            }
+            return new long[]{format.parse(times[0]).getTime(), format.parse(times[1]).getTime()};
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Not a time window: '" + rule
+                    + "', use time yyyy-MM-dd'T'HH:mm:ss yyyy-MM-dd'T'HH:mm:ss in UTC", e);
+        }
+    }
+}
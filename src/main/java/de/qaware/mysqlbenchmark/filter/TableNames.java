@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Finds the tables a statement touches: the names following FROM, JOIN, INTO, UPDATE, TABLE and TABLES, including
+ * comma separated lists of tables with aliases. Literals and comments are skipped. Names are lower case without
+ * backquotes; qualified names are returned with and without the database.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public final class TableNames {
+    private static final Set<String> TABLE_KEYWORDS = new HashSet<String>(Arrays.asList(
+            "from", "join", "into", "update", "table", "tables"));
+    private static final Set<String> LIST_KEYWORDS = new HashSet<String>(Arrays.asList("from", "update", "tables"));
+    private static final Set<String> NOT_ALIASES = new HashSet<String>(Arrays.asList(
+            "where", "set", "join", "inner", "left", "right", "cross", "straight_join", "natural", "on", "using",
+            "group", "order", "limit", "having", "union", "for", "lock", "read", "write", "values", "value", "select",
+            "partition", "use", "ignore", "force", "window", "into", "procedure"));
+    private static final String COMMA = ",";
+    private static final String DOT = ".";
+
+    private TableNames() {
+        // Prevent instantiation
+    }
+
+    /**
+     * The tables a statement touches
+     *
+     * @param statement the sql statement
+     * @return table names in order of appearance
+     */
+    public static Set<String> extract(String statement) {
+        List<String> tokens = tokenize(statement);
+        Set<String> tables = new LinkedHashSet<String>();
+        for (int i = 0; i < tokens.size(); i++) {
+            String keyword = tokens.get(i);
+            if (!TABLE_KEYWORDS.contains(keyword)) {
+                continue;
+            }
+            int next = readTable(tokens, i + 1, tables);
+            while (LIST_KEYWORDS.contains(keyword) && next > i + 1) {
+                // skip an alias, then continue with the next table of a list
+                int position = next;
+                if (position < tokens.size() && "as".equals(tokens.get(position))) {
+                    position++;
+                }
+                if (position < tokens.size() && isName(tokens.get(position))
+                        && !NOT_ALIASES.contains(tokens.get(position))) {
+                    position++;
+                }
+                if (position >= tokens.size() || !COMMA.equals(tokens.get(position))) {
+                    break;
+                }
+                i = position;
+                next = readTable(tokens, position + 1, tables);
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Read a table name, optionally qualified by the database
+     *
+     * @param tokens   the tokens
+     * @param position position of the name
+     * @param tables   receives the name
+     * @return position after the name, the given position if there is no name
+     */
+    private static int readTable(List<String> tokens, int position, Set<String> tables) {
+        if (position >= tokens.size() || !isName(tokens.get(position))) {
+            return position;
+        }
+        String name = tokens.get(position);
+        if (position + 2 < tokens.size() && DOT.equals(tokens.get(position + 1)) && isName(tokens.get(position + 2))) {
+            tables.add(name + DOT + tokens.get(position + 2));
+            tables.add(tokens.get(position + 2));
+            return position + 3;
+        }
+        tables.add(name);
+        return position + 1;
+    }
+
+    private static boolean isName(String token) {
+        return !COMMA.equals(token) && !DOT.equals(token) && !"(".equals(token);
+    }
+
+    /**
+     * Split a statement into lower case words, unquoted identifiers and the characters comma, dot and opening
+     * parenthesis. Literals, comments and all other characters are dropped.
+     *
+     * @param statement the sql statement
+     * @return tokens
+     */
+    private static List<String> tokenize(String statement) {
+        List<String> tokens = new ArrayList<String>();
+        int length = statement.length();
+        int i = 0;
+        while (i < length) {
+            char c = statement.charAt(i);
+            if (c == '\'' || c == '"') {
+                i = skipString(statement, i, c);
+            } else if (c == '`') {
+                int end = statement.indexOf('`', i + 1);
+                end = end < 0 ? length : end;
+                tokens.add(statement.substring(i + 1, end).toLowerCase(Locale.ENGLISH));
+                i = end + 1;
+            } else if (c == '#' || (c == '-' && statement.startsWith("-- ", i))) {
+                int end = statement.indexOf('\n', i);
+                i = end < 0 ? length : end + 1;
+            } else if (c == '/' && statement.startsWith("/*", i)) {
+                int end = statement.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else if (Character.isLetterOrDigit(c) || c == '_' || c == '$') {
+                int start = i;
+                while (i < length && (Character.isLetterOrDigit(statement.charAt(i)) || statement.charAt(i) == '_'
+                        || statement.charAt(i) == '$')) {
+                    i++;
+                }
+                tokens.add(statement.substring(start, i).toLowerCase(Locale.ENGLISH));
+            } else {
+                if (c == ',' || c == '.' || c == '(') {
+                    tokens.add(String.valueOf(c));
+                }
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Skip a string literal, including escaped and doubled quotes
+     *
+     * @param statement the statement
+     * @param start     position of the opening quote
+     * @param quote     the quote character
+     * @return position after the closing quote
+     */
+    private static int skipString(String statement, int start, char quote) {
+        int i = start + 1;
+        while (i < statement.length()) {
+            char c = statement.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                if (i + 1 < statement.length() && statement.charAt(i + 1) == quote) {
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return statement.length();
+    }
+}
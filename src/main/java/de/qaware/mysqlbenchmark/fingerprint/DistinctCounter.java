@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.qaware.mysqlbenchmark.fingerprint;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts distinct strings in fixed memory. Up to {@value #EXACT_LIMIT} distinct strings are counted exactly by their
+ * 64 bit hashes, above that the count is estimated with a HyperLogLog sketch of {@value #REGISTERS} registers
+ * (about 3% standard error). An estimate never exceeds the number of strings added. Thread safe without locks: the
+ * hashes are inserted into an open addressed table and the registers raised with compare and set, every string is
+ * added to both while the count is exact, so there is no switch over between them.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class DistinctCounter {
+    private static final int EXACT_LIMIT = 64;
+    private static final int TABLE_SIZE = 2 * EXACT_LIMIT;
+    private static final int PRECISION = 10;
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    // 0 marks a free slot, a hash of 0 is stored as 1
+    private final AtomicLongArray hashes = new AtomicLongArray(TABLE_SIZE);
+    private final AtomicInteger exactCount = new AtomicInteger();
+    private final AtomicLong added = new AtomicLong();
+    private final AtomicIntegerArray registers = new AtomicIntegerArray(REGISTERS);
+
+    /**
+     * Add a string
+     *
+     * @param value the string
+     */
+    public void add(String value) {
+        long hash = hash(value);
+        added.incrementAndGet();
+        addToSketch(hash);
+        if (exactCount.get() <= EXACT_LIMIT) {
+            addToTable(hash == 0 ? 1 : hash);
+        }
+    }
+
+    /**
+     * Number of distinct strings added so far
+     *
+     * @return exact count up to {@value #EXACT_LIMIT}, an estimate above, at most the number of strings added
+     */
+    public long count() {
+        int exact = exactCount.get();
+        if (exact <= EXACT_LIMIT) {
+            return exact;
+        }
+
+        double sum = 0;
+        int zeros = 0;
+        for (int i = 0; i < REGISTERS; i++) {
+            int register = registers.get(i);
+            sum += 1d / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            // linear counting for small cardinalities
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.min(Math.round(estimate), added.get());
+    }
+
+    /**
+     * Whether the count is exact
+     *
+     * @return true if the count is exact, false if it is estimated
+     */
+    public boolean isExact() {
+        return exactCount.get() <= EXACT_LIMIT;
+    }
+
+    /**
+     * Insert a hash into the table with linear probing. The table has room for all hashes of an exact count and the
+     * few which concurrent threads insert before they see the count above the limit.
+     *
+     * @param hash the hash, not 0
+     */
+    private void addToTable(long hash) {
+        int slot = (int) (hash >>> (64 - PRECISION)) & (TABLE_SIZE - 1);
+        for (int probe = 0; probe < TABLE_SIZE; probe++) {
+            long current = hashes.get(slot);
+            if (current == hash) {
+                return;
+            } else if (current == 0) {
+                if (hashes.compareAndSet(slot, 0, hash)) {
+                    exactCount.incrementAndGet();
+                    return;
+                } else if (hashes.get(slot) == hash) {
+                    return;
+                }
+            }
+            slot = (slot + 1) & (TABLE_SIZE - 1);
+        }
+        // the table is full, the count is far above the limit already
+    }
+
+    private void addToSketch(long hash) {
+        int index = (int) (hash >>> (64 - PRECISION));
+        int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        int current;
+        while ((current = registers.get(index)) < rank) {
+            if (registers.compareAndSet(index, current, rank)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 64 bit FNV-1a hash of the characters with a final avalanche mix
+     *
+     * @param value the string
+     * @return hash
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.qaware.mysqlbenchmark.fingerprint;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the number of distinct raw statements and one example statement per fingerprint. Thread safe.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class FingerprintStatistics {
+    private final ConcurrentMap<String, Details> fingerprints = new ConcurrentHashMap<String, Details>();
+
+    /**
+     * Compute the fingerprint of a statement and record the statement for it.
+     *
+     * @param query the raw statement
+     * @return the fingerprint
+     */
+    public String record(String query) {
+        String fingerprint = QueryFingerprint.fingerprint(query);
+        Details details = fingerprints.get(fingerprint);
+        if (details == null) {
+            Details created = new Details(QueryFingerprint.singleLine(query));
+            details = fingerprints.putIfAbsent(fingerprint, created);
+            if (details == null) {
+                details = created;
+            }
+        }
+        details.distinct.add(query);
+        return fingerprint;
+    }
+
+    /**
+     * Number of distinct raw statements recorded for the fingerprint
+     *
+     * @param fingerprint the fingerprint
+     * @return number of distinct statements, estimated above 64, 0 if the fingerprint is unknown
+     */
+    public long getDistinctStatements(String fingerprint) {
+        Details details = fingerprints.get(fingerprint);
+        return details == null ? 0 : details.distinct.count();
+    }
+
+    /**
+     * The first raw statement recorded for the fingerprint, on a single line
+     *
+     * @param fingerprint the fingerprint
+     * @return example statement or null if the fingerprint is unknown
+     */
+    public String getExample(String fingerprint) {
+        Details details = fingerprints.get(fingerprint);
+        return details == null ? null : details.example;
+    }
+
+    /**
+     * Number of fingerprints
+     *
+     * @return number of fingerprints
+     */
+    public int size() {
+        return fingerprints.size();
+    }
+
+    /**
+     * Clear all fingerprints
+     */
+    public void clear() {
+        fingerprints.clear();
+    }
+
+    /**
+     * Statistics of one fingerprint
+     */
+    private static class Details {
+        private final String example;
+        private final DistinctCounter distinct = new DistinctCounter();
+
+        /**
+         * Constructor
+         *
+         * @param example the first statement with this fingerprint
+         */
+        Details(String example) {
+            this.example = example;
+        }
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.qaware.mysqlbenchmark.fingerprint;
+
+/**
+ * Normalises sql statements to their shape, so statements differing only in literal values share one fingerprint:
+ * <ul>
+ * <li>string, numeric, hexadecimal and bit literals are replaced by '?'</li>
+ * <li>lists of literals in IN (...) and VALUES (...), (...) are collapsed to '(?+)'. Spaces before opening
+ * parentheses are removed</li>
+ * <li>comments are removed, whitespace is collapsed and the statement is lower cased (except quoted identifiers).
+ * The content of executable comments, which start with {@code /*!} and a version, is kept, mysql executes it</li>
+ * </ul>
+ * <pre>
+ * SELECT * FROM t WHERE id IN (1, 2, 3) AND name = 'x'  ->  select * from t where id in(?+) and name = ?
+ * </pre>
+ * The statement is normalised in a single pass into a reused per-thread buffer.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public final class QueryFingerprint {
+    private static final int MAX_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+
+    private QueryFingerprint() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Compute the fingerprint of a statement
+     *
+     * @param query the sql statement
+     * @return the normalised statement
+     */
+    public static String fingerprint(String query) {
+        StringBuilder out = BUFFER.get();
+        out.setLength(0);
+
+        int length = query.length();
+        int i = 0;
+        boolean executable = false;
+        while (i < length) {
+            char c = query.charAt(i);
+
+            if (c == '\'' || c == '"') {
+                if (c == '\'') {
+                    dropLiteralPrefix(out);
+                }
+                i = skipString(query, i, c);
+                out.append('?');
+            } else if (c == '`') {
+                // quoted identifier, copied verbatim
+                int end = query.indexOf('`', i + 1);
+                end = end < 0 ? length : end + 1;
+                out.append(query, i, end);
+                i = end;
+            } else if (c == '/' && i + 2 < length && query.charAt(i + 1) == '*' && query.charAt(i + 2) == '!') {
+                // executable comment, the version is dropped and the content normalised
+                i += 3;
+                while (i < length && isDigit(query.charAt(i))) {
+                    i++;
+                }
+                executable = true;
+                appendSpace(out);
+            } else if (executable && c == '*' && i + 1 < length && query.charAt(i + 1) == '/') {
+                i += 2;
+                executable = false;
+                appendSpace(out);
+            } else if (c == '/' && i + 1 < length && query.charAt(i + 1) == '*') {
+                int end = query.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                appendSpace(out);
+            } else if ((c == '-' && i + 2 < length && query.charAt(i + 1) == '-'
+                    && Character.isWhitespace(query.charAt(i + 2))) || c == '#') {
+                int end = query.indexOf('\n', i);
+                i = end < 0 ? length : end + 1;
+                appendSpace(out);
+            } else if (Character.isWhitespace(c)) {
+                appendSpace(out);
+                i++;
+            } else if ((isDigit(c) || c == '.' && i + 1 < length && isDigit(query.charAt(i + 1)))
+                    && !isWordChar(out)) {
+                i = skipNumber(query, i);
+                out.append('?');
+            } else if (c == ')') {
+                trimSpace(out);
+                out.append(')');
+                collapseList(out);
+                i++;
+            } else {
+                if (c == ',' || c == '(') {
+                    trimSpace(out);
+                }
+                out.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+                if (c == ',') {
+                    out.append(' ');
+                }
+                i++;
+            }
+        }
+        trimSpace(out);
+
+        String fingerprint = out.toString();
+        if (out.capacity() > MAX_BUFFER_SIZE) {
+            // don't keep huge buffers alive after an exceptionally long statement
+            BUFFER.remove();
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Remove the prefix of a hexadecimal, bit or national string literal like X'0f', b'101' or N'abc'
+     */
+    private static void dropLiteralPrefix(StringBuilder out) {
+        int length = out.length();
+        if (length == 0 || "xbn".indexOf(out.charAt(length - 1)) < 0) {
+            return;
+        }
+        if (length == 1 || !isWordChar(out.charAt(length - 2))) {
+            out.setLength(length - 1);
+        }
+    }
+
+    /**
+     * Skip a quoted string with backslash escapes and doubled quotes
+     *
+     * @return index behind the closing quote
+     */
+    private static int skipString(String query, int start, char quote) {
+        int i = start + 1;
+        int length = query.length();
+        while (i < length) {
+            char c = query.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                if (i + 1 < length && query.charAt(i + 1) == quote) {
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Skip a decimal, floating point or hexadecimal number
+     *
+     * @return index behind the number
+     */
+    private static int skipNumber(String query, int start) {
+        int length = query.length();
+        int i = start;
+        if (query.charAt(i) == '0' && i + 1 < length && (query.charAt(i + 1) == 'x' || query.charAt(i + 1) == 'X')) {
+            i += 2;
+            while (i < length && Character.digit(query.charAt(i), 16) >= 0) {
+                i++;
+            }
+            return i;
+        }
+        while (i < length) {
+            char c = query.charAt(i);
+            if (isDigit(c) || c == '.') {
+                i++;
+            } else if ((c == 'e' || c == 'E') && i + 1 < length
+                    && (isDigit(query.charAt(i + 1)) || query.charAt(i + 1) == '-' || query.charAt(i + 1) == '+')) {
+                i += 2;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Replace '(?, ?, ?)' at the end of the buffer by '(?+)' if it follows IN or VALUES, and merge the tuples of
+     * multi-row VALUES lists.
+     */
+    private static void collapseList(StringBuilder out) {
+        int pos = out.length() - 2;
+        boolean hasLiteral = false;
+        while (pos >= 0) {
+            char c = out.charAt(pos);
+            if (c == '?') {
+                hasLiteral = true;
+            } else if (c != ',' && c != ' ' && c != '+') {
+                break;
+            }
+            pos--;
+        }
+        if (pos < 0 || out.charAt(pos) != '(' || !hasLiteral) {
+            return;
+        }
+
+        int open = pos;
+        int wordEnd = open;
+        while (wordEnd > 0 && out.charAt(wordEnd - 1) == ' ') {
+            wordEnd--;
+        }
+        if (endsWithWord(out, wordEnd, "in") || endsWithWord(out, wordEnd, "values")) {
+            out.setLength(open);
+            out.append("(?+)");
+        } else if (wordEnd >= 5 && out.substring(wordEnd - 5, wordEnd).equals("(?+),")) {
+            // second and further tuple of a multi-row insert
+            int previous = wordEnd - 5;
+            int valuesEnd = previous;
+            while (valuesEnd > 0 && out.charAt(valuesEnd - 1) == ' ') {
+                valuesEnd--;
+            }
+            if (endsWithWord(out, valuesEnd, "values")) {
+                out.setLength(wordEnd - 1);
+            }
+        }
+    }
+
+    private static boolean endsWithWord(StringBuilder out, int end, String word) {
+        int start = end - word.length();
+        if (start < 0 || !out.substring(start, end).equals(word)) {
+            return false;
+        }
+        return start == 0 || !isWordChar(out.charAt(start - 1));
+    }
+
+    private static void appendSpace(StringBuilder out) {
+        int length = out.length();
+        if (length > 0 && out.charAt(length - 1) != ' ' && out.charAt(length - 1) != '(') {
+            out.append(' ');
+        }
+    }
+
+    private static void trimSpace(StringBuilder out) {
+        int length = out.length();
+        if (length > 0 && out.charAt(length - 1) == ' ') {
+            out.setLength(length - 1);
+        }
+    }
+
+    private static boolean isWordChar(StringBuilder out) {
+        return out.length() > 0 && isWordChar(out.charAt(out.length() - 1));
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * The statement on a single line for measurement point names and reports. Every line break and the whitespace
+     * around it becomes one blank, everything else is kept, so statements on a single line are returned unchanged.
+     * Multi-line statements would otherwise break the lines of the result tables.
+     *
+     * @param query the sql statement
+     * @return the statement without line breaks
+     */
+    public static String singleLine(String query) {
+        if (query.indexOf('\n') < 0 && query.indexOf('\r') < 0) {
+            return query;
+        }
+        StringBuilder out = new StringBuilder(query.length());
+        int length = query.length();
+        for (int i = 0; i < length; i++) {
+            char c = query.charAt(i);
+            if (c != '\n' && c != '\r') {
+                out.append(c);
+                continue;
+            }
+            // drop the whitespace around the line break
+            int end = i;
+            while (end < length && Character.isWhitespace(query.charAt(end))) {
+                end++;
+            }
+            int start = out.length();
+            while (start > 0 && Character.isWhitespace(out.charAt(start - 1))) {
+                start--;
+            }
+            out.setLength(start);
+            if (start > 0 && end < length) {
+                out.append(' ');
+            }
+            i = end - 1;
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.histogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Log-linear latency histogram with nanosecond resolution, in the style of HdrHistogram. Every power of two range
+ * of values (octave) is split into 64 linear buckets, so a recorded value is off by less than 1/64 (1.6%). The
+ * buckets of an octave are allocated when the first value falls into it, so the memory stays fixed at a few
+ * kilobytes for the octaves actually used. Recording is lock free and thread safe.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int OCTAVES = 64 - SUB_BUCKET_BITS;
+
+    private final AtomicReferenceArray<AtomicLongArray> octaves = new AtomicReferenceArray<AtomicLongArray>(OCTAVES);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record one measured value.
+     *
+     * @param nanos the value in nanoseconds, negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        int octave = octave(value);
+        AtomicLongArray buckets = octaves.get(octave);
+        if (buckets == null) {
+            octaves.compareAndSet(octave, null, new AtomicLongArray(SUB_BUCKET_COUNT));
+            buckets = octaves.get(octave);
+        }
+        buckets.incrementAndGet(subBucket(value, octave));
+        count.incrementAndGet();
+        total.addAndGet(value);
+
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Number of recorded values
+     *
+     * @return count
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Average of the recorded values, exact
+     *
+     * @return mean in nanoseconds, 0 if nothing was recorded
+     */
+    public double getMean() {
+        long recorded = count.get();
+        return recorded > 0 ? (double) total.get() / recorded : 0;
+    }
+
+    /**
+     * The largest recorded value, exact
+     *
+     * @return maximum in nanoseconds, 0 if nothing was recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * The value below or at which the given percentage of the recorded values lie. The result is the upper bound
+     * of the bucket containing the percentile, but never more than the maximum.
+     *
+     * @param percentile percentile between 0 and 100
+     * @return value in nanoseconds, 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * total));
+
+        long seen = 0;
+        for (int octave = 0; octave < OCTAVES; octave++) {
+            AtomicLongArray buckets = octaves.get(octave);
+            if (buckets == null) {
+                continue;
+            }
+            for (int subBucket = 0; subBucket < SUB_BUCKET_COUNT; subBucket++) {
+                seen += buckets.get(subBucket);
+                if (seen >= rank) {
+                    return Math.min(highestValue(octave, subBucket), max.get());
+                }
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Add all values recorded by another histogram to this one.
+     *
+     * @param other the other histogram, should not be recorded to at the same time
+     */
+    public void add(LatencyHistogram other) {
+        for (int octave = 0; octave < OCTAVES; octave++) {
+            AtomicLongArray otherBuckets = other.octaves.get(octave);
+            if (otherBuckets == null) {
+                continue;
+            }
+            if (octaves.get(octave) == null) {
+                octaves.compareAndSet(octave, null, new AtomicLongArray(SUB_BUCKET_COUNT));
+            }
+            AtomicLongArray buckets = octaves.get(octave);
+            for (int subBucket = 0; subBucket < SUB_BUCKET_COUNT; subBucket++) {
+                long value = otherBuckets.get(subBucket);
+                if (value != 0) {
+                    buckets.addAndGet(subBucket, value);
+                }
+            }
+        }
+        count.addAndGet(other.count.get());
+        total.addAndGet(other.total.get());
+
+        long otherMax = other.max.get();
+        long currentMax = max.get();
+        while (otherMax > currentMax && !max.compareAndSet(currentMax, otherMax)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Clear all recorded values. Values recorded concurrently may get lost.
+     */
+    public void reset() {
+        for (int octave = 0; octave < OCTAVES; octave++) {
+            octaves.set(octave, null);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Octave of a value: 0 for values below 64, else one per power of two.
+     *
+     * @param value non-negative value
+     * @return octave index
+     */
+    private static int octave(long value) {
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        return highestBit < SUB_BUCKET_BITS ? 0 : highestBit - SUB_BUCKET_BITS + 1;
+    }
+
+    /**
+     * Linear bucket of a value within its octave: the bits following the highest set bit.
+     *
+     * @param value  non-negative value
+     * @param octave octave of the value
+     * @return bucket index within the octave
+     */
+    private static int subBucket(long value, int octave) {
+        return octave == 0 ? (int) value : (int) (value >>> (octave - 1)) & (SUB_BUCKET_COUNT - 1);
+    }
+
+    /**
+     * Largest value falling into the given bucket.
+     *
+     * @param octave    octave index
+     * @param subBucket bucket index within the octave
+     * @return value in nanoseconds
+     */
+    private static long highestValue(int octave, int subBucket) {
+        if (octave == 0) {
+            return subBucket;
+        }
+        long width = 1L << (octave - 1);
+        long lowest = (1L << (octave + SUB_BUCKET_BITS - 1)) + subBucket * width;
+        return lowest + width - 1;
+    }
+}
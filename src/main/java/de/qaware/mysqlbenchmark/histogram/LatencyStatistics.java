@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.histogram;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps one {@link LatencyHistogram} per measurement point and one for all recorded values of the run. Thread safe.
+ * <p/>
+ * Without fingerprints every distinct statement is a measurement point of its own, e.g. one per id in a where clause.
+ * The number of histograms is therefore limited, values of further points are only recorded for the whole run.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class LatencyStatistics {
+    private static final double NANOS_PER_MILLISECOND = 1000000d;
+
+    /**
+     * Number of measurement points with a histogram of their own if none is given
+     */
+    public static final int DEFAULT_MAX_POINTS = 10000;
+
+    /**
+     * Percentiles reported for every measurement point
+     */
+    public static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    /**
+     * Column headlines of the {@link #PERCENTILES}
+     */
+    public static final List<String> PERCENTILE_NAMES =
+            Collections.unmodifiableList(Arrays.asList("p50", "p90", "p99", "p99.9"));
+
+    private final ConcurrentMap<String, LatencyHistogram> histograms =
+            new ConcurrentHashMap<String, LatencyHistogram>();
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final AtomicLong untracked = new AtomicLong();
+    private final int maxPoints;
+
+    /**
+     * Constructor, up to {@link #DEFAULT_MAX_POINTS} measurement points get a histogram.
+     */
+    public LatencyStatistics() {
+        this(DEFAULT_MAX_POINTS);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param maxPoints number of measurement points which get a histogram of their own
+     */
+    public LatencyStatistics(int maxPoints) {
+        this.maxPoints = maxPoints;
+    }
+
+    /**
+     * Record a measured value for a measurement point and for the whole run. Once the maximum number of points is
+     * reached, the values of new points are only recorded for the whole run.
+     *
+     * @param pointName name of the measurement point
+     * @param nanos     measured value in nanoseconds
+     */
+    public void record(String pointName, long nanos) {
+        total.record(nanos);
+        LatencyHistogram histogram = histograms.get(pointName);
+        if (histogram == null) {
+            // concurrent threads may exceed the limit by a few points
+            if (histograms.size() >= maxPoints) {
+                untracked.incrementAndGet();
+                return;
+            }
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = histograms.putIfAbsent(pointName, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * Histogram of a measurement point
+     *
+     * @param pointName name of the measurement point
+     * @return histogram or null if nothing was recorded for this point or it has no histogram of its own
+     */
+    public LatencyHistogram getHistogram(String pointName) {
+        return histograms.get(pointName);
+    }
+
+    /**
+     * Names of all measurement points with recorded values
+     *
+     * @return point names
+     */
+    public Set<String> getPointNames() {
+        return histograms.keySet();
+    }
+
+    /**
+     * Number of values recorded for the whole run only, because their measurement point had no histogram
+     *
+     * @return number of values
+     */
+    public long getUntrackedCount() {
+        return untracked.get();
+    }
+
+    /**
+     * Histogram of all values recorded in the run
+     *
+     * @return histogram
+     */
+    public LatencyHistogram getTotal() {
+        return total;
+    }
+
+    /**
+     * The values at the {@link #PERCENTILES} of a histogram.
+     *
+     * @param histogram the histogram
+     * @return values in milliseconds
+     */
+    public static Double[] getPercentiles(LatencyHistogram histogram) {
+        Double[] values = new Double[PERCENTILES.length];
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            values[i] = toMillis(histogram.getValueAtPercentile(PERCENTILES[i]));
+        }
+        return values;
+    }
+
+    /**
+     * Format the percentiles and the maximum of a histogram
+     *
+     * @param label     text in front of the values
+     * @param histogram the histogram
+     * @return one line of text
+     */
+    public static String format(String label, LatencyHistogram histogram) {
+        return String.format(Locale.ENGLISH, "%s p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms",
+                label,
+                toMillis(histogram.getValueAtPercentile(50)), toMillis(histogram.getValueAtPercentile(90)),
+                toMillis(histogram.getValueAtPercentile(99)), toMillis(histogram.getValueAtPercentile(99.9)),
+                toMillis(histogram.getMax()));
+    }
+
+    /**
+     * Convert nanoseconds to milliseconds, the unit of the jetm measurements.
+     *
+     * @param nanos value in nanoseconds
+     * @return value in milliseconds
+     */
+    public static double toMillis(long nanos) {
+        return nanos / NANOS_PER_MILLISECOND;
+    }
+
+    /**
+     * Clear all histograms
+     */
+    public void clear() {
+        histograms.clear();
+        total.reset();
+        untracked.set(0);
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.qaware.mysqlbenchmark.jetm;
+
+import java.util.List;
+
+/**
+ * Provides additional columns for the measurement points rendered by {@link TextRenderer} and {@link CsvRenderer}.
+ *
+ * @author felix.kelm (felix.kelm@qaware.de)
+ */
+public interface ColumnProvider {
+    /**
+     * Headlines of the additional columns
+     *
+     * @return headlines
+     */
+    List<String> getHeadlines();
+
+    /**
+     * Values of the additional columns for one measurement point, in the order of the headlines. Doubles are formatted
+     * like the measured times, strings are left aligned, all other values are right aligned with their string
+     * representation.
+     *
+     * @param pointName name of the measurement point
+     * @return values or null if there are no values for this point
+     */
+    Object[] getValues(String pointName);
+}
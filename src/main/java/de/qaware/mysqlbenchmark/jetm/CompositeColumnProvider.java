@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.jetm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Combines several {@link ColumnProvider}s into one, their columns are rendered one after another.
+ *
+ * @author felix.kelm (felix.kelm@qaware.de)
+ */
+public class CompositeColumnProvider implements ColumnProvider {
+    private final List<ColumnProvider> providers;
+
+    /**
+     * Constructor
+     *
+     * @param providers the providers in column order
+     */
+    public CompositeColumnProvider(List<ColumnProvider> providers) {
+        this.providers = providers;
+    }
+
+    @Override
+    public List<String> getHeadlines() {
+        List<String> headlines = new ArrayList<String>();
+        for (ColumnProvider provider : providers) {
+            headlines.addAll(provider.getHeadlines());
+        }
+        return headlines;
+    }
+
+    @Override
+    public Object[] getValues(String pointName) {
+        List<Object> values = new ArrayList<Object>();
+        boolean found = false;
+        for (ColumnProvider provider : providers) {
+            int columns = provider.getHeadlines().size();
+            Object[] providerValues = provider.getValues(pointName);
+            found |= providerValues != null;
+            for (int i = 0; i < columns; i++) {
+                values.add(providerValues != null && i < providerValues.length ? providerValues[i] : null);
+            }
+        }
+        return found ? values.toArray() : null;
+    }
+}
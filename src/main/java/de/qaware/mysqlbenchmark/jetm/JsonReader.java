@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.jetm;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON reader for the lines written by {@link JsonWriter}. Objects are read into maps keeping the order of
+ * their members, arrays into lists, numbers into doubles independent of the locale, null into null.
+ *
+ * @author felix.kelm (felix.kelm@qaware.de)
+ */
+public final class JsonReader {
+    private final String text;
+    private int position;
+
+    private JsonReader(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Read a JSON text
+     *
+     * @param text the text, e.g. one line of a JSON lines file
+     * @return a Map, List, String, Double, Boolean or null
+     * @throws IOException if the text is not valid JSON
+     */
+    public static Object read(String text) throws IOException {
+        JsonReader reader = new JsonReader(text);
+        Object value = reader.value();
+        reader.skipWhitespace();
+        if (reader.position < text.length()) {
+            throw reader.error("end of the text");
+        }
+        return value;
+    }
+
+    private Object value() throws IOException {
+        skipWhitespace();
+        if (position >= text.length()) {
+            throw error("a value");
+        }
+        char c = text.charAt(position);
+        if (c == '{') {
+            return object();
+        } else if (c == '[') {
+            return array();
+        } else if (c == '"') {
+            return string();
+        } else if (c == '-' || (c >= '0' && c <= '9')) {
+            return number();
+        } else if (text.startsWith("true", position)) {
+            position += 4;
+            return Boolean.TRUE;
+        } else if (text.startsWith("false", position)) {
+            position += 5;
+            return Boolean.FALSE;
+        } else if (text.startsWith("null", position)) {
+            position += 4;
+            return null;
+        }
+        throw error("a value");
+    }
+
+    private Map<String, Object> object() throws IOException {
+        Map<String, Object> members = new LinkedHashMap<String, Object>();
+        position++;
+        if (next() == '}') {
+            position++;
+            return members;
+        }
+        while (true) {
+            if (next() != '"') {
+                throw error("a member name");
+            }
+            String name = string();
+            expect(':');
+            members.put(name, value());
+            if (next() == '}') {
+                position++;
+                return members;
+            }
+            expect(',');
+        }
+    }
+
+    private List<Object> array() throws IOException {
+        List<Object> values = new ArrayList<Object>();
+        position++;
+        if (next() == ']') {
+            position++;
+            return values;
+        }
+        while (true) {
+            values.add(value());
+            if (next() == ']') {
+                position++;
+                return values;
+            }
+            expect(',');
+        }
+    }
+
+    private String string() throws IOException {
+        StringBuilder value = new StringBuilder();
+        position++;
+        while (position < text.length()) {
+            char c = text.charAt(position++);
+            if (c == '"') {
+                return value.toString();
+            } else if (c != '\\') {
+                value.append(c);
+            } else if (position < text.length()) {
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw error("four hex digits");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("four hex digits");
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        // \" \\ \/
+                        value.append(escaped);
+                }
+            }
+        }
+        throw error("the end of the string");
+    }
+
+    private Double number() throws IOException {
+        int start = position;
+        while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+            position++;
+        }
+        try {
+            return Double.valueOf(text.substring(start, position));
+        } catch (NumberFormatException e) {
+            position = start;
+            throw error("a number");
+        }
+    }
+
+    private void expect(char c) throws IOException {
+        if (next() != c) {
+            throw error("'" + c + "'");
+        }
+        position++;
+    }
+
+    /**
+     * Skip whitespace and peek at the next character
+     *
+     * @return the next character, 0 at the end of the text
+     */
+    private char next() {
+        skipWhitespace();
+        return position < text.length() ? text.charAt(position) : 0;
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IOException error(String expected) {
+        return new IOException("Invalid JSON, expected " + expected + " at column " + (position + 1) + ".");
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.jetm;
+
+import etm.core.aggregation.Aggregate;
+import etm.core.monitor.EtmException;
+import etm.core.renderer.MeasurementRenderer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Renders JETM measurements as one line of JSON, optionally extended by the columns of a {@link ColumnProvider}.
+ * <p/>
+ * The line is an object with the properties set before rendering and the member "points", an array with an object
+ * per measurement point. Every point has the members "name", "count", "average", "min", "max" and "total", a member
+ * per additional column named after its headline in camel case ("Corrected p99.9" becomes "correctedP999") and
+ * "children" if it has nested points. Times are in milliseconds, missing values are left out. The points are
+ * streamed to the writer, rendering several times writes one line each (JSON lines).
+ *
+ * @author felix.kelm (felix.kelm@qaware.de)
+ */
+public class JsonRenderer implements MeasurementRenderer {
+    private final Writer writer;
+    private final Map<String, Object> properties = new LinkedHashMap<String, Object>();
+    private ColumnProvider columnProvider;
+
+    /**
+     * Constructor
+     *
+     * @param aWriter The writer to write to.
+     */
+    public JsonRenderer(Writer aWriter) {
+        writer = aWriter;
+    }
+
+    /**
+     * Add the columns of the provider to every point
+     *
+     * @param aColumnProvider provider for additional columns, may be null
+     */
+    public void setColumnProvider(ColumnProvider aColumnProvider) {
+        columnProvider = aColumnProvider;
+    }
+
+    /**
+     * Add a member to the object, written before the points
+     *
+     * @param name  name of the member
+     * @param value a string, number or boolean
+     */
+    public void setProperty(String name, Object value) {
+        properties.put(name, value);
+    }
+
+    /**
+     * Renders the map to the writer.
+     *
+     * @param points The points.
+     * @throws etm.core.monitor.EtmException Thrown to indicate that writing to the writer failed.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"}) // the renderer interface of JETM is not generic
+    public void render(Map points) {
+        List<String> names = new ArrayList<String>();
+        if (columnProvider != null) {
+            for (String headline : columnProvider.getHeadlines()) {
+                names.add(toName(headline));
+            }
+        }
+
+        try {
+            JsonWriter json = new JsonWriter(writer);
+            json.beginObject();
+            for (Map.Entry<String, Object> property : properties.entrySet()) {
+                json.name(property.getKey()).value(property.getValue());
+            }
+            json.name("points");
+            writePoints(json, points instanceof SortedMap ? points : new TreeMap<Object, Object>(points), names);
+            json.endObject();
+            writer.write(System.getProperty("line.separator"));
+            writer.flush();
+        } catch (IOException e) {
+            throw new EtmException("Unable to write to writer: " + e);
+        }
+    }
+
+    /**
+     * Write an array of points and their children
+     *
+     * @param json   the JSON writer
+     * @param points points by name
+     * @param names  member names of the additional columns
+     * @throws IOException if writing failed
+     */
+    private void writePoints(JsonWriter json, Map<?, ?> points, List<String> names) throws IOException {
+        json.beginArray();
+        for (Object value : points.values()) {
+            Aggregate point = (Aggregate) value;
+            json.beginObject();
+            json.name("name").value(point.getName());
+            json.name("count").value(point.getMeasurements());
+            json.name("average").value(point.getAverage());
+            json.name("min").value(point.getMin());
+            json.name("max").value(point.getMax());
+            json.name("total").value(point.getTotal());
+
+            Object[] values = names.isEmpty() ? null : columnProvider.getValues(point.getName());
+            for (int i = 0; values != null && i < names.size() && i < values.length; i++) {
+                if (values[i] != null) {
+                    json.name(names.get(i)).value(values[i]);
+                }
+            }
+
+            if (point.hasChilds()) {
+                json.name("children");
+                writePoints(json, point.getChilds(), names);
+            }
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    /**
+     * Member name of a column: the headline in camel case without blanks and dots
+     *
+     * @param headline the headline
+     * @return name
+     */
+    static String toName(String headline) {
+        StringBuilder name = new StringBuilder(headline.length());
+        boolean upper = false;
+        for (int i = 0; i < headline.length(); i++) {
+            char c = headline.charAt(i);
+            if (c == ' ') {
+                upper = name.length() > 0;
+            } else if (c != '.') {
+                name.append(upper ? Character.toUpperCase(c) : name.length() == 0 ? Character.toLowerCase(c) : c);
+                upper = false;
+            }
+        }
+        return name.toString();
+    }
+}
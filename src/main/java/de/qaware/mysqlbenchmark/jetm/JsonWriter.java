@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.jetm;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Minimal streaming JSON writer. Values are written to the underlying writer right away, only the nesting of
+ * objects and arrays is tracked to place the commas. Numbers are written independent of the locale.
+ *
+ * @author felix.kelm (felix.kelm@qaware.de)
+ */
+public class JsonWriter {
+    /**
+     * Doubles are rounded to this many fraction digits
+     */
+    private static final double ROUNDING = 1000;
+
+    private final Writer writer;
+    private boolean[] hasValues = new boolean[16];
+    private int depth;
+    private boolean afterName;
+
+    /**
+     * Constructor
+     *
+     * @param writer the writer to write to, not closed by this writer
+     */
+    public JsonWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Start an object
+     *
+     * @return this writer
+     * @throws IOException if writing failed
+     */
+    public JsonWriter beginObject() throws IOException {
+        beforeValue();
+        writer.write('{');
+        push();
+        return this;
+    }
+
+    /**
+     * End the current object
+     *
+     * @return this writer
+     * @throws IOException if writing failed
+     */
+    public JsonWriter endObject() throws IOException {
+        depth--;
+        writer.write('}');
+        return this;
+    }
+
+    /**
+     * Start an array
+     *
+     * @return this writer
+     * @throws IOException if writing failed
+     */
+    public JsonWriter beginArray() throws IOException {
+        beforeValue();
+        writer.write('[');
+        push();
+        return this;
+    }
+
+    /**
+     * End the current array
+     *
+     * @return this writer
+     * @throws IOException if writing failed
+     */
+    public JsonWriter endArray() throws IOException {
+        depth--;
+        writer.write(']');
+        return this;
+    }
+
+    /**
+     * Write the name of the next member of the current object
+     *
+     * @param name the name
+     * @return this writer
+     * @throws IOException if writing failed
+     */
+    public JsonWriter name(String name) throws IOException {
+        beforeValue();
+        string(name);
+        writer.write(':');
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * Write a value: null, a string, a boolean or a number
+     *
+     * @param value the value
+     * @return this writer
+     * @throws IOException if writing failed
+     */
+    public JsonWriter value(Object value) throws IOException {
+        if (value instanceof Double || value instanceof Float) {
+            return value(((Number) value).doubleValue());
+        }
+        beforeValue();
+        if (value == null) {
+            writer.write("null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            writer.write(value.toString());
+        } else {
+            string(value.toString());
+        }
+        return this;
+    }
+
+    /**
+     * Write a number rounded to three fraction digits, null if the number is not finite
+     *
+     * @param value the value
+     * @return this writer
+     * @throws IOException if writing failed
+     */
+    public JsonWriter value(double value) throws IOException {
+        beforeValue();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            writer.write("null");
+        } else if (Math.abs(value) < Long.MAX_VALUE / ROUNDING) {
+            writer.write(Double.toString(Math.round(value * ROUNDING) / ROUNDING));
+        } else {
+            writer.write(Double.toString(value));
+        }
+        return this;
+    }
+
+    /**
+     * Write a number
+     *
+     * @param value the value
+     * @return this writer
+     * @throws IOException if writing failed
+     */
+    public JsonWriter value(long value) throws IOException {
+        beforeValue();
+        writer.write(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * Write a separator if the current object or array already has a value
+     *
+     * @throws IOException if writing failed
+     */
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (hasValues[depth]) {
+                writer.write(',');
+            }
+            hasValues[depth] = true;
+        }
+    }
+
+    /**
+     * Enter an object or array
+     */
+    private void push() {
+        depth++;
+        if (depth == hasValues.length) {
+            hasValues = Arrays.copyOf(hasValues, depth * 2);
+        }
+        hasValues[depth] = false;
+    }
+
+    /**
+     * Write a quoted and escaped string
+     *
+     * @param value the string
+     * @throws IOException if writing failed
+     */
+    private void string(String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.jetm;
+
+import etm.core.aggregation.Aggregate;
+import etm.core.monitor.EtmException;
+import etm.core.renderer.MeasurementRenderer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Base of the renderers writing JETM measurements as table with aligned columns, optionally extended by the columns
+ * of a {@link ColumnProvider}.
+ * <p/>
+ * The table is streamed to the writer: a first pass over the measurement points only measures the width of every
+ * column, the second pass formats the rows again and writes them right away. Only one row is held in memory,
+ * whatever the number of measurement points.
+ *
+ * @author felix.kelm (felix.kelm@qaware.de)
+ */
+public abstract class TableRenderer implements MeasurementRenderer {
+    /**
+     * Line separator of the platform
+     */
+    protected static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    /**
+     * Marks a right aligned cell in the indents of a row
+     */
+    protected static final int RIGHT_ALIGNED = -1;
+
+    private static final List<String> HEADLINES = Arrays.asList("Measurement Point", "#", "Average", "Min",
+            "Max", "Total");
+
+    private final NumberFormat timeFormatter;
+    private final Writer writer;
+    private ColumnProvider columnProvider;
+
+    /**
+     * Constructor
+     *
+     * @param aWriter        The writer to write to.
+     * @param aTimeFormatter The number formatter.
+     */
+    protected TableRenderer(Writer aWriter, NumberFormat aTimeFormatter) {
+        writer = aWriter;
+        timeFormatter = aTimeFormatter;
+    }
+
+    /**
+     * Number format for times with three fraction digits and grouping
+     *
+     * @param aLocale The locale to use.
+     * @return a new number format
+     */
+    protected static NumberFormat timeFormat(Locale aLocale) {
+        NumberFormat format = NumberFormat.getNumberInstance(aLocale);
+        format.setMaximumFractionDigits(3);
+        format.setMinimumFractionDigits(3);
+        format.setGroupingUsed(true);
+        return format;
+    }
+
+    /**
+     * Add the columns of the provider to the table
+     *
+     * @param aColumnProvider provider for additional columns, may be null
+     */
+    public void setColumnProvider(ColumnProvider aColumnProvider) {
+        columnProvider = aColumnProvider;
+    }
+
+    /**
+     * Renders the map to the writer.
+     *
+     * @param points The points.
+     * @throws etm.core.monitor.EtmException Thrown to indicate that writing to the writer failed.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"}) // the renderer interface of JETM is not generic
+    public void render(Map points) {
+        List<String> headlines = new ArrayList<String>(HEADLINES);
+        if (columnProvider != null) {
+            headlines.addAll(columnProvider.getHeadlines());
+        }
+        Map<?, ?> sorted = points instanceof SortedMap ? points : new TreeMap<Object, Object>(points);
+
+        int[] widths = new int[headlines.size()];
+        for (int i = 0; i < widths.length; i++) {
+            widths[i] = headlines.get(i).length() + 2;
+        }
+        String[] cells = new String[widths.length];
+        int[] indents = new int[widths.length];
+
+        try {
+            visit(sorted, 0, cells, indents, widths, false);
+            writeHeader(writer, headlines, widths);
+            visit(sorted, 0, cells, indents, widths, true);
+            writer.flush();
+        } catch (IOException e) {
+            throw new EtmException("Unable to write to writer: " + e);
+        }
+    }
+
+    /**
+     * Format all points and their children, either measuring the column widths or writing the rows.
+     *
+     * @param points       points by name
+     * @param nestingLevel nesting level of the points
+     * @param cells        row buffer for the formatted cells
+     * @param indents      row buffer for the alignment of the cells
+     * @param widths       widths of the columns, updated if not writing
+     * @param write        true to write the rows, false to measure them
+     * @throws IOException if writing failed
+     */
+    private void visit(Map<?, ?> points, int nestingLevel, String[] cells, int[] indents, int[] widths, boolean write)
+            throws IOException {
+        for (Object value : points.values()) {
+            Aggregate point = (Aggregate) value;
+            format(nestingLevel, point, cells, indents);
+            if (write) {
+                writeRow(writer, cells, indents, widths);
+            } else {
+                for (int i = 0; i < cells.length; i++) {
+                    widths[i] = Math.max(widths[i], length(cells[i], indents[i]));
+                }
+            }
+
+            if (point.hasChilds()) {
+                visit(point.getChilds(), nestingLevel + 1, cells, indents, widths, write);
+            }
+            if (write && nestingLevel == 0) {
+                endGroup(writer, widths);
+            }
+        }
+    }
+
+    /**
+     * Format the cells of one row
+     *
+     * @param nestingLevel nesting level
+     * @param aAggregate   an aggregate
+     * @param cells        receives the formatted cells
+     * @param indents      receives the nesting level of left aligned cells or {@link #RIGHT_ALIGNED}
+     */
+    private void format(int nestingLevel, Aggregate aAggregate, String[] cells, int[] indents) {
+        cells[0] = aAggregate.getName();
+        indents[0] = nestingLevel;
+        cells[1] = String.valueOf(aAggregate.getMeasurements());
+        cells[2] = timeFormatter.format(aAggregate.getAverage());
+        cells[3] = timeFormatter.format(aAggregate.getMin());
+        cells[4] = timeFormatter.format(aAggregate.getMax());
+        cells[5] = timeFormatter.format(aAggregate.getTotal());
+        for (int i = 1; i < HEADLINES.size(); i++) {
+            indents[i] = RIGHT_ALIGNED;
+        }
+
+        if (cells.length > HEADLINES.size()) {
+            Object[] values = columnProvider.getValues(aAggregate.getName());
+            for (int i = HEADLINES.size(); i < cells.length; i++) {
+                int index = i - HEADLINES.size();
+                Object value = values != null && index < values.length ? values[index] : null;
+                cells[i] = format(value);
+                indents[i] = value instanceof String ? 0 : RIGHT_ALIGNED;
+            }
+        }
+    }
+
+    /**
+     * Format an additional value
+     *
+     * @param value the value
+     * @return formatted value
+     */
+    private String format(Object value) {
+        if (value == null) {
+            return "";
+        }
+        return value instanceof Double ? timeFormatter.format(value) : String.valueOf(value);
+    }
+
+    /**
+     * Width of a cell including one blank on either side
+     *
+     * @param text   content of the cell
+     * @param indent nesting level or {@link #RIGHT_ALIGNED}
+     * @return width
+     */
+    private static int length(String text, int indent) {
+        return Math.max(0, 2 * indent) + text.length() + 2;
+    }
+
+    /**
+     * Write the headlines
+     *
+     * @param writer    a writer to write to
+     * @param headlines headlines of all columns
+     * @param widths    widths of all columns
+     * @throws IOException if writing failed
+     */
+    protected abstract void writeHeader(Writer writer, List<String> headlines, int[] widths) throws IOException;
+
+    /**
+     * Write one row
+     *
+     * @param writer  a writer to write to
+     * @param cells   the formatted cells
+     * @param indents nesting level of left aligned cells or {@link #RIGHT_ALIGNED}
+     * @param widths  widths of all columns
+     * @throws IOException if writing failed
+     */
+    protected abstract void writeRow(Writer writer, String[] cells, int[] indents, int[] widths) throws IOException;
+
+    /**
+     * Called after a top level point and all its children are written. Does nothing by default.
+     *
+     * @param writer a writer to write to
+     * @param widths widths of all columns
+     * @throws IOException if writing failed
+     */
+    protected void endGroup(Writer writer, int[] widths) throws IOException {
+        // no separation by default
+    }
+
+    /**
+     * Write a cell, left aligned with an indent or right aligned
+     *
+     * @param writer     a writer to write to
+     * @param text       content of the cell
+     * @param indent     nesting level or {@link #RIGHT_ALIGNED}
+     * @param totalWidth width of the column
+     * @throws IOException if writing failed
+     */
+    protected static void writeCell(Writer writer, String text, int indent, int totalWidth) throws IOException {
+        writer.write(' ');
+        if (indent == RIGHT_ALIGNED) {
+            repeat(writer, ' ', totalWidth - text.length() - 2);
+            writer.write(text);
+        } else {
+            repeat(writer, ' ', indent * 2);
+            writer.write(text);
+            repeat(writer, ' ', totalWidth - indent * 2 - text.length() - 2);
+        }
+        writer.write(' ');
+    }
+
+    /**
+     * Write a centered cell
+     *
+     * @param writer     a writer to write to
+     * @param text       content of the cell
+     * @param totalWidth width of the column
+     * @throws IOException if writing failed
+     */
+    protected static void writeCentered(Writer writer, String text, int totalWidth) throws IOException {
+        int remaining = totalWidth - text.length();
+        int prefix = (remaining + 1) / 2;
+        repeat(writer, ' ', prefix);
+        writer.write(text);
+        repeat(writer, ' ', remaining - prefix);
+    }
+
+    /**
+     * Write a character several times
+     *
+     * @param writer a writer to write to
+     * @param c      the character
+     * @param count  number of characters, nothing is written if not positive
+     * @throws IOException if writing failed
+     */
+    protected static void repeat(Writer writer, char c, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            writer.write(c);
+        }
+    }
+}
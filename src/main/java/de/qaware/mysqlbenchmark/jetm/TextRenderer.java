@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.jetm;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Renders JETM measurements as text table in the layout of JETM's SimpleTextRenderer, optionally extended by
+ * the columns of a {@link ColumnProvider}. The table is streamed, see {@link TableRenderer}.
+ *
+ * @author felix.kelm (felix.kelm@qaware.de)
+ */
+public class TextRenderer extends TableRenderer {
+
+    private static final char COLUMN_SEPARATOR = '|';
+
+    /**
+     * Constructs a TextRenderer using the default locale
+     * and the provided writer.
+     *
+     * @param aWriter The writer.
+     */
+    public TextRenderer(Writer aWriter) {
+        this(aWriter, Locale.getDefault());
+    }
+
+    /**
+     * Constructs a TextRenderer using the provided locale
+     * and provided writer.
+     *
+     * @param aWriter The writer to write to.
+     * @param aLocale The locale to use.
+     */
+    public TextRenderer(Writer aWriter, Locale aLocale) {
+        super(aWriter, timeFormat(aLocale));
+    }
+
+    @Override
+    protected void writeHeader(Writer writer, List<String> headlines, int[] widths) throws IOException {
+        writeSeparator(writer, widths);
+        writer.write(COLUMN_SEPARATOR);
+        for (int i = 0; i < widths.length; i++) {
+            writeCentered(writer, headlines.get(i), widths[i]);
+            writer.write(COLUMN_SEPARATOR);
+        }
+        writer.write(LINE_SEPARATOR);
+        writeSeparator(writer, widths);
+    }
+
+    @Override
+    protected void writeRow(Writer writer, String[] cells, int[] indents, int[] widths) throws IOException {
+        writer.write(COLUMN_SEPARATOR);
+        for (int i = 0; i < widths.length; i++) {
+            writeCell(writer, cells[i], indents[i], widths[i]);
+            writer.write(COLUMN_SEPARATOR);
+        }
+        writer.write(LINE_SEPARATOR);
+    }
+
+    @Override
+    protected void endGroup(Writer writer, int[] widths) throws IOException {
+        writeSeparator(writer, widths);
+    }
+
+    /**
+     * Write a separator line
+     *
+     * @param writer a writer to write to
+     * @param widths widths of all columns
+     * @throws IOException if writing failed
+     */
+    private static void writeSeparator(Writer writer, int[] widths) throws IOException {
+        writer.write(COLUMN_SEPARATOR);
+        for (int width : widths) {
+            repeat(writer, '-', width);
+            writer.write(COLUMN_SEPARATOR);
+        }
+        writer.write(LINE_SEPARATOR);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.jmx;
+
+import java.util.List;
+
+/**
+ * Live state and control of a running benchmark, registered as MXBean by {@link BenchmarkMonitor}.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public interface BenchmarkMXBean {
+    /**
+     * Statements executed in the current run
+     *
+     * @return executed statements
+     */
+    long getExecutedStatements();
+
+    /**
+     * Statements being executed right now
+     *
+     * @return statements in flight
+     */
+    long getInFlightStatements();
+
+    /**
+     * Statements which failed in the current run
+     *
+     * @return failed statements
+     */
+    long getFailedStatements();
+
+    /**
+     * Throughput of the current run over the last 10 seconds, or since the start of the run if it is shorter
+     *
+     * @return statements per second
+     */
+    double getCurrentThroughput();
+
+    /**
+     * Statements of the workload of one run
+     *
+     * @return number of statements, -1 if not known, e.g. while streaming
+     */
+    long getTotalStatements();
+
+    /**
+     * Progress of the current run through the workload
+     *
+     * @return percentage of executed statements, -1 if the size of the workload is not known
+     */
+    double getProgress();
+
+    /**
+     * Latency percentiles of the 100 most frequently executed statements or fingerprints of the current run
+     *
+     * @return latencies, most frequent first
+     */
+    List<StatementLatency> getStatementLatencies();
+
+    /**
+     * Check if the replay is paused
+     *
+     * @return true if paused
+     */
+    boolean isPaused();
+
+    /**
+     * Replay speed factor of a replay at the original time offsets
+     *
+     * @return speed, 0 if not replaying at the original time offsets
+     */
+    double getReplaySpeed();
+
+    /**
+     * Target rate of a constant rate replay
+     *
+     * @return statements per second, 0 if not replaying at a constant rate
+     */
+    double getTargetRate();
+
+    /**
+     * Stop starting new statements until {@link #resume()} is called. Statements in flight are finished.
+     */
+    void pause();
+
+    /**
+     * Continue a paused replay
+     */
+    void resume();
+
+    /**
+     * Change the speed factor of a replay at the original time offsets
+     *
+     * @param speed the new speed factor
+     */
+    void changeReplaySpeed(double speed);
+
+    /**
+     * Change the target rate of a constant rate replay
+     *
+     * @param rate the new rate in statements per second
+     */
+    void changeTargetRate(double rate);
+}
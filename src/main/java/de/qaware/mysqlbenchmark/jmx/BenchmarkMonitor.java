@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.jmx;
+
+import de.qaware.mysqlbenchmark.QueryBenchmark;
+import de.qaware.mysqlbenchmark.histogram.LatencyHistogram;
+import de.qaware.mysqlbenchmark.histogram.LatencyStatistics;
+import de.qaware.mysqlbenchmark.replay.ReplayScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Exposes the state of a running {@link QueryBenchmark} over JMX and allows to pause, resume and change the speed of
+ * the replay, e.g. with jconsole or VisualVM.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class BenchmarkMonitor implements BenchmarkMXBean {
+    /**
+     * Name the monitor is registered with
+     */
+    public static final String OBJECT_NAME = "de.qaware.mysqlbenchmark:type=Benchmark";
+
+    private static final Logger LOG = LoggerFactory.getLogger(BenchmarkMonitor.class);
+    private static final int MAX_STATEMENTS = 100;
+
+    private final QueryBenchmark benchmark;
+
+    /**
+     * Constructor
+     *
+     * @param benchmark the benchmark to expose
+     */
+    public BenchmarkMonitor(QueryBenchmark benchmark) {
+        this.benchmark = benchmark;
+    }
+
+    /**
+     * Register this monitor with the platform MBean server, replacing a previously registered monitor. Failures are
+     * logged only, the benchmark runs without JMX then.
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+            LOG.info("Benchmark state and controls are available over JMX as '{}'.", OBJECT_NAME);
+        } catch (JMException e) {
+            LOG.warn("Could not register the benchmark monitor.", e);
+        }
+    }
+
+    @Override
+    public long getExecutedStatements() {
+        return benchmark.getExecutedStatements();
+    }
+
+    @Override
+    public long getInFlightStatements() {
+        return benchmark.getInFlightStatements();
+    }
+
+    @Override
+    public long getFailedStatements() {
+        return benchmark.getFailedStatements();
+    }
+
+    @Override
+    public double getCurrentThroughput() {
+        return benchmark.getCurrentThroughput();
+    }
+
+    @Override
+    public long getTotalStatements() {
+        return benchmark.getTotalStatements();
+    }
+
+    @Override
+    public double getProgress() {
+        long total = benchmark.getTotalStatements();
+        if (total < 0) {
+            return -1;
+        }
+        return total == 0 ? 100 : Math.min(100, 100d * benchmark.getExecutedStatements() / total);
+    }
+
+    @Override
+    public List<StatementLatency> getStatementLatencies() {
+        LatencyStatistics latencies = benchmark.getLatencyStatistics();
+        List<StatementLatency> result = new ArrayList<StatementLatency>();
+        for (String pointName : latencies.getPointNames()) {
+            LatencyHistogram histogram = latencies.getHistogram(pointName);
+            result.add(new StatementLatency(pointName, histogram.getCount(),
+                    LatencyStatistics.toMillis(histogram.getValueAtPercentile(50)),
+                    LatencyStatistics.toMillis(histogram.getValueAtPercentile(90)),
+                    LatencyStatistics.toMillis(histogram.getValueAtPercentile(99)),
+                    LatencyStatistics.toMillis(histogram.getValueAtPercentile(99.9)),
+                    LatencyStatistics.toMillis(histogram.getMax())));
+        }
+        Collections.sort(result, new Comparator<StatementLatency>() {
+            @Override
+            public int compare(StatementLatency o1, StatementLatency o2) {
+                return o1.getCount() < o2.getCount() ? 1 : (o1.getCount() == o2.getCount() ? 0 : -1);
+            }
+        });
+        return result.size() > MAX_STATEMENTS
+                ? new ArrayList<StatementLatency>(result.subList(0, MAX_STATEMENTS)) : result;
+    }
+
+    @Override
+    public boolean isPaused() {
+        return benchmark.isPaused();
+    }
+
+    @Override
+    public double getReplaySpeed() {
+        ReplayScheduler scheduler = benchmark.getScheduler();
+        return scheduler == null ? 0 : scheduler.getSpeed();
+    }
+
+    @Override
+    public double getTargetRate() {
+        ReplayScheduler scheduler = benchmark.getScheduler();
+        return scheduler == null ? 0 : scheduler.getRate();
+    }
+
+    @Override
+    public void pause() {
+        LOG.info("Pausing the benchmark.");
+        benchmark.pause();
+    }
+
+    @Override
+    public void resume() {
+        LOG.info("Resuming the benchmark.");
+        benchmark.resume();
+    }
+
+    @Override
+    public void changeReplaySpeed(double speed) {
+        ReplayScheduler scheduler = benchmark.getScheduler();
+        if (scheduler == null) {
+            throw new IllegalStateException("The benchmark replays as fast as possible, start it with -speed.");
+        }
+        scheduler.setSpeed(speed);
+        LOG.info("Replay speed changed to {}.", speed);
+    }
+
+    @Override
+    public void changeTargetRate(double rate) {
+        ReplayScheduler scheduler = benchmark.getScheduler();
+        if (scheduler == null) {
+            throw new IllegalStateException("The benchmark replays as fast as possible, start it with -rate.");
+        }
+        scheduler.setRate(rate);
+        LOG.info("Target rate changed to {} statements/s.", rate);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.jmx;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Latency percentiles of one statement or fingerprint, exposed as composite data by {@link BenchmarkMXBean}.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class StatementLatency {
+    private final String statement;
+    private final long count;
+    private final double p50;
+    private final double p90;
+    private final double p99;
+    private final double p999;
+    private final double max;
+
+    /**
+     * Constructor
+     *
+     * @param statement name of the measurement point
+     * @param count     number of executions
+     * @param p50       median latency in milliseconds
+     * @param p90       90th percentile in milliseconds
+     * @param p99       99th percentile in milliseconds
+     * @param p999      99.9th percentile in milliseconds
+     * @param max       maximum latency in milliseconds
+     */
+    @ConstructorProperties({"statement", "count", "p50", "p90", "p99", "p999", "max"})
+    public StatementLatency(String statement, long count, double p50, double p90, double p99, double p999, double max) {
+        this.statement = statement;
+        this.count = count;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    /**
+     * Name of the measurement point
+     *
+     * @return statement or fingerprint
+     */
+    public String getStatement() {
+        return statement;
+    }
+
+    /**
+     * Number of executions
+     *
+     * @return count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Median latency
+     *
+     * @return milliseconds
+     */
+    public double getP50() {
+        return p50;
+    }
+
+    /**
+     * 90th percentile of the latency
+     *
+     * @return milliseconds
+     */
+    public double getP90() {
+        return p90;
+    }
+
+    /**
+     * 99th percentile of the latency
+     *
+     * @return milliseconds
+     */
+    public double getP99() {
+        return p99;
+    }
+
+    /**
+     * 99.9th percentile of the latency
+     *
+     * @return milliseconds
+     */
+    public double getP999() {
+        return p999;
+    }
+
+    /**
+     * Maximum latency
+     *
+     * @return milliseconds
+     */
+    public double getMax() {
+        return max;
+    }
+}
@@ -0,0 +1,579 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.qaware.mysqlbenchmark.logfile;
+
+import de.qaware.mysqlbenchmark.filter.PrefixMatcher;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Fast scanner for mysql general query logs. Reads the log through a {@link FileChannel} and works on the raw bytes:
+ * record boundaries, connection ids, command types and timestamps are found without regular expressions and without
+ * creating a String per line. Only accepted statements are decoded (as UTF-8).
+ * <p/>
+ * A record starts with an optional timestamp, a tab, the connection id, the command and the argument:
+ * <pre>
+ * 140101 10:00:00	   43 Query	SELECT 1
+ * 		   43 Query	SELECT 2
+ * 2014-01-01T10:00:00.123456Z	   43 Query	SELECT 3
+ * </pre>
+ * Lines which don't start a record continue the argument of the previous record, so statements spanning several
+ * lines are joined into one statement. The banner lines mysql writes on startup end the previous record.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class GeneralLogScanner {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int INITIAL_BUFFER_SIZE = 1 << 20;
+    private static final double BYTES_PER_MB = 1024d * 1024d;
+
+    private static final byte[] QUERY = "Query".getBytes(UTF8);
+    private static final byte[] QUIT = "Quit".getBytes(UTF8);
+    private static final byte[] BANNER_VERSION = ", Version: ".getBytes(UTF8);
+    private static final byte[] BANNER_STARTED = "started with:".getBytes(UTF8);
+    private static final byte[] BANNER_TIME = "Time ".getBytes(UTF8);
+    private static final byte[] BANNER_PORT = "Tcp port:".getBytes(UTF8);
+
+    private static final long MILLIS_PER_SECOND = 1000;
+    private static final long SECONDS_PER_DAY = 86400;
+
+    private final LogEntryListener listener;
+
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int limit;
+    private long bufferPosition;
+    private long readPosition;
+    private long rangeEnd;
+    private boolean aligning;
+    private boolean inBanner;
+
+    private byte[] restrictedID;
+    private PrefixMatcher ignorePrefixes;
+
+    private long currentTimestamp;
+
+    // the statement currently being read, may continue on the following lines
+    private int pendingStart;
+    private int pendingEnd;
+    private long pendingID;
+    private long pendingTimestamp;
+
+    // header fields of the last parsed line
+    private long recordID;
+    private int commandStart;
+    private int commandEnd;
+    private int argumentStart;
+
+    private long scannedBytes;
+    private long scanTime;
+
+    /**
+     * Constructor
+     *
+     * @param listener receives the parsed queries
+     */
+    public GeneralLogScanner(LogEntryListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Scan the given log file and pass all matching queries to the listener.
+     *
+     * @param inputFilename  input file
+     * @param restrictedID   only accept queries of this connection id, may be null
+     * @param ignorePrefixes do not accept queries which start with these prefixes, case insensitive. May be null.
+     * @throws IOException
+     */
+    public void scan(String inputFilename, String restrictedID, List<String> ignorePrefixes) throws IOException {
+        FileInputStream in = new FileInputStream(inputFilename);
+        try {
+            scan(in.getChannel(), restrictedID, ignorePrefixes);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Scan the whole channel and pass all matching queries to the listener.
+     *
+     * @param channel        the channel to read from
+     * @param restrictedID   only accept queries of this connection id, may be null
+     * @param ignorePrefixes do not accept queries which start with these prefixes, case insensitive. May be null.
+     * @throws IOException
+     */
+    public void scan(FileChannel channel, String restrictedID, List<String> ignorePrefixes) throws IOException {
+        scan(channel, 0, channel.size(), restrictedID, ignorePrefixes);
+    }
+
+    /**
+     * Scan all records starting within a byte range of the channel and pass the matching queries to the listener.
+     * If the range doesn't start at 0, everything up to the first record start within the range is skipped, as it
+     * belongs to the record of the previous range. The last record is read beyond the end of the range until the
+     * next record starts. Adjacent ranges therefore yield every record exactly once.
+     * <p/>
+     * Statements before the first timestamp within the range have no timestamp. Uses positional reads, so several
+     * scanners may share one channel.
+     *
+     * @param channel        the channel to read from
+     * @param start          first byte of the range
+     * @param end            end of the range, exclusive
+     * @param restrictedID   only accept queries of this connection id, may be null
+     * @param ignorePrefixes do not accept queries which start with these prefixes, case insensitive. May be null.
+     * @throws IOException
+     */
+    public void scan(FileChannel channel, long start, long end, String restrictedID, List<String> ignorePrefixes)
+            throws IOException {
+        setFilters(restrictedID, ignorePrefixes);
+        long startTime = System.nanoTime();
+
+        limit = 0;
+        scannedBytes = 0;
+        currentTimestamp = LogEntry.NO_TIMESTAMP;
+        pendingStart = -1;
+
+        // start one byte early: if it is a line feed, the range starts with a complete line
+        bufferPosition = start > 0 ? start - 1 : 0;
+        readPosition = bufferPosition;
+        rangeEnd = end;
+        aligning = start > 0;
+        inBanner = false;
+        boolean skipLine = start > 0;
+
+        int lineStart = 0;
+        boolean endOfInput = false;
+        while (!Thread.currentThread().isInterrupted()) {
+            int lineEnd = indexOf((byte) '\n', lineStart, limit);
+            if (lineEnd < 0) {
+                if (endOfInput) {
+                    if (lineStart < limit && !skipLine) {
+                        scanLine(lineStart, limit);
+                    }
+                    break;
+                }
+                // keep the pending statement and the incomplete line, read more input
+                int keep = pendingStart >= 0 ? Math.min(pendingStart, lineStart) : lineStart;
+                int read = refill(channel, keep);
+                lineStart -= keep;
+                if (read < 0) {
+                    endOfInput = true;
+                }
+                continue;
+            }
+            if (skipLine) {
+                skipLine = false;
+            } else if (!scanLine(lineStart, lineEnd)) {
+                break;
+            }
+            lineStart = lineEnd + 1;
+        }
+        flushPending();
+
+        scanTime = System.nanoTime() - startTime;
+    }
+
+    /**
+     * Timestamp of the last record header read by the last scan, the timestamp inherited by the following range.
+     *
+     * @return timestamp in milliseconds or {@link LogEntry#NO_TIMESTAMP}
+     */
+    public long getLastTimestamp() {
+        return currentTimestamp;
+    }
+
+    /**
+     * Number of bytes read by the last scan
+     *
+     * @return bytes
+     */
+    public long getScannedBytes() {
+        return scannedBytes;
+    }
+
+    /**
+     * Scan throughput of the last scan
+     *
+     * @return megabytes per second
+     */
+    public double getThroughput() {
+        return scanTime > 0 ? scannedBytes / BYTES_PER_MB / (scanTime / 1e9) : 0;
+    }
+
+    /**
+     * Size, duration and throughput of the last scan
+     *
+     * @return summary
+     */
+    public String getSummary() {
+        return String.format(Locale.ENGLISH, "%.1f MB in %.3f s (%.1f MB/s)",
+                scannedBytes / BYTES_PER_MB, scanTime / 1e9, getThroughput());
+    }
+
+    /**
+     * Prepare the filters as bytes
+     *
+     * @param restricted connection id or null
+     * @param prefixes   ignored prefixes or null
+     */
+    private void setFilters(String restricted, List<String> prefixes) {
+        restrictedID = restricted == null || restricted.length() == 0 ? null : restricted.trim().getBytes(UTF8);
+        ignorePrefixes = PrefixMatcher.compile(prefixes);
+    }
+
+    /**
+     * Move the bytes from keep to limit to the beginning of the buffer and fill the rest from the channel.
+     * Grows the buffer if it is completely filled with one record.
+     *
+     * @param channel channel to read from
+     * @param keep    first byte to keep
+     * @return number of bytes read or -1 at the end of the channel
+     * @throws IOException
+     */
+    private int refill(FileChannel channel, int keep) throws IOException {
+        int remaining = limit - keep;
+        if (keep == 0 && remaining == buffer.length) {
+            byte[] larger = new byte[buffer.length * 2];
+            System.arraycopy(buffer, 0, larger, 0, remaining);
+            buffer = larger;
+        } else if (keep > 0) {
+            System.arraycopy(buffer, keep, buffer, 0, remaining);
+        }
+        limit = remaining;
+        bufferPosition += keep;
+        if (pendingStart >= 0) {
+            pendingStart -= keep;
+            pendingEnd -= keep;
+        }
+
+        int read = channel.read(ByteBuffer.wrap(buffer, limit, buffer.length - limit), readPosition);
+        if (read > 0) {
+            limit += read;
+            readPosition += read;
+            scannedBytes += read;
+        }
+        return read;
+    }
+
+    /**
+     * Handle one line
+     *
+     * @param start first byte of the line
+     * @param end   end of the line, exclusive, without line feed
+     * @return false if the line is behind the end of the range and the scan is complete
+     */
+    private boolean scanLine(int start, int end) {
+        boolean behindRange = bufferPosition + start >= rangeEnd;
+        if (end > start && buffer[end - 1] == '\r') {
+            end--;
+        }
+
+        boolean header = parseHeader(start, end);
+        boolean banner = !header && isBanner(start, end);
+        inBanner = banner;
+        if (behindRange && (header || banner || pendingStart < 0)) {
+            return false;
+        }
+        if (aligning) {
+            // skip the rest of the record which started in the previous range
+            if (!header && !banner) {
+                return true;
+            }
+            aligning = false;
+        }
+
+        if (header) {
+            flushPending();
+
+            if (equals(QUERY, commandStart, commandEnd)) {
+                if (accept(argumentStart, end)) {
+                    pendingStart = argumentStart;
+                    pendingEnd = end;
+                    pendingID = recordID;
+                    pendingTimestamp = currentTimestamp;
+                }
+            } else if (equals(QUIT, commandStart, commandEnd)) {
+                listener.connectionClosed(String.valueOf(recordID));
+            }
+        } else if (banner) {
+            flushPending();
+        } else if (pendingStart >= 0) {
+            // continuation of a multi-line statement
+            pendingEnd = end;
+        }
+        return true;
+    }
+
+    /**
+     * Pass the pending statement to the listener
+     */
+    private void flushPending() {
+        if (pendingStart >= 0) {
+            String statement = new String(buffer, pendingStart, pendingEnd - pendingStart, UTF8);
+            listener.entryParsed(new LogEntry(String.valueOf(pendingID), pendingTimestamp, statement));
+            pendingStart = -1;
+        }
+    }
+
+    /**
+     * Check the connection id and the ignored prefixes
+     *
+     * @param start first byte of the statement
+     * @param end   end of the statement
+     * @return true if the statement should be replayed
+     */
+    private boolean accept(int start, int end) {
+        if (restrictedID != null && !idMatches(restrictedID)) {
+            return false;
+        }
+        return !ignorePrefixes.matches(buffer, start, end);
+    }
+
+    /**
+     * Parse '[timestamp]\t[spaces]id command[\targument]'. Sets the record fields and the current timestamp.
+     *
+     * @param start first byte of the line
+     * @param end   end of the line
+     * @return true if the line starts a record
+     */
+    private boolean parseHeader(int start, int end) {
+        int tab = indexOf((byte) '\t', start, end);
+        if (tab < 0) {
+            return false;
+        }
+        long timestamp = LogEntry.NO_TIMESTAMP;
+        if (tab > start) {
+            timestamp = parseTimestamp(start, tab);
+            if (timestamp == LogEntry.NO_TIMESTAMP) {
+                return false;
+            }
+        }
+
+        int pos = tab;
+        while (pos < end && (buffer[pos] == '\t' || buffer[pos] == ' ')) {
+            pos++;
+        }
+
+        // connection id
+        int idStart = pos;
+        long id = 0;
+        while (pos < end && isDigit(buffer[pos])) {
+            id = id * 10 + buffer[pos] - '0';
+            pos++;
+        }
+        if (pos == idStart || pos >= end || buffer[pos] != ' ') {
+            return false;
+        }
+        pos++;
+
+        // command, letters and single spaces (e.g. 'Init DB') up to the tab or the end of the line
+        int cmdStart = pos;
+        while (pos < end && buffer[pos] != '\t') {
+            byte b = buffer[pos];
+            if (!(b >= 'A' && b <= 'Z' || b >= 'a' && b <= 'z' || b == ' ')) {
+                return false;
+            }
+            pos++;
+        }
+        if (pos == cmdStart || !isUpper(buffer[cmdStart])) {
+            return false;
+        }
+
+        recordID = id;
+        commandStart = cmdStart;
+        commandEnd = pos;
+        while (commandEnd > commandStart && buffer[commandEnd - 1] == ' ') {
+            commandEnd--;
+        }
+        argumentStart = pos < end ? pos + 1 : end;
+        if (timestamp != LogEntry.NO_TIMESTAMP) {
+            currentTimestamp = timestamp;
+        }
+        return true;
+    }
+
+    /**
+     * Parse '140101 10:00:00' or '2014-01-01T10:00:00[.123456][Z]' as utc timestamp.
+     *
+     * @param start first byte
+     * @param end   end, exclusive
+     * @return the timestamp in milliseconds or {@link LogEntry#NO_TIMESTAMP} if it is no timestamp
+     */
+    private long parseTimestamp(int start, int end) {
+        int length = end - start;
+        if (length >= 15 && buffer[start + 6] == ' ') {
+            // yymmdd h:mm:ss, the hour may be padded with a space or have one digit only
+            int year = 2000 + digits(start, 2);
+            int month = digits(start + 2, 2);
+            int day = digits(start + 4, 2);
+            int pos = start + 7;
+            while (pos < end && buffer[pos] == ' ') {
+                pos++;
+            }
+            int colon = indexOf((byte) ':', pos, end);
+            if (colon < 0 || end - colon != 6) {
+                return LogEntry.NO_TIMESTAMP;
+            }
+            int hour = digits(pos, colon - pos);
+            int minute = digits(colon + 1, 2);
+            int second = digits(colon + 4, 2);
+            if (year < 0 || month < 0 || day < 0 || hour < 0 || minute < 0 || second < 0) {
+                return LogEntry.NO_TIMESTAMP;
+            }
+            return toMillis(year, month, day, hour, minute, second, 0);
+        } else if (length >= 19 && buffer[start + 4] == '-' && buffer[start + 10] == 'T') {
+            int year = digits(start, 4);
+            int month = digits(start + 5, 2);
+            int day = digits(start + 8, 2);
+            int hour = digits(start + 11, 2);
+            int minute = digits(start + 14, 2);
+            int second = digits(start + 17, 2);
+            if (year < 0 || month < 0 || day < 0 || hour < 0 || minute < 0 || second < 0) {
+                return LogEntry.NO_TIMESTAMP;
+            }
+            int millis = 0;
+            int pos = start + 19;
+            if (pos < end && buffer[pos] == '.') {
+                pos++;
+                for (int i = 0; i < 3; i++) {
+                    millis *= 10;
+                    if (pos < end && isDigit(buffer[pos])) {
+                        millis += buffer[pos++] - '0';
+                    }
+                }
+            }
+            return toMillis(year, month, day, hour, minute, second, millis);
+        }
+        return LogEntry.NO_TIMESTAMP;
+    }
+
+    /**
+     * The banner lines written by mysql on startup. The banner starts with the path of mysqld and its version, the port
+     * and column lines only count as banner right behind it, so continuations of statements are not mistaken for it.
+     *
+     * @param start first byte of the line
+     * @param end   end of the line
+     * @return true if the line is part of the banner
+     */
+    private boolean isBanner(int start, int end) {
+        if (endsWith(BANNER_STARTED, start, end) && indexOf(BANNER_VERSION, start, end) >= 0) {
+            return true;
+        }
+        return inBanner && (startsWith(BANNER_TIME, start, end) && indexOf((byte) 'I', start, end) >= 0
+                || startsWith(BANNER_PORT, start, end));
+    }
+
+    /**
+     * Compare the digits of the connection id of the current record
+     *
+     * @param id expected id
+     * @return true if equal
+     */
+    private boolean idMatches(byte[] id) {
+        long expected = 0;
+        for (byte b : id) {
+            if (!isDigit(b)) {
+                return false;
+            }
+            expected = expected * 10 + b - '0';
+        }
+        return expected == recordID;
+    }
+
+    private int indexOf(byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOf(byte[] text, int from, int to) {
+        for (int i = from; i <= to - text.length; i++) {
+            if (startsWith(text, i, to)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean endsWith(byte[] suffix, int start, int end) {
+        return end - start >= suffix.length && startsWith(suffix, end - suffix.length, end);
+    }
+
+    private boolean equals(byte[] expected, int start, int end) {
+        return end - start == expected.length && startsWith(expected, start, end);
+    }
+
+    private boolean startsWith(byte[] prefix, int start, int end) {
+        if (end - start < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer[start + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parse a fixed number of digits
+     *
+     * @param start  first digit
+     * @param length number of digits
+     * @return the value or -1 if not all bytes are digits
+     */
+    private int digits(int start, int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            if (!isDigit(buffer[i])) {
+                return -1;
+            }
+            value = value * 10 + buffer[i] - '0';
+        }
+        return length > 0 ? value : -1;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isUpper(byte b) {
+        return b >= 'A' && b <= 'Z';
+    }
+
+    /**
+     * Convert a utc date to epoch milliseconds without calendar objects.
+     */
+    private static long toMillis(int year, int month, int day, int hour, int minute, int second, int millis) {
+        // days since 1970-01-01 in the proleptic gregorian calendar
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        long days = era * 146097L + dayOfEra - 719468;
+
+        return ((days * SECONDS_PER_DAY) + hour * 3600L + minute * 60L + second) * MILLIS_PER_SECOND + millis;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.qaware.mysqlbenchmark.logfile;
+
+/**
+ * One statement read from a mysql log together with the id of the connection which executed it and the time it
+ * was logged. Statements from a slow query log also carry their recorded execution.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class LogEntry {
+    /**
+     * Timestamp of entries logged before the first timestamp in the log.
+     */
+    public static final long NO_TIMESTAMP = -1;
+
+    private final String connectionID;
+    private final long timestamp;
+    private final String statement;
+    private final RecordedExecution recorded;
+
+    /**
+     * Constructor
+     *
+     * @param connectionID id of the connection which executed the statement
+     * @param timestamp    time the statement was logged in milliseconds, or {@link #NO_TIMESTAMP}
+     * @param statement    the sql statement
+     */
+    public LogEntry(String connectionID, long timestamp, String statement) {
+        this(connectionID, timestamp, statement, null);
+    }
+
+    /**
+     * Constructor for a statement with a recorded execution
+     *
+     * @param connectionID id of the connection which executed the statement
+     * @param timestamp    time the statement was logged in milliseconds, or {@link #NO_TIMESTAMP}
+     * @param statement    the sql statement
+     * @param recorded     how the statement performed when it was logged, may be null
+     */
+    public LogEntry(String connectionID, long timestamp, String statement, RecordedExecution recorded) {
+        this.connectionID = connectionID;
+        this.timestamp = timestamp;
+        this.statement = statement;
+        this.recorded = recorded;
+    }
+
+    /**
+     * Id of the connection which executed the statement
+     *
+     * @return connection id
+     */
+    public String getConnectionID() {
+        return connectionID;
+    }
+
+    /**
+     * Time the statement was logged in milliseconds. Only the differences between timestamps are meaningful.
+     *
+     * @return timestamp or {@link #NO_TIMESTAMP}
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * The sql statement
+     *
+     * @return statement
+     */
+    public String getStatement() {
+        return statement;
+    }
+
+    /**
+     * How the statement performed when it was logged
+     *
+     * @return the recorded execution, null if the log does not record it
+     */
+    public RecordedExecution getRecorded() {
+        return recorded;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.qaware.mysqlbenchmark.logfile;
+
+/**
+ * Receives the log entries from a {@link QueryParser} while the log is parsed. Enables processing the log without
+ * keeping all entries in memory.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public interface LogEntryListener {
+    /**
+     * A statement matching all filters was parsed.
+     *
+     * @param entry the log entry
+     */
+    void entryParsed(LogEntry entry);
+
+    /**
+     * The log recorded the end of a connection. No more entries for this connection id follow, unless mysql reuses it.
+     *
+     * @param connectionID id of the closed connection
+     */
+    void connectionClosed(String connectionID);
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.logfile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only section of a file, memory mapped in windows of a fixed size and addressed by long positions, so
+ * sections larger than the 2 GB a single {@link MappedByteBuffer} can hold are read the same way as small ones.
+ * Values crossing the border of two windows are assembled byte by byte.
+ * <p/>
+ * The absolute reads do not change the state of the buffers, several threads can read the same region.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+final class MappedRegion {
+    /**
+     * Size of the windows if none is given, 1 GB
+     */
+    static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+    private final MappedByteBuffer[] windows;
+    private final int windowSize;
+    private final long size;
+
+    /**
+     * Map a section of a file.
+     *
+     * @param channel    the file
+     * @param offset     start of the section in the file
+     * @param size       size of the section in bytes
+     * @param windowSize size of the mapped windows in bytes
+     * @throws IOException if the section is not inside the file or can't be mapped
+     */
+    MappedRegion(FileChannel channel, long offset, long size, int windowSize) throws IOException {
+        if (offset < 0 || size < 0 || offset + size > channel.size()) {
+            throw new IOException("Section of " + size + " bytes at " + offset + " is not inside the file of "
+                    + channel.size() + " bytes.");
+        }
+        long count = (size + windowSize - 1) / windowSize;
+        if (count > Integer.MAX_VALUE) {
+            throw new IOException("Section of " + size + " bytes is too large.");
+        }
+        this.windowSize = windowSize;
+        this.size = size;
+        windows = new MappedByteBuffer[(int) count];
+        for (int i = 0; i < windows.length; i++) {
+            long start = (long) i * windowSize;
+            windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start, Math.min(windowSize, size - start));
+        }
+    }
+
+    /**
+     * Size of the region
+     *
+     * @return size in bytes
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Read one byte.
+     *
+     * @param position position in the region
+     * @return the byte
+     */
+    byte get(long position) {
+        checkBounds(position, 1);
+        return windows[(int) (position / windowSize)].get((int) (position % windowSize));
+    }
+
+    /**
+     * Read a big endian int.
+     *
+     * @param position position in the region
+     * @return the int
+     */
+    int getInt(long position) {
+        checkBounds(position, 4);
+        int index = (int) (position % windowSize);
+        if (index <= windowSize - 4) {
+            return windows[(int) (position / windowSize)].getInt(index);
+        }
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            value = (value << 8) | (get(position + i) & 0xff);
+        }
+        return value;
+    }
+
+    /**
+     * Read a big endian long.
+     *
+     * @param position position in the region
+     * @return the long
+     */
+    long getLong(long position) {
+        checkBounds(position, 8);
+        int index = (int) (position % windowSize);
+        if (index <= windowSize - 8) {
+            return windows[(int) (position / windowSize)].getLong(index);
+        }
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (get(position + i) & 0xff);
+        }
+        return value;
+    }
+
+    /**
+     * Read bytes into an array.
+     *
+     * @param position    position in the region
+     * @param destination receives as many bytes as it is long
+     */
+    void get(long position, byte[] destination) {
+        checkBounds(position, destination.length);
+        int copied = 0;
+        while (copied < destination.length) {
+            long current = position + copied;
+            int index = (int) (current % windowSize);
+            // duplicates keep the position of the shared buffers untouched
+            ByteBuffer window = windows[(int) (current / windowSize)].duplicate();
+            window.position(index);
+            int length = Math.min(destination.length - copied, window.remaining());
+            window.get(destination, copied, length);
+            copied += length;
+        }
+    }
+
+    private void checkBounds(long position, int length) {
+        if (position < 0 || position + length > size) {
+            throw new IndexOutOfBoundsException("Read of " + length + " bytes at " + position
+                    + " is outside of the region of " + size + " bytes.");
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.qaware.mysqlbenchmark.logfile;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parses a general query log in parallel. The file is split into byte ranges which are scanned by
+ * {@link GeneralLogScanner}s on a {@link ForkJoinPool}. Every range is re-aligned to the next record start by the
+ * scanner. The results are passed to the listener in the original log order as soon as a range and all ranges before
+ * it are scanned; statements at the start of a range inherit the last timestamp of the previous range.
+ * <p/>
+ * Only one range more than there are threads is scanned ahead of the listener, so the memory usage does not depend on
+ * the size of the log and a streaming replay starts with the first range.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class ParallelLogParser {
+    /**
+     * Default size of the byte range scanned by one task
+     */
+    public static final long DEFAULT_CHUNK_SIZE = 32L * 1024 * 1024;
+
+    private static final double BYTES_PER_MB = 1024d * 1024d;
+
+    private final LogEntryListener listener;
+    private final int parallelism;
+    private final long chunkSize;
+
+    private long scannedBytes;
+    private long scanTime;
+
+    /**
+     * Constructor
+     *
+     * @param listener    receives the parsed queries in log order
+     * @param parallelism number of scanning threads
+     * @param chunkSize   size of the byte range scanned by one task
+     */
+    public ParallelLogParser(LogEntryListener listener, int parallelism, long chunkSize) {
+        this.listener = listener;
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Parse the log file and pass all matching queries to the listener.
+     *
+     * @param inputFilename  input file
+     * @param restrictedID   only accept queries of this connection id, may be null
+     * @param ignorePrefixes do not accept queries which start with these prefixes, case insensitive. May be null.
+     * @throws IOException
+     */
+    public void parse(String inputFilename, String restrictedID, List<String> ignorePrefixes) throws IOException {
+        long start = System.nanoTime();
+        FileInputStream in = new FileInputStream(inputFilename);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            FileChannel channel = in.getChannel();
+            scannedBytes = channel.size();
+
+            Deque<ForkJoinTask<Chunk>> scanning = new ArrayDeque<ForkJoinTask<Chunk>>();
+            long next = 0;
+            long timestamp = LogEntry.NO_TIMESTAMP;
+            while (next < scannedBytes || !scanning.isEmpty()) {
+                while (next < scannedBytes && scanning.size() <= parallelism) {
+                    long end = Math.min(scannedBytes, next + chunkSize);
+                    scanning.add(pool.submit(new ScanTask(channel, next, end, restrictedID, ignorePrefixes)));
+                    next = end;
+                }
+                timestamp = deliver(scanning.removeFirst().join(), timestamp);
+            }
+        } catch (ScanException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdownNow();
+            in.close();
+        }
+        scanTime = System.nanoTime() - start;
+    }
+
+    /**
+     * Size, duration and throughput of the last parse, including the delivery to the listener
+     *
+     * @return summary
+     */
+    public String getSummary() {
+        double seconds = scanTime / 1e9;
+        return String.format(Locale.ENGLISH, "%.1f MB in %.3f s (%.1f MB/s) on %d threads",
+                scannedBytes / BYTES_PER_MB, seconds, seconds > 0 ? scannedBytes / BYTES_PER_MB / seconds : 0,
+                parallelism);
+    }
+
+    /**
+     * Pass the entries of a chunk to the listener in order
+     *
+     * @param chunk     the next chunk in file order
+     * @param timestamp last timestamp of the chunks before, {@link LogEntry#NO_TIMESTAMP} if none
+     * @return last timestamp including this chunk
+     */
+    private long deliver(Chunk chunk, long timestamp) {
+        for (LogEntry entry : chunk.entries) {
+            if (entry.getStatement() == null) {
+                listener.connectionClosed(entry.getConnectionID());
+            } else if (entry.getTimestamp() == LogEntry.NO_TIMESTAMP && timestamp != LogEntry.NO_TIMESTAMP) {
+                listener.entryParsed(new LogEntry(entry.getConnectionID(), timestamp, entry.getStatement()));
+            } else {
+                listener.entryParsed(entry);
+            }
+        }
+        return chunk.lastTimestamp != LogEntry.NO_TIMESTAMP ? chunk.lastTimestamp : timestamp;
+    }
+
+    /**
+     * The parsed entries of one byte range. Entries without statement mark closed connections.
+     */
+    private static class Chunk implements LogEntryListener {
+        private final List<LogEntry> entries = new ArrayList<LogEntry>();
+        private long lastTimestamp;
+
+        @Override
+        public void entryParsed(LogEntry entry) {
+            entries.add(entry);
+        }
+
+        @Override
+        public void connectionClosed(String connectionID) {
+            entries.add(new LogEntry(connectionID, LogEntry.NO_TIMESTAMP, null));
+        }
+    }
+
+    /**
+     * Scans one byte range.
+     */
+    private static class ScanTask extends RecursiveTask<Chunk> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient FileChannel channel;
+        private final long start;
+        private final long end;
+        private final String restrictedID;
+        private final transient List<String> ignorePrefixes;
+
+        /**
+         * Constructor
+         *
+         * @param channel        the log file
+         * @param start          first byte of the range
+         * @param end            end of the range, exclusive
+         * @param restrictedID   connection id filter
+         * @param ignorePrefixes prefix filter
+         */
+        ScanTask(FileChannel channel, long start, long end, String restrictedID, List<String> ignorePrefixes) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.restrictedID = restrictedID;
+            this.ignorePrefixes = ignorePrefixes;
+        }
+
+        @Override
+        protected Chunk compute() {
+            Chunk chunk = new Chunk();
+            GeneralLogScanner scanner = new GeneralLogScanner(chunk);
+            try {
+                scanner.scan(channel, start, end, restrictedID, ignorePrefixes);
+            } catch (IOException e) {
+                throw new ScanException(e);
+            }
+            chunk.lastTimestamp = scanner.getLastTimestamp();
+            return chunk;
+        }
+    }
+
+    /**
+     * Transports an IOException out of the fork join pool.
+     */
+    private static class ScanException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor
+         *
+         * @param cause the IOException
+         */
+        ScanException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+}
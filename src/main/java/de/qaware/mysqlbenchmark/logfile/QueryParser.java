@@ -17,12 +17,21 @@
 package de.qaware.mysqlbenchmark.logfile;
 
 import com.google.common.base.Strings;
+import de.qaware.mysqlbenchmark.filter.PrefixMatcher;
+import de.qaware.mysqlbenchmark.filter.StatementFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -32,7 +41,132 @@ import java.util.regex.Pattern;
  * @author Felix Kelm felix.kelm@qaware.de
  */
 public class QueryParser {
-    private List<String> queries = new ArrayList<String>(1000);
+    /**
+     * Timestamp at the beginning of a log line, either '140101 10:00:00' (mysql up to 5.6)
+     * or '2014-01-01T10:00:00.123456Z' (mysql 5.7 and later).
+     */
+    private static final Pattern TIMESTAMP_PATTERN = Pattern.compile(
+            "^(?:(\\d{6}\\s+\\d{1,2}:\\d{2}:\\d{2})|(\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2})(?:\\.(\\d{1,9}))?)");
+
+    /**
+     * A connection was closed
+     */
+    private static final Pattern QUIT_PATTERN = Pattern.compile("[\\s\\d:.TZ+-]*\\s+(\\d+)\\s+quit\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Implementations for reading the log file.
+     */
+    public enum Backend {
+        /**
+         * Line by line with regular expressions, every line is one statement
+         */
+        REGEX,
+        /**
+         * Byte scanner on a file channel, joins statements spanning several lines. See {@link GeneralLogScanner}.
+         */
+        SCANNER,
+        /**
+         * Byte scanners on several threads, each scanning a part of the file. See {@link ParallelLogParser}.
+         */
+        PARALLEL,
+        /**
+         * Slow query log instead of general query log, with the recorded execution of every statement. See
+         * {@link SlowLogParser}.
+         */
+        SLOW;
+
+        /**
+         * Get the backend from string. If the string is "scanner", "parallel" or "slow" (ignoring case), the
+         * Backend.SCANNER, Backend.PARALLEL or Backend.SLOW is returned, else REGEX.
+         *
+         * @param backend string describing the backend
+         * @return a backend for reading the log
+         */
+        public static Backend get(String backend) {
+            if (backend != null && "scanner".equals(backend.toLowerCase())) {
+                return SCANNER;
+            } else if (backend != null && "parallel".equals(backend.toLowerCase())) {
+                return PARALLEL;
+            } else if (backend != null && "slow".equals(backend.toLowerCase())) {
+                return SLOW;
+            } else {
+                return REGEX;
+            }
+        }
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(QueryParser.class);
+
+    private final LogEntryListener listener;
+    private LogEntryListener output;
+    private Backend backend = Backend.REGEX;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private String patternID;
+    private Pattern pattern;
+    private List<String> ignorePrefixesSource;
+    private PrefixMatcher ignorePrefixes = PrefixMatcher.compile(null);
+    private List<LogEntry> entries = new ArrayList<LogEntry>(1000);
+    private long currentTimestamp = LogEntry.NO_TIMESTAMP;
+    private final SimpleDateFormat shortDateFormat = utcFormat("yyMMdd H:mm:ss");
+    private final SimpleDateFormat isoDateFormat = utcFormat("yyyy-MM-dd'T'HH:mm:ss");
+
+    /**
+     * Constructor for a parser which keeps all parsed queries in memory.
+     */
+    public QueryParser() {
+        this.listener = new LogEntryListener() {
+            @Override
+            public void entryParsed(LogEntry entry) {
+                entries.add(entry);
+            }
+
+            @Override
+            public void connectionClosed(String connectionID) {
+                // not needed for the parsed entries
+            }
+        };
+        this.output = listener;
+    }
+
+    /**
+     * Constructor for a parser which passes all parsed queries to the listener instead of keeping them in memory.
+     * The getters for the parsed queries return empty results.
+     *
+     * @param listener receives the parsed queries
+     */
+    public QueryParser(LogEntryListener listener) {
+        this.listener = listener;
+        this.output = listener;
+    }
+
+    /**
+     * Select the implementation used by {@link #parseLogFile(String, String, java.util.List)}.
+     *
+     * @param backend the backend, default is {@link Backend#REGEX}
+     */
+    public void setBackend(Backend backend) {
+        this.backend = backend;
+    }
+
+    /**
+     * Filter the parsed queries before they are kept or passed to the listener. Works with every backend, in addition
+     * to the connection id and the ignored prefixes of {@link #parseLogFile(String, String, java.util.List)}.
+     *
+     * @param filter the filter, null to keep all queries
+     */
+    public void setFilter(StatementFilter filter) {
+        this.output = filter == null ? listener : filter.filter(listener);
+    }
+
+    /**
+     * Number of threads used by the {@link Backend#PARALLEL} backend
+     *
+     * @param parallelism number of threads, default is the number of available processors
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
 
     /**
      * All parsed queries.
@@ -40,9 +174,55 @@ public class QueryParser {
      * @return a list of queries
      */
     public List<String> getQueries() {
+        List<String> queries = new ArrayList<String>(entries.size());
+        for (LogEntry entry : entries) {
+            queries.add(entry.getStatement());
+        }
         return queries;
     }
 
+    /**
+     * All parsed queries including the id of the connection which executed them.
+     *
+     * @return a list of log entries in log order
+     */
+    public List<LogEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * All parsed queries grouped by connection id. The order of the queries within a connection is preserved,
+     * the connections are ordered by their first appearance in the log.
+     *
+     * @return log entries by connection id
+     */
+    public Map<String, List<LogEntry>> getSessions() {
+        Map<String, List<LogEntry>> sessions = new LinkedHashMap<String, List<LogEntry>>();
+        for (LogEntry entry : entries) {
+            List<LogEntry> session = sessions.get(entry.getConnectionID());
+            if (session == null) {
+                session = new ArrayList<LogEntry>();
+                sessions.put(entry.getConnectionID(), session);
+            }
+            session.add(entry);
+        }
+        return sessions;
+    }
+
+    /**
+     * The timestamp of the first parsed query which was logged with a timestamp.
+     *
+     * @return timestamp in milliseconds or {@link LogEntry#NO_TIMESTAMP} if the log contains no timestamps
+     */
+    public long getFirstTimestamp() {
+        for (LogEntry entry : entries) {
+            if (entry.getTimestamp() != LogEntry.NO_TIMESTAMP) {
+                return entry.getTimestamp();
+            }
+        }
+        return LogEntry.NO_TIMESTAMP;
+    }
+
     /**
      * Read ONE query from a string
      *
@@ -52,29 +232,46 @@ public class QueryParser {
      */
     public void parseLine(String line, String restrictedID, List<String> ignorePrefixes) {
 
+        // mysql only logs a timestamp if it differs from the previous one, following lines inherit it
+        parseTimestamp(line);
+
         // if restricted to one connection id, create a prefix to match all queries
         String prefixPattern = Strings.isNullOrEmpty(restrictedID) ? "\\d+" : restrictedID.toLowerCase();
 
-        // match all statements beginning with 'query' and the prefixPattern
-        Pattern pattern = Pattern.compile("[\\s\\d:]*\\s+" + prefixPattern + "\\s+query\\s+(.*)$", Pattern.CASE_INSENSITIVE);
+        // match all statements beginning with 'query' and the prefixPattern, compiled once per connection id
+        if (pattern == null || !prefixPattern.equals(patternID)) {
+            pattern = Pattern.compile("[\\s\\d:.TZ+-]*\\s+(" + prefixPattern + ")\\s+query\\s+(.*)$",
+                    Pattern.CASE_INSENSITIVE);
+            patternID = prefixPattern;
+        }
         Matcher matcher = pattern.matcher(line);
 
+        // the ignored prefixes are compiled once per list
+        if (ignorePrefixes != ignorePrefixesSource) {
+            this.ignorePrefixes = PrefixMatcher.compile(ignorePrefixes);
+            ignorePrefixesSource = ignorePrefixes;
+        }
+
         // add all matches to the query store
         if (matcher.find()) {
 
             // ignore queries which start with special words
-            for (String prefix : ignorePrefixes) {
-                if (matcher.group(1).toLowerCase().startsWith(prefix.toLowerCase())) {
-                    return;
-                }
+            if (this.ignorePrefixes.matches(matcher.group(2))) {
+                return;
             }
 
-            queries.add(matcher.group(1));
+            output.entryParsed(new LogEntry(matcher.group(1), currentTimestamp, matcher.group(2)));
+        } else {
+            Matcher quitMatcher = QUIT_PATTERN.matcher(line);
+            if (quitMatcher.find()) {
+                output.connectionClosed(quitMatcher.group(1));
+            }
         }
     }
 
     /**
-     * Read sql queries from the given logfile
+     * Read sql queries from the given logfile. Compiled replay files (see {@link ReplayFileWriter}) are recognized and
+     * read directly, whatever backend is selected.
      *
      * @param inputFilename  input file
      * @param restrictedID   query ids to ignore
@@ -82,13 +279,81 @@ public class QueryParser {
      * @throws IOException
      */
     public void parseLogFile(String inputFilename, String restrictedID, List<String> ignorePrefixes) throws IOException {
+        if (ReplayFile.isReplayFile(inputFilename)) {
+            ReplayFile replayFile = new ReplayFile(inputFilename);
+            replayFile.read(output, restrictedID, ignorePrefixes);
+            LOG.info("Read replay file {}", replayFile.getSummary());
+            return;
+        } else if (backend == Backend.SCANNER) {
+            GeneralLogScanner scanner = new GeneralLogScanner(output);
+            scanner.scan(inputFilename, restrictedID, ignorePrefixes);
+            LOG.info("Scanned {}", scanner.getSummary());
+            return;
+        } else if (backend == Backend.PARALLEL) {
+            ParallelLogParser parallelParser =
+                    new ParallelLogParser(output, parallelism, ParallelLogParser.DEFAULT_CHUNK_SIZE);
+            parallelParser.parse(inputFilename, restrictedID, ignorePrefixes);
+            LOG.info("Scanned {}", parallelParser.getSummary());
+            return;
+        } else if (backend == Backend.SLOW) {
+            SlowLogParser slowLogParser = new SlowLogParser(output);
+            slowLogParser.parse(inputFilename, restrictedID, ignorePrefixes);
+            LOG.info("Parsed {}", slowLogParser.getSummary());
+            return;
+        }
+
         BufferedReader br = new BufferedReader(new FileReader(inputFilename));
         String line;
 
-        // parse the file line by line
-        while ((line = br.readLine()) != null) {
-            parseLine(line, restrictedID, ignorePrefixes);
+        try {
+            // parse the file line by line, a streaming consumer may stop the parser by interrupting it
+            while ((line = br.readLine()) != null && !Thread.currentThread().isInterrupted()) {
+                parseLine(line, restrictedID, ignorePrefixes);
+            }
+        } finally {
+            br.close();
         }
-        br.close();
+    }
+
+    /**
+     * Remember the timestamp if the line starts with one.
+     *
+     * @param line a line of the log
+     */
+    private void parseTimestamp(String line) {
+        Matcher matcher = TIMESTAMP_PATTERN.matcher(line);
+        if (!matcher.find()) {
+            return;
+        }
+
+        try {
+            if (matcher.group(1) != null) {
+                currentTimestamp = shortDateFormat.parse(matcher.group(1)).getTime();
+            } else {
+                long millis = 0;
+                if (matcher.group(3) != null) {
+                    // fraction of a second with up to nanosecond precision
+                    String fraction = (matcher.group(3) + "00").substring(0, 3);
+                    millis = Long.parseLong(fraction);
+                }
+                currentTimestamp = isoDateFormat.parse(matcher.group(2)).getTime() + millis;
+            }
+        } catch (ParseException e) {
+            // not a timestamp, keep the previous one
+        }
+    }
+
+    /**
+     * Create a date format for the utc timezone. The timezone is irrelevant as only differences between timestamps
+     * are used, but utc is free of daylight saving gaps.
+     *
+     * @param pattern date pattern
+     * @return a non-lenient date format
+     */
+    static SimpleDateFormat utcFormat(String pattern) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        format.setLenient(false);
+        return format;
     }
 }
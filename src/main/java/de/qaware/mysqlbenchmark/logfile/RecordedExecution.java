@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.logfile;
+
+/**
+ * How a statement performed when it was logged, as recorded by the mysql slow query log.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class RecordedExecution {
+    private final long queryNanos;
+    private final long lockNanos;
+    private final long rowsSent;
+    private final long rowsExamined;
+
+    /**
+     * Constructor
+     *
+     * @param queryNanos   execution time in nanoseconds (Query_time)
+     * @param lockNanos    time spent waiting for locks in nanoseconds, part of the execution time (Lock_time)
+     * @param rowsSent     rows sent to the client (Rows_sent)
+     * @param rowsExamined rows read by the server (Rows_examined)
+     */
+    public RecordedExecution(long queryNanos, long lockNanos, long rowsSent, long rowsExamined) {
+        this.queryNanos = queryNanos;
+        this.lockNanos = lockNanos;
+        this.rowsSent = rowsSent;
+        this.rowsExamined = rowsExamined;
+    }
+
+    /**
+     * Execution time
+     *
+     * @return nanoseconds
+     */
+    public long getQueryNanos() {
+        return queryNanos;
+    }
+
+    /**
+     * Time spent waiting for locks
+     *
+     * @return nanoseconds
+     */
+    public long getLockNanos() {
+        return lockNanos;
+    }
+
+    /**
+     * Rows sent to the client
+     *
+     * @return rows
+     */
+    public long getRowsSent() {
+        return rowsSent;
+    }
+
+    /**
+     * Rows read by the server
+     *
+     * @return rows
+     */
+    public long getRowsExamined() {
+        return rowsExamined;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.logfile;
+
+import de.qaware.mysqlbenchmark.histogram.LatencyHistogram;
+import de.qaware.mysqlbenchmark.histogram.LatencyStatistics;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sums up the {@link RecordedExecution}s of the replayed statements per measurement point, to compare the recorded
+ * times with the replayed ones. Thread safe.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class RecordedStatistics {
+    private static final double NANOS_PER_MILLISECOND = 1000000d;
+
+    private final ConcurrentMap<String, Totals> totals = new ConcurrentHashMap<String, Totals>();
+    private final Totals total = new Totals();
+
+    /**
+     * Add the recorded execution of a replayed statement to the totals of its measurement point.
+     *
+     * @param pointName name of the measurement point
+     * @param recorded  the recorded execution
+     */
+    public void record(String pointName, RecordedExecution recorded) {
+        Totals pointTotals = totals.get(pointName);
+        if (pointTotals == null) {
+            Totals created = new Totals();
+            pointTotals = totals.putIfAbsent(pointName, created);
+            if (pointTotals == null) {
+                pointTotals = created;
+            }
+        }
+        pointTotals.record(recorded);
+        total.record(recorded);
+    }
+
+    /**
+     * Check if anything was recorded
+     *
+     * @return true if no replayed statement had a recorded execution
+     */
+    public boolean isEmpty() {
+        return total.queryTimes.getCount() == 0;
+    }
+
+    /**
+     * Values of a measurement point: average and p99 of the recorded query time, the ratio of the average replayed
+     * to the average recorded time, average lock time and average rows examined.
+     *
+     * @param pointName name of the measurement point, null for all statements
+     * @param replayed  replayed latencies of the measurement point, may be null
+     * @return values, times in milliseconds, or null if nothing was recorded for this point
+     */
+    public Object[] getValues(String pointName, LatencyHistogram replayed) {
+        Totals pointTotals = pointName == null ? total : totals.get(pointName);
+        if (pointTotals == null || pointTotals.queryTimes.getCount() == 0) {
+            return null;
+        }
+        double executions = pointTotals.queryTimes.getCount();
+        double recordedMean = pointTotals.queryTimes.getMean();
+        return new Object[]{recordedMean / NANOS_PER_MILLISECOND,
+                LatencyStatistics.toMillis(pointTotals.queryTimes.getValueAtPercentile(99)),
+                replayed != null && recordedMean > 0 ? replayed.getMean() / recordedMean : null,
+                pointTotals.lockNanos.get() / executions / NANOS_PER_MILLISECOND,
+                pointTotals.rowsExamined.get() / executions};
+    }
+
+    /**
+     * Summary of the recorded executions: the percentiles of the recorded query time and the ratio of the average
+     * replayed to the average recorded time.
+     *
+     * @param replayed replayed latencies of all statements
+     * @return summary
+     */
+    public String getSummary(LatencyHistogram replayed) {
+        double recordedMean = total.queryTimes.getMean();
+        return LatencyStatistics.format("Recorded latency", total.queryTimes) + (recordedMean > 0
+                ? String.format(Locale.ENGLISH, ", the replay took %.2f times the recorded time on average",
+                replayed.getMean() / recordedMean) : "");
+    }
+
+    /**
+     * Clear all totals
+     */
+    public void clear() {
+        totals.clear();
+        total.clear();
+    }
+
+    /**
+     * Totals of one measurement point
+     */
+    private static class Totals {
+        private final LatencyHistogram queryTimes = new LatencyHistogram();
+        private final AtomicLong lockNanos = new AtomicLong();
+        private final AtomicLong rowsExamined = new AtomicLong();
+
+        private void record(RecordedExecution recorded) {
+            queryTimes.record(recorded.getQueryNanos());
+            lockNanos.addAndGet(recorded.getLockNanos());
+            rowsExamined.addAndGet(recorded.getRowsExamined());
+        }
+
+        private void clear() {
+            queryTimes.reset();
+            lockNanos.set(0);
+            rowsExamined.set(0);
+        }
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.logfile;
+
+import de.qaware.mysqlbenchmark.filter.PrefixMatcher;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads a compiled replay file written by {@link ReplayFileWriter}. The file is memory mapped in windows, so opening
+ * it is almost free whatever its size, and statements are read from the mapped dictionary when they are replayed
+ * instead of being held on the heap. Restricting the replay to one connection id reads the records of that
+ * connection through the connection index instead of scanning all records.
+ * <p/>
+ * File layout, all numbers big endian:
+ * <pre>
+ * header        magic "MYSQLRPL", int version, long first timestamp, long record count, long records offset,
+ *               int statement count, long dictionary offset, long statement index offset,
+ *               int connection count, long connection table offset, long connection index offset
+ * records       per record: int connection, long timestamp offset from the first timestamp, int statement
+ *               (statement -1 marks the end of a connection), in log order
+ * dictionary    per distinct statement: int length, UTF-8 bytes
+ * statement idx per statement: long offset of the statement relative to the dictionary offset
+ * connections   per connection: int length, UTF-8 bytes of the connection id, long offset of its index entries,
+ *               int number of its records
+ * connection idx per connection: int record numbers in log order
+ * </pre>
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class ReplayFile {
+    static final byte[] MAGIC = "MYSQLRPL".getBytes(Charset.forName("US-ASCII"));
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 76;
+    static final int RECORD_SIZE = 16;
+    static final int QUIT = -1;
+    static final long NO_TIMESTAMP_OFFSET = Long.MIN_VALUE;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final double BYTES_PER_MB = 1024d * 1024d;
+
+    /**
+     * Number of recently decoded statements kept, so repeated statements share one string without holding the
+     * whole dictionary
+     */
+    private static final int STATEMENT_CACHE_SIZE = 1024;
+
+    private final String fileName;
+    private final long firstTimestamp;
+    private final long recordCount;
+    private final int statementCount;
+    private final long fileSize;
+    private final MappedRegion records;
+    private final MappedRegion dictionary;
+    private final MappedRegion statementIndex;
+    private final MappedRegion connectionIndex;
+    private final String[] connectionIDs;
+    private final Map<String, Integer> connections = new LinkedHashMap<String, Integer>();
+    private final long[] connectionIndexPositions;
+    private final int[] connectionRecordCounts;
+    private final int[] cachedStatementIDs = new int[STATEMENT_CACHE_SIZE];
+    private final String[] cachedStatements = new String[STATEMENT_CACHE_SIZE];
+
+    /**
+     * Open and map a replay file.
+     *
+     * @param fileName the compiled replay file
+     * @throws IOException if the file can't be read or is not a replay file
+     */
+    public ReplayFile(String fileName) throws IOException {
+        this(fileName, MappedRegion.DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Open and map a replay file in windows of the given size.
+     *
+     * @param fileName   the compiled replay file
+     * @param windowSize size of the mapped windows in bytes
+     * @throws IOException if the file can't be read or is not a replay file
+     */
+    ReplayFile(String fileName, int windowSize) throws IOException {
+        this.fileName = fileName;
+        FileInputStream in = new FileInputStream(fileName);
+        try {
+            FileChannel channel = in.getChannel();
+            fileSize = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                // read the complete header
+            }
+            header.flip();
+            byte[] magic = new byte[MAGIC.length];
+            if (header.remaining() == HEADER_SIZE) {
+                header.get(magic);
+            }
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("'" + fileName + "' is not a replay file.");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported replay file version " + version + " in '" + fileName + "'.");
+            }
+
+            firstTimestamp = header.getLong();
+            recordCount = header.getLong();
+            long recordsOffset = header.getLong();
+            statementCount = header.getInt();
+            long dictionaryOffset = header.getLong();
+            long statementIndexOffset = header.getLong();
+            int connectionCount = header.getInt();
+            long connectionTableOffset = header.getLong();
+            long connectionIndexOffset = header.getLong();
+
+            records = new MappedRegion(channel, recordsOffset, recordCount * RECORD_SIZE, windowSize);
+            dictionary = new MappedRegion(channel, dictionaryOffset, statementIndexOffset - dictionaryOffset,
+                    windowSize);
+            statementIndex = new MappedRegion(channel, statementIndexOffset, (long) statementCount * 8, windowSize);
+            connectionIndex = new MappedRegion(channel, connectionIndexOffset, recordCount * 4, windowSize);
+
+            // the connection table is small, read it completely
+            MappedRegion table = new MappedRegion(channel, connectionTableOffset,
+                    connectionIndexOffset - connectionTableOffset, windowSize);
+            connectionIDs = new String[connectionCount];
+            connectionIndexPositions = new long[connectionCount];
+            connectionRecordCounts = new int[connectionCount];
+            long position = 0;
+            for (int i = 0; i < connectionCount; i++) {
+                byte[] id = new byte[table.getInt(position)];
+                table.get(position + 4, id);
+                connectionIDs[i] = new String(id, UTF8);
+                connectionIndexPositions[i] = table.getLong(position + 4 + id.length);
+                connectionRecordCounts[i] = table.getInt(position + 12 + id.length);
+                connections.put(connectionIDs[i], i);
+                position += 16 + id.length;
+            }
+        } finally {
+            in.close();
+        }
+        Arrays.fill(cachedStatementIDs, -1);
+    }
+
+    /**
+     * Check if a file starts with the magic bytes of a replay file.
+     *
+     * @param fileName the file
+     * @return true if the file is a compiled replay file
+     * @throws IOException if the file can't be read
+     */
+    public static boolean isReplayFile(String fileName) throws IOException {
+        InputStream in = new FileInputStream(fileName);
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            int read = 0;
+            int n;
+            while (read < magic.length && (n = in.read(magic, read, magic.length - read)) > 0) {
+                read += n;
+            }
+            return read == magic.length && Arrays.equals(magic, MAGIC);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Pass the records to a listener, in log order.
+     *
+     * @param listener       receives the statements and connection ends
+     * @param restrictedID   only read the records of this connection id. May be null or empty for all connections.
+     * @param ignorePrefixes do not pass statements which start with these prefixes. May be null if not needed.
+     */
+    public void read(LogEntryListener listener, String restrictedID, List<String> ignorePrefixes) {
+        byte[] ignored = new byte[statementCount];
+        PrefixMatcher prefixes = PrefixMatcher.compile(ignorePrefixes);
+        if (restrictedID == null || restrictedID.isEmpty()) {
+            for (long record = 0; record < recordCount && !Thread.currentThread().isInterrupted(); record++) {
+                readRecord(record, listener, prefixes, ignored);
+            }
+            return;
+        }
+
+        Integer connection = connections.get(restrictedID);
+        if (connection == null) {
+            return;
+        }
+        long position = connectionIndexPositions[connection];
+        for (int i = 0; i < connectionRecordCounts[connection] && !Thread.currentThread().isInterrupted(); i++) {
+            readRecord(connectionIndex.getInt(position + i * 4L), listener, prefixes, ignored);
+        }
+    }
+
+    /**
+     * Decode one record and pass it to the listener.
+     *
+     * @param record         record number
+     * @param listener       receives the statement or connection end
+     * @param ignorePrefixes prefixes of statements to ignore
+     * @param ignored        cache of the prefix check per statement: 0 unknown, 1 ignored, 2 accepted
+     */
+    private void readRecord(long record, LogEntryListener listener, PrefixMatcher ignorePrefixes, byte[] ignored) {
+        long position = record * RECORD_SIZE;
+        String connectionID = connectionIDs[records.getInt(position)];
+        long offset = records.getLong(position + 4);
+        int statementID = records.getInt(position + 12);
+
+        if (statementID == QUIT) {
+            listener.connectionClosed(connectionID);
+            return;
+        }
+        if (!ignorePrefixes.isEmpty()) {
+            if (ignored[statementID] == 0) {
+                ignored[statementID] = ignorePrefixes.matches(getStatement(statementID)) ? (byte) 1 : (byte) 2;
+            }
+            if (ignored[statementID] == 1) {
+                return;
+            }
+        }
+        long timestamp = offset == NO_TIMESTAMP_OFFSET ? LogEntry.NO_TIMESTAMP : firstTimestamp + offset;
+        listener.entryParsed(new LogEntry(connectionID, timestamp, getStatement(statementID)));
+    }
+
+    /**
+     * Statement from the mapped dictionary. Recently decoded statements are kept in a small cache, so records
+     * repeating a statement mostly share one string.
+     *
+     * @param statementID index of the statement in the dictionary
+     * @return the statement
+     */
+    String getStatement(int statementID) {
+        int slot = statementID % STATEMENT_CACHE_SIZE;
+        synchronized (cachedStatements) {
+            if (cachedStatementIDs[slot] == statementID) {
+                return cachedStatements[slot];
+            }
+        }
+        long position = statementIndex.getLong(statementID * 8L);
+        byte[] bytes = new byte[dictionary.getInt(position)];
+        dictionary.get(position + 4, bytes);
+        String statement = new String(bytes, UTF8);
+        synchronized (cachedStatements) {
+            cachedStatementIDs[slot] = statementID;
+            cachedStatements[slot] = statement;
+        }
+        return statement;
+    }
+
+    /**
+     * Timestamp of the first record with a timestamp
+     *
+     * @return timestamp in milliseconds or {@link LogEntry#NO_TIMESTAMP}
+     */
+    public long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    /**
+     * Number of records, statements and connection ends
+     *
+     * @return records
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Number of distinct statements in the dictionary
+     *
+     * @return statements
+     */
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    /**
+     * Connection ids in order of their first appearance
+     *
+     * @return connection ids
+     */
+    public Set<String> getConnectionIDs() {
+        return connections.keySet();
+    }
+
+    /**
+     * Size, records, distinct statements and connections of the file
+     *
+     * @return summary
+     */
+    public String getSummary() {
+        return String.format(Locale.ENGLISH, "%s: %.1f MB, %d records, %d distinct statements, %d connections",
+                fileName, fileSize / BYTES_PER_MB, recordCount, statementCount, connectionIDs.length);
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.logfile;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compiles parsed log entries into a replay file which can be replayed many times without parsing the log again,
+ * see {@link ReplayFile} for the layout. Pass the writer as listener to a {@link QueryParser} and {@link #close()}
+ * it when the log is parsed, or {@link #discard()} it if parsing failed. Statements are stored once in a dictionary,
+ * the records only refer to them.
+ * <p/>
+ * The dictionary is written to a temporary file next to the replay file while the log is parsed and appended to the
+ * records at the end. Statements are recognized by a SHA-256 digest, so their text is not held on the heap.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class ReplayFileWriter implements LogEntryListener {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final String fileName;
+    private final File dictionaryFile;
+    private final FileOutputStream file;
+    private final DataOutputStream out;
+    private final DataOutputStream dictionary;
+    private final MessageDigest digest;
+    private final Map<Digest, Integer> statementIDs = new HashMap<Digest, Integer>();
+    private final Map<String, IntList> connections = new LinkedHashMap<String, IntList>();
+    private final Map<String, Integer> connectionNumbers = new HashMap<String, Integer>();
+    private long[] statementOffsets = new long[16];
+    private long dictionarySize;
+    private long firstTimestamp = LogEntry.NO_TIMESTAMP;
+    private int recordCount;
+    private IOException failure;
+
+    /**
+     * Constructor, creates the file.
+     *
+     * @param fileName the replay file to write
+     * @throws IOException if the file can't be created
+     */
+    public ReplayFileWriter(String fileName) throws IOException {
+        this.fileName = fileName;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 is not available.", e);
+        }
+        File parent = new File(fileName).getAbsoluteFile().getParentFile();
+        this.dictionaryFile = File.createTempFile("dictionary", ".tmp", parent);
+        this.dictionary = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dictionaryFile),
+                BUFFER_SIZE));
+        try {
+            this.file = new FileOutputStream(fileName);
+        } catch (IOException e) {
+            closeQuietly(dictionary);
+            delete(dictionaryFile);
+            throw e;
+        }
+        this.out = new DataOutputStream(new BufferedOutputStream(file, BUFFER_SIZE));
+        // the header is written when all offsets are known
+        out.write(new byte[ReplayFile.HEADER_SIZE]);
+    }
+
+    @Override
+    public void entryParsed(LogEntry entry) {
+        if (firstTimestamp == LogEntry.NO_TIMESTAMP) {
+            firstTimestamp = entry.getTimestamp();
+        }
+        long offset = entry.getTimestamp() == LogEntry.NO_TIMESTAMP ? ReplayFile.NO_TIMESTAMP_OFFSET
+                : entry.getTimestamp() - firstTimestamp;
+        writeRecord(entry.getConnectionID(), offset, getStatementID(entry.getStatement()));
+    }
+
+    @Override
+    public void connectionClosed(String connectionID) {
+        writeRecord(connectionID, ReplayFile.NO_TIMESTAMP_OFFSET, ReplayFile.QUIT);
+    }
+
+    /**
+     * Write the dictionary, the connection index and the header and close the file.
+     *
+     * @throws IOException if writing failed, also if a record could not be written while parsing
+     */
+    public void close() throws IOException {
+        try {
+            if (failure != null) {
+                throw failure;
+            }
+            long recordsOffset = ReplayFile.HEADER_SIZE;
+            long dictionaryOffset = recordsOffset + (long) recordCount * ReplayFile.RECORD_SIZE;
+
+            // dictionary and statement index
+            dictionary.close();
+            appendDictionary();
+            long statementIndexOffset = dictionaryOffset + dictionarySize;
+            int statementCount = statementIDs.size();
+            for (int i = 0; i < statementCount; i++) {
+                out.writeLong(statementOffsets[i]);
+            }
+
+            // connection table and index
+            long connectionTableOffset = statementIndexOffset + statementCount * 8L;
+            long tableSize = 0;
+            for (String connectionID : connections.keySet()) {
+                tableSize += 4 + connectionID.getBytes(UTF8).length + 8 + 4;
+            }
+            long connectionIndexOffset = connectionTableOffset + tableSize;
+            long indexPosition = 0;
+            for (Map.Entry<String, IntList> connection : connections.entrySet()) {
+                byte[] id = connection.getKey().getBytes(UTF8);
+                out.writeInt(id.length);
+                out.write(id);
+                out.writeLong(indexPosition);
+                out.writeInt(connection.getValue().size);
+                indexPosition += connection.getValue().size * 4L;
+            }
+            for (IntList records : connections.values()) {
+                for (int i = 0; i < records.size; i++) {
+                    out.writeInt(records.values[i]);
+                }
+            }
+            out.close();
+
+            RandomAccessFile header = new RandomAccessFile(fileName, "rw");
+            try {
+                header.write(ReplayFile.MAGIC);
+                header.writeInt(ReplayFile.VERSION);
+                header.writeLong(firstTimestamp);
+                header.writeLong(recordCount);
+                header.writeLong(recordsOffset);
+                header.writeInt(statementCount);
+                header.writeLong(dictionaryOffset);
+                header.writeLong(statementIndexOffset);
+                header.writeInt(connections.size());
+                header.writeLong(connectionTableOffset);
+                header.writeLong(connectionIndexOffset);
+            } finally {
+                header.close();
+            }
+        } finally {
+            out.close();
+            closeQuietly(dictionary);
+            delete(dictionaryFile);
+        }
+    }
+
+    /**
+     * Close the files and delete the replay file, for a log which could not be parsed completely. A partial file
+     * without header would not be recognized as replay file and be read as log.
+     */
+    public void discard() {
+        closeQuietly(out);
+        closeQuietly(dictionary);
+        delete(dictionaryFile);
+        delete(new File(fileName));
+    }
+
+    /**
+     * Number of written records, statements and connection ends
+     *
+     * @return records
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Records, distinct statements and connections written
+     *
+     * @return summary
+     */
+    public String getSummary() {
+        return String.format(Locale.ENGLISH, "%d records, %d distinct statements, %d connections",
+                recordCount, statementIDs.size(), connections.size());
+    }
+
+    /**
+     * Write one record. Failures are kept and reported by {@link #close()}, as listeners can't throw.
+     *
+     * @param connectionID    connection id from the log
+     * @param timestampOffset milliseconds since the first timestamp
+     * @param statementID     index in the dictionary or {@link ReplayFile#QUIT}
+     */
+    private void writeRecord(String connectionID, long timestampOffset, int statementID) {
+        if (failure != null) {
+            return;
+        } else if (recordCount == Integer.MAX_VALUE) {
+            failure = new IOException("The log has more than " + Integer.MAX_VALUE + " records.");
+            return;
+        }
+        Integer connection = connectionNumbers.get(connectionID);
+        if (connection == null) {
+            connection = connectionNumbers.size();
+            connectionNumbers.put(connectionID, connection);
+            connections.put(connectionID, new IntList());
+        }
+        try {
+            out.writeInt(connection);
+            out.writeLong(timestampOffset);
+            out.writeInt(statementID);
+        } catch (IOException e) {
+            failure = e;
+            return;
+        }
+        connections.get(connectionID).add(recordCount);
+        recordCount++;
+    }
+
+    /**
+     * Index of a statement in the dictionary, writes new statements to the dictionary.
+     *
+     * @param statement the statement
+     * @return index, or {@link ReplayFile#QUIT} if the dictionary could not be written
+     */
+    private int getStatementID(String statement) {
+        byte[] bytes = statement.getBytes(UTF8);
+        Digest key = new Digest(digest.digest(bytes));
+        Integer id = statementIDs.get(key);
+        if (id == null) {
+            id = statementIDs.size();
+            if (id == statementOffsets.length) {
+                statementOffsets = Arrays.copyOf(statementOffsets, id * 2);
+            }
+            try {
+                dictionary.writeInt(bytes.length);
+                dictionary.write(bytes);
+            } catch (IOException e) {
+                failure = e;
+                return ReplayFile.QUIT;
+            }
+            statementOffsets[id] = dictionarySize;
+            dictionarySize += 4 + bytes.length;
+            statementIDs.put(key, id);
+        }
+        return id;
+    }
+
+    /**
+     * Copy the temporary dictionary behind the records.
+     *
+     * @throws IOException if the dictionary can't be copied
+     */
+    private void appendDictionary() throws IOException {
+        out.flush();
+        FileInputStream in = new FileInputStream(dictionaryFile);
+        try {
+            // the channel shares its position with the output stream, which continues behind the dictionary
+            FileChannel source = in.getChannel();
+            FileChannel target = file.getChannel();
+            long copied = 0;
+            while (copied < dictionarySize) {
+                copied += source.transferTo(copied, dictionarySize - copied, target);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // nothing left to write
+        }
+    }
+
+    private static void delete(File file) {
+        if (file.exists() && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    /**
+     * Digest of a statement, the key of the dictionary
+     */
+    private static final class Digest {
+        private final long high;
+        private final long low;
+        private final long third;
+        private final long fourth;
+
+        Digest(byte[] bytes) {
+            high = toLong(bytes, 0);
+            low = toLong(bytes, 8);
+            third = toLong(bytes, 16);
+            fourth = toLong(bytes, 24);
+        }
+
+        private static long toLong(byte[] bytes, int offset) {
+            long value = 0;
+            for (int i = offset; i < offset + 8; i++) {
+                value = (value << 8) | (bytes[i] & 0xff);
+            }
+            return value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Digest)) {
+                return false;
+            }
+            Digest other = (Digest) o;
+            return high == other.high && low == other.low && third == other.third && fourth == other.fourth;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) high;
+        }
+    }
+
+    /**
+     * Growing list of record numbers without boxing
+     */
+    private static class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.logfile;
+
+import com.google.common.base.Strings;
+import de.qaware.mysqlbenchmark.filter.PrefixMatcher;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parser for the mysql slow query log. Every record consists of comment lines with the time, the connection and the
+ * recorded execution, followed by the statement, which may span several lines:
+ * <pre>
+ * # Time: 2014-01-01T10:00:00.123456Z
+ * # User@Host: shop[shop] @ localhost []  Id:    42
+ * # Query_time: 0.001234  Lock_time: 0.000056 Rows_sent: 1  Rows_examined: 1000
+ * use shop;
+ * SET timestamp=1388570400;
+ * SELECT * FROM orders
+ * WHERE customer_id = 7;
+ * </pre>
+ * The statements are passed to the listener with their {@link RecordedExecution}, use and SET timestamp lines are
+ * not replayed. The start time of a statement is the time of the record minus its query time if the time has a
+ * fraction of a second (mysql 5.7 and later), else the SET timestamp. Logs without connection ids replay all
+ * statements as connection 0.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class SlowLogParser {
+    /**
+     * Connection id of records without one, e.g. of mysql 5.5
+     */
+    static final String UNKNOWN_CONNECTION = "0";
+
+    private static final double NANOS_PER_SECOND = 1000000000d;
+    private static final Pattern TIME_PATTERN = Pattern.compile(
+            "^# Time:\\s+(?:(\\d{6}\\s+\\d{1,2}:\\d{2}:\\d{2})"
+                    + "|(\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2})(?:\\.(\\d{1,9}))?)");
+    private static final Pattern ID_PATTERN = Pattern.compile("\\b(?:Id|Thread_id):\\s*(\\d+)");
+    private static final Pattern QUERY_TIME_PATTERN = Pattern.compile(
+            "Query_time:\\s*([\\d.]+)\\s+Lock_time:\\s*([\\d.]+)\\s+Rows_sent:\\s*(\\d+)\\s+Rows_examined:\\s*(\\d+)");
+    private static final Pattern SET_TIMESTAMP_PATTERN = Pattern.compile("^SET\\s+timestamp\\s*=\\s*(\\d+)\\s*;\\s*$",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern USE_PATTERN = Pattern.compile("^use\\s+[^;]+;\\s*$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern BANNER_PATTERN = Pattern.compile("(^Tcp port:|^Time\\s+Id\\s+Command|, Version: )");
+    private static final String ADMINISTRATOR_COMMAND = "# administrator command:";
+    private static final Pattern RECORD_HEADER_PATTERN = Pattern.compile(
+            "^# (?:Time:|User@Host:|Query_time:|administrator command:)");
+
+    private final LogEntryListener listener;
+    private final SimpleDateFormat shortDateFormat = QueryParser.utcFormat("yyMMdd H:mm:ss");
+    private final SimpleDateFormat isoDateFormat = QueryParser.utcFormat("yyyy-MM-dd'T'HH:mm:ss");
+    private String restrictedID;
+    private PrefixMatcher ignorePrefixes;
+
+    private long loggedTimestamp = LogEntry.NO_TIMESTAMP;
+    private boolean preciseTimestamp;
+    private long setTimestamp = LogEntry.NO_TIMESTAMP;
+    private String connectionID = UNKNOWN_CONNECTION;
+    private RecordedExecution recorded;
+    private final StringBuilder statement = new StringBuilder();
+
+    private long records;
+    private long statements;
+    private double recordedSeconds;
+
+    /**
+     * Constructor
+     *
+     * @param listener receives the parsed statements and closed connections
+     */
+    public SlowLogParser(LogEntryListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Parse a slow query log. A streaming consumer may stop the parser by interrupting it.
+     *
+     * @param inputFilename  the log
+     * @param restrictedID   only pass statements of this connection id. May be null or empty for all connections.
+     * @param ignorePrefixes do not pass statements which start with these prefixes, case insensitive
+     * @throws IOException if the log can't be read
+     */
+    public void parse(String inputFilename, String restrictedID, List<String> ignorePrefixes) throws IOException {
+        this.restrictedID = restrictedID;
+        this.ignorePrefixes = PrefixMatcher.compile(ignorePrefixes);
+        BufferedReader reader = new BufferedReader(new FileReader(inputFilename));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null && !Thread.currentThread().isInterrupted()) {
+                parseLine(line);
+            }
+            flushRecord();
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Parse one line of the log. A record header or banner line after the statement of a record ends the record,
+     * other comment lines after the statement belong to it.
+     *
+     * @param line the line
+     */
+    private void parseLine(String line) {
+        if (line.startsWith("#") && (statement.length() == 0 || RECORD_HEADER_PATTERN.matcher(line).find())) {
+            if (statement.length() > 0) {
+                flushRecord();
+            }
+            if (line.startsWith(ADMINISTRATOR_COMMAND)) {
+                // e.g. '# administrator command: Quit;' instead of a statement
+                String command = line.substring(ADMINISTRATOR_COMMAND.length()).trim().toLowerCase(Locale.ENGLISH);
+                if (command.startsWith("quit")) {
+                    listener.connectionClosed(connectionID);
+                }
+                recorded = null;
+                setTimestamp = LogEntry.NO_TIMESTAMP;
+                return;
+            }
+            parseHeader(line);
+        } else if (BANNER_PATTERN.matcher(line).find()) {
+            // the log starts with a banner after every server restart
+            flushRecord();
+        } else if (recorded != null) {
+            Matcher setTimestampMatcher = SET_TIMESTAMP_PATTERN.matcher(line);
+            if (setTimestampMatcher.find()) {
+                setTimestamp = Long.parseLong(setTimestampMatcher.group(1)) * 1000;
+            } else if (statement.length() == 0 && (line.trim().isEmpty() || USE_PATTERN.matcher(line).find())) {
+                // the database is selected by the command line
+                return;
+            } else {
+                statement.append(statement.length() > 0 ? "\n" : "").append(line);
+            }
+        }
+    }
+
+    /**
+     * Read the time, the connection id or the recorded execution from a comment line.
+     *
+     * @param line the comment line
+     */
+    private void parseHeader(String line) {
+        Matcher timeMatcher = TIME_PATTERN.matcher(line);
+        if (timeMatcher.find()) {
+            parseTime(timeMatcher);
+            return;
+        }
+        if (line.startsWith("# User@Host:")) {
+            // a new record, mysql 5.6 and earlier log the time only if it changed
+            connectionID = UNKNOWN_CONNECTION;
+        }
+        Matcher idMatcher = ID_PATTERN.matcher(line);
+        if (idMatcher.find()) {
+            connectionID = idMatcher.group(1);
+        }
+        Matcher queryTimeMatcher = QUERY_TIME_PATTERN.matcher(line);
+        if (queryTimeMatcher.find()) {
+            recorded = new RecordedExecution(toNanos(queryTimeMatcher.group(1)), toNanos(queryTimeMatcher.group(2)),
+                    Long.parseLong(queryTimeMatcher.group(3)), Long.parseLong(queryTimeMatcher.group(4)));
+            setTimestamp = LogEntry.NO_TIMESTAMP;
+        }
+    }
+
+    /**
+     * Remember the time of the record
+     *
+     * @param matcher match of {@link #TIME_PATTERN}
+     */
+    private void parseTime(Matcher matcher) {
+        try {
+            if (matcher.group(1) != null) {
+                loggedTimestamp = shortDateFormat.parse(matcher.group(1)).getTime();
+                preciseTimestamp = false;
+            } else {
+                long millis = 0;
+                if (matcher.group(3) != null) {
+                    millis = Long.parseLong((matcher.group(3) + "00").substring(0, 3));
+                }
+                loggedTimestamp = isoDateFormat.parse(matcher.group(2)).getTime() + millis;
+                preciseTimestamp = matcher.group(3) != null;
+            }
+        } catch (ParseException e) {
+            // not a timestamp, keep the previous one
+        }
+    }
+
+    /**
+     * Pass the statement of the current record to the listener, if it is not filtered, and start a new record.
+     */
+    private void flushRecord() {
+        if (recorded != null && statement.length() > 0) {
+            records++;
+            recordedSeconds += recorded.getQueryNanos() / NANOS_PER_SECOND;
+            String text = statement.toString().trim();
+            if (text.endsWith(";")) {
+                text = text.substring(0, text.length() - 1).trim();
+            }
+            if (accept(text)) {
+                statements++;
+                listener.entryParsed(new LogEntry(connectionID, getStartTimestamp(), text, recorded));
+            }
+        }
+        statement.setLength(0);
+        recorded = null;
+        setTimestamp = LogEntry.NO_TIMESTAMP;
+    }
+
+    /**
+     * Start time of the statement of the current record
+     *
+     * @return timestamp in milliseconds or {@link LogEntry#NO_TIMESTAMP}
+     */
+    private long getStartTimestamp() {
+        if (preciseTimestamp && loggedTimestamp != LogEntry.NO_TIMESTAMP) {
+            // the time is logged when the statement finished
+            return loggedTimestamp - recorded.getQueryNanos() / 1000000;
+        }
+        return setTimestamp != LogEntry.NO_TIMESTAMP ? setTimestamp : loggedTimestamp;
+    }
+
+    /**
+     * Check the connection id and the ignored prefixes
+     *
+     * @param text the statement
+     * @return true if the statement is passed to the listener
+     */
+    private boolean accept(String text) {
+        if (!Strings.isNullOrEmpty(restrictedID) && !restrictedID.equals(connectionID)) {
+            return false;
+        }
+        return !ignorePrefixes.matches(text);
+    }
+
+    /**
+     * Convert seconds with fraction to nanoseconds
+     *
+     * @param seconds e.g. 0.001234
+     * @return nanoseconds
+     */
+    private static long toNanos(String seconds) {
+        return Math.round(Double.parseDouble(seconds) * NANOS_PER_SECOND);
+    }
+
+    /**
+     * Short summary of the parsed log: records, passed statements and the recorded query time.
+     *
+     * @return summary
+     */
+    public String getSummary() {
+        return String.format(Locale.ENGLISH,
+                "%d slow log records, %d statements after filtering, %.3f s recorded query time",
+                records, statements, recordedSeconds);
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.mode;
+
+import com.beust.jcommander.Strings;
+import de.qaware.mysqlbenchmark.console.Parameters;
+import de.qaware.mysqlbenchmark.filter.StatementFilter;
+import de.qaware.mysqlbenchmark.logfile.QueryParser;
+import de.qaware.mysqlbenchmark.routing.RoutingExecutor;
+import de.qaware.mysqlbenchmark.routing.RoutingPolicy;
+import de.qaware.mysqlbenchmark.routing.RoutingStatistics;
+import de.qaware.mysqlbenchmark.simulation.SimulatedDatabase;
+import de.qaware.mysqlbenchmark.simulation.SimulatedExecutor;
+import de.qaware.mysqlbenchmark.sql.SQLStatementExecutor;
+import de.qaware.mysqlbenchmark.sql.StatementExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * A way of running the tool, selected by the command line parameters. Every mode checks that the parameters can be
+ * combined with it. The modes share the filter of the parsed statements and the executor, which replays against the
+ * mysql server or the simulated database and splits reads and writes over replicas.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public abstract class BenchmarkMode {
+    /**
+     * Line separator of the platform
+     */
+    protected static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private static final Logger LOG = LoggerFactory.getLogger(BenchmarkMode.class);
+
+    /**
+     * Command line parameters
+     */
+    protected final Parameters params;
+
+    /**
+     * Parser of the log
+     */
+    protected final QueryParser parser = new QueryParser();
+
+    private StatementFilter filter;
+    private StatementExecutor executor;
+    private SimulatedDatabase database;
+    private RoutingStatistics routing;
+
+    /**
+     * Constructor
+     *
+     * @param params command line parameters
+     */
+    protected BenchmarkMode(Parameters params) {
+        this.params = params;
+    }
+
+    /**
+     * Select the mode of the parameters: compile the log, ramp the connections up, sweep over configurations or run
+     * iterations of the replay.
+     *
+     * @param params command line parameters
+     * @return the mode
+     * @throws IllegalArgumentException if the parameters can't be combined in the mode
+     */
+    public static BenchmarkMode select(Parameters params) {
+        if (!Strings.isStringEmpty(params.getCompileFile())) {
+            return new CompileMode(params);
+        } else if (!Strings.isStringEmpty(params.getRamp())) {
+            return new RampMode(params);
+        } else if (!Strings.isStringEmpty(params.getSweep())) {
+            return new SweepMode(params);
+        }
+        return new IterationMode(params);
+    }
+
+    /**
+     * Compile the filter rules and create the executor, routed over the replicas if there are any.
+     *
+     * @throws IOException              if a file of rules or configurations can't be read
+     * @throws IllegalArgumentException if a rule or configuration is invalid
+     */
+    public void prepare() throws IOException {
+        // the filter rules are compiled once, before the log is read
+        try {
+            filter = createFilter();
+        } catch (IOException e) {
+            throw new IOException("Could not read the filter rules.", e);
+        }
+
+        executor = createExecutor();
+
+        // reads and writes are split over the primary and the replicas
+        if (!params.getReplicas().isEmpty()) {
+            routing = new RoutingStatistics(params.getServer(), params.getReplicas(),
+                    RoutingPolicy.get(params.getRouting()));
+            executor = new RoutingExecutor(executor, routing, params.getDatabase());
+            LOG.info("Routing writes to {} and reads to the replicas {}", params.getServer(), params.getReplicas());
+        }
+    }
+
+    /**
+     * Run the mode after {@link #prepare()}. Errors are logged, the connection of the executor is closed at the end.
+     */
+    public void run() {
+        try {
+            if (!new File(params.getInputFile()).exists()) {
+                LOG.error("The log file '{}' was not found. Please check your -log parameter.", params.getInputFile());
+                return;
+            }
+            execute();
+        } catch (FileNotFoundException e) {
+            LOG.error("File not found.", e);
+        } catch (IOException e) {
+            LOG.error("IO Exception.", e);
+        } catch (SQLException e) {
+            LOG.error("SQL Exception.", e);
+        } finally {
+            try {
+                executor.closeConnection();
+            } catch (Exception e) {
+                /* Intentionally Swallow  Exception */
+                LOG.error("Could not close sql connection.");
+            }
+        }
+    }
+
+    /**
+     * Do the work of the mode
+     *
+     * @throws IOException  if the log can't be read or the results can't be written
+     * @throws SQLException if a connection can't be opened
+     */
+    protected abstract void execute() throws IOException, SQLException;
+
+    /**
+     * Create the executor which replays against the mysql server, or against the simulated database with -simulate
+     *
+     * @return the executor, not routed over the replicas
+     * @throws IOException              if the simulation rules can't be read
+     * @throws IllegalArgumentException if a simulation rule is invalid
+     */
+    protected StatementExecutor createExecutor() throws IOException {
+        if (Strings.isStringEmpty(params.getSimulate())) {
+            SQLStatementExecutor jdbcExecutor = new SQLStatementExecutor(params.getStatementCacheSize());
+            jdbcExecutor.setRewriteBatchedStatements(params.isRewriteBatched());
+            return jdbcExecutor;
+        }
+        try {
+            database = SimulatedDatabase.configure(params.getSimulate());
+        } catch (IOException e) {
+            throw new IOException("Could not read the simulation rules.", e);
+        }
+        LOG.info("Replaying against a simulated database with the rules {}", database.getRules());
+        return new SimulatedExecutor(database);
+    }
+
+    /**
+     * Compile the filter of the parsed statements from -filter, -sample and a list of connection ids in -id. A
+     * single connection id is left to the parsers, which skip other connections before a statement is created.
+     *
+     * @return the filter, null if there are no rules
+     * @throws IOException              if the rule file can't be read
+     * @throws IllegalArgumentException if a rule is invalid
+     */
+    private StatementFilter createFilter() throws IOException {
+        StatementFilter statementFilter = StatementFilter.configure(params.getFilter());
+        if (!Strings.isStringEmpty(params.getSample())) {
+            statementFilter.addRule("sample " + params.getSample());
+        }
+        if (params.getConnectionID() != null && getRestrictedID() == null) {
+            statementFilter.includeConnections(params.getConnectionID().trim().split("\\s*,\\s*"));
+        }
+        return statementFilter.isEmpty() ? null : statementFilter;
+    }
+
+    /**
+     * Configure the parser with the backend, the number of threads and the filter of the parameters
+     *
+     * @param queryParser the parser
+     */
+    protected void configureParser(QueryParser queryParser) {
+        queryParser.setBackend(QueryParser.Backend.get(params.getParser()));
+        queryParser.setParallelism(params.getParserThreads());
+        queryParser.setFilter(filter);
+    }
+
+    /**
+     * The connection id the parsers are restricted to
+     *
+     * @return the connection id of -id, null if -id is not set or lists several ids
+     */
+    protected String getRestrictedID() {
+        String connectionID = params.getConnectionID();
+        return connectionID == null || connectionID.contains(",") ? null : connectionID;
+    }
+
+    /**
+     * Log how many statements the filter dropped, if there is one
+     */
+    protected void logFilterSummary() {
+        if (filter != null) {
+            LOG.info("Filtered {}", filter.getSummary());
+        }
+    }
+
+    /**
+     * Filter of the parsed statements
+     *
+     * @return filter, null if there are no rules
+     */
+    protected StatementFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Executor of the statements
+     *
+     * @return executor, routed over the replicas if there are any
+     */
+    protected StatementExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Replace the executor, which is closed at the end of the run
+     *
+     * @param executor the new executor
+     */
+    protected void setExecutor(StatementExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Simulated database the statements are replayed against
+     *
+     * @return database, null when replaying against mysql
+     */
+    protected SimulatedDatabase getDatabase() {
+        return database;
+    }
+
+    /**
+     * Endpoints of the read/write split
+     *
+     * @return routing statistics, null if reads and writes are not split
+     */
+    protected RoutingStatistics getRouting() {
+        return routing;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.mode;
+
+import com.beust.jcommander.Strings;
+import de.qaware.mysqlbenchmark.console.Parameters;
+import de.qaware.mysqlbenchmark.logfile.QueryParser;
+import de.qaware.mysqlbenchmark.logfile.ReplayFileWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * Parses the log and writes the filtered statements into a replay file instead of running the benchmark.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class CompileMode extends BenchmarkMode {
+    private static final Logger LOG = LoggerFactory.getLogger(CompileMode.class);
+
+    /**
+     * Constructor
+     *
+     * @param params command line parameters, with -compile set
+     */
+    public CompileMode(Parameters params) {
+        super(params);
+        // compiling replays nothing, the options of the replay would be dropped silently
+        if (!Strings.isStringEmpty(params.getRamp()) || !Strings.isStringEmpty(params.getSweep())
+                || params.isStream() || params.getRate() > 0 || params.getSpeed() > 0) {
+            throw new IllegalArgumentException("-compile only writes the replay file and can't be combined with"
+                    + " -ramp, -sweep, -stream, -rate or -speed.");
+        }
+    }
+
+    /**
+     * Parse the log and write the filtered statements into the replay file.
+     *
+     * @throws IOException if the log can't be read or the replay file can't be written, the replay file is deleted
+     */
+    @Override
+    protected void execute() throws IOException {
+        if (QueryParser.Backend.get(params.getParser()) == QueryParser.Backend.SLOW) {
+            LOG.warn("Replay files keep the statements only, the recorded query times of the slow log are dropped.");
+        }
+        ReplayFileWriter writer = new ReplayFileWriter(params.getCompileFile());
+        boolean compiled = false;
+        try {
+            QueryParser compiler = new QueryParser(writer);
+            configureParser(compiler);
+            compiler.parseLogFile(params.getInputFile(), getRestrictedID(), params.getIgnorePrefixes());
+            writer.close();
+            compiled = true;
+        } finally {
+            // a partial replay file is not left behind
+            if (!compiled) {
+                writer.discard();
+            }
+        }
+        LOG.info("Compiled '{}' into '{}': {}", params.getInputFile(), params.getCompileFile(), writer.getSummary());
+        logFilterSummary();
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.mode;
+
+import de.qaware.mysqlbenchmark.QueryBenchmark;
+import de.qaware.mysqlbenchmark.console.Parameters;
+import de.qaware.mysqlbenchmark.logfile.QueryParser;
+import de.qaware.mysqlbenchmark.replay.PooledReplay;
+import de.qaware.mysqlbenchmark.replay.SessionReplay;
+import de.qaware.mysqlbenchmark.replay.StreamingReplay;
+import de.qaware.mysqlbenchmark.routing.RoutingStatistics;
+import de.qaware.mysqlbenchmark.simulation.SimulatedDatabase;
+import de.qaware.mysqlbenchmark.stats.IterationStatistics;
+import de.qaware.mysqlbenchmark.sweep.SweepStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Replays the log in warmup passes and measured iterations. The log is streamed with -stream, started at a constant
+ * rate with -rate, replayed per connection id with -threads, or replayed in log order on one connection.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class IterationMode extends ReplayMode {
+    private static final Logger LOG = LoggerFactory.getLogger(IterationMode.class);
+
+    /**
+     * Constructor
+     *
+     * @param params command line parameters
+     */
+    public IterationMode(Parameters params) {
+        super(params);
+    }
+
+    @Override
+    protected void replay(QueryBenchmark benchmark, String connectionString, QueryBenchmark.Format format,
+                          List<Writer> outputs) throws IOException, SQLException {
+        measure(benchmark, connectionString, format, outputs, null);
+    }
+
+    @Override
+    protected boolean isSingleConnection() {
+        return !params.isStream() && !isConstantRate() && params.getThreads() <= 1;
+    }
+
+    /**
+     * Run the warmup passes and the measured iterations, and write the result of every iteration to the outputs,
+     * followed by the combination of the iterations if there are several. Errors of the replay are logged only.
+     *
+     * @param benchmark        the benchmark
+     * @param connectionString where to connect to the mysql server
+     * @param format           format of the results
+     * @param outputs          writers for the results, not flushed
+     * @param sweep            receives the measured iterations of the configuration named in the benchmark, null if
+     *                         no sweep is running
+     * @throws IOException if writing the results failed
+     */
+    protected void measure(QueryBenchmark benchmark, String connectionString, QueryBenchmark.Format format,
+                           List<Writer> outputs, SweepStatistics sweep) throws IOException {
+        SimulatedDatabase database = getDatabase();
+        RoutingStatistics routing = getRouting();
+
+        // warmup passes are discarded
+        int passes = params.getWarmup() + params.getIterations();
+        IterationStatistics iterations = new IterationStatistics();
+        try {
+            for (int pass = 1; pass <= passes; pass++) {
+                boolean warmup = pass <= params.getWarmup();
+                LOG.info(warmup ? "Executing warmup pass " + pass + " of " + params.getWarmup() + "..."
+                        : "Executing benchmark...");
+                if (database != null) {
+                    database.clear();
+                }
+                if (routing != null) {
+                    routing.start();
+                }
+                runBenchmark(benchmark, connectionString);
+                if (routing != null) {
+                    routing.stop();
+                }
+                if (warmup) {
+                    LOG.info("Warmup pass completed, measurements discarded.");
+                    continue;
+                }
+
+                LOG.info("Benchmark completed");
+                LOG.info(benchmark.getSummary());
+                if (database != null) {
+                    LOG.info(database.getSummary());
+                }
+                if (routing != null) {
+                    LOG.info(routing.getSummary());
+                }
+                iterations.addIteration(benchmark.getMeanLatencies(), benchmark.getThroughput());
+                if (sweep != null) {
+                    sweep.addIteration(benchmark.getConfigurationName(), benchmark.getThroughput(),
+                            benchmark.getLatencies(), benchmark.getFailedStatements());
+                }
+                // write time measurements
+                for (Writer output : outputs) {
+                    if (params.getIterations() > 1 && format != QueryBenchmark.Format.JSON) {
+                        output.write("Iteration " + iterations.getIterations() + " of "
+                                + params.getIterations() + LINE_SEPARATOR);
+                    }
+                    writeResult(benchmark, format, output);
+                }
+            }
+        } catch (Exception e) {
+            LOG.error("Error processing queries.", e);
+        }
+
+        // combine the iterations
+        if (iterations.getIterations() > 1) {
+            LOG.info(iterations.getSummary());
+        }
+        for (Writer output : outputs) {
+            if (iterations.getIterations() > 1 && format == QueryBenchmark.Format.JSON) {
+                iterations.writeJson(output);
+            } else if (iterations.getIterations() > 1) {
+                output.write(iterations.getSummary() + LINE_SEPARATOR
+                        + iterations.getTable(format == QueryBenchmark.Format.CSV));
+            } else if (iterations.getIterations() == 0) {
+                benchmark.writeResult(format, output);
+            }
+        }
+    }
+
+    /**
+     * Run the benchmark once in the replay selected by the parameters.
+     *
+     * @param benchmark        the benchmark
+     * @param connectionString where to connect to the mysql server
+     * @throws Exception if the replay fails
+     */
+    private void runBenchmark(QueryBenchmark benchmark, String connectionString) throws Exception {
+        if (params.isStream()) {
+            StreamingReplay replay = new StreamingReplay(benchmark, connectionString, params.getUsername(),
+                    params.getPassword(), Math.max(1, params.getThreads()), params.getQueueCapacity());
+            replay.setParserBackend(QueryParser.Backend.get(params.getParser()));
+            replay.setParserThreads(params.getParserThreads());
+            replay.setFilter(getFilter());
+            replay.replay(params.getInputFile(), getRestrictedID(), params.getIgnorePrefixes());
+        } else if (isConstantRate()) {
+            new PooledReplay(benchmark, connectionString, params.getUsername(), params.getPassword(),
+                    Math.max(1, params.getThreads())).replay(parser.getEntries());
+        } else if (params.getThreads() > 1) {
+            new SessionReplay(benchmark, connectionString, params.getUsername(), params.getPassword(),
+                    params.getThreads()).replay(parser.getSessions());
+        } else {
+            benchmark.processEntries(parser.getEntries());
+        }
+    }
+}
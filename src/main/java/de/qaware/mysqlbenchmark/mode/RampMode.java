@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.mode;
+
+import com.beust.jcommander.Strings;
+import de.qaware.mysqlbenchmark.QueryBenchmark;
+import de.qaware.mysqlbenchmark.console.Parameters;
+import de.qaware.mysqlbenchmark.logfile.LogEntry;
+import de.qaware.mysqlbenchmark.replay.RampReplay;
+import de.qaware.mysqlbenchmark.routing.RoutingStatistics;
+import de.qaware.mysqlbenchmark.simulation.SimulatedDatabase;
+import de.qaware.mysqlbenchmark.stats.RampStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replays the sessions of the log in steps with a growing number of connections, after the warmup passes with the
+ * connections of the first step, and writes the result of every step, followed by the throughput-latency curve of
+ * all steps.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class RampMode extends ReplayMode {
+    private static final Logger LOG = LoggerFactory.getLogger(RampMode.class);
+
+    /**
+     * Constructor
+     *
+     * @param params command line parameters, with -ramp set
+     * @throws IllegalArgumentException if -stream, -rate, -speed or -sweep is set as well
+     */
+    public RampMode(Parameters params) {
+        super(params);
+        // a ramp sets the load by the number of connections alone
+        if (params.isStream() || params.getRate() > 0 || params.getSpeed() > 0
+                || !Strings.isStringEmpty(params.getSweep())) {
+            throw new IllegalArgumentException("-ramp replays the log in a closed loop and can't be combined with"
+                    + " -stream, -rate, -speed or -sweep.");
+        }
+    }
+
+    @Override
+    protected void replay(QueryBenchmark benchmark, String connectionString, QueryBenchmark.Format format,
+                          List<Writer> outputs) throws IOException {
+        List<List<LogEntry>> sessions = new ArrayList<List<LogEntry>>(parser.getSessions().values());
+        if (sessions.isEmpty()) {
+            LOG.error("The log contains no statements to replay.");
+            return;
+        }
+        List<Integer> steps;
+        try {
+            steps = RampReplay.parseSteps(params.getRamp(), sessions.size());
+        } catch (IllegalArgumentException e) {
+            LOG.error(e.getMessage());
+            return;
+        }
+        LOG.info("Ramping {} sessions over {} steps of {} s with {} connections", sessions.size(), steps.size(),
+                params.getRampDuration(), steps);
+
+        SimulatedDatabase database = getDatabase();
+        RoutingStatistics routing = getRouting();
+        RampReplay replay = new RampReplay(benchmark, connectionString, params.getUsername(), params.getPassword());
+        RampStatistics curve = new RampStatistics();
+        try {
+            for (int pass = 1; pass <= params.getWarmup(); pass++) {
+                LOG.info("Executing warmup pass {} of {} with {} connections...", pass, params.getWarmup(),
+                        steps.get(0));
+                replay.replay(sessions, steps.get(0), params.getRampDuration());
+            }
+            for (int i = 0; i < steps.size(); i++) {
+                LOG.info("Executing step {} of {} with {} connections...", i + 1, steps.size(), steps.get(i));
+                if (database != null) {
+                    database.clear();
+                }
+                if (routing != null) {
+                    routing.start();
+                }
+                replay.replay(sessions, steps.get(i), params.getRampDuration());
+                if (routing != null) {
+                    routing.stop();
+                    LOG.info(routing.getSummary());
+                }
+                LOG.info(benchmark.getSummary());
+                curve.addStep(steps.get(i), benchmark.getExecutedStatements(), benchmark.getThroughput(),
+                        benchmark.getLatencies(), benchmark.getFailedStatements());
+                for (Writer output : outputs) {
+                    if (format != QueryBenchmark.Format.JSON) {
+                        output.write("Step " + (i + 1) + " of " + steps.size() + ": " + steps.get(i) + " connections"
+                                + LINE_SEPARATOR);
+                    }
+                    writeResult(benchmark, format, output);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.error("Ramp interrupted.", e);
+        }
+
+        LOG.info(curve.getSummary());
+        for (Writer output : outputs) {
+            if (format == QueryBenchmark.Format.JSON) {
+                curve.writeJson(output);
+            } else {
+                output.write(curve.getSummary() + LINE_SEPARATOR + curve.getTable(format == QueryBenchmark.Format.CSV));
+            }
+            output.flush();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.mode;
+
+import com.beust.jcommander.Strings;
+import de.qaware.mysqlbenchmark.QueryBenchmark;
+import de.qaware.mysqlbenchmark.console.Parameters;
+import de.qaware.mysqlbenchmark.jmx.BenchmarkMonitor;
+import de.qaware.mysqlbenchmark.logfile.LogEntry;
+import de.qaware.mysqlbenchmark.monitor.IntervalReporter;
+import de.qaware.mysqlbenchmark.replay.ReplayScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base of the modes replaying the log: reads the log unless it is streamed, configures the benchmark from the
+ * parameters and streams the results to the result file and, with -v, to the console.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public abstract class ReplayMode extends BenchmarkMode {
+    private static final Logger LOG = LoggerFactory.getLogger(ReplayMode.class);
+    private static final int RESULT_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Constructor
+     *
+     * @param params command line parameters
+     */
+    protected ReplayMode(Parameters params) {
+        super(params);
+    }
+
+    /**
+     * Read the log, set up the benchmark and the outputs, and replay.
+     *
+     * @throws IOException  if the log can't be read or the results can't be written
+     * @throws SQLException if the connection can't be opened
+     */
+    @Override
+    protected void execute() throws IOException, SQLException {
+        // in streaming mode the log is parsed while the benchmark runs
+        if (!params.isStream()) {
+            configureParser(parser);
+            parser.parseLogFile(params.getInputFile(), getRestrictedID(), params.getIgnorePrefixes());
+            LOG.info("Read " + parser.getEntries().size() + " queries from file '" + params.getInputFile() + "'.");
+            logFilterSummary();
+        }
+
+        String connectionString = params.getServer() + params.getDatabase();
+        connect(connectionString);
+        QueryBenchmark benchmark = createBenchmark();
+
+        // process queries, every measured iteration is streamed to the outputs
+        QueryBenchmark.Format format = QueryBenchmark.Format.get(params.getFormat());
+        List<Writer> outputs = new ArrayList<Writer>();
+        if (!Strings.isStringEmpty(params.getResultfilename())) {
+            LOG.info("Writing result to " + params.getResultfilename());
+            outputs.add(openResultFile(params.getResultfilename()));
+        }
+        if (params.isVerbose()) {
+            outputs.add(new OutputStreamWriter(System.out));
+        }
+        try {
+            replay(benchmark, connectionString, format, outputs);
+            for (Writer output : outputs) {
+                output.flush();
+            }
+        } finally {
+            // the console is left open
+            if (!Strings.isStringEmpty(params.getResultfilename())) {
+                outputs.get(0).close();
+            }
+        }
+    }
+
+    /**
+     * Replay the log and write the results to the outputs. Errors of the replay are logged only.
+     *
+     * @param benchmark        the benchmark
+     * @param connectionString where to connect to the mysql server
+     * @param format           format of the results
+     * @param outputs          writers for the results, flushed afterwards
+     * @throws IOException  if writing the results failed
+     * @throws SQLException if a connection can't be closed
+     */
+    protected abstract void replay(QueryBenchmark benchmark, String connectionString, QueryBenchmark.Format format,
+                                   List<Writer> outputs) throws IOException, SQLException;
+
+    /**
+     * Open the connection of the executor if all statements are replayed on one connection
+     *
+     * @param connectionString where to connect to the mysql server
+     * @throws SQLException if the connection can't be opened
+     */
+    protected void connect(String connectionString) throws SQLException {
+        if (isSingleConnection()) {
+            getExecutor().initConnection(connectionString, params.getUsername(), params.getPassword());
+        }
+    }
+
+    /**
+     * Whether all statements are replayed in log order on the connection of the executor. Otherwise the replay opens
+     * its own connections.
+     *
+     * @return true if the replay uses the connection of the executor
+     */
+    protected boolean isSingleConnection() {
+        return false;
+    }
+
+    /**
+     * Whether the statements are started at the constant rate of -rate instead of in log order
+     *
+     * @return true if the statements are started at a constant rate
+     */
+    protected boolean isConstantRate() {
+        return !params.isStream() && params.getRate() > 0;
+    }
+
+    /**
+     * Create the benchmark and configure it from the parameters. It is registered for monitoring over JMX.
+     *
+     * @return the benchmark
+     */
+    private QueryBenchmark createBenchmark() {
+        QueryBenchmark benchmark = new QueryBenchmark(getExecutor());
+        benchmark.setFingerprinting(params.isFingerprint());
+        benchmark.setFetchResults(params.isFetch());
+        benchmark.setTransactional(params.isTransactions());
+        if (params.isTransactions() && params.isStream() && params.getThreads() <= 1) {
+            LOG.warn("All connections of the log share one connection, transactions of different connections may"
+                    + " overlap. Use -threads to replay every connection on its own.");
+        }
+        if (params.getBatchSize() > 0 && isConstantRate()) {
+            LOG.warn("Statements started at a constant rate are not batched, ignoring -batch.");
+        } else {
+            benchmark.setBatchSize(params.getBatchSize());
+        }
+        if (params.getInterval() > 0) {
+            benchmark.setIntervalReporter(new IntervalReporter(Math.max(1, (long) (params.getInterval() * 1000)),
+                    params.getIntervalFile(), params.getTopStatements()));
+        }
+        if (isConstantRate()) {
+            benchmark.setScheduler(ReplayScheduler.forRate(params.getRate()));
+        } else if (params.getSpeed() > 0) {
+            long firstTimestamp = params.isStream() ? LogEntry.NO_TIMESTAMP : parser.getFirstTimestamp();
+            benchmark.setScheduler(new ReplayScheduler(params.getSpeed(), firstTimestamp));
+        }
+        if (!params.isStream()) {
+            benchmark.setTotalStatements(parser.getEntries().size());
+        }
+        new BenchmarkMonitor(benchmark).register();
+        return benchmark;
+    }
+
+    /**
+     * Write the results of a replay, followed by the read/write split if there is one
+     *
+     * @param benchmark the benchmark
+     * @param format    format of the results
+     * @param output    writer for the results
+     * @throws IOException if writing the results failed
+     */
+    protected void writeResult(QueryBenchmark benchmark, QueryBenchmark.Format format, Writer output)
+            throws IOException {
+        benchmark.writeResult(format, output);
+        if (getRouting() != null && format == QueryBenchmark.Format.JSON) {
+            getRouting().writeJson(output);
+        } else if (getRouting() != null) {
+            output.write(getRouting().getSummary() + LINE_SEPARATOR
+                    + getRouting().getTable(format == QueryBenchmark.Format.CSV));
+        }
+    }
+
+    /**
+     * Open the result file for streaming the results into it through a buffered file channel
+     *
+     * @param fileName name of the result file, replaced if it exists
+     * @return a buffered writer, encoding UTF-8
+     * @throws IOException if the file can't be created
+     */
+    private static Writer openResultFile(String fileName) throws IOException {
+        FileChannel channel = new FileOutputStream(fileName).getChannel();
+        return new BufferedWriter(Channels.newWriter(channel, "UTF-8"), RESULT_BUFFER_SIZE);
+    }
+}
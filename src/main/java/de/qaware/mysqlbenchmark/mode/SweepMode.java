@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.mode;
+
+import com.beust.jcommander.Strings;
+import de.qaware.mysqlbenchmark.QueryBenchmark;
+import de.qaware.mysqlbenchmark.console.Parameters;
+import de.qaware.mysqlbenchmark.routing.RoutingExecutor;
+import de.qaware.mysqlbenchmark.sql.StatementExecutor;
+import de.qaware.mysqlbenchmark.sweep.SweepConfiguration;
+import de.qaware.mysqlbenchmark.sweep.SweepStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Replays the same workload with every configuration of -sweep in turn, each in warmup passes and measured
+ * iterations, and compares the configurations at the end.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class SweepMode extends IterationMode {
+    private static final Logger LOG = LoggerFactory.getLogger(SweepMode.class);
+
+    private List<SweepConfiguration> configurations;
+
+    /**
+     * Constructor
+     *
+     * @param params command line parameters, with -sweep set
+     * @throws IllegalArgumentException if -simulate is set as well
+     */
+    public SweepMode(Parameters params) {
+        super(params);
+        if (!Strings.isStringEmpty(params.getSimulate())) {
+            throw new IllegalArgumentException(
+                    "-sweep compares configurations of the mysql driver and can't be combined with -simulate.");
+        }
+    }
+
+    /**
+     * Read the configurations and create the executor of the first one
+     *
+     * @return the executor of the first configuration
+     * @throws IOException              if the configurations can't be read
+     * @throws IllegalArgumentException if a configuration is invalid
+     */
+    @Override
+    protected StatementExecutor createExecutor() throws IOException {
+        try {
+            configurations = SweepConfiguration.configure(params.getSweep());
+        } catch (IOException e) {
+            throw new IOException("Could not read the sweep configurations.", e);
+        }
+        for (SweepConfiguration configuration : configurations) {
+            LOG.info("Sweep configuration {}", configuration);
+        }
+        return configurations.get(0).createExecutor(params.getStatementCacheSize(), params.isRewriteBatched());
+    }
+
+    /**
+     * Every configuration opens its own connection.
+     *
+     * @param connectionString where to connect to the mysql server
+     */
+    @Override
+    protected void connect(String connectionString) {
+        // connected per configuration
+    }
+
+    @Override
+    protected void replay(QueryBenchmark benchmark, String connectionString, QueryBenchmark.Format format,
+                          List<Writer> outputs) throws IOException, SQLException {
+        // the same workload with every configuration in turn, compared at the end
+        SweepStatistics sweep = new SweepStatistics();
+        for (int i = 0; i < configurations.size(); i++) {
+            SweepConfiguration configuration = configurations.get(i);
+            LOG.info("Replaying with configuration {} of {}: {}", i + 1, configurations.size(),
+                    configuration.getName());
+            if (i > 0) {
+                getExecutor().closeConnection();
+                StatementExecutor executor = configuration.createExecutor(params.getStatementCacheSize(),
+                        params.isRewriteBatched());
+                if (getRouting() != null) {
+                    executor = new RoutingExecutor(executor, getRouting(), params.getDatabase());
+                }
+                setExecutor(executor);
+                benchmark.setExecutor(executor);
+            }
+            benchmark.setConfigurationName(configuration.getName());
+            String server = configuration.getServer(params.getServer()) + params.getDatabase();
+            if (isSingleConnection()) {
+                try {
+                    getExecutor().initConnection(server, params.getUsername(), params.getPassword());
+                } catch (SQLException e) {
+                    LOG.error("Skipping configuration {}.", configuration.getName());
+                    continue;
+                }
+            }
+            for (Writer output : outputs) {
+                if (format != QueryBenchmark.Format.JSON) {
+                    output.write("Configuration " + (i + 1) + " of " + configurations.size() + ": "
+                            + configuration.getName() + LINE_SEPARATOR);
+                }
+            }
+            measure(benchmark, server, format, outputs, sweep);
+        }
+
+        LOG.info(sweep.getSummary());
+        for (Writer output : outputs) {
+            if (format == QueryBenchmark.Format.JSON) {
+                sweep.writeJson(output);
+            } else {
+                output.write(sweep.getSummary() + LINE_SEPARATOR + sweep.getTable(format == QueryBenchmark.Format.CSV));
+            }
+        }
+    }
+}
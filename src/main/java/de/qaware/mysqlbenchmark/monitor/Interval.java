@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.monitor;
+
+import de.qaware.mysqlbenchmark.histogram.LatencyHistogram;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Measurements of one reporting interval: a latency histogram of all statements and one per measurement point, and
+ * the number of failed statements.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class Interval {
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> points = new HashMap<String, LatencyHistogram>();
+    private long errors;
+
+    /**
+     * Record one statement. Not thread safe, every interval has a single writer.
+     *
+     * @param pointName name of the measurement point
+     * @param nanos     latency in nanoseconds
+     * @param failed    true if the statement failed
+     */
+    void record(String pointName, long nanos, boolean failed) {
+        LatencyHistogram histogram = points.get(pointName);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            points.put(pointName, histogram);
+        }
+        histogram.record(nanos);
+        total.record(nanos);
+        if (failed) {
+            errors++;
+        }
+    }
+
+    /**
+     * Add the measurements of another interval of the same period, e.g. from another thread.
+     *
+     * @param other the other interval
+     */
+    void add(Interval other) {
+        total.add(other.total);
+        for (Map.Entry<String, LatencyHistogram> point : other.points.entrySet()) {
+            LatencyHistogram histogram = points.get(point.getKey());
+            if (histogram == null) {
+                histogram = new LatencyHistogram();
+                points.put(point.getKey(), histogram);
+            }
+            histogram.add(point.getValue());
+        }
+        errors += other.errors;
+    }
+
+    /**
+     * Latencies of all statements
+     *
+     * @return histogram
+     */
+    public LatencyHistogram getTotal() {
+        return total;
+    }
+
+    /**
+     * Latencies by measurement point
+     *
+     * @return histograms by point name
+     */
+    public Map<String, LatencyHistogram> getPoints() {
+        return points;
+    }
+
+    /**
+     * Number of failed statements
+     *
+     * @return errors
+     */
+    public long getErrors() {
+        return errors;
+    }
+}
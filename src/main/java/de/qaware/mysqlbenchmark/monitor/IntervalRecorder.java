@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.monitor;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records statement latencies into the current {@link Interval} without locks. Every thread records into an interval
+ * of its own, so recording threads never contend with each other. When the reporter swaps the intervals, it only
+ * waits for a record which is in progress on the old interval; the recording threads never wait. The interval of a
+ * terminated thread is dropped after its last swap, so short lived worker threads don't accumulate.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class IntervalRecorder {
+    private final List<ThreadRecorder> recorders = new CopyOnWriteArrayList<ThreadRecorder>();
+    private final ThreadLocal<ThreadRecorder> threadRecorder = new ThreadLocal<ThreadRecorder>() {
+        @Override
+        protected ThreadRecorder initialValue() {
+            ThreadRecorder recorder = new ThreadRecorder();
+            recorders.add(recorder);
+            return recorder;
+        }
+    };
+
+    /**
+     * Record one statement into the current interval of the calling thread.
+     *
+     * @param pointName name of the measurement point
+     * @param nanos     latency in nanoseconds
+     * @param failed    true if the statement failed
+     */
+    public void record(String pointName, long nanos, boolean failed) {
+        threadRecorder.get().record(pointName, nanos, failed);
+    }
+
+    /**
+     * Start a new interval on all threads and combine their finished intervals. Threads which have terminated are
+     * removed once their last interval is collected.
+     *
+     * @return the finished interval
+     */
+    public Interval swap() {
+        Interval finished = new Interval();
+        for (ThreadRecorder recorder : recorders) {
+            // checked before the swap, a thread terminating after it may have recorded into the new interval
+            boolean terminated = !recorder.owner.isAlive();
+            finished.add(recorder.swap());
+            if (terminated) {
+                // a terminated thread can't record anymore, its last interval is in finished
+                recorders.remove(recorder);
+            }
+        }
+        return finished;
+    }
+
+    /**
+     * Number of threads whose intervals are swapped
+     *
+     * @return threads which recorded and were alive at the last swap
+     */
+    int getThreads() {
+        return recorders.size();
+    }
+
+    /**
+     * The interval of one thread. The sequence is odd while a record is in progress, so the reporter knows when the
+     * thread is done with the interval it swapped out.
+     */
+    private static class ThreadRecorder {
+        private final Thread owner = Thread.currentThread();
+        private final AtomicLong sequence = new AtomicLong();
+        private volatile Interval active = new Interval();
+
+        /**
+         * Record into the active interval, only called by the owning thread.
+         */
+        void record(String pointName, long nanos, boolean failed) {
+            sequence.incrementAndGet();
+            try {
+                active.record(pointName, nanos, failed);
+            } finally {
+                sequence.incrementAndGet();
+            }
+        }
+
+        /**
+         * Replace the active interval and wait until a record in progress on it is finished.
+         *
+         * @return the replaced interval
+         */
+        Interval swap() {
+            Interval replaced = active;
+            active = new Interval();
+            long inProgress = sequence.get();
+            if ((inProgress & 1) != 0) {
+                while (sequence.get() == inProgress) {
+                    Thread.yield();
+                }
+            }
+            return replaced;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.monitor;
+
+import de.qaware.mysqlbenchmark.histogram.LatencyHistogram;
+import de.qaware.mysqlbenchmark.histogram.LatencyStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports throughput, errors and latency percentiles of every interval while the benchmark runs: overall and for
+ * the statements which took the most time in the interval. Every interval is logged and optionally appended to a
+ * time series CSV file with one line per interval and statement. The statements are recorded through an
+ * {@link IntervalRecorder}, so reporting does not slow down the replay threads.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class IntervalReporter {
+    private static final Logger LOG = LoggerFactory.getLogger(IntervalReporter.class);
+    private static final double NANOS_PER_SECOND = 1000000000d;
+    private static final String ALL_STATEMENTS = "All statements";
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private final long intervalMillis;
+    private final String csvFile;
+    private final int topStatements;
+    private final IntervalRecorder recorder = new IntervalRecorder();
+
+    private ScheduledExecutorService timer;
+    private ScheduledFuture<?> task;
+    private long originTime = -1;
+    private long lastReport;
+
+    /**
+     * Constructor
+     *
+     * @param intervalMillis length of an interval in milliseconds
+     * @param csvFile        time series file, overwritten when the first run starts. May be null if not needed.
+     * @param topStatements  number of statements reported per interval besides the overall values
+     */
+    public IntervalReporter(long intervalMillis, String csvFile, int topStatements) {
+        this.intervalMillis = intervalMillis;
+        this.csvFile = csvFile;
+        this.topStatements = topStatements;
+    }
+
+    /**
+     * Record one statement. Called by the replay threads.
+     *
+     * @param pointName name of the measurement point
+     * @param nanos     latency in nanoseconds
+     * @param failed    true if the statement failed
+     */
+    public void record(String pointName, long nanos, boolean failed) {
+        recorder.record(pointName, nanos, failed);
+    }
+
+    /**
+     * Start reporting. The time of the reports continues from previous runs, e.g. the warmup.
+     */
+    public synchronized void start() {
+        if (originTime < 0) {
+            originTime = System.nanoTime();
+            writeCsv("Time;Statement;Count;Throughput;Errors;p50;p90;p99;p99.9;Max" + LINE_SEPARATOR, false);
+        }
+        // statements recorded between runs are not part of any interval
+        recorder.swap();
+        lastReport = System.nanoTime();
+
+        timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "interval-reporter");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        task = timer.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                report();
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop reporting and report the last, possibly shorter interval.
+     */
+    public synchronized void stop() {
+        if (timer == null) {
+            return;
+        }
+        task.cancel(false);
+        timer.shutdown();
+        timer = null;
+        report();
+    }
+
+    /**
+     * Report the interval since the last report.
+     */
+    private synchronized void report() {
+        Interval interval = recorder.swap();
+        long now = System.nanoTime();
+        double seconds = Math.max(1, now - lastReport) / NANOS_PER_SECOND;
+        double time = (now - originTime) / NANOS_PER_SECOND;
+        lastReport = now;
+
+        LatencyHistogram total = interval.getTotal();
+        LOG.info(String.format(Locale.ENGLISH, "[%.1f s] %.1f statements/s, %d errors, %s",
+                time, total.getCount() / seconds, interval.getErrors(), formatPercentiles(total)));
+
+        StringBuilder csv = new StringBuilder();
+        appendCsv(csv, time, ALL_STATEMENTS, total, seconds, interval.getErrors());
+        for (Map.Entry<String, LatencyHistogram> point : getTopStatements(interval)) {
+            LOG.info(String.format(Locale.ENGLISH, "    %.1f statements/s, %s: %s",
+                    point.getValue().getCount() / seconds, formatPercentiles(point.getValue()), point.getKey()));
+            appendCsv(csv, time, point.getKey(), point.getValue(), seconds, -1);
+        }
+        writeCsv(csv.toString(), true);
+    }
+
+    /**
+     * The statements with the highest total latency in the interval
+     *
+     * @param interval the interval
+     * @return at most {@link #topStatements} statements, highest total latency first
+     */
+    private List<Map.Entry<String, LatencyHistogram>> getTopStatements(Interval interval) {
+        List<Map.Entry<String, LatencyHistogram>> points =
+                new ArrayList<Map.Entry<String, LatencyHistogram>>(interval.getPoints().entrySet());
+        Collections.sort(points, new Comparator<Map.Entry<String, LatencyHistogram>>() {
+            @Override
+            public int compare(Map.Entry<String, LatencyHistogram> a, Map.Entry<String, LatencyHistogram> b) {
+                return Double.compare(b.getValue().getMean() * b.getValue().getCount(),
+                        a.getValue().getMean() * a.getValue().getCount());
+            }
+        });
+        return points.subList(0, Math.min(topStatements, points.size()));
+    }
+
+    private static String formatPercentiles(LatencyHistogram histogram) {
+        return String.format(Locale.ENGLISH, "p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms",
+                LatencyStatistics.toMillis(histogram.getValueAtPercentile(50)),
+                LatencyStatistics.toMillis(histogram.getValueAtPercentile(90)),
+                LatencyStatistics.toMillis(histogram.getValueAtPercentile(99)),
+                LatencyStatistics.toMillis(histogram.getValueAtPercentile(99.9)),
+                LatencyStatistics.toMillis(histogram.getMax()));
+    }
+
+    /**
+     * Append one line of the time series
+     *
+     * @param csv       the lines of the interval
+     * @param time      seconds since the first start
+     * @param statement statement name
+     * @param histogram latencies of the statement
+     * @param seconds   length of the interval in seconds
+     * @param errors    failed statements, negative if not known for this statement
+     */
+    private static void appendCsv(StringBuilder csv, double time, String statement, LatencyHistogram histogram,
+                                  double seconds, long errors) {
+        csv.append(String.format(Locale.ENGLISH, "%.3f;\"%s\";%d;%.1f;%s;%.3f;%.3f;%.3f;%.3f;%.3f", time,
+                statement.replace("\"", "\"\""), histogram.getCount(), histogram.getCount() / seconds,
+                errors >= 0 ? String.valueOf(errors) : "",
+                LatencyStatistics.toMillis(histogram.getValueAtPercentile(50)),
+                LatencyStatistics.toMillis(histogram.getValueAtPercentile(90)),
+                LatencyStatistics.toMillis(histogram.getValueAtPercentile(99)),
+                LatencyStatistics.toMillis(histogram.getValueAtPercentile(99.9)),
+                LatencyStatistics.toMillis(histogram.getMax())));
+        csv.append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Write to the time series file, if any. Failures are logged only.
+     *
+     * @param text   text to write
+     * @param append false to overwrite the file
+     */
+    private void writeCsv(String text, boolean append) {
+        if (csvFile == null) {
+            return;
+        }
+        try {
+            Writer writer = new FileWriter(csvFile, append);
+            try {
+                writer.write(text);
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            LOG.warn("Could not write interval metrics to '{}'.", csvFile, e);
+        }
+    }
+}
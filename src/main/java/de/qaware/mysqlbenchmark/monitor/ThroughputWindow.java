@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.monitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Throughput over a moving window of fixed length. The benchmark passes its count of executed statements after every
+ * statement, the count is sampled at most once per sample period. Reading the throughput does not change the
+ * samples, so any number of readers, e.g. JMX clients, see the same value.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class ThroughputWindow {
+    /**
+     * Time between two samples if none is given, 1 s
+     */
+    public static final long DEFAULT_SAMPLE_NANOS = 1000000000L;
+    /**
+     * Number of samples in the window if none is given
+     */
+    public static final int DEFAULT_SAMPLES = 10;
+
+    private static final double NANOS_PER_SECOND = 1000000000d;
+
+    private final long sampleNanos;
+    private final AtomicReferenceArray<Sample> samples;
+    private final AtomicLong nextSample = new AtomicLong();
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Constructor, a window of 10 samples 1 s apart.
+     */
+    public ThroughputWindow() {
+        this(DEFAULT_SAMPLE_NANOS, DEFAULT_SAMPLES);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param sampleNanos time between two samples in nanoseconds
+     * @param samples     number of samples in the window, the window is sampleNanos * samples long
+     */
+    public ThroughputWindow(long sampleNanos, int samples) {
+        this.sampleNanos = sampleNanos;
+        this.samples = new AtomicReferenceArray<Sample>(samples);
+    }
+
+    /**
+     * Start a new run, counting from 0.
+     */
+    public void reset() {
+        reset(System.nanoTime());
+    }
+
+    /**
+     * Sample the count if the sample period has passed. Called by the replay threads.
+     *
+     * @param executed statements executed since the start of the run
+     */
+    public void sample(long executed) {
+        sample(executed, System.nanoTime());
+    }
+
+    /**
+     * Throughput over the window, up to now
+     *
+     * @param executed statements executed since the start of the run
+     * @return statements per second, 0 if nothing was sampled yet
+     */
+    public double getThroughput(long executed) {
+        return getThroughput(executed, System.nanoTime());
+    }
+
+    void reset(long now) {
+        for (int i = 0; i < samples.length(); i++) {
+            samples.set(i, null);
+        }
+        sequence.set(0);
+        nextSample.set(now);
+        sample(0, now);
+    }
+
+    void sample(long executed, long now) {
+        long next = nextSample.get();
+        // only one thread takes a sample per period, the others return at once
+        if (now - next < 0 || !nextSample.compareAndSet(next, now + sampleNanos)) {
+            return;
+        }
+        int slot = (int) (sequence.getAndIncrement() % samples.length());
+        samples.set(slot, new Sample(executed, now));
+    }
+
+    double getThroughput(long executed, long now) {
+        // the oldest sample inside the window, or the newest one if all are older
+        Sample start = null;
+        Sample newest = null;
+        long windowStart = now - sampleNanos * samples.length();
+        for (int i = 0; i < samples.length(); i++) {
+            Sample sample = samples.get(i);
+            if (sample == null) {
+                continue;
+            }
+            if (sample.time - windowStart >= 0 && (start == null || sample.time - start.time < 0)) {
+                start = sample;
+            }
+            if (newest == null || sample.time - newest.time > 0) {
+                newest = sample;
+            }
+        }
+        if (start == null) {
+            start = newest;
+        }
+        if (start == null || now - start.time <= 0) {
+            return 0;
+        }
+        return Math.max(0, executed - start.executed) * NANOS_PER_SECOND / (now - start.time);
+    }
+
+    /**
+     * Count of executed statements at a point in time
+     */
+    private static final class Sample {
+        private final long executed;
+        private final long time;
+
+        Sample(long executed, long time) {
+            this.executed = executed;
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.replay;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
+import de.qaware.mysqlbenchmark.QueryBenchmark;
+import de.qaware.mysqlbenchmark.logfile.LogEntry;
+import de.qaware.mysqlbenchmark.sql.StatementExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Replays the statements in log order on a pool of connections, ignoring the connection ids of the log. Every
+ * worker thread owns one connection and takes the next statement as soon as it is free. Together with a constant
+ * rate {@link ReplayScheduler} this is an open loop load generator: statements are started at their intended time
+ * no matter how long earlier statements take, as long as a connection is free.
+ * <p/>
+ * If the benchmark replays transactions, a worker takes a whole transaction and executes it on its connection, see
+ * {@link TransactionGrouper}.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class PooledReplay {
+    private static final Logger LOG = LoggerFactory.getLogger(PooledReplay.class);
+
+    private final QueryBenchmark benchmark;
+    private final String connectionString;
+    private final String username;
+    private final String password;
+    private final int connections;
+
+    /**
+     * Constructor
+     *
+     * @param benchmark        benchmark which measures the statement timings
+     * @param connectionString where to connect to the mysql server
+     * @param username         mysql username
+     * @param password         mysql password
+     * @param connections      number of connections in the pool
+     */
+    public PooledReplay(QueryBenchmark benchmark, String connectionString, String username, String password,
+                        int connections) {
+        this.benchmark = benchmark;
+        this.connectionString = connectionString;
+        this.username = username;
+        this.password = password;
+        this.connections = connections;
+    }
+
+    /**
+     * Replay all entries and wait until they are finished. The connections are opened before the benchmark starts.
+     *
+     * @param entries log entries in log order
+     * @throws SQLException         if no connection could be opened
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public void replay(List<LogEntry> entries) throws SQLException, InterruptedException {
+        List<List<LogEntry>> units = benchmark.isTransactional() ? TransactionGrouper.group(entries)
+                : Lists.transform(entries, new Function<LogEntry, List<LogEntry>>() {
+            @Override
+            public List<LogEntry> apply(LogEntry entry) {
+                return Collections.singletonList(entry);
+            }
+        });
+        List<StatementExecutor> executors = openConnections();
+        ExecutorService workers = Executors.newFixedThreadPool(executors.size());
+        AtomicInteger next = new AtomicInteger();
+
+        benchmark.setConnections(executors.size());
+        benchmark.start();
+        try {
+            for (StatementExecutor executor : executors) {
+                workers.execute(new PoolTask(executor, units, next));
+            }
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } finally {
+            workers.shutdownNow();
+            benchmark.stop();
+            closeConnections(executors);
+        }
+    }
+
+    /**
+     * Open the connections of the pool. Connections which fail are left out.
+     *
+     * @return executors with open connections
+     * @throws SQLException if not a single connection could be opened
+     */
+    private List<StatementExecutor> openConnections() throws SQLException {
+        List<StatementExecutor> executors = new ArrayList<StatementExecutor>(connections);
+        SQLException failure = null;
+        for (int i = 0; i < connections; i++) {
+            StatementExecutor executor = benchmark.createExecutor();
+            try {
+                executor.initConnection(connectionString, username, password);
+                executors.add(executor);
+            } catch (SQLException e) {
+                failure = e;
+            }
+        }
+        if (executors.isEmpty()) {
+            throw failure != null ? failure : new SQLException("No connections in the pool.");
+        } else if (executors.size() < connections) {
+            LOG.warn("Only {} of {} connections could be opened.", executors.size(), connections);
+        }
+        return executors;
+    }
+
+    /**
+     * Close the connections of the pool
+     *
+     * @param executors executors with open connections
+     */
+    private void closeConnections(List<StatementExecutor> executors) {
+        for (StatementExecutor executor : executors) {
+            try {
+                executor.closeConnection();
+            } catch (SQLException e) {
+                LOG.error("Could not close sql connection.");
+            }
+        }
+    }
+
+    /**
+     * Executes the next unit of statements on the connection of this worker until all units are taken.
+     */
+    private class PoolTask implements Runnable {
+        private final StatementExecutor executor;
+        private final List<List<LogEntry>> units;
+        private final AtomicInteger next;
+
+        /**
+         * Constructor
+         *
+         * @param executor executor with the connection of this worker
+         * @param units    all log entries, grouped into single statements or transactions
+         * @param next     index of the next unit to execute, shared by all workers
+         */
+        PoolTask(StatementExecutor executor, List<List<LogEntry>> units, AtomicInteger next) {
+            this.executor = executor;
+            this.units = units;
+            this.next = next;
+        }
+
+        @Override
+        public void run() {
+            int index;
+            while ((index = next.getAndIncrement()) < units.size() && !Thread.currentThread().isInterrupted()) {
+                for (LogEntry entry : units.get(index)) {
+                    benchmark.executeStatement(executor, entry);
+                }
+                // every unit is complete on its own
+                benchmark.endSession(executor);
+            }
+        }
+    }
+}
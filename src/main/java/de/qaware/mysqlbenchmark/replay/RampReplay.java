@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.replay;
+
+import de.qaware.mysqlbenchmark.QueryBenchmark;
+import de.qaware.mysqlbenchmark.logfile.LogEntry;
+import de.qaware.mysqlbenchmark.sql.StatementExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Replays the sessions of the log in a closed loop for a fixed duration on a given number of connections, one step of
+ * a load ramp. Every connection replays one session after the other in log order and starts over at the end of the
+ * log, without waiting between statements, so the load is set by the number of connections alone.
+ * <p/>
+ * The connections start at sessions spread evenly over the log. With more connections than sessions, the sessions
+ * are cloned: the clones of a session start at shifted statement offsets within it, so they don't execute the same
+ * statements in lockstep.
+ * <p/>
+ * A step opens all its connections before the measurement and the duration start, so the time to connect is neither
+ * measured nor taken from the duration of the step.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class RampReplay {
+    private static final Logger LOG = LoggerFactory.getLogger(RampReplay.class);
+    private static final double NANOS_PER_SECOND = 1000000000d;
+
+    private final QueryBenchmark benchmark;
+    private final String connectionString;
+    private final String username;
+    private final String password;
+
+    /**
+     * Constructor
+     *
+     * @param benchmark        benchmark which measures the statement timings
+     * @param connectionString where to connect to the mysql server
+     * @param username         mysql username
+     * @param password         mysql password
+     */
+    public RampReplay(QueryBenchmark benchmark, String connectionString, String username, String password) {
+        this.benchmark = benchmark;
+        this.connectionString = connectionString;
+        this.username = username;
+        this.password = password;
+    }
+
+    /**
+     * Parse the steps of a ramp: a comma separated list of connection counts, each either a number of connections or
+     * a multiple of the sessions in the log, e.g. {@code 1,2,4,8} or {@code 1x,2x,4x}, or a range doubling the
+     * connections from the first to the last count, e.g. {@code 1-64}.
+     *
+     * @param steps    the steps
+     * @param sessions number of sessions in the log
+     * @return number of connections of every step
+     * @throws IllegalArgumentException if the steps can't be parsed
+     */
+    public static List<Integer> parseSteps(String steps, int sessions) {
+        List<Integer> connections = new ArrayList<Integer>();
+        try {
+            if (steps.matches("\\s*\\d+x?\\s*-\\s*\\d+x?\\s*")) {
+                String[] range = steps.split("-");
+                int first = parseStep(range[0], sessions);
+                int last = parseStep(range[1], sessions);
+                if (first < 1 || first > last) {
+                    throw new IllegalArgumentException("The range of the ramp '" + steps
+                            + "' must start at 1 connection or more and end at the start or above.");
+                }
+                for (int step = first; step < last; step *= 2) {
+                    connections.add(step);
+                }
+                connections.add(last);
+            } else {
+                for (String step : steps.split(",")) {
+                    connections.add(parseStep(step, sessions));
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a ramp: '" + steps + "', use e.g. 1,2,4,8 or 1x,2x or 1-64", e);
+        }
+        for (int i = 0; i < connections.size(); i++) {
+            if (connections.get(i) < 1 || (i > 0 && connections.get(i) <= connections.get(i - 1))) {
+                throw new IllegalArgumentException("The steps of the ramp '" + steps
+                        + "' must be at least 1 connection and grow from step to step.");
+            }
+        }
+        return connections;
+    }
+
+    private static int parseStep(String step, int sessions) {
+        String trimmed = step.trim();
+        if (trimmed.endsWith("x")) {
+            return Integer.parseInt(trimmed.substring(0, trimmed.length() - 1)) * Math.max(1, sessions);
+        }
+        return Integer.parseInt(trimmed);
+    }
+
+    /**
+     * Open the given number of connections, then replay the sessions on them until the duration is over and wait
+     * until the running statements are finished. Transactions which are running at the end are rolled back.
+     *
+     * @param sessions    log entries of every session in log order
+     * @param connections number of connections
+     * @param seconds     duration of the step
+     * @throws InterruptedException if interrupted while waiting for the connections
+     */
+    public void replay(List<List<LogEntry>> sessions, int connections, double seconds) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(connections);
+        StartGate gate = new StartGate(connections);
+        boolean started = false;
+        try {
+            for (int i = 0; i < connections; i++) {
+                // spread the connections over the sessions, the clones of a session over its statements
+                int session = (int) ((long) i * sessions.size() / connections);
+                int clones = (connections + sessions.size() - 1) / sessions.size();
+                int clone = i % clones;
+                int offset = (int) ((long) clone * sessions.get(session).size() / clones);
+                workers.execute(new LoopTask(sessions, session, offset, gate));
+            }
+            int opened = gate.awaitOpened();
+            if (opened < connections) {
+                LOG.warn("Opened only {} of {} connections, the step runs with {}.", opened, connections, opened);
+            }
+
+            benchmark.setConnections(opened);
+            benchmark.start();
+            started = true;
+            gate.start(System.nanoTime() + (long) (seconds * NANOS_PER_SECOND));
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } finally {
+            workers.shutdownNow();
+            if (started) {
+                benchmark.stop();
+            }
+        }
+    }
+
+    /**
+     * Holds the connections of a step back until all of them are open, then releases them with the deadline.
+     */
+    private static class StartGate {
+        private final CountDownLatch connecting;
+        private final CountDownLatch start = new CountDownLatch(1);
+        private final AtomicInteger opened = new AtomicInteger();
+        private long deadline;
+
+        /**
+         * Constructor
+         *
+         * @param connections number of connections to wait for
+         */
+        StartGate(int connections) {
+            connecting = new CountDownLatch(connections);
+        }
+
+        /**
+         * Called by every connection once it tried to connect.
+         *
+         * @param success true if the connection is open
+         */
+        void connected(boolean success) {
+            if (success) {
+                opened.incrementAndGet();
+            }
+            connecting.countDown();
+        }
+
+        /**
+         * Wait until every connection tried to connect.
+         *
+         * @return number of open connections
+         * @throws InterruptedException if interrupted while waiting
+         */
+        int awaitOpened() throws InterruptedException {
+            connecting.await();
+            return opened.get();
+        }
+
+        /**
+         * Release the connections.
+         *
+         * @param deadline end of the step comparable to {@link System#nanoTime()}
+         */
+        void start(long deadline) {
+            // the latch publishes the deadline to the connections
+            this.deadline = deadline;
+            start.countDown();
+        }
+
+        /**
+         * Wait until the connections are released.
+         *
+         * @return end of the step comparable to {@link System#nanoTime()}
+         * @throws InterruptedException if interrupted while waiting
+         */
+        long awaitStart() throws InterruptedException {
+            start.await();
+            return deadline;
+        }
+    }
+
+    /**
+     * Replays one session after the other on its own sql connection until the deadline.
+     */
+    private class LoopTask implements Runnable {
+        private final List<List<LogEntry>> sessions;
+        private final int firstSession;
+        private final int firstOffset;
+        private final StartGate gate;
+
+        /**
+         * Constructor
+         *
+         * @param sessions     log entries of every session
+         * @param firstSession index of the session to start with
+         * @param firstOffset  index of the statement to start with in the first session
+         * @param gate         releases the task when all connections of the step are open
+         */
+        LoopTask(List<List<LogEntry>> sessions, int firstSession, int firstOffset, StartGate gate) {
+            this.sessions = sessions;
+            this.firstSession = firstSession;
+            this.firstOffset = firstOffset;
+            this.gate = gate;
+        }
+
+        @Override
+        public void run() {
+            StatementExecutor executor = benchmark.createExecutor();
+            boolean open = false;
+            try {
+                executor.initConnection(connectionString, username, password);
+                open = true;
+            } catch (SQLException e) {
+                LOG.error("Could not open a connection, the step runs with one connection less.");
+                return;
+            } finally {
+                gate.connected(open);
+            }
+
+            try {
+                long deadline = gate.awaitStart();
+                int session = firstSession;
+                int offset = firstOffset;
+                while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+                    List<LogEntry> entries = sessions.get(session);
+                    for (int i = offset; i < entries.size() && System.nanoTime() < deadline; i++) {
+                        benchmark.executeStatement(executor, entries.get(i));
+                    }
+                    benchmark.endSession(executor);
+                    session = (session + 1) % sessions.size();
+                    offset = 0;
+                }
+            } catch (InterruptedException e) {
+                // the step was aborted before it started
+                Thread.currentThread().interrupt();
+            } finally {
+                try {
+                    executor.closeConnection();
+                } catch (SQLException e) {
+                    LOG.error("Could not close sql connection.");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.qaware.mysqlbenchmark.replay;
+
+import de.qaware.mysqlbenchmark.logfile.LogEntry;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Releases statements at their original time offset from the log, scaled by a speed factor. A factor of 2 replays
+ * the log twice as fast as it was recorded, 0.5 at half the speed. Alternatively, statements are released at a
+ * constant rate, the n-th statement at n / rate seconds, see {@link #forRate(double)}.
+ * <p/>
+ * The scheduler keeps track of the schedule lag, i.e. how far behind its intended start time each statement
+ * actually started. A growing lag shows that the tool or the server can't keep up with the target rate.
+ * The scheduler is thread safe and may be shared by all replaying threads. The replay can be paused and the speed
+ * or rate changed while it runs, the schedule continues from the current position without jumps.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class ReplayScheduler {
+    private static final long LATE_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final double NANOS_PER_MILLI = 1000000d;
+    private static final double NANOS_PER_SECOND = 1000000000d;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private volatile double speed;
+    private volatile double rate;
+    private final long initialTimestamp;
+    private final AtomicLong firstTimestamp;
+    private volatile Timeline timeline = new Timeline(System.nanoTime(), 1, false, 0);
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong scheduledStatements = new AtomicLong();
+    private final AtomicLong lateStatements = new AtomicLong();
+    private final AtomicLong totalLag = new AtomicLong();
+    private final AtomicLong maxLag = new AtomicLong();
+
+    /**
+     * Constructor
+     *
+     * @param speed          speed factor, must be greater than 0
+     * @param firstTimestamp timestamp of the first statement in the log in milliseconds, it is released immediately.
+     *                       If {@link LogEntry#NO_TIMESTAMP}, the first timestamp passed to the scheduler is used.
+     */
+    public ReplayScheduler(double speed, long firstTimestamp) {
+        this(speed, 0, firstTimestamp);
+        if (speed <= 0) {
+            throw new IllegalArgumentException("The replay speed must be greater than 0 but was " + speed);
+        }
+    }
+
+    private ReplayScheduler(double speed, double rate, long firstTimestamp) {
+        this.speed = speed;
+        this.rate = rate;
+        this.initialTimestamp = firstTimestamp;
+        this.firstTimestamp = new AtomicLong(firstTimestamp);
+    }
+
+    /**
+     * Create a scheduler which releases statements at a constant rate, independent of their timestamps and of
+     * how long earlier statements take. The statements are released in the order they are passed to the scheduler.
+     *
+     * @param rate statements per second, must be greater than 0
+     * @return the scheduler
+     */
+    public static ReplayScheduler forRate(double rate) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("The rate must be greater than 0 but was " + rate);
+        }
+        return new ReplayScheduler(0, rate, LogEntry.NO_TIMESTAMP);
+    }
+
+    /**
+     * Start the replay clock. All offsets are relative to this point in time.
+     */
+    public synchronized void start() {
+        firstTimestamp.set(initialTimestamp);
+        sequence.set(0);
+        scheduledStatements.set(0);
+        lateStatements.set(0);
+        totalLag.set(0);
+        maxLag.set(0);
+        timeline = new Timeline(System.nanoTime(), getNanosPerUnit(), false, 0);
+    }
+
+    /**
+     * Stop releasing statements until {@link #resume()} is called. The time of the pause is not part of the schedule.
+     */
+    public synchronized void pause() {
+        if (!timeline.isPaused()) {
+            timeline = new Timeline(timeline.origin, timeline.nanosPerUnit, true, System.nanoTime());
+        }
+    }
+
+    /**
+     * Continue a paused replay where it stopped.
+     */
+    public synchronized void resume() {
+        if (timeline.isPaused()) {
+            timeline = new Timeline(timeline.origin + System.nanoTime() - timeline.pausedAt, timeline.nanosPerUnit,
+                    false, 0);
+        }
+    }
+
+    /**
+     * Check if the replay is paused
+     *
+     * @return true if paused
+     */
+    public boolean isPaused() {
+        return timeline.isPaused();
+    }
+
+    /**
+     * Change the speed factor of a running replay at the original time offsets. The statements which are not yet
+     * due are released at the new speed, starting from the current position in the log.
+     *
+     * @param newSpeed speed factor, must be greater than 0
+     * @throws IllegalStateException if the scheduler releases at a constant rate
+     */
+    public synchronized void setSpeed(double newSpeed) {
+        if (rate > 0) {
+            throw new IllegalStateException("The scheduler releases at a constant rate, change the rate instead.");
+        } else if (newSpeed <= 0) {
+            throw new IllegalArgumentException("The replay speed must be greater than 0 but was " + newSpeed);
+        }
+        speed = newSpeed;
+        rebase();
+    }
+
+    /**
+     * Change the rate of a running constant rate replay. The statements which are not yet due are released at the
+     * new rate.
+     *
+     * @param newRate statements per second, must be greater than 0
+     * @throws IllegalStateException if the scheduler replays at the original time offsets
+     */
+    public synchronized void setRate(double newRate) {
+        if (rate <= 0) {
+            throw new IllegalStateException(
+                    "The scheduler replays at the original time offsets, change the speed instead.");
+        } else if (newRate <= 0) {
+            throw new IllegalArgumentException("The rate must be greater than 0 but was " + newRate);
+        }
+        rate = newRate;
+        rebase();
+    }
+
+    /**
+     * Continue the schedule from the current position with the current speed or rate.
+     */
+    private void rebase() {
+        Timeline current = timeline;
+        long now = current.isPaused() ? current.pausedAt : System.nanoTime();
+        double position = (now - current.origin) / current.nanosPerUnit;
+        double nanosPerUnit = getNanosPerUnit();
+        timeline = new Timeline(now - (long) (position * nanosPerUnit), nanosPerUnit, current.paused, current.pausedAt);
+    }
+
+    /**
+     * Length of one unit of the schedule: one millisecond of the log, or one statement at a constant rate.
+     *
+     * @return nanoseconds per unit
+     */
+    private double getNanosPerUnit() {
+        return rate > 0 ? NANOS_PER_SECOND / rate : NANOS_PER_MILLI / speed;
+    }
+
+    /**
+     * Block until the entry is due and record its schedule lag. Entries without a timestamp are released immediately,
+     * unless the scheduler releases at a constant rate.
+     *
+     * @param entry the log entry about to be executed
+     * @return the intended start time of the entry, comparable to {@link System#nanoTime()}
+     */
+    public long awaitStart(LogEntry entry) {
+        // position of the entry in the schedule
+        long position;
+        if (rate > 0) {
+            position = sequence.getAndIncrement();
+        } else if (entry.getTimestamp() == LogEntry.NO_TIMESTAMP) {
+            awaitResume();
+            return System.nanoTime();
+        } else {
+            firstTimestamp.compareAndSet(LogEntry.NO_TIMESTAMP, entry.getTimestamp());
+            position = entry.getTimestamp() - firstTimestamp.get();
+        }
+
+        // the timeline may change while waiting, so the intended start is computed again after every wakeup
+        long intendedStart;
+        long remaining;
+        while (true) {
+            Timeline current = timeline;
+            intendedStart = current.origin + (long) (position * current.nanosPerUnit);
+            remaining = current.isPaused() ? MAX_PARK_NANOS : intendedStart - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            LockSupport.parkNanos(Math.min(remaining, MAX_PARK_NANOS));
+            if (Thread.currentThread().isInterrupted()) {
+                return intendedStart;
+            }
+        }
+
+        recordLag(-remaining);
+        return intendedStart;
+    }
+
+    /**
+     * Block while the replay is paused.
+     */
+    private void awaitResume() {
+        while (timeline.isPaused() && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(MAX_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Record the lag of one statement
+     *
+     * @param lag lag in nanoseconds
+     */
+    private void recordLag(long lag) {
+        scheduledStatements.incrementAndGet();
+        totalLag.addAndGet(lag);
+        if (lag > LATE_THRESHOLD_NANOS) {
+            lateStatements.incrementAndGet();
+        }
+
+        long max;
+        do {
+            max = maxLag.get();
+        } while (lag > max && !maxLag.compareAndSet(max, lag));
+    }
+
+    /**
+     * The replay speed factor
+     *
+     * @return speed, 0 if releasing at a constant rate
+     */
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * The constant release rate
+     *
+     * @return statements per second, 0 if replaying at the original time offsets
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Average schedule lag of all scheduled statements
+     *
+     * @return lag in milliseconds
+     */
+    public double getAverageLag() {
+        long count = scheduledStatements.get();
+        return count > 0 ? totalLag.get() / NANOS_PER_MILLI / count : 0;
+    }
+
+    /**
+     * Maximum schedule lag of all scheduled statements
+     *
+     * @return lag in milliseconds
+     */
+    public double getMaxLag() {
+        return maxLag.get() / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Number of statements which started more than 10 ms after their intended start time
+     *
+     * @return late statements
+     */
+    public long getLateStatements() {
+        return lateStatements.get();
+    }
+
+    /**
+     * Short summary of the schedule lag
+     *
+     * @return summary
+     */
+    public String getSummary() {
+        String schedule = rate > 0 ? String.format(Locale.ENGLISH, "Target rate %.1f statements/s", rate)
+                : String.format(Locale.ENGLISH, "Replay speed %.2fx", speed);
+        return String.format(Locale.ENGLISH,
+                "%s, schedule lag avg %.3f ms, max %.3f ms, %d of %d statements more than %d ms late",
+                schedule, getAverageLag(), getMaxLag(), lateStatements.get(), scheduledStatements.get(),
+                TimeUnit.NANOSECONDS.toMillis(LATE_THRESHOLD_NANOS));
+    }
+
+    /**
+     * Maps positions in the schedule to points in time. Immutable, so waiting threads always see a consistent
+     * timeline when it is changed.
+     */
+    private static class Timeline {
+        private final long origin;
+        private final double nanosPerUnit;
+        private final boolean paused;
+        private final long pausedAt;
+
+        /**
+         * Constructor
+         *
+         * @param origin       point in time of position 0, comparable to {@link System#nanoTime()}
+         * @param nanosPerUnit nanoseconds per position unit
+         * @param paused       true if the replay is paused
+         * @param pausedAt     point in time the replay was paused
+         */
+        Timeline(long origin, double nanosPerUnit, boolean paused, long pausedAt) {
+            this.origin = origin;
+            this.nanosPerUnit = nanosPerUnit;
+            this.paused = paused;
+            this.pausedAt = pausedAt;
+        }
+
+        boolean isPaused() {
+            return paused;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.qaware.mysqlbenchmark.replay;
+
+import de.qaware.mysqlbenchmark.QueryBenchmark;
+import de.qaware.mysqlbenchmark.logfile.LogEntry;
+import de.qaware.mysqlbenchmark.sql.StatementExecutor;
+import etm.core.monitor.EtmPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays the statements of several connections concurrently. Every connection id from the log gets its own
+ * sql connection and worker thread, the statements of one connection are executed in their original order.
+ * The number of connections replayed at the same time is limited by the number of worker threads.
+ * <p/>
+ * If the benchmark has a {@link ReplayScheduler}, a session waiting for a free thread starts late and the wait is
+ * reported as schedule lag. The number of threads stays a hard limit, a warning tells how many threads the log needs.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class SessionReplay {
+    private static final Logger LOG = LoggerFactory.getLogger(SessionReplay.class);
+
+    private final QueryBenchmark benchmark;
+    private final String connectionString;
+    private final String username;
+    private final String password;
+    private final int threads;
+
+    /**
+     * Constructor
+     *
+     * @param benchmark        benchmark which measures the statement timings
+     * @param connectionString where to connect to the mysql server
+     * @param username         mysql username
+     * @param password         mysql password
+     * @param threads          maximum number of sessions replayed at the same time
+     */
+    public SessionReplay(QueryBenchmark benchmark, String connectionString, String username, String password,
+                         int threads) {
+        this.benchmark = benchmark;
+        this.connectionString = connectionString;
+        this.username = username;
+        this.password = password;
+        this.threads = threads;
+    }
+
+    /**
+     * Replay all sessions and wait until every session is finished.
+     *
+     * @param sessions log entries by connection id
+     * @throws InterruptedException if interrupted while waiting for the sessions
+     */
+    public void replay(Map<String, List<LogEntry>> sessions) throws InterruptedException {
+        if (benchmark.getScheduler() != null) {
+            int concurrent = getConcurrentSessions(sessions);
+            if (concurrent > threads) {
+                LOG.warn("The log has up to {} sessions open at the same time, but only {} threads replay them."
+                        + " Sessions waiting for a thread start late and count as schedule lag, raise -threads to"
+                        + " replay them at their original time.", concurrent, threads);
+            }
+        }
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+
+        benchmark.setConnections(Math.min(threads, sessions.size()));
+        benchmark.start();
+        try {
+            for (Map.Entry<String, List<LogEntry>> session : sessions.entrySet()) {
+                workers.execute(new SessionTask(session.getKey(), session.getValue()));
+            }
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } finally {
+            workers.shutdownNow();
+            benchmark.stop();
+        }
+    }
+
+    /**
+     * The highest number of sessions which were open at the same time in the log, from the first to the last
+     * statement of every session. Sessions without timestamps are not counted.
+     *
+     * @param sessions log entries by connection id
+     * @return sessions, at least 1
+     */
+    public static int getConcurrentSessions(Map<String, List<LogEntry>> sessions) {
+        // a session opens at its first and closes after its last timestamp, closing sorts before opening
+        List<Long> events = new ArrayList<Long>();
+        for (List<LogEntry> entries : sessions.values()) {
+            long first = LogEntry.NO_TIMESTAMP;
+            long last = LogEntry.NO_TIMESTAMP;
+            for (LogEntry entry : entries) {
+                if (entry.getTimestamp() != LogEntry.NO_TIMESTAMP) {
+                    first = first == LogEntry.NO_TIMESTAMP ? entry.getTimestamp() : first;
+                    last = entry.getTimestamp();
+                }
+            }
+            if (first != LogEntry.NO_TIMESTAMP) {
+                events.add(2 * first + 1);
+                events.add(2 * last + 2);
+            }
+        }
+        Collections.sort(events);
+
+        int open = 0;
+        int concurrent = 1;
+        for (long event : events) {
+            open += (event & 1) == 1 ? 1 : -1;
+            concurrent = Math.max(concurrent, open);
+        }
+        return concurrent;
+    }
+
+    /**
+     * Replays the statements of one connection on its own sql connection.
+     */
+    private class SessionTask implements Runnable {
+        private final String connectionID;
+        private final List<LogEntry> entries;
+
+        /**
+         * Constructor
+         *
+         * @param connectionID connection id from the log
+         * @param entries      log entries of this connection in log order
+         */
+        SessionTask(String connectionID, List<LogEntry> entries) {
+            this.connectionID = connectionID;
+            this.entries = entries;
+        }
+
+        @Override
+        public void run() {
+            StatementExecutor executor = benchmark.createExecutor();
+            try {
+                executor.initConnection(connectionString, username, password);
+            } catch (SQLException e) {
+                LOG.error("Could not open connection for session {}, skipping {} statements.", connectionID,
+                        entries.size());
+                return;
+            }
+
+            // one measurement point for the whole session
+            EtmPoint spoint = benchmark.createSessionPoint(connectionID);
+            try {
+                for (LogEntry entry : entries) {
+                    benchmark.executeStatement(executor, entry);
+                }
+                benchmark.endSession(executor);
+            } finally {
+                spoint.collect();
+                try {
+                    executor.closeConnection();
+                } catch (SQLException e) {
+                    LOG.error("Could not close sql connection of session {}.", connectionID);
+                }
+            }
+        }
+    }
+}
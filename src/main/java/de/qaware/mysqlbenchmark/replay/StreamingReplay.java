@@ -0,0 +1,358 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.qaware.mysqlbenchmark.replay;
+
+import de.qaware.mysqlbenchmark.QueryBenchmark;
+import de.qaware.mysqlbenchmark.filter.StatementFilter;
+import de.qaware.mysqlbenchmark.logfile.LogEntry;
+import de.qaware.mysqlbenchmark.logfile.LogEntryListener;
+import de.qaware.mysqlbenchmark.logfile.QueryParser;
+import de.qaware.mysqlbenchmark.sql.StatementExecutor;
+import etm.core.monitor.EtmPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parses and executes the log at the same time. The calling thread reads the log and passes every parsed statement
+ * through a bounded queue to a replay thread, so the memory usage does not depend on the size of the log and the
+ * first statement is executed right after startup. A full queue blocks the reader until the replay catches up.
+ * <p/>
+ * With one thread, all statements are executed in log order on a single connection. With more threads, the
+ * connection ids are distributed over the replay threads. Every thread opens a connection per connection id when
+ * its first statement arrives and closes it when the log records the end of the connection, so the statements of one
+ * connection are executed in their original order on their own connection.
+ * <p/>
+ * A statement which fails with an unexpected exception is logged and skipped. If a replay thread stops nevertheless,
+ * the reader stops waiting for its queue and the run is aborted.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class StreamingReplay {
+    private static final Logger LOG = LoggerFactory.getLogger(StreamingReplay.class);
+
+    /**
+     * Marks the end of the log in a queue.
+     */
+    private static final LogEntry END_OF_LOG = new LogEntry(null, LogEntry.NO_TIMESTAMP, null);
+
+    /**
+     * How long the reader waits for a full queue before it checks that its replay thread is still running
+     */
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final QueryBenchmark benchmark;
+    private final String connectionString;
+    private final String username;
+    private final String password;
+    private final int threads;
+    private final int queueCapacity;
+    private QueryParser.Backend parserBackend = QueryParser.Backend.REGEX;
+    private int parserThreads = Runtime.getRuntime().availableProcessors();
+    private StatementFilter filter;
+
+    private final AtomicLong parsedStatements = new AtomicLong();
+
+    /**
+     * Constructor
+     *
+     * @param benchmark        benchmark which measures the statement timings
+     * @param connectionString where to connect to the mysql server
+     * @param username         mysql username
+     * @param password         mysql password
+     * @param threads          number of replay threads
+     * @param queueCapacity    maximum number of parsed statements waiting for each replay thread
+     */
+    public StreamingReplay(QueryBenchmark benchmark, String connectionString, String username, String password,
+                           int threads, int queueCapacity) {
+        this.benchmark = benchmark;
+        this.connectionString = connectionString;
+        this.username = username;
+        this.password = password;
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Parse the log and replay its statements until the end of the log is reached and all statements are executed.
+     *
+     * @param inputFilename  the log file
+     * @param restrictedID   only replay queries from this connection id, may be null
+     * @param ignorePrefixes do not replay queries which start with these prefixes
+     * @throws IOException           if the log can't be read
+     * @throws InterruptedException  if interrupted while waiting for the replay threads
+     * @throws IllegalStateException if a replay thread stopped before the end of the log
+     */
+    public void replay(String inputFilename, String restrictedID, List<String> ignorePrefixes)
+            throws IOException, InterruptedException {
+        List<ReplayTask> tasks = new ArrayList<ReplayTask>(threads);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+
+        parsedStatements.set(0);
+        benchmark.setConnections(threads);
+        benchmark.start();
+        try {
+            for (int i = 0; i < threads; i++) {
+                ReplayTask task = new ReplayTask(new ArrayBlockingQueue<LogEntry>(queueCapacity), threads > 1);
+                tasks.add(task);
+                workers.execute(task);
+            }
+
+            QueryParser parser = new QueryParser(new Dispatcher(tasks));
+            parser.setBackend(parserBackend);
+            parser.setParallelism(parserThreads);
+            parser.setFilter(filter);
+            try {
+                parser.parseLogFile(inputFilename, restrictedID, ignorePrefixes);
+            } finally {
+                for (ReplayTask task : tasks) {
+                    put(task, END_OF_LOG);
+                }
+            }
+            LOG.info("Read {} queries from file '{}'.", parsedStatements.get(), inputFilename);
+
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } finally {
+            workers.shutdownNow();
+            try {
+                // after a failure, the replay threads close their connections before the run ends
+                workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } finally {
+                benchmark.stop();
+            }
+        }
+    }
+
+    /**
+     * Select the implementation for reading the log
+     *
+     * @param parserBackend the parser backend
+     */
+    public void setParserBackend(QueryParser.Backend parserBackend) {
+        this.parserBackend = parserBackend;
+    }
+
+    /**
+     * Number of threads for the parallel parser backend
+     *
+     * @param parserThreads number of threads
+     */
+    public void setParserThreads(int parserThreads) {
+        this.parserThreads = parserThreads;
+    }
+
+    /**
+     * Filter the parsed statements before they are replayed
+     *
+     * @param filter the filter, null to replay all statements
+     */
+    public void setFilter(StatementFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Number of statements read from the log in the last run
+     *
+     * @return parsed statements
+     */
+    public long getParsedStatements() {
+        return parsedStatements.get();
+    }
+
+    /**
+     * Put an entry into the queue of a replay thread, blocking while the queue is full and the thread is running.
+     *
+     * @param task  the replay thread
+     * @param entry the entry
+     * @return true if the entry was queued, false if the replay thread stopped
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static boolean put(ReplayTask task, LogEntry entry) throws InterruptedException {
+        while (!task.queue.offer(entry, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (task.stopped) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Passes the parsed statements to the queue of the replay thread responsible for their connection id.
+     */
+    private class Dispatcher implements LogEntryListener {
+        private final List<ReplayTask> tasks;
+
+        /**
+         * Constructor
+         *
+         * @param tasks the replay threads
+         */
+        Dispatcher(List<ReplayTask> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        public void entryParsed(LogEntry entry) {
+            parsedStatements.incrementAndGet();
+            put(entry);
+        }
+
+        @Override
+        public void connectionClosed(String connectionID) {
+            // an entry without statement marks the end of the connection
+            put(new LogEntry(connectionID, LogEntry.NO_TIMESTAMP, null));
+        }
+
+        /**
+         * Put the entry into the queue of its connection id, blocking while the queue is full.
+         *
+         * @param entry the entry
+         * @throws IllegalStateException if the replay thread of the connection id stopped, stops the parser
+         */
+        private void put(LogEntry entry) {
+            int index = (entry.getConnectionID().hashCode() & Integer.MAX_VALUE) % tasks.size();
+            try {
+                if (!StreamingReplay.put(tasks.get(index), entry)) {
+                    throw new IllegalStateException("A replay thread stopped before the end of the log, aborting the"
+                            + " replay.");
+                }
+            } catch (InterruptedException e) {
+                // stops the parser
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Takes the statements from one queue and executes them.
+     */
+    private class ReplayTask implements Runnable {
+        private final BlockingQueue<LogEntry> queue;
+        private final boolean connectionPerSession;
+        private final Map<String, StatementExecutor> executors = new HashMap<String, StatementExecutor>();
+        private final Map<String, EtmPoint> sessionPoints = new HashMap<String, EtmPoint>();
+        private volatile boolean stopped;
+
+        /**
+         * Constructor
+         *
+         * @param queue                the queue to take the statements from
+         * @param connectionPerSession true to execute every connection id on its own connection, false to execute all
+         *                             statements on one connection
+         */
+        ReplayTask(BlockingQueue<LogEntry> queue, boolean connectionPerSession) {
+            this.queue = queue;
+            this.connectionPerSession = connectionPerSession;
+        }
+
+        @Override
+        public void run() {
+            try {
+                LogEntry entry;
+                while ((entry = queue.take()) != END_OF_LOG) {
+                    if (entry.getStatement() == null) {
+                        if (connectionPerSession) {
+                            closeSession(entry.getConnectionID());
+                        }
+                        continue;
+                    }
+
+                    try {
+                        StatementExecutor executor = getExecutor(connectionPerSession ? entry.getConnectionID() : null);
+                        if (executor != null) {
+                            benchmark.executeStatement(executor, entry);
+                        }
+                    } catch (RuntimeException e) {
+                        // the thread has to drain its queue, or the reader blocks forever
+                        LOG.error("Could not replay a statement of session {}, skipping it.", entry.getConnectionID(),
+                                e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                stopped = true;
+                for (String connectionID : new ArrayList<String>(executors.keySet())) {
+                    closeSession(connectionID);
+                }
+            }
+        }
+
+        /**
+         * Get the connection for the connection id, open it if needed.
+         *
+         * @param connectionID connection id from the log, null if all statements share one connection
+         * @return the executor or null if the connection could not be opened
+         */
+        private StatementExecutor getExecutor(String connectionID) {
+            if (executors.containsKey(connectionID)) {
+                return executors.get(connectionID);
+            }
+
+            StatementExecutor executor = benchmark.createExecutor();
+            try {
+                executor.initConnection(connectionString, username, password);
+            } catch (SQLException e) {
+                LOG.error("Could not open connection for session {}, skipping its statements.", connectionID);
+                executor = null;
+            }
+            executors.put(connectionID, executor);
+            if (executor != null && connectionID != null) {
+                sessionPoints.put(connectionID, benchmark.createSessionPoint(connectionID));
+            }
+            return executor;
+        }
+
+        /**
+         * Close the connection of the connection id
+         *
+         * @param connectionID connection id from the log
+         */
+        private void closeSession(String connectionID) {
+            StatementExecutor executor = executors.remove(connectionID);
+            if (executor != null) {
+                benchmark.endSession(executor);
+            }
+
+            EtmPoint spoint = sessionPoints.remove(connectionID);
+            if (spoint != null) {
+                spoint.collect();
+            }
+
+            if (executor != null) {
+                try {
+                    executor.closeConnection();
+                } catch (SQLException e) {
+                    LOG.error("Could not close sql connection of session {}.", connectionID);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.replay;
+
+import de.qaware.mysqlbenchmark.logfile.LogEntry;
+import de.qaware.mysqlbenchmark.sql.TransactionControl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Groups the log entries into units which have to be executed together on one connection: every transaction of a
+ * connection id from its begin to its commit or rollback is one unit, every statement outside of transactions is a
+ * unit on its own. The units are ordered by their first statement, so statements of other connections which were
+ * logged while a transaction was running follow the transaction.
+ * <p/>
+ * The units can be executed on any connection of a pool, so they do not depend on the state of the connection:
+ * changes of autocommit are left out, transactions of connections without autocommit get an explicit begin, and
+ * transactions which are committed implicitly get an explicit commit.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public final class TransactionGrouper {
+    private static final String BEGIN = "BEGIN";
+    private static final String COMMIT = "COMMIT";
+
+    private TransactionGrouper() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Group the entries into units.
+     *
+     * @param entries log entries in log order
+     * @return units in the order of their first statement, the statements of a unit in log order
+     */
+    public static List<List<LogEntry>> group(List<LogEntry> entries) {
+        List<List<LogEntry>> units = new ArrayList<List<LogEntry>>();
+        Map<String, List<LogEntry>> openUnits = new HashMap<String, List<LogEntry>>();
+        Set<String> manualCommit = new HashSet<String>();
+
+        for (LogEntry entry : entries) {
+            String connectionID = entry.getConnectionID();
+            List<LogEntry> unit = openUnits.get(connectionID);
+            switch (TransactionControl.of(entry.getStatement())) {
+                case BEGIN:
+                    commit(openUnits, connectionID, entry);
+                    unit = new ArrayList<LogEntry>();
+                    units.add(unit);
+                    openUnits.put(connectionID, unit);
+                    unit.add(entry);
+                    break;
+                case COMMIT:
+                case ROLLBACK:
+                    if (unit == null) {
+                        units.add(Collections.singletonList(entry));
+                    } else {
+                        unit.add(entry);
+                        openUnits.remove(connectionID);
+                    }
+                    break;
+                case AUTOCOMMIT_ON:
+                    commit(openUnits, connectionID, entry);
+                    manualCommit.remove(connectionID);
+                    break;
+                case AUTOCOMMIT_OFF:
+                    manualCommit.add(connectionID);
+                    break;
+                default:
+                    if (unit == null && manualCommit.contains(connectionID)) {
+                        // without autocommit every statement starts a transaction
+                        unit = new ArrayList<LogEntry>();
+                        units.add(unit);
+                        openUnits.put(connectionID, unit);
+                        unit.add(new LogEntry(connectionID, entry.getTimestamp(), BEGIN));
+                    }
+                    if (unit == null) {
+                        units.add(Collections.singletonList(entry));
+                    } else {
+                        unit.add(entry);
+                    }
+                    break;
+            }
+        }
+        return units;
+    }
+
+    /**
+     * End the open unit of a connection with an explicit commit, if there is one.
+     *
+     * @param openUnits    open units by connection id
+     * @param connectionID connection id
+     * @param entry        the entry which commits the transaction implicitly
+     */
+    private static void commit(Map<String, List<LogEntry>> openUnits, String connectionID, LogEntry entry) {
+        List<LogEntry> unit = openUnits.remove(connectionID);
+        if (unit != null) {
+            unit.add(new LogEntry(connectionID, entry.getTimestamp(), COMMIT));
+        }
+    }
+}
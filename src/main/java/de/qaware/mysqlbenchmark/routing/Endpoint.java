@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.routing;
+
+import de.qaware.mysqlbenchmark.histogram.LatencyHistogram;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A server statements are routed to, the primary or a replica, with the measurements of all connections to it.
+ * Thread safe.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class Endpoint {
+    private final String server;
+    private final boolean primary;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    /**
+     * Constructor
+     *
+     * @param server  connection string to the server without database name
+     * @param primary true for the primary, false for a replica
+     */
+    public Endpoint(String server, boolean primary) {
+        this.server = server;
+        this.primary = primary;
+    }
+
+    /**
+     * A statement is sent to the endpoint
+     */
+    void started() {
+        int current = inFlight.incrementAndGet();
+        int max = maxInFlight.get();
+        while (current > max && !maxInFlight.compareAndSet(max, current)) {
+            max = maxInFlight.get();
+        }
+    }
+
+    /**
+     * A statement sent to the endpoint has finished
+     *
+     * @param nanos      latency of the statement
+     * @param statements number of statements, more than one for batches
+     * @param read       true if the statements were reads
+     * @param success    false if the statements failed
+     */
+    void finished(long nanos, int statements, boolean read, boolean success) {
+        inFlight.decrementAndGet();
+        latencies.record(nanos);
+        (read ? reads : writes).addAndGet(statements);
+        if (!success) {
+            failed.addAndGet(statements);
+        }
+    }
+
+    /**
+     * Connection string to the server
+     *
+     * @return connection string without database name
+     */
+    public String getServer() {
+        return server;
+    }
+
+    /**
+     * Check if this is the primary
+     *
+     * @return true for the primary, false for a replica
+     */
+    public boolean isPrimary() {
+        return primary;
+    }
+
+    /**
+     * Number of statements currently executed by the endpoint
+     *
+     * @return statements in flight
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Highest number of statements executed concurrently since the last {@link #clear()}
+     *
+     * @return statements in flight
+     */
+    public int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    /**
+     * Number of reads executed
+     *
+     * @return reads
+     */
+    public long getReads() {
+        return reads.get();
+    }
+
+    /**
+     * Number of writes, transaction control and session statements executed
+     *
+     * @return writes
+     */
+    public long getWrites() {
+        return writes.get();
+    }
+
+    /**
+     * Number of failed statements
+     *
+     * @return failed statements
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Latencies of the round trips to the endpoint, a batch is one round trip
+     *
+     * @return histogram of nanosecond values
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * Clear the measurements, the statements in flight are kept
+     */
+    void clear() {
+        maxInFlight.set(inFlight.get());
+        reads.set(0);
+        writes.set(0);
+        failed.set(0);
+        latencies.reset();
+    }
+}
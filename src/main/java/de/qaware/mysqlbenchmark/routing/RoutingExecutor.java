@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.routing;
+
+import de.qaware.mysqlbenchmark.sql.ExecutionResult;
+import de.qaware.mysqlbenchmark.sql.PrepareStatistics;
+import de.qaware.mysqlbenchmark.sql.StatementExecutor;
+import de.qaware.mysqlbenchmark.sql.StatementTemplate;
+import de.qaware.mysqlbenchmark.sql.TransactionControl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits the statements of one replayed connection into reads and writes: writes go to the primary, reads are
+ * spread over the replicas of the {@link RoutingStatistics}. The connection holds one connection to the primary and
+ * one to every replica, each opened by an executor created with {@link StatementExecutor#newExecutor()}.
+ * <p/>
+ * A connection stays on one endpoint for the whole transaction: transactions, statements without autocommit and
+ * batches are executed on the primary, only a START TRANSACTION READ ONLY replayed as statement pins the connection
+ * to a replica. SET and USE are executed on every endpoint, so all connections share the same session state.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class RoutingExecutor implements StatementExecutor {
+    private static final Logger LOG = LoggerFactory.getLogger(RoutingExecutor.class);
+    private static final int PRIMARY = -1;
+    private static final int NOT_PINNED = -2;
+
+    private final StatementExecutor primary;
+    private final List<StatementExecutor> replicas;
+    private final RoutingStatistics routing;
+    private final String database;
+    private int pinned = NOT_PINNED;
+    private boolean manualCommit;
+
+    /**
+     * Constructor
+     *
+     * @param primary  executor for the primary, also creates the executors for the replicas
+     * @param routing  the endpoints, shared by all connections
+     * @param database database name appended to the connection strings of the replicas
+     */
+    public RoutingExecutor(StatementExecutor primary, RoutingStatistics routing, String database) {
+        this.primary = primary;
+        this.routing = routing;
+        this.database = database;
+        this.replicas = new ArrayList<StatementExecutor>(routing.getReplicas().size());
+        for (int i = 0; i < routing.getReplicas().size(); i++) {
+            replicas.add(primary.newExecutor());
+        }
+    }
+
+    @Override
+    public StatementExecutor newExecutor() {
+        return new RoutingExecutor(primary.newExecutor(), routing, database);
+    }
+
+    /**
+     * Open the connections to the primary and all replicas
+     *
+     * @param connectionString where to connect to the primary
+     * @param username         username
+     * @param password         password
+     * @throws SQLException if a connection can't be opened, the opened connections are closed again
+     */
+    @Override
+    public void initConnection(String connectionString, String username, String password) throws SQLException {
+        try {
+            primary.initConnection(connectionString, username, password);
+            for (int i = 0; i < replicas.size(); i++) {
+                replicas.get(i).initConnection(routing.getReplicas().get(i).getServer() + database, username,
+                        password);
+            }
+        } catch (SQLException e) {
+            try {
+                closeConnection();
+            } catch (SQLException closeException) {
+                LOG.debug("Could not close the connections after a failed connect.", closeException);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Close the connections to the primary and all replicas
+     *
+     * @throws SQLException the first failure, after trying to close all connections
+     */
+    @Override
+    public void closeConnection() throws SQLException {
+        pinned = NOT_PINNED;
+        manualCommit = false;
+        SQLException failure = null;
+        for (StatementExecutor executor : getExecutors()) {
+            try {
+                executor.closeConnection();
+            } catch (SQLException e) {
+                failure = failure == null ? e : failure;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public PrepareStatistics getPrepareStatistics() {
+        return primary.getPrepareStatistics();
+    }
+
+    @Override
+    public boolean isStatementCacheEnabled() {
+        return primary.isStatementCacheEnabled();
+    }
+
+    @Override
+    public boolean executeStatement(String name) {
+        StatementKind kind = StatementKind.of(name);
+        int target = route(name, kind);
+        Endpoint endpoint = getEndpoint(target);
+        boolean success = false;
+        endpoint.started();
+        long begin = System.nanoTime();
+        try {
+            success = getExecutor(target).executeStatement(name);
+        } finally {
+            endpoint.finished(System.nanoTime() - begin, 1, kind == StatementKind.READ, success);
+        }
+        if (kind == StatementKind.SESSION) {
+            applyToOthers(name, target);
+        }
+        return success;
+    }
+
+    @Override
+    public ExecutionResult executeAndFetch(String name) {
+        StatementKind kind = StatementKind.of(name);
+        int target = route(name, kind);
+        Endpoint endpoint = getEndpoint(target);
+        ExecutionResult result = null;
+        endpoint.started();
+        long begin = System.nanoTime();
+        try {
+            result = getExecutor(target).executeAndFetch(name);
+        } finally {
+            endpoint.finished(System.nanoTime() - begin, 1, kind == StatementKind.READ, result != null);
+        }
+        if (kind == StatementKind.SESSION) {
+            applyToOthers(name, target);
+        }
+        return result;
+    }
+
+    /**
+     * Start a transaction on the primary
+     *
+     * @return true if the transaction was started, false if it failed
+     */
+    @Override
+    public boolean begin() {
+        routing.pinned();
+        return primary.begin();
+    }
+
+    @Override
+    public boolean end(boolean commit) {
+        Endpoint endpoint = routing.getPrimary();
+        boolean success = false;
+        endpoint.started();
+        long begin = System.nanoTime();
+        try {
+            success = primary.end(commit);
+        } finally {
+            endpoint.finished(System.nanoTime() - begin, 1, false, success);
+        }
+        return success;
+    }
+
+    @Override
+    public boolean setAutoCommit(boolean autoCommit) {
+        return primary.setAutoCommit(autoCommit);
+    }
+
+    @Override
+    public boolean isAutoCommit() {
+        return primary.isAutoCommit();
+    }
+
+    @Override
+    public boolean isInTransaction() {
+        return primary.isInTransaction();
+    }
+
+    @Override
+    public long getTransactionStart() {
+        return primary.getTransactionStart();
+    }
+
+    @Override
+    public boolean isBatchCompatible(String connectionID, StatementTemplate template) {
+        return primary.isBatchCompatible(connectionID, template);
+    }
+
+    @Override
+    public boolean addBatch(String connectionID, StatementTemplate template) {
+        return primary.addBatch(connectionID, template);
+    }
+
+    @Override
+    public int getBatchCount() {
+        return primary.getBatchCount();
+    }
+
+    @Override
+    public String getBatchTemplate() {
+        return primary.getBatchTemplate();
+    }
+
+    /**
+     * Execute the pending batch on the primary, it is one round trip of its statements
+     *
+     * @return rows written by the batch, -1 if the batch failed
+     */
+    @Override
+    public long executeBatch() {
+        int count = primary.getBatchCount();
+        if (count == 0) {
+            return primary.executeBatch();
+        }
+        Endpoint endpoint = routing.getPrimary();
+        long rows = -1;
+        endpoint.started();
+        long begin = System.nanoTime();
+        try {
+            rows = primary.executeBatch();
+        } finally {
+            endpoint.finished(System.nanoTime() - begin, count, false, rows >= 0);
+        }
+        return rows;
+    }
+
+    /**
+     * Choose the endpoint of a statement and track the transactions started and ended by plain statements. The
+     * transaction methods of the interface only run on the primary.
+     *
+     * @param sql  the statement
+     * @param kind the kind of statement
+     * @return index of the replica, or {@link #PRIMARY}
+     */
+    private int route(String sql, StatementKind kind) {
+        int target;
+        switch (TransactionControl.of(sql)) {
+            case BEGIN:
+                target = StatementKind.isReadOnlyTransaction(sql) && !replicas.isEmpty() ? routing.chooseReplica()
+                        : PRIMARY;
+                if (pinned != NOT_PINNED && pinned != target) {
+                    // the server commits a running transaction implicitly when the next one begins
+                    getExecutor(pinned).executeStatement("COMMIT");
+                }
+                pinned = target;
+                routing.pinned();
+                return target;
+            case COMMIT:
+            case ROLLBACK:
+                target = pinned == NOT_PINNED ? PRIMARY : pinned;
+                pinned = NOT_PINNED;
+                return target;
+            case AUTOCOMMIT_OFF:
+                manualCommit = true;
+                return PRIMARY;
+            case AUTOCOMMIT_ON:
+                manualCommit = false;
+                if (pinned == PRIMARY) {
+                    pinned = NOT_PINNED;
+                }
+                return PRIMARY;
+            default:
+                break;
+        }
+
+        if (pinned != NOT_PINNED) {
+            return pinned;
+        } else if (kind == StatementKind.READ && !replicas.isEmpty() && !manualCommit && primary.isAutoCommit()
+                && !primary.isInTransaction()) {
+            return routing.chooseReplica();
+        }
+        return PRIMARY;
+    }
+
+    /**
+     * Execute a statement changing the session state on all endpoints besides the one it was measured on
+     *
+     * @param sql    the statement
+     * @param target the endpoint which already executed the statement
+     */
+    private void applyToOthers(String sql, int target) {
+        for (int i = PRIMARY; i < replicas.size(); i++) {
+            if (i != target && !getExecutor(i).executeStatement(sql)) {
+                LOG.debug("Could not apply '{}' to {}.", sql, getEndpoint(i).getServer());
+            }
+        }
+    }
+
+    private StatementExecutor getExecutor(int target) {
+        return target == PRIMARY ? primary : replicas.get(target);
+    }
+
+    private Endpoint getEndpoint(int target) {
+        return target == PRIMARY ? routing.getPrimary() : routing.getReplicas().get(target);
+    }
+
+    private List<StatementExecutor> getExecutors() {
+        List<StatementExecutor> executors = new ArrayList<StatementExecutor>(replicas.size() + 1);
+        executors.add(primary);
+        executors.addAll(replicas);
+        return executors;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.routing;
+
+/**
+ * How reads are spread over the replicas.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public enum RoutingPolicy {
+    /**
+     * Every replica in turn
+     */
+    ROUND_ROBIN,
+    /**
+     * The replica with the fewest statements in flight, ties are broken in turn
+     */
+    LEAST_IN_FLIGHT;
+
+    /**
+     * Get the policy from string. If the string is "least-in-flight" or "leastinflight" (ignoring case),
+     * LEAST_IN_FLIGHT is returned, else ROUND_ROBIN.
+     *
+     * @param policy string describing the policy
+     * @return a policy for choosing replicas
+     */
+    public static RoutingPolicy get(String policy) {
+        if (policy != null && "leastinflight".equals(policy.toLowerCase().replace("-", ""))) {
+            return LEAST_IN_FLIGHT;
+        } else {
+            return ROUND_ROBIN;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.routing;
+
+import de.qaware.mysqlbenchmark.histogram.LatencyStatistics;
+import de.qaware.mysqlbenchmark.jetm.JsonWriter;
+import de.qaware.mysqlbenchmark.stats.TextTable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The primary and the replicas of a read/write split, shared by the {@link RoutingExecutor}s of all connections.
+ * Chooses the replica of every read by the {@link RoutingPolicy} and reports throughput and latency per endpoint, to
+ * see how the load of a capture is spread and how many replicas it needs. Thread safe.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class RoutingStatistics {
+    private static final double NANOS_PER_SECOND = 1000000000d;
+    private static final String[] HEADLINES = {"Endpoint", "Role", "Statements", "Reads", "Writes", "Share %",
+            "Statements/s", "Mean", "p50", "p90", "p99", "p99.9", "Max In-Flight", "Failed"};
+
+    private final Endpoint primary;
+    private final List<Endpoint> replicas = new ArrayList<Endpoint>();
+    private final RoutingPolicy policy;
+    private final AtomicLong next = new AtomicLong();
+    private final AtomicLong pinnedTransactions = new AtomicLong();
+    private long startTime;
+    private long stopTime;
+
+    /**
+     * Constructor
+     *
+     * @param primary  connection string to the primary without database name
+     * @param replicas connection strings to the replicas without database name
+     * @param policy   how reads are spread over the replicas
+     */
+    public RoutingStatistics(String primary, List<String> replicas, RoutingPolicy policy) {
+        this.primary = new Endpoint(primary, true);
+        for (String replica : replicas) {
+            this.replicas.add(new Endpoint(replica, false));
+        }
+        this.policy = policy;
+    }
+
+    /**
+     * The primary
+     *
+     * @return the endpoint receiving all writes
+     */
+    public Endpoint getPrimary() {
+        return primary;
+    }
+
+    /**
+     * The replicas in the order of the command line
+     *
+     * @return endpoints receiving the reads
+     */
+    public List<Endpoint> getReplicas() {
+        return Collections.unmodifiableList(replicas);
+    }
+
+    /**
+     * Choose the replica for a read
+     *
+     * @return index of the replica in {@link #getReplicas()}
+     */
+    int chooseReplica() {
+        int first = (int) ((next.getAndIncrement() & Long.MAX_VALUE) % replicas.size());
+        if (policy == RoutingPolicy.ROUND_ROBIN) {
+            return first;
+        }
+
+        // the least loaded replica, starting the search at the next replica in turn
+        int chosen = first;
+        for (int i = 1; i < replicas.size(); i++) {
+            int candidate = (first + i) % replicas.size();
+            if (replicas.get(candidate).getInFlight() < replicas.get(chosen).getInFlight()) {
+                chosen = candidate;
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * A connection was pinned to one endpoint for a transaction
+     */
+    void pinned() {
+        pinnedTransactions.incrementAndGet();
+    }
+
+    /**
+     * Clear the measurements of all endpoints and start measuring
+     */
+    public void start() {
+        primary.clear();
+        for (Endpoint replica : replicas) {
+            replica.clear();
+        }
+        pinnedTransactions.set(0);
+        startTime = System.nanoTime();
+        stopTime = 0;
+    }
+
+    /**
+     * Stop measuring, throughputs are calculated from start to stop
+     */
+    public void stop() {
+        stopTime = System.nanoTime();
+    }
+
+    /**
+     * Summary of the routing: the share of reads sent to the replicas and the busiest replica
+     *
+     * @return summary
+     */
+    public String getSummary() {
+        long reads = primary.getReads();
+        Endpoint busiest = null;
+        for (Endpoint replica : replicas) {
+            reads += replica.getReads();
+            if (busiest == null || replica.getReads() > busiest.getReads()) {
+                busiest = replica;
+            }
+        }
+        long total = getTotal();
+        return String.format(Locale.ENGLISH, "Routing (%s): %d of %d statements were reads (%.1f %%), %.1f %% of all"
+                        + " statements went to %d replica(s), busiest replica %s with %.1f statements/s,"
+                        + " %d transactions pinned", policy.name().toLowerCase().replace('_', '-'), reads, total,
+                percent(reads, total), percent(total - primary.getReads() - primary.getWrites(), total),
+                replicas.size(), busiest == null ? "-" : busiest.getServer(),
+                busiest == null ? 0 : getThroughput(busiest), pinnedTransactions.get());
+    }
+
+    /**
+     * Table of all endpoints: statements, reads and writes, share of all statements, throughput and latency
+     * percentiles in milliseconds
+     *
+     * @param csv true for CSV, false for aligned columns
+     * @return the table
+     */
+    public String getTable(boolean csv) {
+        List<String[]> rows = new ArrayList<String[]>();
+        rows.add(HEADLINES);
+        long total = getTotal();
+        for (Endpoint endpoint : getEndpoints()) {
+            long statements = endpoint.getReads() + endpoint.getWrites();
+            Double[] percentiles = LatencyStatistics.getPercentiles(endpoint.getLatencies());
+            rows.add(new String[]{endpoint.getServer(), endpoint.isPrimary() ? "primary" : "replica",
+                    String.valueOf(statements), String.valueOf(endpoint.getReads()),
+                    String.valueOf(endpoint.getWrites()), format("%.1f", percent(statements, total)),
+                    format("%.1f", getThroughput(endpoint)),
+                    format("%.3f", LatencyStatistics.toMillis((long) endpoint.getLatencies().getMean())),
+                    format("%.3f", percentiles[0]), format("%.3f", percentiles[1]), format("%.3f", percentiles[2]),
+                    format("%.3f", percentiles[3]), String.valueOf(endpoint.getMaxInFlight()),
+                    String.valueOf(endpoint.getFailed())});
+        }
+        return TextTable.render(rows, csv);
+    }
+
+    /**
+     * Write the endpoints as one line of JSON, latencies in milliseconds
+     *
+     * @param writer the writer to write to, flushed but not closed
+     * @throws IOException if writing failed
+     */
+    public void writeJson(Writer writer) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.beginObject().name("policy").value(policy.name()).name("endpoints").beginArray();
+        for (Endpoint endpoint : getEndpoints()) {
+            json.beginObject()
+                    .name("server").value(endpoint.getServer())
+                    .name("role").value(endpoint.isPrimary() ? "primary" : "replica")
+                    .name("reads").value(endpoint.getReads())
+                    .name("writes").value(endpoint.getWrites())
+                    .name("throughput").value(getThroughput(endpoint))
+                    .name("latency").beginObject()
+                    .name("mean").value(LatencyStatistics.toMillis((long) endpoint.getLatencies().getMean()));
+            Double[] percentiles = LatencyStatistics.getPercentiles(endpoint.getLatencies());
+            for (int i = 0; i < percentiles.length; i++) {
+                json.name(LatencyStatistics.PERCENTILE_NAMES.get(i)).value(percentiles[i].doubleValue());
+            }
+            json.endObject()
+                    .name("maxInFlight").value(endpoint.getMaxInFlight())
+                    .name("failed").value(endpoint.getFailed())
+                    .endObject();
+        }
+        json.endArray().endObject();
+        writer.write(System.getProperty("line.separator"));
+        writer.flush();
+    }
+
+    private List<Endpoint> getEndpoints() {
+        List<Endpoint> endpoints = new ArrayList<Endpoint>(replicas.size() + 1);
+        endpoints.add(primary);
+        endpoints.addAll(replicas);
+        return endpoints;
+    }
+
+    private long getTotal() {
+        long total = 0;
+        for (Endpoint endpoint : getEndpoints()) {
+            total += endpoint.getReads() + endpoint.getWrites();
+        }
+        return total;
+    }
+
+    private double getThroughput(Endpoint endpoint) {
+        long nanos = (stopTime == 0 ? System.nanoTime() : stopTime) - startTime;
+        return nanos > 0 ? (endpoint.getReads() + endpoint.getWrites()) * NANOS_PER_SECOND / nanos : 0;
+    }
+
+    private static double percent(long part, long total) {
+        return total > 0 ? 100d * part / total : 0;
+    }
+
+    private static String format(String pattern, double value) {
+        return String.format(Locale.ENGLISH, pattern, value);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.routing;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Classifies statements for the read/write split. In doubt a statement is a write, which is always safe to send to
+ * the primary.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public enum StatementKind {
+    /**
+     * SELECT, SHOW, DESCRIBE, EXPLAIN and WITH, which neither lock, write nor depend on the state of the connection.
+     * EXPLAIN of a write is a write, as EXPLAIN ANALYZE executes it.
+     */
+    READ,
+    /**
+     * SET and USE, which change the state of the connection and are applied to every endpoint
+     */
+    SESSION,
+    /**
+     * Any other statement
+     */
+    WRITE;
+
+    /**
+     * Reads which lock rows, write files or variables, take locks or depend on the previous statement of the same
+     * connection. SQL_CALC_FOUND_ROWS is one of them, as the FOUND_ROWS() following it has to run on the same endpoint.
+     * String literals are not skipped, a literal containing one of the words makes the statement a write.
+     */
+    private static final Pattern PRIMARY_ONLY = Pattern.compile(
+            "\\b(for\\s+update|for\\s+share|lock\\s+in\\s+share\\s+mode|into|insert|update|delete|replace|get_lock"
+                    + "|release_lock|release_all_locks|is_used_lock|last_insert_id|found_rows|sql_calc_found_rows"
+                    + "|row_count|nextval|next\\s+value\\s+for)\\b", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Classify a statement
+     *
+     * @param sql the statement
+     * @return the kind of statement
+     */
+    public static StatementKind of(String sql) {
+        String keyword = getKeyword(sql);
+        if ("set".equals(keyword) || "use".equals(keyword)) {
+            return SESSION;
+        } else if ("show".equals(keyword) || "describe".equals(keyword) || "desc".equals(keyword)) {
+            return READ;
+        } else if (("select".equals(keyword) || "with".equals(keyword) || "explain".equals(keyword))
+                && !PRIMARY_ONLY.matcher(sql).find()) {
+            return READ;
+        }
+        return WRITE;
+    }
+
+    /**
+     * Check if a statement starts a read only transaction, START TRANSACTION READ ONLY
+     *
+     * @param sql a statement starting a transaction
+     * @return true if the transaction can't write
+     */
+    public static boolean isReadOnlyTransaction(String sql) {
+        return sql.toLowerCase(Locale.ENGLISH).matches("(?s)\\s*start\\s+transaction\\b.*\\bread\\s+only\\b.*");
+    }
+
+    /**
+     * The first keyword of a statement, skipping leading whitespace, parentheses and comments. The content of an
+     * executable comment, which starts with /*! and an optional server version, is executed by the server.
+     *
+     * @param sql the statement
+     * @return keyword in lower case, empty if the statement does not start with a letter
+     */
+    private static String getKeyword(String sql) {
+        int start = 0;
+        while (start < sql.length()) {
+            char c = sql.charAt(start);
+            if (Character.isWhitespace(c) || c == '(') {
+                start++;
+            } else if (sql.startsWith("/*!", start)) {
+                // skip the marker and the optional server version
+                start += 3;
+                while (start < sql.length() && Character.isDigit(sql.charAt(start))) {
+                    start++;
+                }
+            } else if (sql.startsWith("*/", start)) {
+                // end of an executable comment without keyword
+                start += 2;
+            } else if (sql.startsWith("/*", start)) {
+                int end = sql.indexOf("*/", start + 2);
+                start = end < 0 ? sql.length() : end + 2;
+            } else if (c == '#' || sql.startsWith("-- ", start)) {
+                int end = sql.indexOf('\n', start);
+                start = end < 0 ? sql.length() : end + 1;
+            } else {
+                break;
+            }
+        }
+        int end = start;
+        while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+            end++;
+        }
+        return sql.substring(start, end).toLowerCase(Locale.ENGLISH);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.simulation;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Distribution of the simulated latency of a statement. Distributions are written as {@code <type>:<parameters>},
+ * durations with the unit ns, us, ms or s, milliseconds if the unit is left out:
+ * <ul>
+ * <li>{@code fixed:1ms}: always the same latency</li>
+ * <li>{@code uniform:1ms-5ms}: evenly distributed between the bounds</li>
+ * <li>{@code exp:1ms}: exponentially distributed with this mean, like independent arrivals</li>
+ * <li>{@code lognormal:1ms-20ms}: log-normally distributed with this median and 99th percentile, like the long tail
+ * of real database latencies</li>
+ * </ul>
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public abstract class LatencyDistribution {
+    /**
+     * 99th percentile of the standard normal distribution
+     */
+    private static final double NORMAL_P99 = 2.3263;
+
+    private static final Pattern DURATION = Pattern.compile("(\\d+(?:\\.\\d+)?)\\s*(ns|us|ms|s)?");
+
+    private final String description;
+
+    /**
+     * Constructor
+     *
+     * @param description the distribution as written by the user
+     */
+    protected LatencyDistribution(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Draw a latency
+     *
+     * @param random source of randomness, owned by the calling thread
+     * @return latency in nanoseconds, not negative
+     */
+    public abstract long sample(Random random);
+
+    /**
+     * Parse a distribution
+     *
+     * @param text the distribution, see {@link LatencyDistribution}
+     * @return the distribution
+     * @throws IllegalArgumentException if the text is not a distribution
+     */
+    public static LatencyDistribution parse(String text) {
+        String trimmed = text.trim();
+        int colon = trimmed.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Not a latency distribution: '" + text + "'");
+        }
+        String type = trimmed.substring(0, colon).toLowerCase(Locale.ENGLISH);
+        String[] parameters = trimmed.substring(colon + 1).split("-");
+
+        if ("fixed".equals(type) && parameters.length == 1) {
+            final long nanos = parseDuration(parameters[0]);
+            return new LatencyDistribution(trimmed) {
+                @Override
+                public long sample(Random random) {
+                    return nanos;
+                }
+            };
+        } else if ("uniform".equals(type) && parameters.length == 2) {
+            final long min = parseDuration(parameters[0]);
+            final long max = Math.max(min, parseDuration(parameters[1]));
+            return new LatencyDistribution(trimmed) {
+                @Override
+                public long sample(Random random) {
+                    return min + (long) (random.nextDouble() * (max - min));
+                }
+            };
+        } else if ("exp".equals(type) && parameters.length == 1) {
+            final double mean = parseDuration(parameters[0]);
+            return new LatencyDistribution(trimmed) {
+                @Override
+                public long sample(Random random) {
+                    return (long) (-mean * Math.log(1 - random.nextDouble()));
+                }
+            };
+        } else if ("lognormal".equals(type) && parameters.length == 2) {
+            long median = Math.max(1, parseDuration(parameters[0]));
+            long p99 = Math.max(median, parseDuration(parameters[1]));
+            final double mu = Math.log(median);
+            final double sigma = (Math.log(p99) - mu) / NORMAL_P99;
+            return new LatencyDistribution(trimmed) {
+                @Override
+                public long sample(Random random) {
+                    return (long) Math.exp(mu + sigma * random.nextGaussian());
+                }
+            };
+        }
+        throw new IllegalArgumentException("Unknown latency distribution '" + text
+                + "', use fixed:<latency>, uniform:<min>-<max>, exp:<mean> or lognormal:<median>-<p99>");
+    }
+
+    /**
+     * Parse a duration
+     *
+     * @param text number with the unit ns, us, ms or s, milliseconds without unit
+     * @return nanoseconds
+     * @throws IllegalArgumentException if the text is not a duration
+     */
+    static long parseDuration(String text) {
+        Matcher matcher = DURATION.matcher(text.trim().toLowerCase(Locale.ENGLISH));
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Not a duration: '" + text + "'");
+        }
+        double value = Double.parseDouble(matcher.group(1));
+        String unit = matcher.group(2) == null ? "ms" : matcher.group(2);
+        if ("ns".equals(unit)) {
+            return (long) value;
+        } else if ("us".equals(unit)) {
+            return (long) (value * 1000);
+        } else if ("s".equals(unit)) {
+            return (long) (value * 1000000000);
+        }
+        return (long) (value * 1000000);
+    }
+
+    /**
+     * The distribution as written by the user
+     *
+     * @return description
+     */
+    @Override
+    public String toString() {
+        return description;
+    }
+}
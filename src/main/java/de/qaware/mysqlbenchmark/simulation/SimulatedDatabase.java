@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.simulation;
+
+import de.qaware.mysqlbenchmark.histogram.LatencyHistogram;
+import de.qaware.mysqlbenchmark.histogram.LatencyStatistics;
+import de.qaware.mysqlbenchmark.sql.PrepareStatistics;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process database simulated by {@link SimulatedExecutor}s: every statement waits for a latency drawn from the
+ * distribution of the first {@link SimulationRule} matching it and fails with the rule's error rate. Statements
+ * matching no rule succeed at once. Replaying against it measures the benchmark tool itself, e.g. its highest
+ * dispatch rate with {@code fixed:0}, without a mysql server.
+ * <p/>
+ * The injected latencies are recorded, the difference to the latencies measured by the benchmark is the
+ * measurement error of the tool. Waits end up to a few microseconds late, this overshoot is recorded separately:
+ * the last {@value #SPIN_NANOS} ns of every wait are spent spinning, as parking the thread is too coarse.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class SimulatedDatabase {
+    /**
+     * The end of a wait is awaited busily for accuracy
+     */
+    static final long SPIN_NANOS = 100000;
+
+    private final List<SimulationRule> rules;
+    private final PrepareStatistics prepareStatistics = new PrepareStatistics();
+    private final LatencyHistogram injected = new LatencyHistogram();
+    private final LatencyHistogram overshoot = new LatencyHistogram();
+    private final AtomicLong errors = new AtomicLong();
+
+    /**
+     * Constructor
+     *
+     * @param rules rules in order of precedence
+     */
+    public SimulatedDatabase(List<SimulationRule> rules) {
+        this.rules = new ArrayList<SimulationRule>(rules);
+    }
+
+    /**
+     * Create a database from the command line: either the name of a file with one {@link SimulationRule} per line,
+     * empty lines and lines starting with # are skipped, or a distribution and optional error rate for all statements,
+     * e.g. {@code exp:1ms 0.1%}.
+     *
+     * @param configuration file name or rule without pattern
+     * @return the database
+     * @throws IOException              if the file can't be read
+     * @throws IllegalArgumentException if a rule is invalid
+     */
+    public static SimulatedDatabase configure(String configuration) throws IOException {
+        if (!new File(configuration).isFile()) {
+            return new SimulatedDatabase(Collections.singletonList(SimulationRule.parse(configuration + " .*")));
+        }
+
+        List<SimulationRule> rules = new ArrayList<SimulationRule>();
+        BufferedReader reader = new BufferedReader(new FileReader(configuration));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty() && !line.trim().startsWith("#")) {
+                    rules.add(SimulationRule.parse(line));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return new SimulatedDatabase(rules);
+    }
+
+    /**
+     * Execute a statement: wait for its latency and decide if it fails
+     *
+     * @param statement the statement
+     * @param random    source of randomness, owned by the calling thread
+     * @return true if the statement succeeded
+     */
+    boolean execute(String statement, Random random) {
+        SimulationRule rule = getRule(statement);
+        if (rule == null) {
+            injected.record(0);
+            return true;
+        }
+
+        long latency = rule.getLatency().sample(random);
+        injected.record(latency);
+        long start = System.nanoTime();
+        long deadline = start + latency;
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > SPIN_NANOS && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(remaining - SPIN_NANOS);
+        }
+        while (deadline - System.nanoTime() > 0) {
+            // spin until the deadline
+        }
+        overshoot.record(System.nanoTime() - deadline);
+
+        if (rule.getErrorRate() > 0 && random.nextDouble() < rule.getErrorRate()) {
+            errors.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * The first rule matching a statement
+     *
+     * @param statement the statement
+     * @return the rule, null if no rule matches
+     */
+    private SimulationRule getRule(String statement) {
+        for (SimulationRule rule : rules) {
+            if (rule.matches(statement)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The rules in order of precedence
+     *
+     * @return rules
+     */
+    public List<SimulationRule> getRules() {
+        return Collections.unmodifiableList(rules);
+    }
+
+    /**
+     * Statement cache statistics of the executors, the simulated database does not cache statements
+     *
+     * @return statistics, always empty
+     */
+    PrepareStatistics getPrepareStatistics() {
+        return prepareStatistics;
+    }
+
+    /**
+     * Latencies drawn for the executed statements
+     *
+     * @return histogram with nanosecond values
+     */
+    public LatencyHistogram getInjectedLatencies() {
+        return injected;
+    }
+
+    /**
+     * Number of statements failed on purpose
+     *
+     * @return errors
+     */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Discard the recorded latencies and errors, e.g. before another pass
+     */
+    public void clear() {
+        injected.reset();
+        overshoot.reset();
+        errors.set(0);
+    }
+
+    /**
+     * Executed statements, injected errors, the injected latency and how late the waits ended.
+     *
+     * @return summary
+     */
+    public String getSummary() {
+        return String.format(Locale.ENGLISH, "Simulated %d statements, %d injected errors", injected.getCount(),
+                errors.get())
+                + System.getProperty("line.separator") + LatencyStatistics.format("Injected latency", injected)
+                + System.getProperty("line.separator") + LatencyStatistics.format("Wait overshoot", overshoot);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.simulation;
+
+import de.qaware.mysqlbenchmark.sql.ExecutionResult;
+import de.qaware.mysqlbenchmark.sql.PrepareStatistics;
+import de.qaware.mysqlbenchmark.sql.StatementExecutor;
+import de.qaware.mysqlbenchmark.sql.StatementTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Random;
+
+/**
+ * Executes statements on a {@link SimulatedDatabase} instead of a mysql server. Every statement, batch, commit and
+ * rollback is one round trip to the simulated database; statements are matched against its rules with their
+ * literals, batches with the template of their statements and commits and rollbacks as COMMIT and ROLLBACK.
+ * Starting a transaction and changing the autocommit mode are not sent to the database, like with JDBC.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class SimulatedExecutor implements StatementExecutor {
+    private static final Logger LOG = LoggerFactory.getLogger(SimulatedExecutor.class);
+
+    private final SimulatedDatabase database;
+    private final Random random = new Random();
+    private boolean autoCommit = true;
+    private boolean inTransaction;
+    private long transactionStart;
+    private String batchConnectionID;
+    private String batchTemplate;
+    private int batchCount;
+
+    /**
+     * Constructor
+     *
+     * @param database the simulated database
+     */
+    public SimulatedExecutor(SimulatedDatabase database) {
+        this.database = database;
+    }
+
+    @Override
+    public StatementExecutor newExecutor() {
+        return new SimulatedExecutor(database);
+    }
+
+    @Override
+    public void initConnection(String connectionString, String username, String password) {
+        LOG.debug("Connected to the simulated database.");
+    }
+
+    @Override
+    public void closeConnection() {
+        if (batchTemplate != null) {
+            LOG.warn("Discarding a batch of {} statements which was not executed.", batchCount);
+            clearBatch();
+        }
+        inTransaction = false;
+    }
+
+    @Override
+    public PrepareStatistics getPrepareStatistics() {
+        return database.getPrepareStatistics();
+    }
+
+    @Override
+    public boolean isStatementCacheEnabled() {
+        return false;
+    }
+
+    @Override
+    public boolean executeStatement(String name) {
+        return database.execute(name, random);
+    }
+
+    @Override
+    public ExecutionResult executeAndFetch(String name) {
+        long start = System.nanoTime();
+        if (!database.execute(name, random)) {
+            return null;
+        }
+        return new ExecutionResult(System.nanoTime() - start, 0, 0, 0);
+    }
+
+    @Override
+    public boolean begin() {
+        inTransaction = true;
+        transactionStart = System.nanoTime();
+        return true;
+    }
+
+    @Override
+    public boolean end(boolean commit) {
+        inTransaction = false;
+        return database.execute(commit ? "COMMIT" : "ROLLBACK", random);
+    }
+
+    @Override
+    public boolean setAutoCommit(boolean autoCommit) {
+        this.autoCommit = autoCommit;
+        return true;
+    }
+
+    @Override
+    public boolean isAutoCommit() {
+        return autoCommit;
+    }
+
+    @Override
+    public boolean isInTransaction() {
+        return inTransaction;
+    }
+
+    @Override
+    public long getTransactionStart() {
+        return transactionStart;
+    }
+
+    @Override
+    public boolean isBatchCompatible(String connectionID, StatementTemplate template) {
+        return batchTemplate == null || (template.getTemplate().equals(batchTemplate)
+                && (connectionID == null ? batchConnectionID == null : connectionID.equals(batchConnectionID)));
+    }
+
+    @Override
+    public boolean addBatch(String connectionID, StatementTemplate template) {
+        if (batchTemplate == null) {
+            batchConnectionID = connectionID;
+            batchTemplate = template.getTemplate();
+        }
+        batchCount++;
+        return true;
+    }
+
+    @Override
+    public int getBatchCount() {
+        return batchCount;
+    }
+
+    @Override
+    public String getBatchTemplate() {
+        return batchTemplate;
+    }
+
+    /**
+     * Execute the pending batch in one round trip. Afterwards there is no pending batch.
+     *
+     * @return one row per statement, -1 if the batch failed
+     */
+    @Override
+    public long executeBatch() {
+        String template = batchTemplate;
+        int count = batchCount;
+        clearBatch();
+        if (template == null) {
+            return 0;
+        }
+        return database.execute(template, random) ? count : -1;
+    }
+
+    /**
+     * Forget the pending batch
+     */
+    private void clearBatch() {
+        batchConnectionID = null;
+        batchTemplate = null;
+        batchCount = 0;
+    }
+}
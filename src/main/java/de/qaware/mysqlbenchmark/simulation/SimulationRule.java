@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.simulation;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Behaviour of the simulated database for the statements matching a pattern: their latency distribution and the
+ * share of failing executions.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class SimulationRule {
+    private static final String RATE = "\\d+(\\.\\d+)?%?";
+
+    private final Pattern pattern;
+    private final LatencyDistribution latency;
+    private final double errorRate;
+
+    /**
+     * Constructor
+     *
+     * @param pattern   regular expression found in the statement, case insensitive
+     * @param latency   latency of the matching statements
+     * @param errorRate share of failing executions between 0 and 1
+     */
+    public SimulationRule(String pattern, LatencyDistribution latency, double errorRate) {
+        this.pattern = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+        this.latency = latency;
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * Parse a rule: {@code <distribution> [<error rate>] <pattern>}, separated by whitespace. The error rate is a
+     * number between 0 and 1 or a percentage like 0.5%; the pattern is the rest of the line and may contain
+     * whitespace.
+     *
+     * @param line the rule
+     * @return the rule
+     * @throws IllegalArgumentException if the line is not a rule
+     */
+    public static SimulationRule parse(String line) {
+        String[] parts = line.trim().split("\\s+", 3);
+        // an error rate alone is no pattern
+        if (parts.length < 2 || (parts.length == 2 && parts[1].matches(RATE))) {
+            throw new IllegalArgumentException("Not a simulation rule: '" + line
+                    + "', use <distribution> [<error rate>] <pattern>");
+        }
+
+        LatencyDistribution latency = LatencyDistribution.parse(parts[0]);
+        if (parts.length == 3 && parts[1].matches(RATE)) {
+            return new SimulationRule(parts[2], latency, parseRate(parts[1]));
+        }
+        // without error rate the pattern starts with the second part
+        return new SimulationRule(line.trim().substring(parts[0].length()).trim(), latency, 0);
+    }
+
+    /**
+     * Parse an error rate
+     *
+     * @param text number between 0 and 1 or percentage
+     * @return rate between 0 and 1
+     */
+    private static double parseRate(String text) {
+        double rate = text.endsWith("%") ? Double.parseDouble(text.substring(0, text.length() - 1)) / 100
+                : Double.parseDouble(text);
+        if (rate > 1) {
+            throw new IllegalArgumentException("Error rate " + text + " is more than 100%");
+        }
+        return rate;
+    }
+
+    /**
+     * Check if the rule applies to a statement
+     *
+     * @param statement the statement
+     * @return true if the pattern is found in the statement
+     */
+    public boolean matches(String statement) {
+        return pattern.matcher(statement).find();
+    }
+
+    /**
+     * Latency of the matching statements
+     *
+     * @return distribution
+     */
+    public LatencyDistribution getLatency() {
+        return latency;
+    }
+
+    /**
+     * Share of failing executions
+     *
+     * @return rate between 0 and 1
+     */
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    /**
+     * The rule in the syntax of {@link #parse(String)}
+     *
+     * @return the rule
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.ENGLISH, "%s %.2f%% %s", latency, errorRate * 100, pattern.pattern());
+    }
+}
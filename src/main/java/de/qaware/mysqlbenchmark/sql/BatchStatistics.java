@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.sql;
+
+import de.qaware.mysqlbenchmark.histogram.LatencyHistogram;
+import de.qaware.mysqlbenchmark.histogram.LatencyStatistics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the JDBC batches of all connections with their statements, written rows and latency. Thread safe.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class BatchStatistics {
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong statements = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * A batch was executed
+     *
+     * @param batchStatements number of statements in the batch
+     * @param batchRows       rows written by the batch, negative if the batch failed
+     * @param nanos           execution time of the batch
+     */
+    public void record(int batchStatements, long batchRows, long nanos) {
+        batches.incrementAndGet();
+        statements.addAndGet(batchStatements);
+        if (batchRows < 0) {
+            failedBatches.incrementAndGet();
+        } else {
+            rows.addAndGet(batchRows);
+        }
+        latency.record(nanos);
+    }
+
+    /**
+     * Number of executed batches
+     *
+     * @return batches
+     */
+    public long getBatches() {
+        return batches.get();
+    }
+
+    /**
+     * Number of rows written by all successful batches
+     *
+     * @return rows
+     */
+    public long getRows() {
+        return rows.get();
+    }
+
+    /**
+     * Latency of the batches
+     *
+     * @return histogram with nanosecond values
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Clear all counters
+     */
+    public void clear() {
+        batches.set(0);
+        statements.set(0);
+        rows.set(0);
+        failedBatches.set(0);
+        latency.reset();
+    }
+
+    /**
+     * Batches, average batch size, written rows per second and batch latency percentiles
+     *
+     * @param seconds duration of the run
+     * @return summary
+     */
+    public String getSummary(double seconds) {
+        return String.format(Locale.ENGLISH,
+                "Batches: %d batches of %.1f statements on average, %d failed, %d rows written (%.1f rows/s),"
+                        + " batch latency p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms",
+                batches.get(), batches.get() > 0 ? (double) statements.get() / batches.get() : 0, failedBatches.get(),
+                rows.get(), seconds > 0 ? rows.get() / seconds : 0,
+                LatencyStatistics.toMillis(latency.getValueAtPercentile(50)),
+                LatencyStatistics.toMillis(latency.getValueAtPercentile(90)),
+                LatencyStatistics.toMillis(latency.getValueAtPercentile(99)),
+                LatencyStatistics.toMillis(latency.getMax()));
+    }
+}
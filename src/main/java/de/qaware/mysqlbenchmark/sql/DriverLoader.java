@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.sql;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.sql.Driver;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.regex.Pattern;
+
+/**
+ * Loads JDBC drivers from jar files in isolated class loaders, so different versions of a driver can be used side by
+ * side with the driver shipped with the tool. Such drivers are not visible to the {@link java.sql.DriverManager},
+ * connect with {@link SQLStatementExecutor#setDriver(Driver)}.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public final class DriverLoader {
+    /**
+     * Class of the mysql driver, used if a jar does not register its driver as service
+     */
+    public static final String MYSQL_DRIVER_CLASS = "com.mysql.jdbc.Driver";
+
+    private DriverLoader() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Load a driver from jar files. The jars get their own class loader, whose parent is the parent of the
+     * application class loader, so none of the classes of the tool are visible to the driver.
+     *
+     * @param jars        jar files separated like the class path, e.g. the driver and its dependencies
+     * @param driverClass class name of the driver, null to use the driver registered as service in the jars or the
+     *                    mysql driver
+     * @return a new instance of the driver
+     * @throws IllegalArgumentException if a jar does not exist or contains no driver
+     */
+    public static Driver load(String jars, String driverClass) {
+        List<URL> urls = new ArrayList<URL>();
+        for (String jar : jars.split(Pattern.quote(File.pathSeparator))) {
+            File file = new File(jar.trim());
+            if (!file.isFile()) {
+                throw new IllegalArgumentException("The driver jar '" + jar + "' was not found.");
+            }
+            try {
+                urls.add(file.toURI().toURL());
+            } catch (MalformedURLException e) {
+                throw new IllegalArgumentException("Invalid driver jar '" + jar + "'", e);
+            }
+        }
+        ClassLoader loader = new URLClassLoader(urls.toArray(new URL[urls.size()]),
+                DriverLoader.class.getClassLoader().getParent());
+
+        try {
+            if (driverClass != null) {
+                return (Driver) Class.forName(driverClass, true, loader).getDeclaredConstructor().newInstance();
+            }
+            for (Driver driver : ServiceLoader.load(Driver.class, loader)) {
+                if (driver.getClass().getClassLoader() == loader) {
+                    return driver;
+                }
+            }
+            // drivers before JDBC 4 are not registered as service
+            return (Driver) Class.forName(MYSQL_DRIVER_CLASS, true, loader).getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("No JDBC driver found in '" + jars + "'", e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Could not create the JDBC driver of '" + jars + "'", e);
+        } catch (ServiceConfigurationError e) {
+            throw new IllegalArgumentException("Could not load the JDBC driver of '" + jars + "'", e);
+        } catch (ClassCastException e) {
+            throw new IllegalArgumentException(driverClass + " is not a JDBC driver", e);
+        }
+    }
+
+    /**
+     * Describe a driver for the log
+     *
+     * @param driver the driver
+     * @return class name and version
+     */
+    public static String describe(Driver driver) {
+        return driver.getClass().getName() + " " + driver.getMajorVersion() + "." + driver.getMinorVersion();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.sql;
+
+/**
+ * Measurements of one statement executed by {@link SQLStatementExecutor#executeAndFetch(String)}.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class ExecutionResult {
+    private final long executeNanos;
+    private final long fetchNanos;
+    private final long rows;
+    private final long bytes;
+
+    /**
+     * Constructor
+     *
+     * @param executeNanos time until the server answered the statement
+     * @param fetchNanos   time for reading all rows of the results
+     * @param rows         rows read or rows affected by an update
+     * @param bytes        approximate size of all values read
+     */
+    public ExecutionResult(long executeNanos, long fetchNanos, long rows, long bytes) {
+        this.executeNanos = executeNanos;
+        this.fetchNanos = fetchNanos;
+        this.rows = rows;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Time until the server answered the statement
+     *
+     * @return time in nanoseconds
+     */
+    public long getExecuteNanos() {
+        return executeNanos;
+    }
+
+    /**
+     * Time for reading all rows of the results
+     *
+     * @return time in nanoseconds, 0 for statements without results
+     */
+    public long getFetchNanos() {
+        return fetchNanos;
+    }
+
+    /**
+     * Rows read from the results or rows affected by an update
+     *
+     * @return number of rows
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Approximate size of all values read: the length of their raw bytes
+     *
+     * @return bytes
+     */
+    public long getBytes() {
+        return bytes;
+    }
+}
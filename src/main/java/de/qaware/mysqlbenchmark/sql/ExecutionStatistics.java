@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.sql;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sums up the {@link ExecutionResult}s per measurement point. Thread safe.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class ExecutionStatistics {
+    private static final double NANOS_PER_MILLISECOND = 1000000d;
+
+    private final ConcurrentMap<String, Totals> totals = new ConcurrentHashMap<String, Totals>();
+
+    /**
+     * Add the result of one execution to the totals of a measurement point.
+     *
+     * @param pointName name of the measurement point
+     * @param result    the result
+     */
+    public void record(String pointName, ExecutionResult result) {
+        Totals pointTotals = totals.get(pointName);
+        if (pointTotals == null) {
+            Totals created = new Totals();
+            pointTotals = totals.putIfAbsent(pointName, created);
+            if (pointTotals == null) {
+                pointTotals = created;
+            }
+        }
+        pointTotals.executions.incrementAndGet();
+        pointTotals.executeNanos.addAndGet(result.getExecuteNanos());
+        pointTotals.fetchNanos.addAndGet(result.getFetchNanos());
+        pointTotals.rows.addAndGet(result.getRows());
+        pointTotals.bytes.addAndGet(result.getBytes());
+    }
+
+    /**
+     * Values of a measurement point: average execute time, average fetch time, rows and bytes.
+     *
+     * @param pointName name of the measurement point
+     * @return values, times in milliseconds, or null if nothing was recorded for this point
+     */
+    public Object[] getValues(String pointName) {
+        Totals pointTotals = totals.get(pointName);
+        if (pointTotals == null) {
+            return null;
+        }
+        double executions = Math.max(1, pointTotals.executions.get());
+        return new Object[]{pointTotals.executeNanos.get() / executions / NANOS_PER_MILLISECOND,
+                pointTotals.fetchNanos.get() / executions / NANOS_PER_MILLISECOND,
+                pointTotals.rows.get(), pointTotals.bytes.get()};
+    }
+
+    /**
+     * Clear all totals
+     */
+    public void clear() {
+        totals.clear();
+    }
+
+    /**
+     * Totals of one measurement point
+     */
+    private static class Totals {
+        private final AtomicLong executions = new AtomicLong();
+        private final AtomicLong executeNanos = new AtomicLong();
+        private final AtomicLong fetchNanos = new AtomicLong();
+        private final AtomicLong rows = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+    }
+}
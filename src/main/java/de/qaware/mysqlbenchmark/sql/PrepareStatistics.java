@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.sql;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the hits and misses of the prepared statement caches of all connections. Thread safe.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class PrepareStatistics {
+    private static final double NANOS_PER_MILLISECOND = 1000000d;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong prepares = new AtomicLong();
+    private final AtomicLong prepareNanos = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * A cached statement was reused
+     */
+    public void hit() {
+        hits.incrementAndGet();
+    }
+
+    /**
+     * A statement had to be prepared
+     *
+     * @param nanos time needed for preparing
+     */
+    public void prepared(long nanos) {
+        prepares.incrementAndGet();
+        prepareNanos.addAndGet(nanos);
+    }
+
+    /**
+     * A statement was closed to make room in the cache
+     */
+    public void evicted() {
+        evictions.incrementAndGet();
+    }
+
+    /**
+     * Number of reused statements
+     *
+     * @return hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Number of prepared statements
+     *
+     * @return prepares
+     */
+    public long getPrepares() {
+        return prepares.get();
+    }
+
+    /**
+     * Clear all counters
+     */
+    public void clear() {
+        hits.set(0);
+        prepares.set(0);
+        prepareNanos.set(0);
+        evictions.set(0);
+    }
+
+    /**
+     * Hits, prepares, hit rate, prepare time and evictions
+     *
+     * @return summary
+     */
+    public String getSummary() {
+        long total = hits.get() + prepares.get();
+        return String.format(Locale.ENGLISH,
+                "Statement cache: %d hits, %d prepares (%.1f %% hit rate), %.3f ms prepare time in total, %d evictions",
+                hits.get(), prepares.get(), total > 0 ? 100d * hits.get() / total : 0,
+                prepareNanos.get() / NANOS_PER_MILLISECOND, evictions.get());
+    }
+}
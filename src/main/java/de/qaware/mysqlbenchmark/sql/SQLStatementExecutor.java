@@ -20,44 +20,540 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 
 /**
- * Wraps the SQL connection and enabled statement execution.
+ * Wraps the SQL connection and enabled statement execution, the JDBC implementation of {@link StatementExecutor}.
  * Can be passed to {@link de.qaware.mysqlbenchmark.QueryBenchmark} to execute statements.
+ * <p/>
+ * With a statement cache, literals are extracted from the statements (see {@link StatementTemplate}) and the
+ * resulting templates are prepared on the server once and kept in a LRU cache for reuse, like an application using
+ * prepared statements would do.
+ * <p/>
+ * Writing statements can be collected in a JDBC batch with {@link #addBatch(String, StatementTemplate)} and executed
+ * together with {@link #executeBatch()}.
+ * <p/>
+ * Replayed transactions are controlled with {@link #begin()}, {@link #end(boolean)} and
+ * {@link #setAutoCommit(boolean)}, which use the transaction methods of the connection.
  *
  * @author Felix Kelm felix.kelm@qaware.de
  */
-public class SQLStatementExecutor {
+public class SQLStatementExecutor implements StatementExecutor {
     private Connection connection = null;
+    private final int statementCacheSize;
+    private final PrepareStatistics prepareStatistics;
+    private Map<String, PreparedStatement> statementCache;
+    private boolean rewriteBatchedStatements;
+    private Driver driver;
+    private Properties connectionProperties = new Properties();
+    private PreparedStatement batchStatement;
+    private String batchConnectionID;
+    private String batchTemplate;
+    private int batchCount;
+    private boolean autoCommit = true;
+    private boolean inTransaction;
+    private long transactionStart;
 
     private static final Logger LOG = LoggerFactory.getLogger(SQLStatementExecutor.class);
 
     /**
-     * Executes a sql statement. Make sure the connection is initialized first.
+     * Constructor for an executor preparing every statement with its literals.
+     */
+    public SQLStatementExecutor() {
+        this(0);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param statementCacheSize number of prepared statement templates cached per connection, 0 to prepare every
+     *                           statement with its literals
+     */
+    public SQLStatementExecutor(int statementCacheSize) {
+        this(statementCacheSize, new PrepareStatistics());
+    }
+
+    private SQLStatementExecutor(int statementCacheSize, PrepareStatistics prepareStatistics) {
+        this.statementCacheSize = statementCacheSize;
+        this.prepareStatistics = prepareStatistics;
+    }
+
+    /**
+     * Create an executor with the same settings, used for replaying on several connections. The statement cache
+     * statistics are shared with this executor.
+     *
+     * @return a new executor without connection
+     */
+    @Override
+    public SQLStatementExecutor newExecutor() {
+        SQLStatementExecutor executor = new SQLStatementExecutor(statementCacheSize, prepareStatistics);
+        executor.setRewriteBatchedStatements(rewriteBatchedStatements);
+        executor.setDriver(driver);
+        executor.setConnectionProperties(connectionProperties);
+        return executor;
+    }
+
+    /**
+     * Let the mysql driver rewrite batches into multi-value inserts or multi-statements. Takes effect for connections
+     * opened afterwards.
+     *
+     * @param rewriteBatchedStatements true to enable the rewriting
+     */
+    public void setRewriteBatchedStatements(boolean rewriteBatchedStatements) {
+        this.rewriteBatchedStatements = rewriteBatchedStatements;
+    }
+
+    /**
+     * Connect with this driver instead of the mysql driver found by the {@link DriverManager}, e.g. a driver loaded
+     * by {@link DriverLoader}. Takes effect for connections opened afterwards.
+     *
+     * @param driver the driver, null for the mysql driver
+     */
+    public void setDriver(Driver driver) {
+        this.driver = driver;
+    }
+
+    /**
+     * Additional properties of the connection, e.g. useCompression=true. They take precedence over the properties
+     * set by the executor, like useServerPrepStmts for the statement cache. Takes effect for connections opened
+     * afterwards.
+     *
+     * @param connectionProperties the properties, copied
+     */
+    public void setConnectionProperties(Properties connectionProperties) {
+        this.connectionProperties = new Properties();
+        this.connectionProperties.putAll(connectionProperties);
+    }
+
+    /**
+     * Hits and misses of the statement caches of this executor and all executors created by {@link #newExecutor()}
+     *
+     * @return statistics
+     */
+    @Override
+    public PrepareStatistics getPrepareStatistics() {
+        return prepareStatistics;
+    }
+
+    /**
+     * Check if statements are prepared as templates and cached
+     *
+     * @return true if the statement cache is used
+     */
+    @Override
+    public boolean isStatementCacheEnabled() {
+        return statementCacheSize > 0;
+    }
+
+    /**
+     * Executes any sql statement, queries as well as inserts, updates and deletes. Make sure the connection is
+     * initialized first. The result is not read.
      *
      * @param name statement string
-     * @return the result set
+     * @return true if the statement was executed, false if it failed
      */
-    public ResultSet executeStatement(String name) {
+    @Override
+    public boolean executeStatement(String name) {
+        PreparedStatement ps = null;
         try {
             // prepare statement for execution
-            PreparedStatement ps = connection.prepareStatement(name);
+            ps = prepare(name);
 
-            // execute the statement and return the result
-            return ps.executeQuery();
+            // execute the statement, the result is not needed
+            if (ps.execute()) {
+                ps.getResultSet().close();
+            }
+            return true;
         } catch (SQLException e) {
             LOG.error("Execution of statement {} failed.", name, e);
+        } finally {
+            release(ps);
+        }
+        return false;
+    }
+
+    /**
+     * Executes any sql statement and reads all of its results. Make sure the connection is initialized first.
+     * Statements without results, like inserts and updates, report the number of affected rows.
+     *
+     * @param name statement string
+     * @return execute and fetch times, rows and bytes, or null if the statement failed
+     */
+    @Override
+    public ExecutionResult executeAndFetch(String name) {
+        PreparedStatement ps = null;
+        try {
+            ps = prepare(name);
+
+            long start = System.nanoTime();
+            boolean isResultSet = ps.execute();
+            long executed = System.nanoTime();
+
+            long rows = 0;
+            long bytes = 0;
+            while (true) {
+                if (isResultSet) {
+                    ResultSet rs = ps.getResultSet();
+                    try {
+                        int columns = rs.getMetaData().getColumnCount();
+                        while (rs.next()) {
+                            rows++;
+                            for (int i = 1; i <= columns; i++) {
+                                byte[] value = rs.getBytes(i);
+                                bytes += value == null ? 0 : value.length;
+                            }
+                        }
+                    } finally {
+                        rs.close();
+                    }
+                } else {
+                    int updateCount = ps.getUpdateCount();
+                    if (updateCount == -1) {
+                        break;
+                    }
+                    rows += updateCount;
+                }
+                isResultSet = ps.getMoreResults();
+            }
+            return new ExecutionResult(executed - start, System.nanoTime() - executed, rows, bytes);
+        } catch (SQLException e) {
+            LOG.error("Execution of statement {} failed.", name, e);
+        } finally {
+            release(ps);
         }
         return null;
     }
 
+    /**
+     * Start a transaction. The connection stays in the transaction until {@link #end(boolean)} is called.
+     *
+     * @return true if the transaction was started, false if it failed
+     */
+    @Override
+    public boolean begin() {
+        try {
+            if (autoCommit) {
+                connection.setAutoCommit(false);
+            }
+            inTransaction = true;
+            transactionStart = System.nanoTime();
+            return true;
+        } catch (SQLException e) {
+            LOG.error("Starting a transaction failed.", e);
+        }
+        return false;
+    }
+
+    /**
+     * Commit or roll back the running transaction. Afterwards the connection is back in the autocommit mode set by
+     * {@link #setAutoCommit(boolean)}.
+     *
+     * @param commit true to commit, false to roll back
+     * @return true if the transaction was ended, false if it failed
+     */
+    @Override
+    public boolean end(boolean commit) {
+        inTransaction = false;
+        try {
+            if (commit) {
+                connection.commit();
+            } else {
+                connection.rollback();
+            }
+            return true;
+        } catch (SQLException e) {
+            LOG.error(commit ? "Commit failed." : "Rollback failed.", e);
+        } finally {
+            restoreAutoCommit();
+        }
+        return false;
+    }
+
+    /**
+     * Switch the connection back to autocommit after a transaction if needed.
+     */
+    private void restoreAutoCommit() {
+        if (!autoCommit) {
+            return;
+        }
+        try {
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            LOG.warn("Could not switch back to autocommit.", e);
+        }
+    }
+
+    /**
+     * Set the autocommit mode of the connection, like SET autocommit does. End a running transaction first.
+     *
+     * @param autoCommit false to start a transaction with every statement after a commit or rollback
+     * @return true if the mode was changed, false if it failed
+     */
+    @Override
+    public boolean setAutoCommit(boolean autoCommit) {
+        try {
+            connection.setAutoCommit(autoCommit);
+            this.autoCommit = autoCommit;
+            return true;
+        } catch (SQLException e) {
+            LOG.error("Changing autocommit failed.", e);
+        }
+        return false;
+    }
+
+    /**
+     * Autocommit mode of the connection
+     *
+     * @return true if every statement is committed on its own outside of transactions
+     */
+    @Override
+    public boolean isAutoCommit() {
+        return autoCommit;
+    }
+
+    /**
+     * Check if a transaction is running
+     *
+     * @return true between {@link #begin()} and {@link #end(boolean)}
+     */
+    @Override
+    public boolean isInTransaction() {
+        return inTransaction;
+    }
+
+    /**
+     * Start time of the running transaction
+     *
+     * @return time comparable to {@link System#nanoTime()}
+     */
+    @Override
+    public long getTransactionStart() {
+        return transactionStart;
+    }
+
+    /**
+     * Check if a statement can be added to the pending batch: there is no pending batch, or the pending batch holds
+     * statements of the same logged connection with the same template.
+     *
+     * @param connectionID id of the logged connection the statement belongs to
+     * @param template     template of the statement
+     * @return true if the statement fits into the pending batch
+     */
+    @Override
+    public boolean isBatchCompatible(String connectionID, StatementTemplate template) {
+        return batchStatement == null || (template.getTemplate().equals(batchTemplate)
+                && (connectionID == null ? batchConnectionID == null : connectionID.equals(batchConnectionID)));
+    }
+
+    /**
+     * Add a statement to the pending batch, which is created if needed. Make sure the statement is compatible with
+     * the pending batch, see {@link #isBatchCompatible(String, StatementTemplate)}.
+     *
+     * @param connectionID id of the logged connection the statement belongs to
+     * @param template     template of the statement with its bind values
+     * @return true if the statement was added, false if it failed
+     */
+    @Override
+    public boolean addBatch(String connectionID, StatementTemplate template) {
+        try {
+            if (batchStatement == null) {
+                batchStatement = prepareTemplate(template.getTemplate());
+                batchConnectionID = connectionID;
+                batchTemplate = template.getTemplate();
+            }
+            bind(batchStatement, template.getBinds());
+            batchStatement.addBatch();
+            batchCount++;
+            return true;
+        } catch (SQLException e) {
+            LOG.error("Adding statement {} to the batch failed.", template.getTemplate(), e);
+        }
+        return false;
+    }
+
+    /**
+     * Number of statements in the pending batch
+     *
+     * @return statements, 0 if there is no pending batch
+     */
+    @Override
+    public int getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * Template of the statements in the pending batch
+     *
+     * @return template, null if there is no pending batch
+     */
+    @Override
+    public String getBatchTemplate() {
+        return batchTemplate;
+    }
+
+    /**
+     * Execute the pending batch. Afterwards there is no pending batch.
+     *
+     * @return rows written by the batch, -1 if the batch failed. Statements the driver reports without a row count,
+     * e.g. in rewritten batches, are counted as one row.
+     */
+    @Override
+    public long executeBatch() {
+        PreparedStatement ps = batchStatement;
+        batchStatement = null;
+        batchConnectionID = null;
+        batchTemplate = null;
+        batchCount = 0;
+        if (ps == null) {
+            return 0;
+        }
+
+        try {
+            long rows = 0;
+            for (int updateCount : ps.executeBatch()) {
+                if (updateCount >= 0) {
+                    rows += updateCount;
+                } else if (updateCount == Statement.SUCCESS_NO_INFO) {
+                    rows++;
+                }
+            }
+            return rows;
+        } catch (SQLException e) {
+            LOG.error("Execution of batch failed.", e);
+            clearBatch(ps);
+        } finally {
+            release(ps);
+        }
+        return -1;
+    }
+
+    /**
+     * Discard the remaining statements of a failed batch, so a cached statement can be reused.
+     *
+     * @param statement the statement
+     */
+    private void clearBatch(Statement statement) {
+        if (statementCache == null) {
+            return;
+        }
+        try {
+            statement.clearBatch();
+        } catch (SQLException e) {
+            LOG.warn("Could not clear batch.", e);
+        }
+    }
+
+    /**
+     * Prepare a statement for execution. With a statement cache, the template of the statement is taken from the
+     * cache or prepared and cached, and the literals are bound.
+     *
+     * @param name statement string
+     * @return the statement ready for execution
+     * @throws SQLException
+     */
+    private PreparedStatement prepare(String name) throws SQLException {
+        if (statementCache == null) {
+            return connection.prepareStatement(name);
+        }
+
+        StatementTemplate template = StatementTemplate.parse(name);
+        PreparedStatement ps = prepareTemplate(template.getTemplate());
+        bind(ps, template.getBinds());
+        return ps;
+    }
+
+    /**
+     * Prepare a statement template. With a statement cache, the template is taken from the cache or prepared and
+     * cached.
+     *
+     * @param template statement with placeholders
+     * @return the statement without bound values
+     * @throws SQLException
+     */
+    private PreparedStatement prepareTemplate(String template) throws SQLException {
+        if (statementCache == null) {
+            return connection.prepareStatement(template);
+        }
+
+        PreparedStatement ps = statementCache.get(template);
+        if (ps == null) {
+            long start = System.nanoTime();
+            ps = connection.prepareStatement(template);
+            prepareStatistics.prepared(System.nanoTime() - start);
+            statementCache.put(template, ps);
+        } else {
+            prepareStatistics.hit();
+        }
+        return ps;
+    }
+
+    /**
+     * Bind values to the placeholders of a statement
+     *
+     * @param ps    the statement
+     * @param binds values in placeholder order
+     * @throws SQLException
+     */
+    private static void bind(PreparedStatement ps, List<Object> binds) throws SQLException {
+        for (int i = 0; i < binds.size(); i++) {
+            ps.setObject(i + 1, binds.get(i));
+        }
+    }
+
+    /**
+     * Close a statement after execution unless it is kept in the statement cache.
+     *
+     * @param statement the statement, may be null
+     */
+    private void release(Statement statement) {
+        if (statementCache == null) {
+            close(statement);
+        }
+    }
+
+    /**
+     * Close a statement, failures are logged only.
+     *
+     * @param statement the statement, may be null
+     */
+    private static void close(Statement statement) {
+        if (statement == null) {
+            return;
+        }
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            LOG.warn("Could not close statement.", e);
+        }
+    }
+
     /**
      * Close the connection if no longer needed
      *
      * @throws SQLException
      */
+    @Override
     public void closeConnection() throws SQLException {
-        connection.close();
+        if (batchStatement != null) {
+            LOG.warn("Discarding a batch of {} statements which was not executed.", batchCount);
+            release(batchStatement);
+            batchStatement = null;
+            batchConnectionID = null;
+            batchTemplate = null;
+            batchCount = 0;
+        }
+        if (statementCache != null) {
+            for (PreparedStatement ps : statementCache.values()) {
+                close(ps);
+            }
+            statementCache.clear();
+        }
+        if (connection != null) {
+            connection.close();
+        }
     }
 
     /**
@@ -68,22 +564,49 @@ public class SQLStatementExecutor {
      * @param password         mysql password
      * @throws SQLException
      */
+    @Override
     public void initConnection(String connectionString, String username, String password) throws SQLException {
         LOG.info("-------- Opening MySQL JDBC Connection ------------");
 
-        try {
-            // load jdbc driver
-            Class.forName("com.mysql.jdbc.Driver");
-        } catch (ClassNotFoundException e) {
-            LOG.error("Where is your MySQL JDBC Driver?", e);
-            return;
-        }
+        if (driver == null) {
+            try {
+                // load jdbc driver
+                Class.forName(DriverLoader.MYSQL_DRIVER_CLASS);
+            } catch (ClassNotFoundException e) {
+                LOG.error("Where is your MySQL JDBC Driver?", e);
+                return;
+            }
 
-        LOG.info("MySQL JDBC Driver found!");
+            LOG.info("MySQL JDBC Driver found!");
+        }
 
         try {
-            // open new connection
-            connection = DriverManager.getConnection(connectionString, username, password);
+            // open new connection, cached statements are prepared on the server
+            Properties properties = new Properties();
+            if (username != null) {
+                properties.setProperty("user", username);
+            }
+            if (password != null) {
+                properties.setProperty("password", password);
+            }
+            if (isStatementCacheEnabled()) {
+                properties.setProperty("useServerPrepStmts", "true");
+                statementCache = createStatementCache();
+            }
+            if (rewriteBatchedStatements) {
+                properties.setProperty("rewriteBatchedStatements", "true");
+            }
+            properties.putAll(connectionProperties);
+            if (driver == null) {
+                connection = DriverManager.getConnection(connectionString, properties);
+            } else {
+                // drivers of other class loaders are not accessible through the DriverManager
+                connection = driver.connect(connectionString, properties);
+                if (connection == null) {
+                    throw new SQLException("The driver " + DriverLoader.describe(driver) + " does not accept the url "
+                            + connectionString);
+                }
+            }
         } catch (SQLException e) {
             LOG.error("SQL connection failed!", e);
             throw e;
@@ -91,4 +614,23 @@ public class SQLStatementExecutor {
 
         LOG.info("Connection established.");
     }
+
+    /**
+     * Create a LRU cache which closes the least recently used statement when it is full.
+     *
+     * @return statements by template
+     */
+    private Map<String, PreparedStatement> createStatementCache() {
+        return new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= statementCacheSize) {
+                    return false;
+                }
+                close(eldest.getValue());
+                prepareStatistics.evicted();
+                return true;
+            }
+        };
+    }
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.sql;
+
+import java.sql.SQLException;
+
+/**
+ * Executes the replayed statements for {@link de.qaware.mysqlbenchmark.QueryBenchmark}. An executor wraps one
+ * connection and is used by one thread at a time, executors for further connections are created with
+ * {@link #newExecutor()}.
+ * <p/>
+ * {@link SQLStatementExecutor} executes the statements on a mysql server through JDBC,
+ * {@link de.qaware.mysqlbenchmark.simulation.SimulatedExecutor} simulates a database in-process and
+ * {@link de.qaware.mysqlbenchmark.routing.RoutingExecutor} splits reads and writes over the executors of several
+ * endpoints.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public interface StatementExecutor {
+
+    /**
+     * Create an executor with the same settings, used for replaying on several connections. Statistics are shared
+     * with this executor.
+     *
+     * @return a new executor without connection
+     */
+    StatementExecutor newExecutor();
+
+    /**
+     * Open the connection
+     *
+     * @param connectionString where to connect to
+     * @param username         username
+     * @param password         password
+     * @throws SQLException if the connection can't be opened
+     */
+    void initConnection(String connectionString, String username, String password) throws SQLException;
+
+    /**
+     * Close the connection if no longer needed. A pending batch is discarded.
+     *
+     * @throws SQLException if the connection can't be closed
+     */
+    void closeConnection() throws SQLException;
+
+    /**
+     * Hits and misses of the statement caches of this executor and all executors created by {@link #newExecutor()}
+     *
+     * @return statistics
+     */
+    PrepareStatistics getPrepareStatistics();
+
+    /**
+     * Check if statements are prepared as templates and cached
+     *
+     * @return true if the statement cache is used
+     */
+    boolean isStatementCacheEnabled();
+
+    /**
+     * Executes a statement. Make sure the connection is initialized first. The result is not read.
+     *
+     * @param name statement string
+     * @return true if the statement was executed, false if it failed
+     */
+    boolean executeStatement(String name);
+
+    /**
+     * Executes any statement and reads all of its results. Make sure the connection is initialized first.
+     * Statements without results, like inserts and updates, report the number of affected rows.
+     *
+     * @param name statement string
+     * @return execute and fetch times, rows and bytes, or null if the statement failed
+     */
+    ExecutionResult executeAndFetch(String name);
+
+    /**
+     * Start a transaction. The connection stays in the transaction until {@link #end(boolean)} is called.
+     *
+     * @return true if the transaction was started, false if it failed
+     */
+    boolean begin();
+
+    /**
+     * Commit or roll back the running transaction. Afterwards the connection is back in the autocommit mode set by
+     * {@link #setAutoCommit(boolean)}.
+     *
+     * @param commit true to commit, false to roll back
+     * @return true if the transaction was ended, false if it failed
+     */
+    boolean end(boolean commit);
+
+    /**
+     * Set the autocommit mode of the connection, like SET autocommit does. End a running transaction first.
+     *
+     * @param autoCommit false to start a transaction with every statement after a commit or rollback
+     * @return true if the mode was changed, false if it failed
+     */
+    boolean setAutoCommit(boolean autoCommit);
+
+    /**
+     * Autocommit mode of the connection
+     *
+     * @return true if every statement is committed on its own outside of transactions
+     */
+    boolean isAutoCommit();
+
+    /**
+     * Check if a transaction is running
+     *
+     * @return true between {@link #begin()} and {@link #end(boolean)}
+     */
+    boolean isInTransaction();
+
+    /**
+     * Start time of the running transaction
+     *
+     * @return time comparable to {@link System#nanoTime()}
+     */
+    long getTransactionStart();
+
+    /**
+     * Check if a statement can be added to the pending batch: there is no pending batch, or the pending batch holds
+     * statements of the same logged connection with the same template.
+     *
+     * @param connectionID id of the logged connection the statement belongs to
+     * @param template     template of the statement
+     * @return true if the statement fits into the pending batch
+     */
+    boolean isBatchCompatible(String connectionID, StatementTemplate template);
+
+    /**
+     * Add a statement to the pending batch, which is created if needed. Make sure the statement is compatible with
+     * the pending batch, see {@link #isBatchCompatible(String, StatementTemplate)}.
+     *
+     * @param connectionID id of the logged connection the statement belongs to
+     * @param template     template of the statement with its bind values
+     * @return true if the statement was added, false if it failed
+     */
+    boolean addBatch(String connectionID, StatementTemplate template);
+
+    /**
+     * Number of statements in the pending batch
+     *
+     * @return statements, 0 if there is no pending batch
+     */
+    int getBatchCount();
+
+    /**
+     * Template of the statements in the pending batch
+     *
+     * @return template, null if there is no pending batch
+     */
+    String getBatchTemplate();
+
+    /**
+     * Execute the pending batch. Afterwards there is no pending batch.
+     *
+     * @return rows written by the batch, -1 if the batch failed
+     */
+    long executeBatch();
+}
@@ -0,0 +1,415 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.sql;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A statement split into a template with '?' placeholders and the literal values to bind to them, the way an
+ * application using prepared statements would have sent it. Only string and number literals of SELECT, INSERT,
+ * UPDATE, DELETE and REPLACE statements are extracted. Literals which can not be bound, like hex and bit values,
+ * strings with a character set introducer, typed literals like DATE '2014-01-01', positional ORDER BY / GROUP BY
+ * columns and everything inside comments, stay in the template. Adjacent strings, which mysql concatenates, are one
+ * literal.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public final class StatementTemplate {
+    /**
+     * mysql does not accept more placeholders in one statement
+     */
+    private static final int MAX_BINDS = 65535;
+
+    /**
+     * Keywords ending an ORDER BY or GROUP BY clause
+     */
+    private static final Set<String> CLAUSES_AFTER_BY = new HashSet<String>(Arrays.asList(
+            "having", "limit", "with", "window", "for", "lock", "into", "union", "procedure"));
+
+    private final String template;
+    private final List<Object> binds;
+
+    private StatementTemplate(String template, List<Object> binds) {
+        this.template = template;
+        this.binds = binds;
+    }
+
+    /**
+     * The statement with '?' for every extracted literal
+     *
+     * @return template
+     */
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * The extracted literals in placeholder order: strings as String, integers as Long, decimals as BigDecimal and
+     * numbers with exponent as Double.
+     *
+     * @return bind values
+     */
+    public List<Object> getBinds() {
+        return binds;
+    }
+
+    /**
+     * Split a statement into template and bind values.
+     *
+     * @param sql the statement as logged
+     * @return the template, the unchanged statement without binds if no literals can be extracted
+     */
+    public static StatementTemplate parse(String sql) {
+        if (!isDml(sql)) {
+            return new StatementTemplate(sql, Collections.emptyList());
+        }
+
+        StringBuilder template = new StringBuilder(sql.length());
+        List<Object> binds = new ArrayList<Object>();
+        String lastWord = null;
+        // paren depth of the ORDER BY or GROUP BY clause, -1 outside of it
+        int depth = 0;
+        int byDepth = -1;
+        // template length behind the placeholder of the last string
+        int stringEnd = -1;
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            boolean afterIdentifier = i > 0 && isIdentifierPart(sql.charAt(i - 1));
+
+            if ((c == '\'' || c == '"') && !afterIdentifier && !endsWithTypeName(template)) {
+                StringBuilder value = new StringBuilder();
+                i = readString(sql, i, value);
+                if (stringEnd >= 0 && template.substring(stringEnd).trim().isEmpty()) {
+                    // 'a' 'b' is the same literal as 'ab'
+                    template.setLength(stringEnd);
+                    binds.set(binds.size() - 1, binds.get(binds.size() - 1) + value.toString());
+                } else {
+                    template.append('?');
+                    binds.add(value.toString());
+                }
+                stringEnd = template.length();
+                continue;
+            } else if (c == '\'' || c == '"' || c == '`') {
+                // quoted identifier or string with introducer like _utf8'...' or X'...'
+                int end = skipQuoted(sql, i);
+                template.append(sql, i, end);
+                i = end;
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                end = end < 0 ? length : end + 2;
+                template.append(sql, i, end);
+                i = end;
+            } else if (c == '#' || (c == '-' && sql.startsWith("-- ", i))) {
+                int end = sql.indexOf('\n', i);
+                end = end < 0 ? length : end;
+                template.append(sql, i, end);
+                i = end;
+            } else if (!afterIdentifier && (isDigit(c) || (c == '.' && i + 1 < length && isDigit(sql.charAt(i + 1))))) {
+                int end = readNumber(sql, i);
+                String number = sql.substring(i, end);
+                boolean positional = depth == byDepth && (endsWith(template, ",") || endsWith(template, "by"));
+                if ((end < length && isIdentifierPart(sql.charAt(end))) || isHexOrBit(number) || positional) {
+                    // identifier starting with digits, hex or bit literal, or positional column
+                    while (end < length && isIdentifierPart(sql.charAt(end))) {
+                        end++;
+                    }
+                    template.append(sql, i, end);
+                } else {
+                    template.append('?');
+                    binds.add(toNumber(number));
+                }
+                i = end;
+            } else if (isIdentifierPart(c)) {
+                int end = i;
+                while (end < length && isIdentifierPart(sql.charAt(end))) {
+                    end++;
+                }
+                String word = sql.substring(i, end).toLowerCase();
+                if ("by".equals(word) && ("order".equals(lastWord) || "group".equals(lastWord))) {
+                    byDepth = depth;
+                } else if (CLAUSES_AFTER_BY.contains(word)) {
+                    byDepth = -1;
+                }
+                lastWord = word;
+                template.append(sql, i, end);
+                i = end;
+            } else {
+                if (c == '(') {
+                    depth++;
+                } else if (c == ')' && --depth < byDepth) {
+                    byDepth = -1;
+                }
+                template.append(c);
+                i++;
+            }
+            stringEnd = Character.isWhitespace(c) ? stringEnd : -1;
+        }
+
+        if (binds.isEmpty() || binds.size() > MAX_BINDS) {
+            return new StatementTemplate(sql, Collections.emptyList());
+        }
+        return new StatementTemplate(template.toString(), binds);
+    }
+
+    /**
+     * Check if the statement is a SELECT, INSERT, UPDATE, DELETE or REPLACE. Other statements, like DDL, do not
+     * accept placeholders.
+     *
+     * @param sql the statement
+     * @return true if literals may be replaced by placeholders
+     */
+    private static boolean isDml(String sql) {
+        String keyword = getKeyword(sql);
+        return "select".equals(keyword) || isWriteKeyword(keyword);
+    }
+
+    /**
+     * Check if the statement is an INSERT, UPDATE, DELETE or REPLACE, which can be executed in a JDBC batch.
+     *
+     * @param sql the statement
+     * @return true if the statement writes rows
+     */
+    public static boolean isWrite(String sql) {
+        return isWriteKeyword(getKeyword(sql));
+    }
+
+    /**
+     * Check if the keyword starts an INSERT, UPDATE, DELETE or REPLACE statement
+     *
+     * @param keyword first keyword of a statement in lower case
+     * @return true if the keyword starts a statement writing rows
+     */
+    private static boolean isWriteKeyword(String keyword) {
+        return "insert".equals(keyword) || "update".equals(keyword) || "delete".equals(keyword)
+                || "replace".equals(keyword);
+    }
+
+    /**
+     * The first keyword of a statement, skipping leading whitespace and parentheses
+     *
+     * @param sql the statement
+     * @return keyword in lower case, empty if the statement does not start with a letter
+     */
+    private static String getKeyword(String sql) {
+        int start = 0;
+        while (start < sql.length() && (Character.isWhitespace(sql.charAt(start)) || sql.charAt(start) == '(')) {
+            start++;
+        }
+        int end = start;
+        while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+            end++;
+        }
+        return sql.substring(start, end).toLowerCase();
+    }
+
+    /**
+     * Read a quoted string starting at the given position and resolve its escape sequences.
+     *
+     * @param sql   the statement
+     * @param start position of the opening quote
+     * @param value receives the unescaped value
+     * @return position after the closing quote
+     */
+    private static int readString(String sql, int start, StringBuilder value) {
+        char quote = sql.charAt(start);
+        int i = start + 1;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\\' && i + 1 < sql.length()) {
+                value.append(unescape(sql.charAt(i + 1)));
+                i += 2;
+            } else if (c == quote && i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                value.append(quote);
+                i += 2;
+            } else if (c == quote) {
+                return i + 1;
+            } else {
+                value.append(c);
+                i++;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * The value of a backslash escape sequence. Unknown sequences stand for the character itself, except \% and \_
+     * which keep the backslash for LIKE patterns.
+     *
+     * @param c the character following the backslash
+     * @return the unescaped value
+     */
+    private static String unescape(char c) {
+        switch (c) {
+            case '0':
+                return "\0";
+            case 'b':
+                return "\b";
+            case 'n':
+                return "\n";
+            case 'r':
+                return "\r";
+            case 't':
+                return "\t";
+            case 'Z':
+                return "\032";
+            case '%':
+                return "\\%";
+            case '_':
+                return "\\_";
+            default:
+                return String.valueOf(c);
+        }
+    }
+
+    /**
+     * Skip a quoted string or identifier without resolving it.
+     *
+     * @param sql   the statement
+     * @param start position of the opening quote
+     * @return position after the closing quote
+     */
+    private static int skipQuoted(String sql, int start) {
+        char quote = sql.charAt(start);
+        int i = start + 1;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\\' && quote != '`') {
+                i += 2;
+            } else if (c == quote && i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                i += 2;
+            } else if (c == quote) {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return Math.min(i, sql.length());
+    }
+
+    /**
+     * Read a number: digits with optional fraction and exponent, or a hex or bit literal.
+     *
+     * @param sql   the statement
+     * @param start position of the first digit or the decimal point
+     * @return position after the number
+     */
+    private static int readNumber(String sql, int start) {
+        int i = start;
+        int length = sql.length();
+        if (sql.startsWith("0x", i) || sql.startsWith("0X", i) || sql.startsWith("0b", i) || sql.startsWith("0B", i)) {
+            i += 2;
+            while (i < length && Character.isLetterOrDigit(sql.charAt(i))) {
+                i++;
+            }
+            return i;
+        }
+        while (i < length && isDigit(sql.charAt(i))) {
+            i++;
+        }
+        if (i < length && sql.charAt(i) == '.') {
+            i++;
+            while (i < length && isDigit(sql.charAt(i))) {
+                i++;
+            }
+        }
+        if (i + 1 < length && (sql.charAt(i) == 'e' || sql.charAt(i) == 'E')) {
+            int exponent = i + 1;
+            if (sql.charAt(exponent) == '+' || sql.charAt(exponent) == '-') {
+                exponent++;
+            }
+            if (exponent < length && isDigit(sql.charAt(exponent))) {
+                i = exponent;
+                while (i < length && isDigit(sql.charAt(i))) {
+                    i++;
+                }
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Convert a number literal to the matching java type.
+     *
+     * @param number the literal
+     * @return Long, BigDecimal or Double
+     */
+    private static Object toNumber(String number) {
+        if (number.indexOf('e') >= 0 || number.indexOf('E') >= 0) {
+            return Double.valueOf(number);
+        } else if (number.indexOf('.') >= 0) {
+            return new BigDecimal(number);
+        }
+        try {
+            return Long.valueOf(number);
+        } catch (NumberFormatException e) {
+            // exceeds the long range
+            return new BigDecimal(number);
+        }
+    }
+
+    /**
+     * Check if the template ends with a token, ignoring trailing whitespace. Words must not be the end of a longer
+     * identifier.
+     *
+     * @param template the template so far
+     * @param token    a word in lower case or a single character
+     * @return true if the last token of the template equals the token
+     */
+    private static boolean endsWith(StringBuilder template, String token) {
+        int end = template.length();
+        while (end > 0 && Character.isWhitespace(template.charAt(end - 1))) {
+            end--;
+        }
+        int start = end - token.length();
+        if (start < 0 || !template.substring(start, end).equalsIgnoreCase(token)) {
+            return false;
+        }
+        return !isIdentifierPart(token.charAt(0)) || start == 0 || !isIdentifierPart(template.charAt(start - 1));
+    }
+
+    /**
+     * Check if the template ends with the type of a typed literal like DATE '2014-01-01'
+     *
+     * @param template the template so far
+     * @return true if a following string is the value of a typed literal
+     */
+    private static boolean endsWithTypeName(StringBuilder template) {
+        return endsWith(template, "date") || endsWith(template, "time") || endsWith(template, "timestamp");
+    }
+
+    private static boolean isHexOrBit(String number) {
+        return number.length() > 1 && (number.charAt(1) == 'x' || number.charAt(1) == 'X'
+                || number.charAt(1) == 'b' || number.charAt(1) == 'B') && number.charAt(0) == '0';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+}
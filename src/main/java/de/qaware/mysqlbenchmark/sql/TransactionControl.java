@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.sql;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Statements which control transactions instead of accessing data. They are replayed with the transaction methods
+ * of the JDBC connection, so the driver keeps track of the transaction state.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public enum TransactionControl {
+    /**
+     * BEGIN [WORK] or START TRANSACTION, commits a running transaction implicitly
+     */
+    BEGIN,
+    /**
+     * COMMIT [WORK]
+     */
+    COMMIT,
+    /**
+     * ROLLBACK [WORK], but not ROLLBACK TO SAVEPOINT
+     */
+    ROLLBACK,
+    /**
+     * SET autocommit=1, commits a running transaction implicitly
+     */
+    AUTOCOMMIT_ON,
+    /**
+     * SET autocommit=0, every statement starts a transaction until it is committed or rolled back
+     */
+    AUTOCOMMIT_OFF,
+    /**
+     * Any other statement
+     */
+    NONE;
+
+    private static final Pattern BEGIN_PATTERN = Pattern.compile(
+            "^\\s*(begin(\\s+work)?|start\\s+transaction\\b[^;]*)\\s*;?\\s*$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern COMMIT_PATTERN = Pattern.compile(
+            "^\\s*commit(\\s+work)?\\s*;?\\s*$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ROLLBACK_PATTERN = Pattern.compile(
+            "^\\s*rollback(\\s+work)?\\s*;?\\s*$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern AUTOCOMMIT_PATTERN = Pattern.compile(
+            "^\\s*set\\s+(session\\s+|@@(session\\.)?)?autocommit\\s*=\\s*(0|1|on|off|true|false)\\s*;?\\s*$",
+            Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Classify a statement. Only statements starting with b, s, c or r are matched against the patterns.
+     *
+     * @param sql the statement
+     * @return the kind of transaction control, {@link #NONE} for all other statements
+     */
+    public static TransactionControl of(String sql) {
+        int start = 0;
+        while (start < sql.length() && Character.isWhitespace(sql.charAt(start))) {
+            start++;
+        }
+        if (start == sql.length()) {
+            return NONE;
+        }
+
+        switch (Character.toLowerCase(sql.charAt(start))) {
+            case 'b':
+                return BEGIN_PATTERN.matcher(sql).matches() ? BEGIN : NONE;
+            case 's':
+                if (BEGIN_PATTERN.matcher(sql).matches()) {
+                    return BEGIN;
+                }
+                Matcher matcher = AUTOCOMMIT_PATTERN.matcher(sql);
+                if (!matcher.matches()) {
+                    return NONE;
+                }
+                String value = matcher.group(3).toLowerCase();
+                return "1".equals(value) || "on".equals(value) || "true".equals(value) ? AUTOCOMMIT_ON : AUTOCOMMIT_OFF;
+            case 'c':
+                return COMMIT_PATTERN.matcher(sql).matches() ? COMMIT : NONE;
+            case 'r':
+                return ROLLBACK_PATTERN.matcher(sql).matches() ? ROLLBACK : NONE;
+            default:
+                return NONE;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.sql;
+
+import de.qaware.mysqlbenchmark.histogram.LatencyHistogram;
+import de.qaware.mysqlbenchmark.histogram.LatencyStatistics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the replayed transactions of all connections with their latency from begin to the end of the commit and
+ * the latency of the commit itself. Transactions which the tool ended without a commit or rollback in the log are
+ * counted as well, but also on their own. Thread safe.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class TransactionStatistics {
+    private final AtomicLong committed = new AtomicLong();
+    private final AtomicLong rolledBack = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong implicit = new AtomicLong();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram commitLatency = new LatencyHistogram();
+
+    /**
+     * A transaction was committed
+     *
+     * @param nanos       time from the begin of the transaction to the end of the commit
+     * @param commitNanos time of the commit
+     */
+    public void committed(long nanos, long commitNanos) {
+        committed.incrementAndGet();
+        latency.record(nanos);
+        commitLatency.record(commitNanos);
+    }
+
+    /**
+     * A transaction was rolled back
+     */
+    public void rolledBack() {
+        rolledBack.incrementAndGet();
+    }
+
+    /**
+     * The commit or rollback of a transaction failed
+     */
+    public void failed() {
+        failed.incrementAndGet();
+    }
+
+    /**
+     * A transaction was committed or rolled back by the tool, because a statement of the log ended it implicitly
+     * or because its session ended. Counted in addition to {@link #committed}, {@link #rolledBack} or {@link #failed}.
+     */
+    public void endedImplicitly() {
+        implicit.incrementAndGet();
+    }
+
+    /**
+     * Number of transactions ended by the tool without a commit or rollback in the log
+     *
+     * @return transactions
+     */
+    public long getEndedImplicitly() {
+        return implicit.get();
+    }
+
+    /**
+     * Number of committed transactions
+     *
+     * @return transactions
+     */
+    public long getCommitted() {
+        return committed.get();
+    }
+
+    /**
+     * Number of transactions which were committed, rolled back or failed
+     *
+     * @return transactions
+     */
+    public long getTransactions() {
+        return committed.get() + rolledBack.get() + failed.get();
+    }
+
+    /**
+     * Latency of the committed transactions from their begin to the end of the commit
+     *
+     * @return histogram with nanosecond values
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Latency of the commits
+     *
+     * @return histogram with nanosecond values
+     */
+    public LatencyHistogram getCommitLatency() {
+        return commitLatency;
+    }
+
+    /**
+     * Clear all counters
+     */
+    public void clear() {
+        committed.set(0);
+        rolledBack.set(0);
+        failed.set(0);
+        implicit.set(0);
+        latency.reset();
+        commitLatency.reset();
+    }
+
+    /**
+     * Committed transactions per second, rollbacks, failures, implicit ends and the percentiles of transaction and
+     * commit latency
+     *
+     * @param seconds duration of the run
+     * @return summary
+     */
+    public String getSummary(double seconds) {
+        return String.format(Locale.ENGLISH, "Transactions: %d committed (%.1f transactions/s), %d rolled back, %d"
+                        + " failed, %d of them ended implicitly (not counted as executed statements)", committed.get(),
+                seconds > 0 ? committed.get() / seconds : 0, rolledBack.get(), failed.get(), implicit.get())
+                + System.getProperty("line.separator") + LatencyStatistics.format("Transaction latency", latency)
+                + System.getProperty("line.separator") + LatencyStatistics.format("Commit latency", commitLatency);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.stats;
+
+import java.util.List;
+
+/**
+ * Mean and 95% confidence interval of a small sample, based on the Student t-distribution.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public final class ConfidenceInterval {
+    /**
+     * Two-sided 95% quantiles of the t-distribution for 1 to 30 degrees of freedom
+     */
+    private static final double[] T_95 = {12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+            2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+            2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+    private static final double Z_95 = 1.960;
+
+    private final int count;
+    private final double mean;
+    private final double standardDeviation;
+    private final double halfWidth;
+
+    private ConfidenceInterval(int count, double mean, double standardDeviation, double halfWidth) {
+        this.count = count;
+        this.mean = mean;
+        this.standardDeviation = standardDeviation;
+        this.halfWidth = halfWidth;
+    }
+
+    /**
+     * Compute the mean and its 95% confidence interval.
+     *
+     * @param values the sample, e.g. one value per iteration
+     * @return the interval, with a half width of 0 if there are less than two values
+     */
+    public static ConfidenceInterval of(List<Double> values) {
+        int n = values.size();
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        double mean = n > 0 ? sum / n : 0;
+        if (n < 2) {
+            return new ConfidenceInterval(n, mean, 0, 0);
+        }
+
+        double squares = 0;
+        for (double value : values) {
+            squares += (value - mean) * (value - mean);
+        }
+        double standardDeviation = Math.sqrt(squares / (n - 1));
+        return new ConfidenceInterval(n, mean, standardDeviation, tQuantile(n - 1) * standardDeviation / Math.sqrt(n));
+    }
+
+    /**
+     * Two-sided 95% quantile of the t-distribution
+     *
+     * @param degreesOfFreedom degrees of freedom, at least 1
+     * @return quantile, the normal quantile above 30 degrees of freedom
+     */
+    public static double tQuantile(int degreesOfFreedom) {
+        return degreesOfFreedom <= T_95.length ? T_95[degreesOfFreedom - 1] : Z_95;
+    }
+
+    /**
+     * Number of values in the sample
+     *
+     * @return count
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Mean of the sample
+     *
+     * @return mean
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * Sample standard deviation
+     *
+     * @return standard deviation, 0 for less than two values
+     */
+    public double getStandardDeviation() {
+        return standardDeviation;
+    }
+
+    /**
+     * Distance of the interval bounds from the mean
+     *
+     * @return half width
+     */
+    public double getHalfWidth() {
+        return halfWidth;
+    }
+
+    /**
+     * Lower bound of the interval
+     *
+     * @return mean - half width
+     */
+    public double getLower() {
+        return mean - halfWidth;
+    }
+
+    /**
+     * Upper bound of the interval
+     *
+     * @return mean + half width
+     */
+    public double getUpper() {
+        return mean + halfWidth;
+    }
+
+    /**
+     * Half width relative to the mean
+     *
+     * @return half width in percent of the mean, 0 if the mean is 0
+     */
+    public double getRelativeHalfWidth() {
+        return mean != 0 ? 100 * halfWidth / Math.abs(mean) : 0;
+    }
+}
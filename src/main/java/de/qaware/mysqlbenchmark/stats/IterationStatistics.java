@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.stats;
+
+import de.qaware.mysqlbenchmark.jetm.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects the results of repeated measured iterations and combines them into the mean and 95% confidence interval
+ * of every statement's average latency and of the throughput.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class IterationStatistics {
+    private static final String[] HEADLINES =
+            {"Measurement Point", "Iterations", "Mean", "Std Dev", "CI Lower", "CI Upper", "CI +/- %"};
+
+    private final List<Map<String, Double>> iterations = new ArrayList<Map<String, Double>>();
+    private final List<Double> throughputs = new ArrayList<Double>();
+
+    /**
+     * Add the results of one iteration.
+     *
+     * @param meanLatencies average latency in milliseconds by measurement point
+     * @param throughput    statements per second
+     */
+    public void addIteration(Map<String, Double> meanLatencies, double throughput) {
+        iterations.add(meanLatencies);
+        throughputs.add(throughput);
+    }
+
+    /**
+     * Number of collected iterations
+     *
+     * @return iterations
+     */
+    public int getIterations() {
+        return iterations.size();
+    }
+
+    /**
+     * Mean and confidence interval of the throughput
+     *
+     * @return interval in statements per second
+     */
+    public ConfidenceInterval getThroughput() {
+        return ConfidenceInterval.of(throughputs);
+    }
+
+    /**
+     * Mean and confidence interval of the average latency of every measurement point, over the iterations in which
+     * the point was measured.
+     *
+     * @return intervals in milliseconds by measurement point, in order of first appearance
+     */
+    public Map<String, ConfidenceInterval> getLatencies() {
+        Set<String> pointNames = new LinkedHashSet<String>();
+        for (Map<String, Double> iteration : iterations) {
+            pointNames.addAll(iteration.keySet());
+        }
+
+        Map<String, ConfidenceInterval> latencies = new LinkedHashMap<String, ConfidenceInterval>();
+        for (String pointName : pointNames) {
+            List<Double> values = new ArrayList<Double>();
+            for (Map<String, Double> iteration : iterations) {
+                if (iteration.containsKey(pointName)) {
+                    values.add(iteration.get(pointName));
+                }
+            }
+            latencies.put(pointName, ConfidenceInterval.of(values));
+        }
+        return latencies;
+    }
+
+    /**
+     * Summary of all iterations: the throughput with its confidence interval.
+     *
+     * @return summary
+     */
+    public String getSummary() {
+        ConfidenceInterval throughput = getThroughput();
+        return String.format(Locale.ENGLISH,
+                "%d iterations: %.1f statements/s (95%% confidence interval %.1f - %.1f, +/- %.1f %%)",
+                iterations.size(), throughput.getMean(), throughput.getLower(), throughput.getUpper(),
+                throughput.getRelativeHalfWidth());
+    }
+
+    /**
+     * Table of the average latency of every measurement point over all iterations, with its confidence interval.
+     *
+     * @param csv true for semicolon separated values, false for a text table like the jetm output
+     * @return the table
+     */
+    public String getTable(boolean csv) {
+        List<String[]> rows = new ArrayList<String[]>();
+        rows.add(HEADLINES);
+        for (Map.Entry<String, ConfidenceInterval> latency : getLatencies().entrySet()) {
+            ConfidenceInterval interval = latency.getValue();
+            rows.add(new String[]{latency.getKey(), String.valueOf(interval.getCount()), format(interval.getMean()),
+                    format(interval.getStandardDeviation()), format(interval.getLower()), format(interval.getUpper()),
+                    String.format(Locale.ENGLISH, "%.1f", interval.getRelativeHalfWidth())});
+        }
+
+        return TextTable.render(rows, csv);
+    }
+
+    /**
+     * Write the combined iterations as one line of JSON: the number of iterations, the throughput and the average
+     * latency of every measurement point, each with its confidence interval.
+     *
+     * @param writer the writer to write to, flushed but not closed
+     * @throws IOException if writing failed
+     */
+    public void writeJson(Writer writer) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.beginObject();
+        json.name("iterations").value(iterations.size());
+        json.name("throughput");
+        writeInterval(json, getThroughput());
+        json.name("points").beginArray();
+        for (Map.Entry<String, ConfidenceInterval> latency : getLatencies().entrySet()) {
+            json.beginObject().name("name").value(latency.getKey()).name("average");
+            writeInterval(json, latency.getValue());
+            json.endObject();
+        }
+        json.endArray().endObject();
+        writer.write(System.getProperty("line.separator"));
+        writer.flush();
+    }
+
+    /**
+     * Write a confidence interval as JSON object
+     *
+     * @param json     the JSON writer
+     * @param interval the interval
+     * @throws IOException if writing failed
+     */
+    private static void writeInterval(JsonWriter json, ConfidenceInterval interval) throws IOException {
+        json.beginObject()
+                .name("count").value(interval.getCount())
+                .name("mean").value(interval.getMean())
+                .name("stdDev").value(interval.getStandardDeviation())
+                .name("lower").value(interval.getLower())
+                .name("upper").value(interval.getUpper())
+                .endObject();
+    }
+
+    private static String format(double millis) {
+        return String.format(Locale.ENGLISH, "%.3f", millis);
+    }
+}
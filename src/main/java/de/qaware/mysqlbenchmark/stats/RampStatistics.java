@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.stats;
+
+import de.qaware.mysqlbenchmark.histogram.LatencyHistogram;
+import de.qaware.mysqlbenchmark.histogram.LatencyStatistics;
+import de.qaware.mysqlbenchmark.jetm.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Collects the steps of a load ramp into a throughput-latency curve and finds its saturation knee.
+ * <p/>
+ * The scaling of a step is its relative throughput gain divided by its relative gain in connections: 100% if the
+ * throughput grows with the connections, 0% if it stays flat. The knee is the last step before the first step
+ * scaling less than {@value #SATURATION_SCALING}%: adding connections beyond it mostly adds latency, as the server
+ * queues the statements instead of executing more of them. Steps with a throughput clearly below an earlier step are
+ * retrograde, the server loses capacity under contention.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class RampStatistics {
+    /**
+     * Steps scaling less than this percentage are saturated
+     */
+    public static final int SATURATION_SCALING = 20;
+
+    /**
+     * Steps with a throughput this much lower than an earlier step are retrograde, smaller drops are noise
+     */
+    public static final double RETROGRADE_DROP = 0.05;
+
+    private static final String[] HEADLINES = {"Step", "Connections", "Statements", "Statements/s", "Scaling %",
+            "Mean", "p50", "p99", "p99.9", "Failed", "Saturation"};
+
+    private final List<Step> steps = new ArrayList<Step>();
+
+    /**
+     * Results of one step
+     */
+    private static final class Step {
+        private final int connections;
+        private final long statements;
+        private final double throughput;
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final long failed;
+
+        private Step(int connections, long statements, double throughput, long failed) {
+            this.connections = connections;
+            this.statements = statements;
+            this.throughput = throughput;
+            this.failed = failed;
+        }
+
+        private double getP99() {
+            return LatencyStatistics.toMillis(latencies.getValueAtPercentile(99));
+        }
+    }
+
+    /**
+     * Add the results of a step, steps are added with growing connections
+     *
+     * @param connections number of connections
+     * @param statements  executed statements
+     * @param throughput  statements per second
+     * @param latencies   latency histogram of all statements of the step, nanosecond values
+     * @param failed      number of failed statements
+     */
+    public void addStep(int connections, long statements, double throughput, LatencyHistogram latencies, long failed) {
+        Step step = new Step(connections, statements, throughput, failed);
+        step.latencies.add(latencies);
+        steps.add(step);
+    }
+
+    /**
+     * Index of the saturation knee
+     *
+     * @return index of the step, -1 if no step is saturated
+     */
+    public int getKnee() {
+        for (int i = 1; i < steps.size(); i++) {
+            if (getScaling(i) < SATURATION_SCALING) {
+                return i - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Summary of the ramp: the knee with its throughput and latency, and how the latency grows beyond it
+     *
+     * @return summary
+     */
+    public String getSummary() {
+        if (steps.isEmpty()) {
+            return "No ramp step completed.";
+        }
+        int knee = getKnee();
+        Step last = steps.get(steps.size() - 1);
+        if (knee < 0) {
+            return String.format(Locale.ENGLISH, "No saturation up to %d connections: %.1f statements/s with a p99 of"
+                    + " %.3f ms, add steps with more connections to find the knee.", last.connections,
+                    last.throughput, last.getP99());
+        }
+        Step step = steps.get(knee);
+        Step best = getBest(steps.size());
+        String summary = String.format(Locale.ENGLISH, "Saturation knee at %d connections: %.1f statements/s with a"
+                        + " p99 of %.3f ms. Beyond it, %d connections reach %.1f statements/s (%+.1f %%) with a p99 of"
+                        + " %.3f ms (x%.1f).", step.connections, step.throughput, step.getP99(), last.connections,
+                last.throughput, step.throughput > 0 ? 100 * (last.throughput / step.throughput - 1) : 0,
+                last.getP99(), step.getP99() > 0 ? last.getP99() / step.getP99() : 0);
+        if (best != step) {
+            summary += String.format(Locale.ENGLISH, " The highest throughput was %.1f statements/s at %d"
+                    + " connections.", best.throughput, best.connections);
+        }
+        return summary;
+    }
+
+    /**
+     * The throughput-latency curve: throughput, scaling and latency percentiles in milliseconds of every step, with
+     * the knee and the saturated steps marked
+     *
+     * @param csv true for CSV, false for aligned columns
+     * @return the table
+     */
+    public String getTable(boolean csv) {
+        int knee = getKnee();
+        List<String[]> rows = new ArrayList<String[]>();
+        rows.add(HEADLINES);
+        for (int i = 0; i < steps.size(); i++) {
+            Step step = steps.get(i);
+            Double[] percentiles = LatencyStatistics.getPercentiles(step.latencies);
+            rows.add(new String[]{String.valueOf(i + 1), String.valueOf(step.connections),
+                    String.valueOf(step.statements), format("%.1f", step.throughput),
+                    i == 0 ? "-" : format("%.1f", getScaling(i)),
+                    format("%.3f", LatencyStatistics.toMillis((long) step.latencies.getMean())),
+                    format("%.3f", percentiles[0]), format("%.3f", percentiles[2]), format("%.3f", percentiles[3]),
+                    String.valueOf(step.failed), getMark(i, knee)});
+        }
+        return TextTable.render(rows, csv);
+    }
+
+    /**
+     * Write the curve as one line of JSON: the connections of the knee and every step with its throughput, scaling
+     * and latency percentiles in milliseconds.
+     *
+     * @param writer the writer to write to, flushed but not closed
+     * @throws IOException if writing failed
+     */
+    public void writeJson(Writer writer) throws IOException {
+        int knee = getKnee();
+        JsonWriter json = new JsonWriter(writer);
+        json.beginObject().name("knee").value(knee < 0 ? null : steps.get(knee).connections)
+                .name("steps").beginArray();
+        for (int i = 0; i < steps.size(); i++) {
+            Step step = steps.get(i);
+            json.beginObject()
+                    .name("connections").value(step.connections)
+                    .name("statements").value(step.statements)
+                    .name("throughput").value(step.throughput)
+                    .name("scaling").value(i == 0 ? null : getScaling(i))
+                    .name("latency").beginObject()
+                    .name("mean").value(LatencyStatistics.toMillis((long) step.latencies.getMean()));
+            Double[] percentiles = LatencyStatistics.getPercentiles(step.latencies);
+            for (int p = 0; p < percentiles.length; p++) {
+                json.name(LatencyStatistics.PERCENTILE_NAMES.get(p)).value(percentiles[p].doubleValue());
+            }
+            json.endObject()
+                    .name("failed").value(step.failed)
+                    .name("saturation").value(getMark(i, knee))
+                    .endObject();
+        }
+        json.endArray().endObject();
+        writer.write(System.getProperty("line.separator"));
+        writer.flush();
+    }
+
+    /**
+     * Relative throughput gain of a step divided by its relative gain in connections
+     *
+     * @param index index of the step, at least 1
+     * @return scaling in percent
+     */
+    private double getScaling(int index) {
+        Step previous = steps.get(index - 1);
+        Step step = steps.get(index);
+        if (previous.throughput <= 0 || step.connections <= previous.connections) {
+            return 0;
+        }
+        return 100 * (step.throughput / previous.throughput - 1)
+                / ((double) step.connections / previous.connections - 1);
+    }
+
+    private String getMark(int index, int knee) {
+        if (index == knee) {
+            return "knee";
+        } else if (index > 0 && steps.get(index).throughput < (1 - RETROGRADE_DROP) * getBest(index).throughput) {
+            return "retrograde";
+        } else if (knee >= 0 && index > knee) {
+            return "saturated";
+        }
+        return "";
+    }
+
+    /**
+     * The step with the highest throughput
+     *
+     * @param end index after the last step to consider
+     * @return the step, the first one if several have the same throughput
+     */
+    private Step getBest(int end) {
+        Step best = steps.get(0);
+        for (int i = 1; i < end; i++) {
+            best = steps.get(i).throughput > best.throughput ? steps.get(i) : best;
+        }
+        return best;
+    }
+
+    private static String format(String pattern, double value) {
+        return String.format(Locale.ENGLISH, pattern, value);
+    }
+}
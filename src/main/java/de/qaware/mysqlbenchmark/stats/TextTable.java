@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.stats;
+
+import java.util.List;
+
+/**
+ * Renders rows of values as a text table like the jetm output or as semicolon separated values.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public final class TextTable {
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private TextTable() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Render the rows. The first row holds the headlines. The first column and the headlines are left aligned, all
+     * other values right aligned.
+     *
+     * @param rows the rows, all with the same number of values
+     * @param csv  true for semicolon separated values, false for a text table like the jetm output
+     * @return the table
+     */
+    public static String render(List<String[]> rows, boolean csv) {
+        int[] widths = new int[rows.get(0).length];
+        for (String[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                widths[i] = Math.max(widths[i], row[i].length());
+            }
+        }
+
+        StringBuilder table = new StringBuilder();
+        for (int r = 0; r < rows.size(); r++) {
+            if (!csv && r <= 1) {
+                appendSeparatorLine(table, widths);
+            }
+            table.append(csv ? "" : "|");
+            for (int i = 0; i < widths.length; i++) {
+                // names and headlines are left aligned, numbers right aligned
+                String value = rows.get(r)[i];
+                table.append(' ').append(pad(value, widths[i], i > 0 && r > 0)).append(' ');
+                table.append(csv ? (i < widths.length - 1 ? ";" : "") : "|");
+            }
+            table.append(LINE_SEPARATOR);
+        }
+        if (!csv) {
+            appendSeparatorLine(table, widths);
+        }
+        return table.toString();
+    }
+
+    private static void appendSeparatorLine(StringBuilder table, int[] widths) {
+        table.append('|');
+        for (int width : widths) {
+            for (int i = 0; i < width + 2; i++) {
+                table.append('-');
+            }
+            table.append('|');
+        }
+        table.append(LINE_SEPARATOR);
+    }
+
+    private static String pad(String value, int width, boolean right) {
+        StringBuilder padded = new StringBuilder(width);
+        if (right) {
+            for (int i = value.length(); i < width; i++) {
+                padded.append(' ');
+            }
+        }
+        padded.append(value);
+        while (padded.length() < width) {
+            padded.append(' ');
+        }
+        return padded.toString();
+    }
+}
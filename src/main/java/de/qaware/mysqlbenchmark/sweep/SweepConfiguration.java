@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.sweep;
+
+import de.qaware.mysqlbenchmark.sql.DriverLoader;
+import de.qaware.mysqlbenchmark.sql.SQLStatementExecutor;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.sql.Driver;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * One configuration of a driver sweep: the JDBC url, driver and connection properties the workload is replayed with.
+ * <p/>
+ * Configurations are written as {@code [<name>] <key>=<value>...}, separated by whitespace. The keys {@value #URL}
+ * (replaces the server of the command line), {@value #DRIVER} (driver jars, separated like the class path) and
+ * {@value #DRIVER_CLASS} are special, all other keys are properties of the connection. Several values of a key,
+ * separated by {@value #ALTERNATIVES}, expand into one configuration for every combination of values, e.g.
+ * {@code useServerPrepStmts=true|false useCompression=true|false} into four configurations.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class SweepConfiguration {
+    /**
+     * Key of the connection string to the mysql server, without database name
+     */
+    public static final String URL = "url";
+    /**
+     * Key of the jar files of the driver
+     */
+    public static final String DRIVER = "driver";
+    /**
+     * Key of the class name of the driver in the jars
+     */
+    public static final String DRIVER_CLASS = "driverClass";
+    /**
+     * Separates the values of a key to sweep over
+     */
+    public static final String ALTERNATIVES = "|";
+
+    private final String name;
+    private final String server;
+    private final Driver driver;
+    private final Properties properties;
+
+    /**
+     * Constructor
+     *
+     * @param name       name of the configuration in the results
+     * @param server     connection string to the mysql server without database name, null for the server of the
+     *                   command line
+     * @param driver     the driver, null for the mysql driver of the tool
+     * @param properties properties of the connection
+     */
+    public SweepConfiguration(String name, String server, Driver driver, Properties properties) {
+        this.name = name;
+        this.server = server;
+        this.driver = driver;
+        this.properties = properties;
+    }
+
+    /**
+     * Read the configurations from the command line: either the name of a file with one configuration per line,
+     * empty lines and lines starting with # are skipped, or a single configuration.
+     *
+     * @param sweep file name or configuration
+     * @return configurations in order, every combination of alternative values expanded
+     * @throws IOException              if the file can't be read
+     * @throws IllegalArgumentException if a configuration is invalid or a driver can't be loaded
+     */
+    public static List<SweepConfiguration> configure(String sweep) throws IOException {
+        if (!new File(sweep).isFile()) {
+            return parse(sweep);
+        }
+
+        List<SweepConfiguration> configurations = new ArrayList<SweepConfiguration>();
+        BufferedReader reader = new BufferedReader(new FileReader(sweep));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty() && !line.trim().startsWith("#")) {
+                    configurations.addAll(parse(line));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        if (configurations.isEmpty()) {
+            throw new IllegalArgumentException("The sweep file '" + sweep + "' contains no configuration.");
+        }
+        return configurations;
+    }
+
+    /**
+     * Parse one line of configurations. Without name, a configuration is named by its keys and values, or
+     * "default" if it has none. Configurations expanded from alternative values are named by the name followed
+     * by the values they differ in.
+     *
+     * @param line {@code [<name>] <key>=<value>[|<value>...]...}
+     * @return every combination of the alternative values
+     * @throws IllegalArgumentException if a key has no value or is set twice, or a driver can't be loaded
+     */
+    public static List<SweepConfiguration> parse(String line) {
+        if (line.trim().isEmpty()) {
+            throw new IllegalArgumentException("Empty sweep configuration, use [<name>] <key>=<value>[|<value>...]...");
+        }
+        List<String> parts = new ArrayList<String>(Arrays.asList(line.trim().split("\\s+")));
+        String name = parts.get(0).contains("=") ? null : parts.remove(0);
+
+        Map<String, String[]> values = new LinkedHashMap<String, String[]>();
+        for (String part : parts) {
+            int separator = part.indexOf('=');
+            String[] alternatives = part.substring(separator + 1).split("\\" + ALTERNATIVES, -1);
+            if (separator <= 0 || Arrays.asList(alternatives).contains("")) {
+                throw new IllegalArgumentException("Not a sweep configuration: '" + line
+                        + "', use [<name>] <key>=<value>[|<value>...]...");
+            }
+            String key = part.substring(0, separator);
+            if (values.put(key, alternatives) != null) {
+                throw new IllegalArgumentException("The key '" + key + "' is set twice in '" + line
+                        + "', separate its values by " + ALTERNATIVES + " to sweep over them.");
+            }
+        }
+        if (values.containsKey(DRIVER_CLASS) && !values.containsKey(DRIVER)) {
+            throw new IllegalArgumentException("The key '" + DRIVER_CLASS + "' needs the jars of the driver in '"
+                    + DRIVER + "': '" + line + "'");
+        }
+
+        List<SweepConfiguration> configurations = new ArrayList<SweepConfiguration>();
+        expand(name, values, new ArrayList<String>(values.keySet()), 0, new LinkedHashMap<String, String>(),
+                configurations);
+        return configurations;
+    }
+
+    /**
+     * Create the configurations of every combination of values of the remaining keys, depth first.
+     *
+     * @param name           name of the line, may be null
+     * @param values         alternative values by key
+     * @param keys           keys in line order
+     * @param index          index of the next key to choose a value for
+     * @param chosen         value chosen for each of the previous keys
+     * @param configurations receives the configurations
+     */
+    private static void expand(String name, Map<String, String[]> values, List<String> keys, int index,
+                               Map<String, String> chosen, List<SweepConfiguration> configurations) {
+        if (index == keys.size()) {
+            configurations.add(create(name, values, chosen));
+            return;
+        }
+        String key = keys.get(index);
+        for (String value : values.get(key)) {
+            chosen.put(key, value);
+            expand(name, values, keys, index + 1, chosen, configurations);
+        }
+        chosen.remove(key);
+    }
+
+    /**
+     * Create the configuration of chosen values
+     *
+     * @param name   name of the line, may be null
+     * @param values alternative values by key, to name the configuration by the keys with alternatives
+     * @param chosen value by key
+     * @return the configuration
+     */
+    private static SweepConfiguration create(String name, Map<String, String[]> values, Map<String, String> chosen) {
+        StringBuilder label = new StringBuilder(name == null ? "" : name);
+        Properties properties = new Properties();
+        for (Map.Entry<String, String> value : chosen.entrySet()) {
+            if (name == null || values.get(value.getKey()).length > 1) {
+                label.append(label.length() > 0 ? " " : "").append(value.getKey()).append('=').append(value.getValue());
+            }
+            if (!URL.equals(value.getKey()) && !DRIVER.equals(value.getKey()) && !DRIVER_CLASS.equals(value.getKey())) {
+                properties.setProperty(value.getKey(), value.getValue());
+            }
+        }
+
+        Driver driver = chosen.containsKey(DRIVER)
+                ? DriverLoader.load(chosen.get(DRIVER), chosen.get(DRIVER_CLASS)) : null;
+        return new SweepConfiguration(label.length() > 0 ? label.toString() : "default", chosen.get(URL), driver,
+                properties);
+    }
+
+    /**
+     * Create an executor connecting with this configuration
+     *
+     * @param statementCacheSize number of prepared statement templates cached per connection
+     * @param rewriteBatched     true to let the driver rewrite batches, unless the configuration sets the property
+     * @return a new executor without connection
+     */
+    public SQLStatementExecutor createExecutor(int statementCacheSize, boolean rewriteBatched) {
+        SQLStatementExecutor executor = new SQLStatementExecutor(statementCacheSize);
+        executor.setRewriteBatchedStatements(rewriteBatched);
+        executor.setDriver(driver);
+        executor.setConnectionProperties(properties);
+        return executor;
+    }
+
+    /**
+     * Name of the configuration in the results
+     *
+     * @return name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Connection string to the mysql server without database name
+     *
+     * @param defaultServer server of the command line
+     * @return the server of this configuration or the default
+     */
+    public String getServer(String defaultServer) {
+        return server == null ? defaultServer : server;
+    }
+
+    /**
+     * Description for the log: name, driver and properties
+     *
+     * @return description
+     */
+    @Override
+    public String toString() {
+        return name + " (" + (server == null ? "" : server + ", ")
+                + (driver == null ? "mysql driver of the tool" : DriverLoader.describe(driver))
+                + (properties.isEmpty() ? "" : ", " + properties) + ")";
+    }
+}
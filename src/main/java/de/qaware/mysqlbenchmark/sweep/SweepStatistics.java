@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.sweep;
+
+import de.qaware.mysqlbenchmark.histogram.LatencyHistogram;
+import de.qaware.mysqlbenchmark.histogram.LatencyStatistics;
+import de.qaware.mysqlbenchmark.jetm.JsonWriter;
+import de.qaware.mysqlbenchmark.stats.ConfidenceInterval;
+import de.qaware.mysqlbenchmark.stats.TextTable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Collects the measured iterations of every configuration of a driver sweep and compares the configurations side by
+ * side: throughput with its 95% confidence interval and the latency percentiles of all iterations together. The
+ * configuration with the highest mean throughput is the best.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class SweepStatistics {
+    private static final String[] HEADLINES = {"Configuration", "Rank", "Iterations", "Statements/s", "CI +/- %",
+            "vs First %", "Mean", "p50", "p90", "p99", "p99.9", "Failed"};
+
+    private final Map<String, Result> results = new LinkedHashMap<String, Result>();
+
+    /**
+     * Results of one configuration
+     */
+    private static final class Result {
+        private final String name;
+        private final List<Double> throughputs = new ArrayList<Double>();
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private long failed;
+
+        private Result(String name) {
+            this.name = name;
+        }
+
+        private ConfidenceInterval getThroughput() {
+            return ConfidenceInterval.of(throughputs);
+        }
+    }
+
+    /**
+     * Add the results of one measured iteration of a configuration.
+     *
+     * @param configuration name of the configuration
+     * @param throughput    statements per second
+     * @param latencies     latency histogram of all statements of the iteration, nanosecond values
+     * @param failed        number of failed statements
+     */
+    public void addIteration(String configuration, double throughput, LatencyHistogram latencies, long failed) {
+        Result result = results.get(configuration);
+        if (result == null) {
+            result = new Result(configuration);
+            results.put(configuration, result);
+        }
+        result.throughputs.add(throughput);
+        result.latencies.add(latencies);
+        result.failed += failed;
+    }
+
+    /**
+     * Number of configurations with results
+     *
+     * @return configurations
+     */
+    public int getConfigurations() {
+        return results.size();
+    }
+
+    /**
+     * Name of the configuration with the highest mean throughput
+     *
+     * @return name, null if there are no results
+     */
+    public String getBest() {
+        List<Result> ranking = getRanking();
+        return ranking.isEmpty() ? null : ranking.get(0).name;
+    }
+
+    /**
+     * Summary of the sweep: the best configuration, how much faster it is than the second best and whether the
+     * difference is significant, i.e. the 95% confidence intervals of the throughput don't overlap.
+     *
+     * @return summary
+     */
+    public String getSummary() {
+        List<Result> ranking = getRanking();
+        if (ranking.isEmpty()) {
+            return "No configuration completed.";
+        }
+        Result best = ranking.get(0);
+        ConfidenceInterval throughput = best.getThroughput();
+        String summary = String.format(Locale.ENGLISH, "Best configuration: '%s' with %.1f statements/s", best.name,
+                throughput.getMean());
+        if (ranking.size() == 1) {
+            return summary;
+        }
+
+        Result second = ranking.get(1);
+        ConfidenceInterval secondThroughput = second.getThroughput();
+        summary += String.format(Locale.ENGLISH, ", %.1f %% more than '%s'",
+                100 * (throughput.getMean() / secondThroughput.getMean() - 1), second.name);
+        if (throughput.getCount() < 2 || secondThroughput.getCount() < 2) {
+            return summary + ", not tested for significance with single iterations";
+        } else if (throughput.getLower() > secondThroughput.getUpper()) {
+            return summary + ", significant at 95% confidence";
+        }
+        return summary + ", not significant: the 95% confidence intervals overlap";
+    }
+
+    /**
+     * Table of all configurations in the order they were replayed: their rank by throughput, the mean throughput
+     * with its confidence interval and compared to the first configuration, and the latency in milliseconds.
+     *
+     * @param csv true for semicolon separated values, false for a text table like the jetm output
+     * @return the table
+     */
+    public String getTable(boolean csv) {
+        List<Result> ranking = getRanking();
+        double first = results.isEmpty() ? 0 : results.values().iterator().next().getThroughput().getMean();
+
+        List<String[]> rows = new ArrayList<String[]>();
+        rows.add(HEADLINES);
+        for (Result result : results.values()) {
+            ConfidenceInterval throughput = result.getThroughput();
+            Double[] percentiles = LatencyStatistics.getPercentiles(result.latencies);
+            rows.add(new String[]{result.name, String.valueOf(ranking.indexOf(result) + 1),
+                    String.valueOf(throughput.getCount()), format("%.1f", throughput.getMean()),
+                    format("%.1f", throughput.getRelativeHalfWidth()),
+                    format("%+.1f", first > 0 ? 100 * (throughput.getMean() / first - 1) : 0),
+                    format("%.3f", LatencyStatistics.toMillis((long) result.latencies.getMean())),
+                    format("%.3f", percentiles[0]), format("%.3f", percentiles[1]), format("%.3f", percentiles[2]),
+                    format("%.3f", percentiles[3]), String.valueOf(result.failed)});
+        }
+        return TextTable.render(rows, csv);
+    }
+
+    /**
+     * Write the sweep as one line of JSON: the best configuration and every configuration with its rank, throughput
+     * and latency percentiles in milliseconds.
+     *
+     * @param writer the writer to write to, flushed but not closed
+     * @throws IOException if writing failed
+     */
+    public void writeJson(Writer writer) throws IOException {
+        List<Result> ranking = getRanking();
+        JsonWriter json = new JsonWriter(writer);
+        json.beginObject().name("best").value(getBest()).name("configurations").beginArray();
+        for (Result result : results.values()) {
+            ConfidenceInterval throughput = result.getThroughput();
+            json.beginObject()
+                    .name("name").value(result.name)
+                    .name("rank").value(ranking.indexOf(result) + 1)
+                    .name("throughput").beginObject()
+                    .name("count").value(throughput.getCount())
+                    .name("mean").value(throughput.getMean())
+                    .name("lower").value(throughput.getLower())
+                    .name("upper").value(throughput.getUpper())
+                    .endObject()
+                    .name("latency").beginObject()
+                    .name("mean").value(LatencyStatistics.toMillis((long) result.latencies.getMean()));
+            Double[] percentiles = LatencyStatistics.getPercentiles(result.latencies);
+            for (int i = 0; i < percentiles.length; i++) {
+                json.name(LatencyStatistics.PERCENTILE_NAMES.get(i)).value(percentiles[i].doubleValue());
+            }
+            json.endObject().name("failed").value(result.failed).endObject();
+        }
+        json.endArray().endObject();
+        writer.write(System.getProperty("line.separator"));
+        writer.flush();
+    }
+
+    /**
+     * The configurations by descending mean throughput
+     *
+     * @return ranking, best first
+     */
+    private List<Result> getRanking() {
+        List<Result> ranking = new ArrayList<Result>(results.values());
+        Collections.sort(ranking, new Comparator<Result>() {
+            @Override
+            public int compare(Result a, Result b) {
+                return Double.compare(b.getThroughput().getMean(), a.getThroughput().getMean());
+            }
+        });
+        return ranking;
+    }
+
+    private static String format(String format, double value) {
+        return String.format(Locale.ENGLISH, format, value);
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.compare;
+
+import de.qaware.mysqlbenchmark.QueryBenchmark;
+import de.qaware.mysqlbenchmark.logfile.LogEntry;
+import de.qaware.mysqlbenchmark.simulation.SimulatedDatabase;
+import de.qaware.mysqlbenchmark.simulation.SimulatedExecutor;
+import de.qaware.mysqlbenchmark.stats.IterationStatistics;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes the result of a benchmark against the simulated database with every renderer and reads it back with
+ * {@link BenchmarkResult}. The statements contain the column separators of the text and CSV tables and line breaks.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class BenchmarkResultTest extends TestCase {
+    private static final String[] STATEMENTS = {
+            "select * from orders where state = 'a|b'",
+            "update orders set note = 'x;y' where id = 1",
+            "select *\nfrom customers\nwhere id = 2",
+            "select 1"
+    };
+    private static final int ITERATIONS = 2;
+    private static final double DELTA = 0.0015;
+
+    private static Map<QueryBenchmark.Format, BenchmarkResult> results;
+    private Locale defaultLocale;
+
+    @Override
+    protected void setUp() throws Exception {
+        defaultLocale = Locale.getDefault();
+        if (results == null) {
+            results = runBenchmark();
+        }
+    }
+
+    @Override
+    protected void tearDown() {
+        Locale.setDefault(defaultLocale);
+    }
+
+    public void testEveryFormatHasAllIterationsAndStatements() {
+        for (Map.Entry<QueryBenchmark.Format, BenchmarkResult> result : results.entrySet()) {
+            String format = result.getKey().name();
+            assertEquals(format, ITERATIONS, result.getValue().getIterations());
+            assertEquals(format, STATEMENTS.length, result.getValue().getPointNames().size());
+            for (String name : result.getValue().getPointNames()) {
+                List<ResultRow> rows = result.getValue().getRows(name);
+                assertEquals(format + " " + name, ITERATIONS, rows.size());
+                long expected = name.endsWith("select 1") ? 3 : 1;
+                assertEquals(format + " " + name, expected, rows.get(0).getCount());
+                assertTrue(format + " " + name, rows.get(0).getAverage() > 0.5);
+            }
+        }
+    }
+
+    public void testSeparatorsAndLineBreaksKeepTheColumns() {
+        List<String> names = results.get(QueryBenchmark.Format.JETM).getPointNames();
+
+        assertTrue(names.toString(), names.contains("Query: select * from orders where state = 'a|b'"));
+        assertTrue(names.toString(), names.contains("Query: update orders set note = 'x;y' where id = 1"));
+        assertTrue(names.toString(), names.contains("Query: select * from customers where id = 2"));
+    }
+
+    public void testEveryFormatReadsTheSameRows() {
+        BenchmarkResult text = results.get(QueryBenchmark.Format.JETM);
+        for (QueryBenchmark.Format format : Arrays.asList(QueryBenchmark.Format.CSV, QueryBenchmark.Format.JSON)) {
+            BenchmarkResult other = results.get(format);
+            assertEquals(format.name(), text.getPointNames(), other.getPointNames());
+            for (String name : text.getPointNames()) {
+                for (int i = 0; i < ITERATIONS; i++) {
+                    ResultRow expected = text.getRows(name).get(i);
+                    ResultRow actual = other.getRows(name).get(i);
+                    String message = format + " " + name;
+                    assertEquals(message, expected.getCount(), actual.getCount());
+                    assertEquals(message, expected.getAverage(), actual.getAverage(), DELTA);
+                    assertEquals(message, expected.getP50(), actual.getP50(), DELTA);
+                    assertEquals(message, expected.getP90(), actual.getP90(), DELTA);
+                    assertEquals(message, expected.getP99(), actual.getP99(), DELTA);
+                    assertFalse(message, Double.isNaN(actual.getP99()));
+                }
+            }
+        }
+    }
+
+    public void testThroughputOfEveryIteration() {
+        List<Double> text = results.get(QueryBenchmark.Format.JETM).getThroughputs();
+        List<Double> json = results.get(QueryBenchmark.Format.JSON).getThroughputs();
+        List<Double> csv = results.get(QueryBenchmark.Format.CSV).getThroughputs();
+
+        assertEquals(ITERATIONS, text.size());
+        assertEquals(ITERATIONS, json.size());
+        assertEquals(ITERATIONS, csv.size());
+        for (int i = 0; i < ITERATIONS; i++) {
+            // the text format rounds to one fraction digit
+            assertEquals(text.get(i), json.get(i), 0.05);
+            // the CSV format has no throughput, it is computed from the executions and the duration of the run
+            assertTrue(String.valueOf(csv.get(i)), csv.get(i) > 0 && !Double.isInfinite(csv.get(i)));
+        }
+    }
+
+    public void testNumbersInOtherFormatsFailLoudly() throws IOException {
+        File file = write("Executed 6 statements on 1 connection(s) in 0.010 s (600.0 statements/s)\n"
+                + "|--------------------------|---|---------|\n"
+                + "| Measurement Point        | # | Average |\n"
+                + "|--------------------------|---|---------|\n"
+                + "| Query: select 1          | 3 |   1,500 |\n"
+                + "|--------------------------|---|---------|\n");
+        try {
+            BenchmarkResult.read(file.getPath());
+            fail("1,500 is no time in the English format");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Line 5 of "));
+        }
+    }
+
+    public void testInvalidJsonFailsLoudly() throws IOException {
+        File file = write("{\"throughput\":600.0,\"points\":[{\"name\":\"Query: select 1\",\"count\":\"three\"}]}\n");
+        try {
+            BenchmarkResult.read(file.getPath());
+            fail("three is no count");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Line 1 of "));
+        }
+    }
+
+    public void testFileWithoutMeasurements() throws IOException {
+        try {
+            BenchmarkResult.read(write("No monitor initialized.").getPath());
+            fail("no measurements");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("No measurements found"));
+        }
+    }
+
+    /**
+     * Replay the statements against a simulated database with 1 ms latency and write every iteration in every format,
+     * followed by the combination of the iterations, with a locale which formats numbers differently. The tables of
+     * the iterations follow each other without a line in between.
+     *
+     * @return the result read from the file of each format
+     * @throws IOException if a file can't be written
+     */
+    private static Map<QueryBenchmark.Format, BenchmarkResult> runBenchmark() throws IOException {
+        List<LogEntry> entries = new ArrayList<LogEntry>();
+        for (String statement : STATEMENTS) {
+            entries.add(new LogEntry("1", LogEntry.NO_TIMESTAMP, statement));
+        }
+        entries.add(new LogEntry("1", LogEntry.NO_TIMESTAMP, "select 1"));
+        entries.add(new LogEntry("1", LogEntry.NO_TIMESTAMP, "select 1"));
+
+        Map<QueryBenchmark.Format, File> files = new HashMap<QueryBenchmark.Format, File>();
+        for (QueryBenchmark.Format format : QueryBenchmark.Format.values()) {
+            files.put(format, createFile());
+        }
+        Locale.setDefault(Locale.GERMANY);
+        QueryBenchmark benchmark = new QueryBenchmark(new SimulatedExecutor(SimulatedDatabase.configure("fixed:1ms")));
+        IterationStatistics combined = new IterationStatistics();
+        for (int i = 0; i < ITERATIONS; i++) {
+            benchmark.processEntries(entries);
+            combined.addIteration(benchmark.getMeanLatencies(), benchmark.getThroughput());
+            for (QueryBenchmark.Format format : QueryBenchmark.Format.values()) {
+                Writer writer = new FileWriter(files.get(format), true);
+                try {
+                    benchmark.writeResult(format, writer);
+                } finally {
+                    writer.close();
+                }
+            }
+        }
+        for (QueryBenchmark.Format format : QueryBenchmark.Format.values()) {
+            Writer writer = new FileWriter(files.get(format), true);
+            try {
+                if (format == QueryBenchmark.Format.JSON) {
+                    combined.writeJson(writer);
+                } else {
+                    writer.write(combined.getSummary() + "\n" + combined.getTable(format == QueryBenchmark.Format.CSV));
+                }
+            } finally {
+                writer.close();
+            }
+        }
+
+        Map<QueryBenchmark.Format, BenchmarkResult> read = new HashMap<QueryBenchmark.Format, BenchmarkResult>();
+        for (QueryBenchmark.Format format : QueryBenchmark.Format.values()) {
+            read.put(format, BenchmarkResult.read(files.get(format).getPath()));
+        }
+        return read;
+    }
+
+    private static File write(String content) throws IOException {
+        File file = createFile();
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    private static File createFile() throws IOException {
+        File file = File.createTempFile("result", ".txt");
+        file.deleteOnExit();
+        return file;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.compare;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests the significance tests of {@link Delta} against values computed by hand.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class DeltaTest extends TestCase {
+    private static final double DELTA = 1e-3;
+
+    public void testWelchOfSeveralIterations() {
+        Delta delta = Delta.ofLatency("Query: select 1", rows(10, 11, 12), rows(20, 21, 22));
+
+        // t = 10 / sqrt(1/3 + 1/3), 4 degrees of freedom
+        assertTrue(delta.isTested());
+        assertEquals(12.247, delta.getStatistic(), DELTA);
+        assertTrue(delta.isSignificant());
+        assertEquals(11, delta.getBaseline(), DELTA);
+        assertEquals(21, delta.getCandidate(), DELTA);
+        assertEquals(90.909, delta.getChange(), DELTA);
+        assertEquals(300, delta.getBaselineCount());
+    }
+
+    public void testWelchWithoutSignificance() {
+        Delta delta = Delta.ofLatency("Query: select 1", rows(10, 12, 14), rows(11, 13, 15));
+
+        // t = 1 / sqrt(4/3 + 4/3)
+        assertEquals(0.612, delta.getStatistic(), DELTA);
+        assertFalse(delta.isSignificant());
+    }
+
+    public void testWelchDegreesOfFreedomOfUnequalVariances() {
+        Delta delta = Delta.ofLatency("Query: select 1", rows(1, 2, 3), rows(3.5, 7.5, 11.5, 15.5));
+
+        // t = 7.5 / sqrt(1/3 + 80/3/4) is above t(5) = 2.571 of pooled variances, but below t(3) = 3.182 of the
+        // Welch-Satterthwaite degrees of freedom 49 / ((1/3)^2/2 + (20/3)^2/3) = 3.3
+        assertEquals(2.835, delta.getStatistic(), DELTA);
+        assertFalse(delta.isSignificant());
+    }
+
+    public void testWithoutVariance() {
+        Delta equal = Delta.ofLatency("Query: select 1", rows(5, 5), rows(5, 5));
+        Delta slower = Delta.ofLatency("Query: select 1", rows(5, 5), rows(6, 6));
+
+        assertEquals(0, equal.getStatistic(), DELTA);
+        assertFalse(equal.isSignificant());
+        assertEquals(Double.POSITIVE_INFINITY, slower.getStatistic());
+        assertTrue(slower.isSignificant());
+    }
+
+    public void testZTestOfSingleIterations() {
+        List<ResultRow> baseline = Collections.singletonList(new ResultRow("a", 1000, 1.0, 1.0, 1.25632, 2));
+        List<ResultRow> candidate = Collections.singletonList(new ResultRow("a", 1000, 1.1, 1.1, 1.35632, 4));
+        Delta delta = Delta.ofLatency("a", baseline, candidate);
+
+        // sigma = (p90 - p50) / 1.2816 = 0.2 on both sides, z = 0.1 / sqrt(2 * 0.04 / 1000)
+        assertEquals(11.180, delta.getStatistic(), DELTA);
+        assertTrue(delta.isSignificant());
+        assertEquals(100, delta.getP99Change(), DELTA);
+    }
+
+    public void testZTestOfFewExecutions() {
+        List<ResultRow> baseline = Collections.singletonList(new ResultRow("a", 4, 1.0, 1.0, 1.25632, 2));
+        List<ResultRow> candidate = Collections.singletonList(new ResultRow("a", 4, 1.1, 1.1, 1.35632, 2));
+
+        // z = 0.1 / sqrt(2 * 0.04 / 4)
+        assertEquals(0.707, Delta.ofLatency("a", baseline, candidate).getStatistic(), DELTA);
+        assertFalse(Delta.ofLatency("a", baseline, candidate).isSignificant());
+    }
+
+    public void testThroughputNeedsSeveralIterations() {
+        Delta single = Delta.ofThroughput(Arrays.asList(1000d), Arrays.asList(500d));
+        Delta several = Delta.ofThroughput(Arrays.asList(1000d, 1010d, 990d), Arrays.asList(500d, 510d, 490d));
+
+        assertFalse(single.isTested());
+        assertFalse(single.isSignificant());
+        assertEquals(-50, single.getChange(), DELTA);
+        assertTrue(several.isTested());
+        assertTrue(several.isSignificant());
+        assertEquals(3, several.getBaselineCount());
+    }
+
+    private static List<ResultRow> rows(double... averages) {
+        List<ResultRow> rows = new ArrayList<ResultRow>();
+        for (double average : averages) {
+            rows.add(new ResultRow("Query: select 1", 100, average, average, average, average));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.compare;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Tests the regression gate of the {@link ResultComparison} on result files in JSON format.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class ResultComparisonTest extends TestCase {
+
+    public void testSignificantLatencyIncreaseIsARegression() throws IOException {
+        ResultComparison comparison = compare(
+                result(1000, point("Query: a", 1000, 1.0), point("Query: b", 1000, 1.0)),
+                result(1000, point("Query: a", 1000, 1.2), point("Query: b", 1000, 1.05)));
+
+        assertEquals(2, comparison.getStatements().size());
+        assertEquals("Query: a", comparison.getStatements().get(0).getName());
+        assertEquals(1, comparison.getRegressions().size());
+        assertEquals("Query: a", comparison.getRegressions().get(0).getName());
+        assertFalse(comparison.isPassed());
+    }
+
+    public void testRarelyExecutedStatementsAreSkippedAndReported() throws IOException {
+        ResultComparison comparison = compare(
+                result(1000, point("Query: a", 1000, 1.0), point("Query: rare", 9, 1.0), point("Query: old", 50, 1)),
+                result(1000, point("Query: a", 1000, 1.0), point("Query: rare", 100, 5.0), point("Query: new", 50, 1)));
+
+        assertEquals(Arrays.asList("Query: rare"), comparison.getSkipped());
+        assertTrue(comparison.isPassed());
+        assertTrue(comparison.getSummary(), comparison.getSummary().contains("1 of 4 statements compared,"
+                + " 0 regressions, 1 skipped with less than 10 executions in a result, 1 only in the baseline,"
+                + " 1 only in the candidate"));
+    }
+
+    public void testUntestedThroughputDropIsNoRegression() throws IOException {
+        ResultComparison comparison = compare(result(1000, point("Query: a", 1000, 1.0)),
+                result(500, point("Query: a", 1000, 1.0)));
+
+        assertFalse(comparison.isThroughputRegression());
+        assertTrue(comparison.isPassed());
+        assertTrue(comparison.getSummary(), comparison.getSummary().contains(
+                "dropped more than 10.0 % but is no regression without several iterations on both sides"));
+    }
+
+    public void testSignificantThroughputDropIsARegression() throws IOException {
+        ResultComparison comparison = compare(
+                result(1000, point("Query: a", 1000, 1.0)) + result(1010, point("Query: a", 1000, 1.0))
+                        + result(990, point("Query: a", 1000, 1.0)),
+                result(500, point("Query: a", 1000, 1.0)) + result(510, point("Query: a", 1000, 1.0))
+                        + result(490, point("Query: a", 1000, 1.0)));
+
+        assertTrue(comparison.isThroughputRegression());
+        assertFalse(comparison.isPassed());
+        assertTrue(comparison.getSummary(), comparison.getSummary().endsWith("Regression gate FAILED"));
+    }
+
+    public void testP99Threshold() throws IOException {
+        BenchmarkResult baseline = BenchmarkResult.read(write(result(1000, point("Query: a", 1000, 1.0))));
+        BenchmarkResult candidate = BenchmarkResult.read(write(result(1000,
+                "{\"name\":\"Query: a\",\"count\":1000,\"average\":1.0,\"p50\":1.0,\"p90\":1.1,\"p99\":3.0}")));
+        ResultComparison comparison = new ResultComparison(baseline, candidate, 10);
+        assertTrue(comparison.isPassed());
+
+        comparison.setMaxP99Increase(50);
+        assertFalse(comparison.isPassed());
+    }
+
+    private static ResultComparison compare(String baseline, String candidate) throws IOException {
+        return new ResultComparison(BenchmarkResult.read(write(baseline)), BenchmarkResult.read(write(candidate)), 10);
+    }
+
+    private static String result(double throughput, String... points) {
+        StringBuilder line = new StringBuilder();
+        line.append(String.format(Locale.ENGLISH, "{\"throughput\":%.1f,\"points\":[", throughput));
+        for (int i = 0; i < points.length; i++) {
+            line.append(i > 0 ? "," : "").append(points[i]);
+        }
+        return line.append("]}\n").toString();
+    }
+
+    /**
+     * A measurement point with a standard deviation of 0.2 ms estimated from p50 and p90
+     */
+    private static String point(String name, long count, double average) {
+        return String.format(Locale.ENGLISH, "{\"name\":\"%s\",\"count\":%d,\"average\":%.3f,\"p50\":%.5f,"
+                + "\"p90\":%.5f,\"p99\":%.5f}", name, count, average, average, average + 0.25632, average + 0.5);
+    }
+
+    private static String write(String content) throws IOException {
+        File file = File.createTempFile("result", ".json");
+        file.deleteOnExit();
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+        return file.getPath();
+    }
+}
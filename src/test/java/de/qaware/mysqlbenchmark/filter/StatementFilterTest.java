@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.filter;
+
+import de.qaware.mysqlbenchmark.logfile.LogEntry;
+import de.qaware.mysqlbenchmark.logfile.LogEntryListener;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Tests the rules and the sampling of the {@link StatementFilter}.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class StatementFilterTest extends TestCase {
+    private static final long T0 = 1388570400000L; // 2014-01-01T10:00:00 UTC
+
+    public void testEmptyFilterAcceptsEverything() throws IOException {
+        StatementFilter filter = StatementFilter.configure(null);
+        LogEntryListener listener = new LogEntryListener() {
+            @Override
+            public void entryParsed(LogEntry entry) {
+                // not needed
+            }
+
+            @Override
+            public void connectionClosed(String connectionID) {
+                // not needed
+            }
+        };
+
+        assertTrue(filter.isEmpty());
+        assertTrue(filter.accept(entry("1", "delete from orders")));
+        assertSame(listener, filter.filter(listener));
+    }
+
+    public void testPrefixesIgnoreCase() {
+        StatementFilter filter = filter("exclude prefix SET ", "exclude prefix show");
+
+        assertFalse(filter.accept(entry("1", "set autocommit=0")));
+        assertFalse(filter.accept(entry("1", "SHOW TABLES")));
+        assertTrue(filter.accept(entry("1", "select 1")));
+    }
+
+    public void testIncludesOfOneKindAreAlternatives() {
+        StatementFilter filter = filter("include regex ^select .* from orders", "include regex ^update orders\\b");
+
+        assertTrue(filter.accept(entry("1", "SELECT id FROM orders")));
+        assertTrue(filter.accept(entry("1", "update orders set x = 1")));
+        assertFalse(filter.accept(entry("1", "update orders_archive set x = 1")));
+        assertFalse(filter.accept(entry("1", "select 1")));
+    }
+
+    public void testIncludesOfDifferentKindsMustAllMatch() {
+        StatementFilter filter = filter("include prefix select", "include table orders");
+
+        assertTrue(filter.accept(entry("1", "select * from orders")));
+        assertFalse(filter.accept(entry("1", "select * from customers")));
+        assertFalse(filter.accept(entry("1", "update orders set x = 1")));
+    }
+
+    public void testExcludeWinsOverInclude() {
+        StatementFilter filter = filter("include table orders", "exclude regex for update$");
+
+        assertTrue(filter.accept(entry("1", "select * from orders")));
+        assertFalse(filter.accept(entry("1", "select * from orders for update")));
+    }
+
+    public void testTables() {
+        StatementFilter filter = filter("exclude table `Audit_Log`, shop.sessions");
+
+        assertFalse(filter.accept(entry("1", "insert into audit_log values (1)")));
+        assertFalse(filter.accept(entry("1", "select * from orders o, `audit_log` a where o.id = a.id")));
+        assertFalse(filter.accept(entry("1", "delete from shop.sessions where id = 1")));
+        assertTrue(filter.accept(entry("1", "delete from sessions where id = 1")));
+        assertTrue(filter.accept(entry("1", "select 'from audit_log' from orders")));
+    }
+
+    public void testConnections() {
+        StatementFilter filter = filter("include connection 1, 2, 3", "exclude connection 2");
+        filter.includeConnections("3", "4");
+
+        assertFalse("not one of the included connections", filter.accept(entry("1", "select 1")));
+        assertFalse(filter.accept(entry("2", "select 1")));
+        assertTrue(filter.accept(entry("3", "select 1")));
+        assertFalse("not included by the rule", filter.accept(entry("4", "select 1")));
+        assertFalse(filter.accept(entry("5", "select 1")));
+        assertTrue(filter("include connection 1").accept(entry("1", "select 1")));
+    }
+
+    public void testTimeWindowIncludesTheStartButNotTheEnd() {
+        StatementFilter filter = filter("include time 2014-01-01T10:00:00 2014-01-01T10:05:00");
+
+        assertFalse(filter.accept(entry("1", T0 - 1)));
+        assertTrue(filter.accept(entry("1", T0)));
+        assertTrue(filter.accept(entry("1", T0 + 5 * 60 * 1000 - 1)));
+        assertFalse(filter.accept(entry("1", T0 + 5 * 60 * 1000)));
+        assertFalse(filter.accept(entry("1", LogEntry.NO_TIMESTAMP)));
+    }
+
+    public void testExcludedTimeWindow() {
+        StatementFilter filter = filter("exclude time 2014-01-01T10:00:00 2014-01-01T10:00:01");
+
+        assertFalse(filter.accept(entry("1", T0 + 999)));
+        assertTrue(filter.accept(entry("1", T0 + 1000)));
+        assertTrue(filter.accept(entry("1", LogEntry.NO_TIMESTAMP)));
+    }
+
+    public void testSampleKeepsWholeConnections() {
+        StatementFilter filter = filter("sample 25%");
+        int kept = 0;
+        for (int connection = 0; connection < 10000; connection++) {
+            String id = String.valueOf(connection);
+            boolean first = filter.accept(entry(id, "select 1"));
+            assertEquals(first, filter.accept(entry(id, "update t set x = 2")));
+            assertEquals(first, filter(("sample 0.25")).accept(entry(id, "select 3")));
+            kept += first ? 1 : 0;
+        }
+
+        assertTrue("kept " + kept, kept > 2300 && kept < 2700);
+    }
+
+    public void testSampleByFingerprint() {
+        StatementFilter filter = filter("sample 50% fingerprint");
+        int kept = 0;
+        for (int table = 0; table < 1000; table++) {
+            boolean first = filter.accept(entry("1", "select * from t" + table + " where id = 1"));
+            assertEquals(first, filter.accept(entry("2", "SELECT * FROM t" + table + " WHERE id = 42")));
+            kept += first ? 1 : 0;
+        }
+
+        assertTrue("kept " + kept, kept > 400 && kept < 600);
+    }
+
+    public void testSummary() {
+        StatementFilter filter = filter("exclude prefix set", "include prefix select");
+        filter.accept(entry("1", "set autocommit=0"));
+        filter.accept(entry("1", "update t set x = 1"));
+        filter.accept(entry("1", "select 1"));
+
+        assertEquals("2 rules, 3 statements checked, 1 accepted, 1 excluded, 1 not included, 0 not sampled",
+                filter.getSummary());
+    }
+
+    public void testRulesFromTheCommandLine() throws IOException {
+        StatementFilter filter = StatementFilter.configure("exclude prefix set ; ;include prefix select");
+
+        assertFalse(filter.accept(entry("1", "set autocommit=0")));
+        assertTrue(filter.accept(entry("1", "select 1")));
+        assertFalse(filter.accept(entry("1", "update t set x = 1")));
+    }
+
+    public void testRulesFromAFile() throws IOException {
+        File rules = File.createTempFile("rules", ".txt");
+        rules.deleteOnExit();
+        Writer writer = new FileWriter(rules);
+        try {
+            writer.write("# replay the orders only\n\ninclude table orders\n"
+                    + "  # without locks\nexclude regex for update\n");
+        } finally {
+            writer.close();
+        }
+        StatementFilter filter = StatementFilter.configure(rules.getPath());
+
+        assertTrue(filter.accept(entry("1", "select * from orders")));
+        assertFalse(filter.accept(entry("1", "select * from orders for update")));
+        assertFalse(filter.accept(entry("1", "select * from customers")));
+    }
+
+    public void testInvalidRules() {
+        String[] invalid = {"include", "include prefix", "keep prefix select", "include column id",
+                "include regex (", "include time 2014-01-01T10:00:00", "include time yesterday today",
+                "sample 0", "sample 150%", "sample often", "sample 10% table"};
+        for (String rule : invalid) {
+            try {
+                new StatementFilter().addRule(rule);
+                fail("'" + rule + "' is no rule");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    private static StatementFilter filter(String... rules) {
+        StatementFilter filter = new StatementFilter();
+        for (String rule : rules) {
+            filter.addRule(rule);
+        }
+        return filter;
+    }
+
+    private static LogEntry entry(String connectionID, String statement) {
+        return new LogEntry(connectionID, T0, statement);
+    }
+
+    private static LogEntry entry(String connectionID, long timestamp) {
+        return new LogEntry(connectionID, timestamp, "select 1");
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.fingerprint;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the bounds of the {@link DistinctCounter}: exact up to 64 distinct strings, estimated within a few percent
+ * above, and never more than the strings added.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class DistinctCounterTest extends TestCase {
+
+    public void testEmpty() {
+        DistinctCounter counter = new DistinctCounter();
+
+        assertEquals(0, counter.count());
+        assertTrue(counter.isExact());
+    }
+
+    public void testExactUpTo64() {
+        DistinctCounter counter = new DistinctCounter();
+        for (int i = 0; i < 64; i++) {
+            counter.add("select " + i);
+            counter.add("select " + i);
+            assertEquals(i + 1, counter.count());
+        }
+
+        assertTrue(counter.isExact());
+    }
+
+    public void testEstimatedAbove64() {
+        DistinctCounter counter = new DistinctCounter();
+        for (int i = 0; i < 65; i++) {
+            counter.add("select " + i);
+        }
+
+        assertFalse(counter.isExact());
+    }
+
+    public void testEstimateWithinTenPercent() {
+        for (int distinct : new int[]{100, 1000, 10000, 100000}) {
+            DistinctCounter counter = new DistinctCounter();
+            for (int i = 0; i < distinct; i++) {
+                counter.add("select * from t where id = " + i);
+                counter.add("select * from t where id = " + i);
+            }
+
+            assertEquals("distinct " + distinct, distinct, counter.count(), distinct * 0.1);
+        }
+    }
+
+    public void testNeverMoreThanAdded() {
+        for (int added = 65; added < 1500; added++) {
+            DistinctCounter counter = new DistinctCounter();
+            for (int i = 0; i < added; i++) {
+                counter.add("select " + (i * 7919L));
+            }
+
+            assertTrue(counter.count() + " of " + added, counter.count() <= added);
+        }
+    }
+
+    public void testConcurrentThreads() throws InterruptedException {
+        for (final int distinct : new int[]{64, 65, 10000}) {
+            final DistinctCounter counter = new DistinctCounter();
+            Thread[] threads = new Thread[8];
+            DistinctCounter sequential = new DistinctCounter();
+            for (int t = 0; t < threads.length; t++) {
+                for (int i = 0; i < distinct; i++) {
+                    sequential.add("select " + i);
+                }
+            }
+
+            // every thread adds all strings, in a different order
+            for (int t = 0; t < threads.length; t++) {
+                final int offset = t * 7;
+                threads[t] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < distinct; i++) {
+                            counter.add("select " + (i + offset) % distinct);
+                        }
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            // the registers only depend on the strings, not on the order they were added in
+            assertEquals("distinct " + distinct, sequential.isExact(), counter.isExact());
+            assertEquals("distinct " + distinct, sequential.count(), counter.count());
+        }
+    }
+
+    public void testDuplicatesDontChangeTheEstimate() {
+        DistinctCounter counter = new DistinctCounter();
+        for (int i = 0; i < 500; i++) {
+            counter.add("select " + i);
+            counter.add("select " + i);
+        }
+        long count = counter.count();
+        for (int i = 0; i < 1000; i++) {
+            counter.add("select " + (i % 500));
+        }
+
+        assertEquals(count, counter.count());
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.fingerprint;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the normalisation rules of the {@link QueryFingerprint}.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class QueryFingerprintTest extends TestCase {
+
+    public void testLiteralsAreReplaced() {
+        assertFingerprint("select * from t where id = ? and name = ?", "SELECT * FROM t WHERE id = 5 AND name = 'x'");
+        assertFingerprint("select * from t where a = ? and b = ? and c = ?",
+                "select * from t where a = 1.5 and b = 2e-3 and c = .25");
+        assertFingerprint("select * from t limit ?, ?", "select * from t limit 10, 20");
+    }
+
+    public void testHexAndBitLiterals() {
+        assertFingerprint("select * from t where a = ? and b = ? and c = ? and d = ?",
+                "select * from t where a = 0xFF and b = X'0f' and c = b'101' and d = N'x'");
+    }
+
+    public void testQuotedStringsWithEscapes() {
+        assertFingerprint("select * from t where a = ? and b = ? and c = ?",
+                "select * from t where a = 'it\\'s' and b = 'it''s' and c = \"say \\\"hi\\\"\"");
+        assertFingerprint("select ?, ?", "select 'a\\\\', 'b'");
+    }
+
+    public void testNumbersInsideIdentifiersAreKept() {
+        assertFingerprint("select col1, t2.c3 from t2 where a1b = ?", "SELECT col1, t2.c3 FROM t2 WHERE a1b = 3");
+        assertFingerprint("select `Col1` from `T2`", "select `Col1` from `T2`");
+    }
+
+    public void testInListsAreCollapsed() {
+        assertFingerprint("select * from t where id in(?+)", "select * from t where id IN (1, 2, 3)");
+        assertFingerprint("select * from t where id in(?+)", "select * from t where id in ('a','b')");
+        assertFingerprint("select * from t where id in(?+)", "select * from t where id in (7)");
+        assertFingerprint("select * from t where id in(select id from u where x = ?)",
+                "select * from t where id in (select id from u where x = 1)");
+        assertFingerprint("select * from t where f(?, ?) = ?", "select * from t where f(1, 2) = 3");
+    }
+
+    public void testMultiRowValuesAreCollapsed() {
+        assertFingerprint("insert into t values(?+)", "INSERT INTO t VALUES (1, 'a')");
+        assertFingerprint("insert into t values(?+)", "INSERT INTO t VALUES (1, 'a'), (2, 'b'),(3,'c')");
+        assertFingerprint("insert into t(a, b) values(?+)", "insert into t (a, b) values (1, 2)");
+    }
+
+    public void testCommentsAreRemoved() {
+        assertFingerprint("select ?", "/* app: shop */ select 1");
+        assertFingerprint("select ? from t", "select 1 -- trailing\nfrom t");
+        assertFingerprint("select ? from t", "# leading\nselect 1 from t");
+        // not a comment without the whitespace
+        assertFingerprint("select a--?", "select a--1");
+    }
+
+    public void testExecutableCommentsAreKept() {
+        assertFingerprint("set names ?", "/*!40101 SET NAMES 'utf8' */");
+        assertFingerprint("select sql_no_cache * from t", "SELECT /*!40001 SQL_NO_CACHE */ * FROM t");
+    }
+
+    public void testWhitespaceAndCase() {
+        assertFingerprint("select * from t where a = ?", "  SELECT\t*\n  FROM   t\r\n WHERE a =   1  ");
+    }
+
+    public void testSameShapeSameFingerprint() {
+        assertEquals(QueryFingerprint.fingerprint("select * from t where id = 1 and s = 'x'"),
+                QueryFingerprint.fingerprint("SELECT * FROM t WHERE id = 42 AND s = 'yyy'"));
+    }
+
+    public void testSingleLine() {
+        assertEquals("select 1", QueryFingerprint.singleLine("select 1"));
+        assertEquals("select * from t where a = 1",
+                QueryFingerprint.singleLine("select *  \n  from t\r\nwhere a = 1\n"));
+    }
+
+    private static void assertFingerprint(String expected, String query) {
+        assertEquals(query, expected, QueryFingerprint.fingerprint(query));
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.histogram;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the buckets, percentiles and maximum of the {@link LatencyHistogram}: values below 128 ns are exact, larger
+ * values are reported as the upper bound of their bucket, less than 1/64 above the recorded value.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class LatencyHistogramTest extends TestCase {
+
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getMean(), 0);
+    }
+
+    public void testSmallValuesAreExact() {
+        for (long value = 0; value < 128; value++) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(value);
+            histogram.record(1000000);
+
+            assertEquals(value, histogram.getValueAtPercentile(50));
+        }
+    }
+
+    public void testBucketBoundaries() {
+        // 128 and 129 share the first bucket of width 2, 130 starts the next one
+        assertEquals(129, percentile(50, 128, 1000000));
+        assertEquals(129, percentile(50, 129, 1000000));
+        assertEquals(131, percentile(50, 130, 1000000));
+        // 255 is the last value of its octave, 256 the first of the next one with buckets of width 4
+        assertEquals(255, percentile(50, 255, 1000000));
+        assertEquals(259, percentile(50, 256, 1000000));
+        // 1 ms falls into the bucket from 999424 to 1007615
+        assertEquals(1007615, percentile(50, 1000000, 2000000));
+    }
+
+    public void testPercentileIsNeverAboveTheMaximum() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000000);
+
+        assertEquals(1000000, histogram.getValueAtPercentile(50));
+        assertEquals(1000000, histogram.getValueAtPercentile(100));
+        assertEquals(1000000, histogram.getMax());
+    }
+
+    public void testPercentilesWithinTheBucketResolution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        for (double percentile : new double[]{1, 10, 50, 90, 99, 99.9, 99.99}) {
+            long exact = (long) Math.ceil(percentile * 1000) * 1000;
+            long reported = histogram.getValueAtPercentile(percentile);
+            assertTrue(percentile + ": " + reported, reported >= exact);
+            assertTrue(percentile + ": " + reported, reported < exact + exact / 64);
+        }
+        assertEquals(100000000, histogram.getValueAtPercentile(100));
+    }
+
+    public void testPercentileRanks() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10; value++) {
+            histogram.record(value);
+        }
+
+        // the smallest value with at least the percentile of all values at or below it
+        assertEquals(1, histogram.getValueAtPercentile(0));
+        assertEquals(1, histogram.getValueAtPercentile(10));
+        assertEquals(2, histogram.getValueAtPercentile(10.1));
+        assertEquals(5, histogram.getValueAtPercentile(50));
+        assertEquals(9, histogram.getValueAtPercentile(90));
+        assertEquals(10, histogram.getValueAtPercentile(99));
+        assertEquals(10, histogram.getValueAtPercentile(150));
+    }
+
+    public void testMaxAndMeanAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000001);
+        histogram.record(3000000);
+        histogram.record(-5);
+
+        assertEquals(3, histogram.getCount());
+        assertEquals(3000000, histogram.getMax());
+        assertEquals(4000001 / 3d, histogram.getMean(), 0.001);
+        assertEquals(0, histogram.getValueAtPercentile(1));
+    }
+
+    public void testLargeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(Long.MAX_VALUE, histogram.getMax());
+        assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(50));
+    }
+
+    public void testReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5000);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        histogram.record(70);
+        assertEquals(70, histogram.getValueAtPercentile(99));
+    }
+
+    public void testAdd() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        first.record(10);
+        first.record(20);
+        second.record(30);
+        second.record(5000000);
+        first.add(second);
+
+        assertEquals(4, first.getCount());
+        assertEquals(5000000, first.getMax());
+        assertEquals(20, first.getValueAtPercentile(50));
+        assertEquals(30, first.getValueAtPercentile(75));
+        assertEquals(2, second.getCount());
+    }
+
+    public void testConcurrentRecording() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 1; i <= 10000; i++) {
+                        histogram.record(i);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40000, histogram.getCount());
+        assertEquals(10000, histogram.getMax());
+    }
+
+    private static long percentile(double percentile, long... values) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value : values) {
+            histogram.record(value);
+        }
+        return histogram.getValueAtPercentile(percentile);
+    }
+}
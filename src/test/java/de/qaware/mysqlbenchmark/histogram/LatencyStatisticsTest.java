@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.histogram;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the histograms per measurement point of the {@link LatencyStatistics} and their limit.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class LatencyStatisticsTest extends TestCase {
+
+    public void testOneHistogramPerPointAndTotal() {
+        LatencyStatistics statistics = new LatencyStatistics();
+        statistics.record("Query: select 1", 1000);
+        statistics.record("Query: select 1", 3000);
+        statistics.record("Commit", 50);
+
+        assertEquals(2, statistics.getPointNames().size());
+        assertEquals(2, statistics.getHistogram("Query: select 1").getCount());
+        assertEquals(3000, statistics.getHistogram("Query: select 1").getMax());
+        assertEquals(3, statistics.getTotal().getCount());
+        assertNull(statistics.getHistogram("Rollback"));
+    }
+
+    public void testPointsAboveTheLimitOnlyCountForTheTotal() {
+        LatencyStatistics statistics = new LatencyStatistics(2);
+        statistics.record("Query: select * from t where id = 1", 1000);
+        statistics.record("Query: select * from t where id = 2", 1000);
+        statistics.record("Query: select * from t where id = 3", 1000);
+        statistics.record("Query: select * from t where id = 3", 1000);
+        statistics.record("Query: select * from t where id = 1", 1000);
+
+        assertEquals(2, statistics.getPointNames().size());
+        assertNull(statistics.getHistogram("Query: select * from t where id = 3"));
+        assertEquals(2, statistics.getHistogram("Query: select * from t where id = 1").getCount());
+        assertEquals(2, statistics.getUntrackedCount());
+        assertEquals(5, statistics.getTotal().getCount());
+    }
+
+    public void testClear() {
+        LatencyStatistics statistics = new LatencyStatistics(1);
+        statistics.record("a", 1000);
+        statistics.record("b", 1000);
+        statistics.clear();
+
+        assertTrue(statistics.getPointNames().isEmpty());
+        assertEquals(0, statistics.getUntrackedCount());
+        assertEquals(0, statistics.getTotal().getCount());
+        statistics.record("b", 1000);
+        assertEquals(1, statistics.getHistogram("b").getCount());
+    }
+
+    public void testPercentilesInMilliseconds() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100);
+
+        Double[] percentiles = LatencyStatistics.getPercentiles(histogram);
+        assertEquals(LatencyStatistics.PERCENTILES.length, percentiles.length);
+        assertEquals(0.0001, percentiles[0], 1e-9);
+        assertEquals("Latency p50 0.000 ms, p90 0.000 ms, p99 0.000 ms, p99.9 0.000 ms, max 0.000 ms",
+                LatencyStatistics.format("Latency", histogram));
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.jmx;
+
+import de.qaware.mysqlbenchmark.QueryBenchmark;
+import de.qaware.mysqlbenchmark.logfile.LogEntry;
+import de.qaware.mysqlbenchmark.replay.ReplayScheduler;
+import de.qaware.mysqlbenchmark.simulation.SimulatedDatabase;
+import de.qaware.mysqlbenchmark.simulation.SimulatedExecutor;
+import junit.framework.TestCase;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests the state and the controls of the {@link BenchmarkMonitor} on a benchmark of the simulated database.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class BenchmarkMonitorTest extends TestCase {
+    private static final long FIRST = 1388570400000L;
+    private static final int STATEMENTS = 20;
+
+    private QueryBenchmark benchmark;
+    private BenchmarkMonitor monitor;
+
+    @Override
+    protected void setUp() throws IOException {
+        benchmark = new QueryBenchmark(new SimulatedExecutor(SimulatedDatabase.configure("fixed:1ms")));
+        benchmark.setTotalStatements(STATEMENTS);
+        monitor = new BenchmarkMonitor(benchmark);
+    }
+
+    public void testPauseHoldsTheReplayUntilResumed() throws InterruptedException {
+        monitor.pause();
+        Thread replay = startReplay();
+        Thread.sleep(100);
+
+        assertTrue(monitor.isPaused());
+        assertEquals(0, monitor.getExecutedStatements());
+        assertTrue(replay.isAlive());
+
+        monitor.resume();
+        replay.join(10000);
+
+        assertFalse(monitor.isPaused());
+        assertFalse(replay.isAlive());
+        assertEquals(STATEMENTS, monitor.getExecutedStatements());
+        assertEquals(0, monitor.getFailedStatements());
+        assertEquals(0, monitor.getInFlightStatements());
+        assertEquals(100, monitor.getProgress(), 0);
+    }
+
+    public void testThroughputGetterHasNoSideEffects() throws InterruptedException {
+        startReplay().join(10000);
+
+        double first = monitor.getCurrentThroughput();
+        double second = monitor.getCurrentThroughput();
+        assertTrue(first > 0);
+        // nothing is executed anymore, the throughput only decays with time
+        assertTrue(second > 0 && second <= first);
+        assertEquals(STATEMENTS, monitor.getExecutedStatements());
+    }
+
+    public void testStatementLatencies() throws InterruptedException {
+        startReplay().join(10000);
+
+        List<StatementLatency> latencies = monitor.getStatementLatencies();
+        assertEquals(2, latencies.size());
+        for (StatementLatency latency : latencies) {
+            assertEquals(STATEMENTS / 2, latency.getCount());
+            // the simulated database answers after 1 ms
+            assertTrue(latency.getP50() >= 1);
+            assertTrue(latency.getMax() >= latency.getP50());
+        }
+    }
+
+    public void testChangeReplaySpeed() {
+        benchmark.setScheduler(new ReplayScheduler(1, FIRST));
+        monitor.changeReplaySpeed(4);
+
+        assertEquals(4, monitor.getReplaySpeed(), 0);
+        assertEquals(0, monitor.getTargetRate(), 0);
+        try {
+            monitor.changeTargetRate(100);
+            fail("a replay at the original time offsets has no rate");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            monitor.changeReplaySpeed(0);
+            fail("the speed must be greater than 0");
+        } catch (IllegalArgumentException e) {
+            assertEquals(4, monitor.getReplaySpeed(), 0);
+        }
+    }
+
+    public void testChangeTargetRate() {
+        benchmark.setScheduler(ReplayScheduler.forRate(50));
+        monitor.changeTargetRate(200);
+
+        assertEquals(200, monitor.getTargetRate(), 0);
+        try {
+            monitor.changeReplaySpeed(2);
+            fail("a constant rate replay has no speed");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    public void testControlsNeedAScheduler() {
+        assertEquals(0, monitor.getReplaySpeed(), 0);
+        assertEquals(0, monitor.getTargetRate(), 0);
+        try {
+            monitor.changeReplaySpeed(2);
+            fail("a replay as fast as possible has no speed");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("-speed"));
+        }
+        try {
+            monitor.changeTargetRate(2);
+            fail("a replay as fast as possible has no rate");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("-rate"));
+        }
+    }
+
+    public void testRegisteredAsMXBean() throws Exception {
+        monitor.register();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(BenchmarkMonitor.OBJECT_NAME);
+        try {
+            server.invoke(name, "pause", new Object[0], new String[0]);
+            assertTrue(benchmark.isPaused());
+            assertEquals(Boolean.TRUE, server.getAttribute(name, "Paused"));
+            server.invoke(name, "resume", new Object[0], new String[0]);
+            assertFalse(benchmark.isPaused());
+            assertEquals(0L, server.getAttribute(name, "ExecutedStatements"));
+            assertNotNull(server.getAttribute(name, "StatementLatencies"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    /**
+     * Replay two alternating statements on a thread of its own
+     */
+    private Thread startReplay() {
+        final List<LogEntry> entries = new ArrayList<LogEntry>();
+        for (int i = 0; i < STATEMENTS; i++) {
+            entries.add(new LogEntry("1", FIRST + i, i % 2 == 0 ? "select 1" : "update t set a = 1"));
+        }
+        Thread replay = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                benchmark.processEntries(entries);
+            }
+        });
+        replay.start();
+        return replay;
+    }
+}
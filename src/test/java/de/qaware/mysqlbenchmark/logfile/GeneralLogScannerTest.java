@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.logfile;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares the {@link GeneralLogScanner} with the regex backend of the {@link QueryParser}.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class GeneralLogScannerTest extends TestCase {
+    private static final String[] SHORT_TIMESTAMP_LOG = {
+            "/usr/sbin/mysqld, Version: 5.6.17-log (MySQL Community Server (GPL)). started with:",
+            "Tcp port: 3306  Unix socket: /var/run/mysqld/mysqld.sock",
+            "Time                 Id Command    Argument",
+            "140520 10:32:01\t    1 Connect\troot@localhost on test",
+            "\t\t    1 Query\tselect * from orders where id = 1",
+            "\t\t    2 Query\tupdate orders set state = 'done' where id = 2",
+            "140520 10:32:02\t    1 Query\tSET autocommit=0",
+            "\t\t    2 Quit\t",
+            "\t\t   13 Query\tselect 'x' from dual",
+            "140520 10:32:03\t    1 Quit\t"
+    };
+    private static final String[] ISO_TIMESTAMP_LOG = {
+            "2014-05-20T10:32:01.123456Z\t    7 Query\tselect 1",
+            "2014-05-20T10:32:01.5Z\t    8 Query\tinsert into t values (1)",
+            "2014-05-20T10:32:02.000001Z\t    7 Quit\t",
+            "2014-05-20T10:32:03.999Z\t    8 Query\tcommit"
+    };
+
+    public void testShortTimestampsLikeRegex() throws IOException {
+        File log = RecordingListener.writeLog(SHORT_TIMESTAMP_LOG);
+        List<String> scanned = scan(log, null, null);
+
+        assertEquals(parseWithRegex(log, null, null), scanned);
+        assertEquals(6, scanned.size());
+    }
+
+    public void testIsoTimestampsLikeRegex() throws IOException {
+        File log = RecordingListener.writeLog(ISO_TIMESTAMP_LOG);
+        List<String> scanned = scan(log, null, null);
+
+        assertEquals(parseWithRegex(log, null, null), scanned);
+        assertEquals("7 1400581921123 select 1", scanned.get(0));
+        assertEquals("8 1400581921500 insert into t values (1)", scanned.get(1));
+    }
+
+    public void testFiltersLikeRegex() throws IOException {
+        File log = RecordingListener.writeLog(SHORT_TIMESTAMP_LOG);
+        List<String> ignored = Arrays.asList("SET ", "UPDATE");
+
+        assertEquals(parseWithRegex(log, "1", ignored), scan(log, "1", ignored));
+        assertEquals(parseWithRegex(log, null, ignored), scan(log, null, ignored));
+    }
+
+    public void testJoinsMultiLineStatements() throws IOException {
+        File log = RecordingListener.writeLog(
+                "140520 10:32:01\t    1 Query\tselect *",
+                "from orders",
+                "where id = 1",
+                "\t\t    1 Query\tselect 2",
+                "/usr/sbin/mysqld, Version: 5.6.17-log (MySQL Community Server (GPL)). started with:",
+                "Tcp port: 3306  Unix socket: /var/run/mysqld/mysqld.sock",
+                "Time                 Id Command    Argument");
+        RecordingListener listener = new RecordingListener();
+        new GeneralLogScanner(listener).scan(log.getPath(), null, null);
+
+        assertEquals(2, listener.getEntries().size());
+        assertEquals("select *\nfrom orders\nwhere id = 1", listener.getEntries().get(0).getStatement());
+        assertEquals("select 2", listener.getEntries().get(1).getStatement());
+    }
+
+    public void testContinuationsLookingLikeTheBanner() throws IOException {
+        File log = RecordingListener.writeLog(
+                "140520 10:32:01\t    1 Query\tselect *",
+                "/* the orders */ from orders",
+                "/*!40101 where id = 1 */",
+                "Tcp port: 3306",
+                "\t\t    1 Query\tselect 2",
+                "C:\\mysql\\bin\\mysqld.exe, Version: 5.6.17-log (MySQL Community Server (GPL)). started with:",
+                "TCP Port: 3306, Named Pipe: MySQL",
+                "Time                 Id Command    Argument",
+                "140520 10:32:02\t    1 Query\tselect 3");
+        RecordingListener listener = new RecordingListener();
+        new GeneralLogScanner(listener).scan(log.getPath(), null, null);
+
+        assertEquals(3, listener.getEntries().size());
+        assertEquals("select *\n/* the orders */ from orders\n/*!40101 where id = 1 */\nTcp port: 3306",
+                listener.getEntries().get(0).getStatement());
+        assertEquals("select 2", listener.getEntries().get(1).getStatement());
+        assertEquals("select 3", listener.getEntries().get(2).getStatement());
+    }
+
+    public void testDecodesUtf8() throws IOException {
+        File log = RecordingListener.writeLog("140520 10:32:01\t    1 Query\tselect '\u00fcn\u00efc\u00f6d\u00e9'");
+        RecordingListener listener = new RecordingListener();
+        new GeneralLogScanner(listener).scan(log.getPath(), null, null);
+
+        assertEquals("select '\u00fcn\u00efc\u00f6d\u00e9'", listener.getEntries().get(0).getStatement());
+    }
+
+    public void testCarriageReturnsAreNotPartOfTheStatement() throws IOException {
+        File log = RecordingListener.writeLog("140520 10:32:01\t    1 Query\tselect 1\r");
+        RecordingListener listener = new RecordingListener();
+        new GeneralLogScanner(listener).scan(log.getPath(), null, null);
+
+        assertEquals("select 1", listener.getEntries().get(0).getStatement());
+    }
+
+    private static List<String> scan(File log, String restrictedID, List<String> ignorePrefixes) throws IOException {
+        RecordingListener listener = new RecordingListener();
+        new GeneralLogScanner(listener).scan(log.getPath(), restrictedID, ignorePrefixes);
+        return listener.getEvents();
+    }
+
+    static List<String> parseWithRegex(File log, String restrictedID, List<String> ignorePrefixes)
+            throws IOException {
+        RecordingListener listener = new RecordingListener();
+        new QueryParser(listener).parseLogFile(log.getPath(), restrictedID, ignorePrefixes);
+        return listener.getEvents();
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.logfile;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares the {@link ParallelLogParser} with the single threaded backends. Small chunks make records cross the
+ * boundaries of the byte ranges at every possible position.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class ParallelLogParserTest extends TestCase {
+    private static final int RECORDS = 500;
+
+    public void testSingleLineLogLikeRegex() throws IOException {
+        File log = RecordingListener.writeLog(createLog(false));
+        List<String> expected = GeneralLogScannerTest.parseWithRegex(log, null, null);
+
+        assertEquals(RECORDS + RECORDS / 50, expected.size());
+        for (long chunkSize : new long[]{5, 37, 1000, ParallelLogParser.DEFAULT_CHUNK_SIZE}) {
+            assertEquals("chunk size " + chunkSize, expected, parse(log, 4, chunkSize, null, null));
+        }
+    }
+
+    public void testMultiLineLogLikeScanner() throws IOException {
+        File log = RecordingListener.writeLog(createLog(true));
+        RecordingListener scanned = new RecordingListener();
+        new GeneralLogScanner(scanned).scan(log.getPath(), null, null);
+
+        for (long chunkSize : new long[]{5, 13, 256, 5000}) {
+            assertEquals("chunk size " + chunkSize, scanned.getEvents(), parse(log, 3, chunkSize, null, null));
+        }
+    }
+
+    public void testFiltersLikeRegex() throws IOException {
+        File log = RecordingListener.writeLog(createLog(false));
+        List<String> ignored = Arrays.asList("update");
+
+        assertEquals(GeneralLogScannerTest.parseWithRegex(log, "3", ignored), parse(log, 2, 300, "3", ignored));
+    }
+
+    public void testSingleThread() throws IOException {
+        File log = RecordingListener.writeLog(createLog(false));
+
+        assertEquals(GeneralLogScannerTest.parseWithRegex(log, null, null), parse(log, 1, 1000, null, null));
+    }
+
+    public void testInheritsTimestampsAcrossChunks() throws IOException {
+        File log = RecordingListener.writeLog(
+                "140520 10:32:01\t    1 Query\tselect 1",
+                "\t\t    1 Query\tselect 2",
+                "\t\t    1 Query\tselect 3");
+        RecordingListener listener = new RecordingListener();
+        new ParallelLogParser(listener, 2, 10).parse(log.getPath(), null, null);
+
+        assertEquals(3, listener.getEntries().size());
+        for (LogEntry entry : listener.getEntries()) {
+            assertEquals(listener.getEntries().get(0).getTimestamp(), entry.getTimestamp());
+        }
+    }
+
+    public void testMissingFile() {
+        try {
+            new ParallelLogParser(new RecordingListener(), 2, 100).parse("does-not-exist.log", null, null);
+            fail("a missing log must not be parsed");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private static List<String> parse(File log, int parallelism, long chunkSize, String restrictedID,
+                                      List<String> ignorePrefixes) throws IOException {
+        RecordingListener listener = new RecordingListener();
+        new ParallelLogParser(listener, parallelism, chunkSize).parse(log.getPath(), restrictedID, ignorePrefixes);
+        return listener.getEvents();
+    }
+
+    /**
+     * A log of {@link #RECORDS} statements on 10 connections, with a new timestamp every 7 records and a closed
+     * connection every 50 records.
+     *
+     * @param multiLine true to spread every third statement over several lines
+     * @return lines of the log
+     */
+    private static String[] createLog(boolean multiLine) {
+        List<String> lines = new ArrayList<String>();
+        lines.add("/usr/sbin/mysqld, Version: 5.6.17-log (MySQL Community Server (GPL)). started with:");
+        lines.add("Tcp port: 3306  Unix socket: /var/run/mysqld/mysqld.sock");
+        lines.add("Time                 Id Command    Argument");
+        for (int i = 0; i < RECORDS; i++) {
+            String prefix = i % 7 == 0 ? String.format("140520 10:%02d:%02d\t", i / 60 % 60, i % 60) : "\t\t";
+            String connection = String.format("%5d", i % 10);
+            if (i % 4 == 0) {
+                lines.add(prefix + connection + " Query\tupdate t set x = " + i + " where id = " + i % 10);
+            } else if (multiLine && i % 3 == 0) {
+                lines.add(prefix + connection + " Query\tselect *");
+                lines.add("from t");
+                lines.add("where id = " + i);
+            } else {
+                lines.add(prefix + connection + " Query\tselect * from t where id = " + i);
+            }
+            if (i % 50 == 49) {
+                lines.add("\t\t" + connection + " Quit\t");
+            }
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+}
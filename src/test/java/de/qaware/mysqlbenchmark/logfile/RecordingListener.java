@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.logfile;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the parsed entries and closed connections of a log as strings in log order, so the results of the parser
+ * backends can be compared with each other.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+class RecordingListener implements LogEntryListener {
+    private final List<String> events = new ArrayList<String>();
+    private final List<LogEntry> entries = new ArrayList<LogEntry>();
+
+    @Override
+    public void entryParsed(LogEntry entry) {
+        entries.add(entry);
+        events.add(entry.getConnectionID() + " " + entry.getTimestamp() + " " + entry.getStatement());
+    }
+
+    @Override
+    public void connectionClosed(String connectionID) {
+        events.add(connectionID + " quit");
+    }
+
+    /**
+     * Parsed entries and closed connections in log order
+     *
+     * @return one string per event
+     */
+    List<String> getEvents() {
+        return events;
+    }
+
+    /**
+     * Parsed entries in log order
+     *
+     * @return the entries
+     */
+    List<LogEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Write lines to a temporary log file which is deleted when the tests are done.
+     *
+     * @param lines lines of the log
+     * @return the log file
+     * @throws IOException if the file can't be written
+     */
+    static File writeLog(String... lines) throws IOException {
+        File log = File.createTempFile("mysqlbenchmark", ".log");
+        log.deleteOnExit();
+        Writer writer = new OutputStreamWriter(new FileOutputStream(log), "UTF-8");
+        try {
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+        return log;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.logfile;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compiles logs with the {@link ReplayFileWriter} and compares the records read from the {@link ReplayFile} with the
+ * log scanned by the {@link GeneralLogScanner}, which also joins multi-line statements.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class ReplayFileTest extends TestCase {
+    private static final String[] LOG = {
+            "/usr/sbin/mysqld, Version: 5.6.17-log (MySQL Community Server (GPL)). started with:",
+            "Tcp port: 3306  Unix socket: /var/run/mysqld/mysqld.sock",
+            "Time                 Id Command    Argument",
+            "140520 10:32:01\t    2 Connect\troot@localhost on test",
+            "\t\t    1 Query\tselect * from orders where id = 1",
+            "\t\t    2 Query\tupdate orders",
+            "set state = 'done'",
+            "where id = 2",
+            "140520 10:32:02\t    1 Query\tSET autocommit=0",
+            "\t\t    1 Query\tselect * from orders where id = 1",
+            "\t\t    2 Quit\t",
+            "\t\t   13 Query\tselect '\u00fcn\u00efc\u00f6d\u00e9' from dual",
+            "140520 10:32:03\t    1 Quit\t"
+    };
+
+    private File directory;
+
+    @Override
+    protected void setUp() throws IOException {
+        directory = Files.createTempDirectory("replayfile").toFile();
+    }
+
+    @Override
+    protected void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                assertTrue(file.delete());
+            }
+        }
+        assertTrue(directory.delete());
+    }
+
+    public void testReadsRecordsLikeLog() throws IOException {
+        File log = RecordingListener.writeLog(LOG);
+        List<String> expected = scan(log, null, null);
+        File replay = compile(log);
+
+        assertEquals(expected, read(replay, null, null));
+        assertEquals("1 1400581921000 select * from orders where id = 1", expected.get(0));
+        assertEquals("2 1400581921000 update orders\nset state = 'done'\nwhere id = 2", expected.get(1));
+        assertEquals("13 1400581922000 select '\u00fcn\u00efc\u00f6d\u00e9' from dual", expected.get(5));
+    }
+
+    public void testSmallWindows() throws IOException {
+        File log = RecordingListener.writeLog(LOG);
+        File replay = compile(log);
+        List<String> expected = scan(log, null, null);
+
+        // records, longs and statements cross the window borders
+        for (int windowSize : new int[]{1, 7, 16, 33}) {
+            RecordingListener listener = new RecordingListener();
+            new ReplayFile(replay.getPath(), windowSize).read(listener, null, null);
+            assertEquals("window size " + windowSize, expected, listener.getEvents());
+        }
+    }
+
+    public void testRestrictedIDAndIgnorePrefixes() throws IOException {
+        File log = RecordingListener.writeLog(LOG);
+        File replay = compile(log);
+        List<String> ignored = Arrays.asList("SET ", "UPDATE");
+
+        // the log backends also pass the quits of other connections, the replay file only reads the connection
+        assertEquals(ofConnection("1", scan(log, "1", null)), read(replay, "1", null));
+        assertEquals(ofConnection("1", scan(log, "1", ignored)), read(replay, "1", ignored));
+        assertEquals(scan(log, null, ignored), read(replay, null, ignored));
+        assertEquals(Arrays.asList("2 quit"), read(replay, "2", ignored));
+        assertTrue(read(replay, "42", null).isEmpty());
+    }
+
+    public void testRecordsWithoutTimestamp() throws IOException {
+        File log = RecordingListener.writeLog(
+                "\t\t    1 Query\tselect 0",
+                "140520 10:32:01\t    1 Query\tselect 1");
+        File replay = compile(log);
+        List<String> events = read(replay, null, null);
+
+        assertEquals(scan(log, null, null), events);
+        assertEquals("1 " + LogEntry.NO_TIMESTAMP + " select 0", events.get(0));
+        assertEquals(1400581921000L, new ReplayFile(replay.getPath()).getFirstTimestamp());
+    }
+
+    public void testConnectionsAndDictionary() throws IOException {
+        ReplayFile replay = new ReplayFile(compile(RecordingListener.writeLog(LOG)).getPath());
+
+        // connections in order of their first record, repeated statements stored once
+        assertEquals(Arrays.asList("1", "2", "13"), Arrays.asList(replay.getConnectionIDs().toArray()));
+        assertEquals(7, replay.getRecordCount());
+        assertEquals(4, replay.getStatementCount());
+        assertEquals("select * from orders where id = 1", replay.getStatement(0));
+        assertEquals("SET autocommit=0", replay.getStatement(2));
+    }
+
+    public void testQueryParserReadsReplayFiles() throws IOException {
+        File log = RecordingListener.writeLog(LOG);
+        File replay = compile(log);
+
+        assertFalse(ReplayFile.isReplayFile(log.getPath()));
+        assertTrue(ReplayFile.isReplayFile(replay.getPath()));
+        assertEquals(read(replay, null, null), GeneralLogScannerTest.parseWithRegex(replay, null, null));
+    }
+
+    public void testDiscardDeletesTheFiles() throws IOException {
+        File replay = new File(directory, "discarded.replay");
+        ReplayFileWriter writer = new ReplayFileWriter(replay.getPath());
+        writer.entryParsed(new LogEntry("1", 1000, "select 1"));
+        writer.discard();
+
+        assertFalse(replay.exists());
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    public void testLogIsNotAReplayFile() throws IOException {
+        File log = RecordingListener.writeLog(LOG);
+        try {
+            new ReplayFile(log.getPath());
+            fail("a log is not a replay file");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("is not a replay file"));
+        }
+    }
+
+    private File compile(File log) throws IOException {
+        File replay = new File(directory, "compiled.replay");
+        ReplayFileWriter writer = new ReplayFileWriter(replay.getPath());
+        QueryParser parser = new QueryParser(writer);
+        parser.setBackend(QueryParser.Backend.SCANNER);
+        parser.parseLogFile(log.getPath(), null, null);
+        writer.close();
+
+        // only the replay file is left, the temporary dictionary is deleted
+        assertEquals(Arrays.asList(replay), Arrays.asList(directory.listFiles()));
+        return replay;
+    }
+
+    private static List<String> scan(File log, String restrictedID, List<String> ignorePrefixes) throws IOException {
+        RecordingListener listener = new RecordingListener();
+        new GeneralLogScanner(listener).scan(log.getPath(), restrictedID, ignorePrefixes);
+        return listener.getEvents();
+    }
+
+    private static List<String> ofConnection(String connectionID, List<String> events) {
+        List<String> filtered = new ArrayList<String>();
+        for (String event : events) {
+            if (event.startsWith(connectionID + " ")) {
+                filtered.add(event);
+            }
+        }
+        return filtered;
+    }
+
+    private static List<String> read(File replay, String restrictedID, List<String> ignorePrefixes)
+            throws IOException {
+        RecordingListener listener = new RecordingListener();
+        new ReplayFile(replay.getPath()).read(listener, restrictedID, ignorePrefixes);
+        return listener.getEvents();
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.logfile;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests where the {@link SlowLogParser} starts and ends records and which lines of a record are replayed.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class SlowLogParserTest extends TestCase {
+
+    public void testMultiLineStatement() throws IOException {
+        List<LogEntry> entries = parse(
+                "# Time: 2014-01-01T10:00:00.123456Z",
+                "# User@Host: shop[shop] @ localhost []  Id:    42",
+                "# Query_time: 0.001234  Lock_time: 0.000056 Rows_sent: 1  Rows_examined: 1000",
+                "use shop;",
+                "SET timestamp=1388570400;",
+                "SELECT * FROM orders",
+                "WHERE customer_id = 7;");
+
+        assertEquals(1, entries.size());
+        LogEntry entry = entries.get(0);
+        assertEquals("SELECT * FROM orders\nWHERE customer_id = 7", entry.getStatement());
+        assertEquals("42", entry.getConnectionID());
+        assertEquals(1234000, entry.getRecorded().getQueryNanos());
+        assertEquals(56000, entry.getRecorded().getLockNanos());
+        assertEquals(1, entry.getRecorded().getRowsSent());
+        assertEquals(1000, entry.getRecorded().getRowsExamined());
+    }
+
+    public void testEveryRecordHeaderEndsTheRecord() throws IOException {
+        List<LogEntry> entries = parse(
+                "# User@Host: shop[shop] @ localhost []  Id:    1",
+                "# Query_time: 0.1  Lock_time: 0.0 Rows_sent: 1  Rows_examined: 1",
+                "select 1;",
+                "# Time: 2014-01-01T10:00:00.000000Z",
+                "# User@Host: shop[shop] @ localhost []  Id:    2",
+                "# Query_time: 0.1  Lock_time: 0.0 Rows_sent: 1  Rows_examined: 1",
+                "select 2;",
+                "# User@Host: shop[shop] @ localhost []  Id:    3",
+                "# Query_time: 0.1  Lock_time: 0.0 Rows_sent: 1  Rows_examined: 1",
+                "select 3;",
+                "# Query_time: 0.1  Lock_time: 0.0 Rows_sent: 1  Rows_examined: 1",
+                "select 4;",
+                "# administrator command: Ping;",
+                "# Query_time: 0.1  Lock_time: 0.0 Rows_sent: 1  Rows_examined: 1",
+                "select 5;");
+
+        assertEquals(Arrays.asList("select 1", "select 2", "select 3", "select 4", "select 5"), statements(entries));
+        assertEquals(Arrays.asList("1", "2", "3", "3", "3"), connections(entries));
+    }
+
+    public void testOtherCommentLinesBelongToTheStatement() throws IOException {
+        List<LogEntry> entries = parse(
+                "# Time: 2014-01-01T10:00:00.000000Z",
+                "# User@Host: shop[shop] @ localhost []  Id:    1",
+                "# Thread_id: 1  Schema: shop  QC_hit: No",
+                "# Query_time: 0.1  Lock_time: 0.0 Rows_sent: 1  Rows_examined: 1",
+                "select *",
+                "# all orders of the customer",
+                "from orders where customer_id = 7;",
+                "# Time: 2014-01-01T10:00:01.000000Z",
+                "# User@Host: shop[shop] @ localhost []  Id:    1",
+                "# Query_time: 0.1  Lock_time: 0.0 Rows_sent: 1  Rows_examined: 1",
+                "select 2;");
+
+        assertEquals(Arrays.asList("select *\n# all orders of the customer\nfrom orders where customer_id = 7",
+                "select 2"), statements(entries));
+    }
+
+    public void testBannerEndsTheRecord() throws IOException {
+        List<LogEntry> entries = parse(
+                "# User@Host: shop[shop] @ localhost []  Id:    1",
+                "# Query_time: 0.1  Lock_time: 0.0 Rows_sent: 1  Rows_examined: 1",
+                "select 1;",
+                "/usr/sbin/mysqld, Version: 5.6.17-log (MySQL Community Server (GPL)). started with:",
+                "Tcp port: 3306  Unix socket: /var/run/mysqld/mysqld.sock",
+                "Time                 Id Command    Argument");
+
+        assertEquals(Arrays.asList("select 1"), statements(entries));
+    }
+
+    public void testRecordsWithoutQueryTimeAreSkipped() throws IOException {
+        List<LogEntry> entries = parse(
+                "# User@Host: shop[shop] @ localhost []  Id:    1",
+                "select 1;",
+                "# User@Host: shop[shop] @ localhost []  Id:    1",
+                "# Query_time: 0.1  Lock_time: 0.0 Rows_sent: 1  Rows_examined: 1",
+                "select 2;");
+
+        assertEquals(Arrays.asList("select 2"), statements(entries));
+    }
+
+    public void testQuitClosesTheConnection() throws IOException {
+        RecordingListener listener = new RecordingListener();
+        new SlowLogParser(listener).parse(RecordingListener.writeLog(
+                "# User@Host: shop[shop] @ localhost []  Id:    9",
+                "# Query_time: 0.1  Lock_time: 0.0 Rows_sent: 1  Rows_examined: 1",
+                "select 1;",
+                "# User@Host: shop[shop] @ localhost []  Id:    9",
+                "# Query_time: 0.000001  Lock_time: 0.0 Rows_sent: 0  Rows_examined: 0",
+                "SET timestamp=1388570400;",
+                "# administrator command: Quit;").getPath(), null, null);
+
+        assertEquals(Arrays.asList("9 -1 select 1", "9 quit"), listener.getEvents());
+    }
+
+    public void testStartTimeOfPreciseTimesIsTheEndMinusTheQueryTime() throws IOException {
+        List<LogEntry> entries = parse(
+                "# Time: 2014-01-01T10:00:00.500000Z",
+                "# User@Host: shop[shop] @ localhost []  Id:    1",
+                "# Query_time: 0.25  Lock_time: 0.0 Rows_sent: 1  Rows_examined: 1",
+                "SET timestamp=1388570400;",
+                "select 1;");
+
+        assertEquals(1388570400250L, entries.get(0).getTimestamp());
+    }
+
+    public void testStartTimeOfSecondsIsTheSetTimestamp() throws IOException {
+        List<LogEntry> entries = parse(
+                "# Time: 140101 10:00:03",
+                "# User@Host: shop[shop] @ localhost []  Id:    1",
+                "# Query_time: 2.5  Lock_time: 0.0 Rows_sent: 1  Rows_examined: 1",
+                "SET timestamp=1388570401;",
+                "select 1;");
+
+        assertEquals(1388570401000L, entries.get(0).getTimestamp());
+    }
+
+    public void testLogsWithoutConnectionIds() throws IOException {
+        List<LogEntry> entries = parse(
+                "# User@Host: shop[shop] @ localhost []",
+                "# Query_time: 0.1  Lock_time: 0.0 Rows_sent: 1  Rows_examined: 1",
+                "select 1;");
+
+        assertEquals(SlowLogParser.UNKNOWN_CONNECTION, entries.get(0).getConnectionID());
+    }
+
+    public void testFilters() throws IOException {
+        RecordingListener listener = new RecordingListener();
+        new SlowLogParser(listener).parse(RecordingListener.writeLog(
+                "# User@Host: shop[shop] @ localhost []  Id:    1",
+                "# Query_time: 0.1  Lock_time: 0.0 Rows_sent: 1  Rows_examined: 1",
+                "select 1;",
+                "# User@Host: shop[shop] @ localhost []  Id:    2",
+                "# Query_time: 0.1  Lock_time: 0.0 Rows_sent: 1  Rows_examined: 1",
+                "select 2;",
+                "# User@Host: shop[shop] @ localhost []  Id:    2",
+                "# Query_time: 0.1  Lock_time: 0.0 Rows_sent: 1  Rows_examined: 1",
+                "update t set x = 1;").getPath(), "2", Arrays.asList("UPDATE"));
+
+        assertEquals(Arrays.asList("select 2"), statements(listener.getEntries()));
+    }
+
+    private static List<LogEntry> parse(String... lines) throws IOException {
+        RecordingListener listener = new RecordingListener();
+        new SlowLogParser(listener).parse(RecordingListener.writeLog(lines).getPath(), null, null);
+        return listener.getEntries();
+    }
+
+    private static List<String> statements(List<LogEntry> entries) {
+        String[] statements = new String[entries.size()];
+        for (int i = 0; i < statements.length; i++) {
+            statements[i] = entries.get(i).getStatement();
+        }
+        return Arrays.asList(statements);
+    }
+
+    private static List<String> connections(List<LogEntry> entries) {
+        String[] connections = new String[entries.size()];
+        for (int i = 0; i < connections.length; i++) {
+            connections[i] = entries.get(i).getConnectionID();
+        }
+        return Arrays.asList(connections);
+    }
+}
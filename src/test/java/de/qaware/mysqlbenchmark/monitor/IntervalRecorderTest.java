@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.qaware.mysqlbenchmark.monitor;
+
+import de.qaware.mysqlbenchmark.histogram.LatencyHistogram;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Tests that the {@link IntervalRecorder} merges the intervals of all recording threads without losing a statement,
+ * also while threads record concurrently to the swaps and terminate.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class IntervalRecorderTest extends TestCase {
+    private static final int THREADS = 4;
+    private static final int STATEMENTS = 20000;
+
+    private final IntervalRecorder recorder = new IntervalRecorder();
+
+    public void testSwapStartsANewInterval() {
+        recorder.record("a", 1000, false);
+        recorder.record("a", 3000, true);
+        recorder.record("b", 2000, false);
+
+        Interval interval = recorder.swap();
+        assertEquals(3, interval.getTotal().getCount());
+        assertEquals(2, interval.getPoints().get("a").getCount());
+        assertEquals(1, interval.getPoints().get("b").getCount());
+        assertEquals(1, interval.getErrors());
+
+        Interval next = recorder.swap();
+        assertEquals(0, next.getTotal().getCount());
+        assertTrue(next.getPoints().isEmpty());
+        assertEquals(0, next.getErrors());
+    }
+
+    public void testIntervalsOfAllThreadsAreMerged() throws InterruptedException {
+        final CountDownLatch recorded = new CountDownLatch(THREADS);
+        final CountDownLatch done = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < THREADS; i++) {
+            final String point = "thread " + i;
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    recorder.record(point, 1000, true);
+                    recorded.countDown();
+                    try {
+                        done.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        recorded.await();
+
+        Interval interval = recorder.swap();
+        done.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(THREADS, interval.getTotal().getCount());
+        assertEquals(THREADS, interval.getErrors());
+        assertEquals(THREADS, interval.getPoints().size());
+        for (int i = 0; i < THREADS; i++) {
+            assertEquals(1, interval.getPoints().get("thread " + i).getCount());
+        }
+    }
+
+    public void testNoStatementIsLostWhileSwapping() throws InterruptedException {
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < THREADS; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < STATEMENTS; j++) {
+                        recorder.record(j % 2 == 0 ? "even" : "odd", j, j % 10 == 0);
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+
+        LatencyHistogram total = new LatencyHistogram();
+        LatencyHistogram even = new LatencyHistogram();
+        long errors = 0;
+        int swaps = 0;
+        while (swaps == 0 || isAlive(threads)) {
+            Interval interval = recorder.swap();
+            total.add(interval.getTotal());
+            if (interval.getPoints().containsKey("even")) {
+                even.add(interval.getPoints().get("even"));
+            }
+            errors += interval.getErrors();
+            swaps++;
+        }
+        // the threads have terminated, their last records are in the final interval
+        Interval last = recorder.swap();
+        total.add(last.getTotal());
+        errors += last.getErrors();
+        if (last.getPoints().containsKey("even")) {
+            even.add(last.getPoints().get("even"));
+        }
+
+        assertEquals(THREADS * STATEMENTS, total.getCount());
+        assertEquals(THREADS * STATEMENTS / 2, even.getCount());
+        assertEquals(THREADS * STATEMENTS / 10, errors);
+        assertEquals(STATEMENTS - 1, total.getMax(), STATEMENTS / 100);
+    }
+
+    public void testTerminatedThreadsAreDropped() throws InterruptedException {
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                recorder.record("a", 1000, false);
+            }
+        };
+        thread.start();
+        thread.join();
+        assertEquals(1, recorder.getThreads());
+
+        // the interval of the terminated thread is collected once
+        assertEquals(1, recorder.swap().getTotal().getCount());
+        assertEquals(0, recorder.getThreads());
+        assertEquals(0, recorder.swap().getTotal().getCount());
+    }
+
+    private static boolean isAlive(List<Thread> threads) {
+        for (Thread thread : threads) {
+            if (thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.qaware.mysqlbenchmark.monitor;
+
+import de.qaware.mysqlbenchmark.QueryBenchmark;
+import de.qaware.mysqlbenchmark.logfile.LogEntry;
+import de.qaware.mysqlbenchmark.simulation.SimulatedDatabase;
+import de.qaware.mysqlbenchmark.simulation.SimulatedExecutor;
+import de.qaware.mysqlbenchmark.simulation.SimulationRule;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests the time series of the {@link IntervalReporter}: every statement recorded by the replay threads during a run
+ * is reported in exactly one interval.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class IntervalReporterTest extends TestCase {
+    private static final String HEADER = "Time;Statement;Count;Throughput;Errors;p50;p90;p99;p99.9;Max";
+    private static final String ALL_STATEMENTS = "\"All statements\"";
+    private static final int THREADS = 4;
+    private static final int STATEMENTS = 20000;
+
+    private File csv;
+
+    @Override
+    protected void setUp() throws IOException {
+        csv = File.createTempFile("intervals", ".csv");
+        csv.deleteOnExit();
+    }
+
+    public void testStatementsOfAllThreadsAreReported() throws Exception {
+        final IntervalReporter reporter = new IntervalReporter(1, csv.getPath(), 2);
+        reporter.start();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < THREADS; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < STATEMENTS; j++) {
+                        reporter.record(j % 2 == 0 ? "select 1" : "select \"x\"", 1000000, j % 100 == 0);
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        reporter.stop();
+
+        List<String[]> lines = readCsv();
+        assertEquals(THREADS * STATEMENTS, sum(lines, ALL_STATEMENTS, 2));
+        assertEquals(THREADS * STATEMENTS / 100, sum(lines, ALL_STATEMENTS, 4));
+        assertEquals(THREADS * STATEMENTS / 2, sum(lines, "\"select 1\"", 2));
+        assertEquals(THREADS * STATEMENTS / 2, sum(lines, "\"select \"\"x\"\"\"", 2));
+        for (String[] line : lines) {
+            if (!ALL_STATEMENTS.equals(line[1])) {
+                // the latency of a single statement
+                assertEquals("1.000", line[9]);
+            }
+        }
+    }
+
+    public void testReplay() throws Exception {
+        List<LogEntry> entries = new ArrayList<LogEntry>();
+        for (int i = 0; i < 50; i++) {
+            entries.add(new LogEntry("1", LogEntry.NO_TIMESTAMP, i % 5 == 0 ? "delete from t" : "select 1"));
+        }
+        QueryBenchmark benchmark = new QueryBenchmark(new SimulatedExecutor(new SimulatedDatabase(Arrays.asList(
+                SimulationRule.parse("fixed:1ms 100% ^delete"), SimulationRule.parse("fixed:1ms ^select")))));
+        benchmark.setIntervalReporter(new IntervalReporter(10, csv.getPath(), 1));
+
+        benchmark.processEntries(entries);
+
+        List<String[]> lines = readCsv();
+        assertTrue(lines.size() > 2);
+        assertEquals(benchmark.getExecutedStatements(), sum(lines, ALL_STATEMENTS, 2));
+        assertEquals(benchmark.getFailedStatements(), sum(lines, ALL_STATEMENTS, 4));
+        assertEquals(10, sum(lines, ALL_STATEMENTS, 4));
+    }
+
+    public void testTopStatements() throws Exception {
+        IntervalReporter reporter = new IntervalReporter(60000, csv.getPath(), 2);
+        reporter.start();
+        reporter.record("fast", 1000, false);
+        reporter.record("fast", 1000, false);
+        reporter.record("slow", 5000000, false);
+        reporter.record("medium", 1000000, false);
+        reporter.stop();
+
+        List<String[]> lines = readCsv();
+        assertEquals(3, lines.size());
+        assertEquals(ALL_STATEMENTS, lines.get(0)[1]);
+        assertEquals("4", lines.get(0)[2]);
+        assertEquals("0", lines.get(0)[4]);
+        assertEquals("\"slow\"", lines.get(1)[1]);
+        assertEquals("\"medium\"", lines.get(2)[1]);
+        // errors are counted for all statements only
+        assertEquals("", lines.get(1)[4]);
+    }
+
+    public void testRuns() throws Exception {
+        IntervalReporter reporter = new IntervalReporter(60000, csv.getPath(), 0);
+        reporter.record("before the first run", 1000, false);
+        reporter.start();
+        reporter.record("warmup", 1000, false);
+        reporter.stop();
+        reporter.record("between the runs", 1000, true);
+        Thread.sleep(10);
+        reporter.start();
+        reporter.record("run", 1000, false);
+        reporter.record("run", 1000, false);
+        reporter.stop();
+        reporter.stop();
+
+        List<String[]> lines = readCsv();
+        assertEquals(2, lines.size());
+        assertEquals("1", lines.get(0)[2]);
+        assertEquals("2", lines.get(1)[2]);
+        assertEquals("0", lines.get(1)[4]);
+        // the time continues from the first run
+        assertTrue(Double.parseDouble(lines.get(1)[0]) > Double.parseDouble(lines.get(0)[0]));
+    }
+
+    /**
+     * The lines of the time series file after the header, which is written once
+     *
+     * @return the fields of every line
+     * @throws IOException if the file can't be read
+     */
+    private List<String[]> readCsv() throws IOException {
+        List<String> lines = Files.readAllLines(csv.toPath(), Charset.defaultCharset());
+        assertEquals(HEADER, lines.get(0));
+        List<String[]> fields = new ArrayList<String[]>();
+        for (String line : lines.subList(1, lines.size())) {
+            // the statements of the tests contain no separator
+            fields.add(line.split(";", -1));
+        }
+        return fields;
+    }
+
+    private static long sum(List<String[]> lines, String statement, int column) {
+        long sum = 0;
+        for (String[] line : lines) {
+            if (statement.equals(line[1])) {
+                sum += Long.parseLong(line[column]);
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.monitor;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the moving window of the {@link ThroughputWindow} with explicit times.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class ThroughputWindowTest extends TestCase {
+    private static final long SECOND = 1000000000L;
+    private static final long START = 5 * SECOND;
+
+    public void testThroughputSinceTheStartOfAShortRun() {
+        ThroughputWindow window = new ThroughputWindow(SECOND, 10);
+        window.reset(START);
+        window.sample(100, START + SECOND / 2);
+        window.sample(300, START + 2 * SECOND);
+
+        assertEquals(150, window.getThroughput(300, START + 2 * SECOND), 0.001);
+    }
+
+    public void testReadingDoesNotChangeTheWindow() {
+        ThroughputWindow window = new ThroughputWindow(SECOND, 10);
+        window.reset(START);
+        window.sample(400, START + 4 * SECOND);
+
+        assertEquals(100, window.getThroughput(400, START + 4 * SECOND), 0.001);
+        assertEquals(100, window.getThroughput(400, START + 4 * SECOND), 0.001);
+    }
+
+    public void testOnlyTheLastSamplesCount() {
+        ThroughputWindow window = new ThroughputWindow(SECOND, 3);
+        window.reset(START);
+        // 1000 statements/s for 5 s, then 10 statements/s
+        for (int second = 1; second <= 5; second++) {
+            window.sample(1000 * second, START + second * SECOND);
+        }
+        for (int second = 6; second <= 9; second++) {
+            window.sample(5000 + 10 * (second - 5), START + second * SECOND);
+        }
+
+        assertEquals(10, window.getThroughput(5040, START + 9 * SECOND), 0.001);
+    }
+
+    public void testThroughputDecaysWhileNothingIsExecuted() {
+        ThroughputWindow window = new ThroughputWindow(SECOND, 10);
+        window.reset(START);
+        window.sample(1000, START + SECOND);
+
+        double running = window.getThroughput(1000, START + SECOND);
+        double paused = window.getThroughput(1000, START + 5 * SECOND);
+        assertEquals(1000, running, 0.001);
+        assertEquals(200, paused, 0.001);
+        assertEquals(0, window.getThroughput(1000, START + 60 * SECOND), 0.001);
+    }
+
+    public void testSamplesAtMostOncePerPeriod() {
+        ThroughputWindow window = new ThroughputWindow(SECOND, 2);
+        window.reset(START);
+        window.sample(10, START + SECOND);
+        // inside the period of the previous sample, the sample at START would be replaced otherwise
+        window.sample(20, START + SECOND + 1);
+        window.sample(30, START + SECOND + 2);
+
+        assertEquals(15, window.getThroughput(30, START + 2 * SECOND), 0.001);
+    }
+
+    public void testResetStartsFromZero() {
+        ThroughputWindow window = new ThroughputWindow(SECOND, 10);
+        window.reset(START);
+        window.sample(1000, START + SECOND);
+        window.reset(START + 2 * SECOND);
+
+        assertEquals(0, window.getThroughput(0, START + 2 * SECOND), 0.001);
+        assertEquals(50, window.getThroughput(100, START + 4 * SECOND), 0.001);
+    }
+
+    public void testNothingSampled() {
+        assertEquals(0, new ThroughputWindow().getThroughput(100), 0);
+    }
+}
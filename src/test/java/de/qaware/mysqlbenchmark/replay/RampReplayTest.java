@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.replay;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+/**
+ * Tests the steps of a {@link RampReplay}.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class RampReplayTest extends TestCase {
+
+    public void testList() {
+        assertEquals(Arrays.asList(1, 2, 4, 8), RampReplay.parseSteps("1,2,4,8", 10));
+        assertEquals(Arrays.asList(3, 5, 100), RampReplay.parseSteps(" 3 , 5,100 ", 10));
+        assertEquals(Arrays.asList(7), RampReplay.parseSteps("7", 10));
+    }
+
+    public void testMultiplesOfTheSessions() {
+        assertEquals(Arrays.asList(5, 10, 20), RampReplay.parseSteps("1x,2x,4x", 5));
+        assertEquals(Arrays.asList(2, 5, 10), RampReplay.parseSteps("2,1x,2x", 5));
+        assertEquals("a log without sessions counts as one session",
+                Arrays.asList(1, 2), RampReplay.parseSteps("1x,2x", 0));
+    }
+
+    public void testRangeDoublesUpToTheLastStep() {
+        assertEquals(Arrays.asList(1, 2, 4, 8, 16, 32, 64), RampReplay.parseSteps("1-64", 10));
+        assertEquals(Arrays.asList(3, 6, 12, 20), RampReplay.parseSteps("3 - 20", 10));
+        assertEquals(Arrays.asList(4, 8, 12), RampReplay.parseSteps("1x-3x", 4));
+        assertEquals(Arrays.asList(5), RampReplay.parseSteps("5-5", 10));
+    }
+
+    public void testInvalidSteps() {
+        for (String steps : new String[]{"", "a,b", "1,,2", "1-", "1-2-4", "4,2", "1,1", "0,1", "0-8", "8-4", "-1,2"}) {
+            try {
+                RampReplay.parseSteps(steps, 10);
+                fail("'" + steps + "' is no ramp");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.replay;
+
+import de.qaware.mysqlbenchmark.logfile.LogEntry;
+import junit.framework.TestCase;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the timelines of the {@link ReplayScheduler}. The intended start times are computed from the timeline alone,
+ * so their distances are exact, while the actual release times are only checked not to be early.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class ReplaySchedulerTest extends TestCase {
+    private static final long FIRST = 1388570400000L;
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    public void testReleasesAtTheOriginalOffsetsDividedBySpeed() {
+        ReplayScheduler scheduler = new ReplayScheduler(2, FIRST);
+        scheduler.start();
+        long first = scheduler.awaitStart(entry(FIRST));
+        long second = scheduler.awaitStart(entry(FIRST + 20));
+        long third = scheduler.awaitStart(entry(FIRST + 50));
+
+        assertEquals(10 * MILLIS, second - first);
+        assertEquals(25 * MILLIS, third - first);
+        assertTrue(System.nanoTime() >= third);
+    }
+
+    public void testFirstTimestampOfTheLogByDefault() {
+        ReplayScheduler scheduler = new ReplayScheduler(1, LogEntry.NO_TIMESTAMP);
+        long started = System.nanoTime();
+        scheduler.start();
+        scheduler.awaitStart(entry(FIRST + 5000));
+
+        assertTrue("the first statement is released immediately", System.nanoTime() - started < 1000 * MILLIS);
+    }
+
+    public void testEntriesWithoutTimestampAreReleasedImmediately() {
+        ReplayScheduler scheduler = new ReplayScheduler(1, FIRST);
+        scheduler.start();
+        long before = System.nanoTime();
+        scheduler.awaitStart(entry(LogEntry.NO_TIMESTAMP));
+
+        assertTrue(System.nanoTime() - before < 1000 * MILLIS);
+        assertEquals(0, scheduler.getLateStatements());
+    }
+
+    public void testConstantRateIgnoresTimestamps() {
+        ReplayScheduler scheduler = ReplayScheduler.forRate(500);
+        scheduler.start();
+        long first = scheduler.awaitStart(entry(FIRST + 100000));
+        long second = scheduler.awaitStart(entry(FIRST));
+        long third = scheduler.awaitStart(entry(LogEntry.NO_TIMESTAMP));
+
+        assertEquals(2 * MILLIS, second - first);
+        assertEquals(4 * MILLIS, third - first);
+        assertEquals(0, scheduler.getSpeed(), 0);
+        assertEquals(500, scheduler.getRate(), 0);
+    }
+
+    public void testLateStatementsAreReportedAsLag() throws InterruptedException {
+        ReplayScheduler scheduler = new ReplayScheduler(1, FIRST);
+        scheduler.start();
+        Thread.sleep(30);
+        scheduler.awaitStart(entry(FIRST));
+
+        assertEquals(1, scheduler.getLateStatements());
+        assertTrue(scheduler.getAverageLag() >= 30);
+        assertEquals(scheduler.getAverageLag(), scheduler.getMaxLag(), 0.001);
+        assertTrue(scheduler.getSummary(), scheduler.getSummary().endsWith("1 of 1 statements more than 10 ms late"));
+    }
+
+    public void testStartResetsTheStatistics() throws InterruptedException {
+        ReplayScheduler scheduler = new ReplayScheduler(1, FIRST);
+        scheduler.start();
+        Thread.sleep(20);
+        scheduler.awaitStart(entry(FIRST));
+        scheduler.start();
+
+        assertEquals(0, scheduler.getLateStatements());
+        assertEquals(0, scheduler.getAverageLag(), 0);
+    }
+
+    public void testSpeedChangeKeepsThePosition() {
+        ReplayScheduler scheduler = new ReplayScheduler(1, FIRST);
+        long started = System.nanoTime();
+        scheduler.start();
+        scheduler.setSpeed(1000);
+        scheduler.awaitStart(entry(FIRST + 60000));
+
+        assertEquals(1000, scheduler.getSpeed(), 0);
+        assertTrue("a minute of the log at 1000x", System.nanoTime() - started < 5000 * MILLIS);
+    }
+
+    public void testPauseIsNotPartOfTheSchedule() throws InterruptedException {
+        ReplayScheduler scheduler = new ReplayScheduler(1, FIRST);
+        scheduler.start();
+        long origin = scheduler.awaitStart(entry(FIRST));
+        scheduler.pause();
+        assertTrue(scheduler.isPaused());
+        Thread.sleep(50);
+        scheduler.resume();
+        assertFalse(scheduler.isPaused());
+        long next = scheduler.awaitStart(entry(FIRST + 20));
+
+        assertTrue(next - origin >= 70 * MILLIS);
+        assertEquals(0, scheduler.getLateStatements());
+    }
+
+    public void testPausedSchedulerHoldsStatementsBack() throws InterruptedException {
+        final ReplayScheduler scheduler = new ReplayScheduler(1, FIRST);
+        scheduler.start();
+        scheduler.pause();
+        Thread replay = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                scheduler.awaitStart(entry(FIRST));
+            }
+        });
+        replay.start();
+        replay.join(100);
+        assertTrue(replay.isAlive());
+
+        scheduler.resume();
+        replay.join(5000);
+        assertFalse(replay.isAlive());
+    }
+
+    public void testInvalidSpeedAndRate() {
+        try {
+            new ReplayScheduler(0, FIRST);
+            fail("speed 0");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            ReplayScheduler.forRate(-1);
+            fail("negative rate");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            ReplayScheduler.forRate(10).setSpeed(2);
+            fail("speed of a constant rate");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            new ReplayScheduler(1, FIRST).setRate(10);
+            fail("rate of a replay at the original offsets");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    private static LogEntry entry(long timestamp) {
+        return new LogEntry("1", timestamp, "select 1");
+    }
+}
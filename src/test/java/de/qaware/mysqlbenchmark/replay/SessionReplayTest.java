@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.replay;
+
+import de.qaware.mysqlbenchmark.QueryBenchmark;
+import de.qaware.mysqlbenchmark.logfile.LogEntry;
+import de.qaware.mysqlbenchmark.simulation.SimulatedDatabase;
+import de.qaware.mysqlbenchmark.simulation.SimulatedExecutor;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests how many sessions of a log the {@link SessionReplay} finds open at the same time, and that a scheduled replay
+ * keeps the number of threads.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class SessionReplayTest extends TestCase {
+    private static final long FIRST = 1388570400000L;
+
+    private final Map<String, List<LogEntry>> sessions = new LinkedHashMap<String, List<LogEntry>>();
+
+    public void testOverlappingSessions() {
+        addSession("1", 0, 10);
+        addSession("2", 5, 20);
+        addSession("3", 6, 7);
+        addSession("4", 11, 30);
+        addSession("5", 30);
+
+        assertEquals(3, SessionReplay.getConcurrentSessions(sessions));
+    }
+
+    public void testSessionsStartingAfterTheLastStatementOfAnother() {
+        addSession("1", 0, 10);
+        addSession("2", 11, 20);
+        addSession("3", 21, 30);
+
+        assertEquals(1, SessionReplay.getConcurrentSessions(sessions));
+    }
+
+    public void testSessionsWithoutTimestamps() {
+        addSession("1", LogEntry.NO_TIMESTAMP, LogEntry.NO_TIMESTAMP);
+        addSession("2", LogEntry.NO_TIMESTAMP);
+
+        assertEquals(1, SessionReplay.getConcurrentSessions(sessions));
+    }
+
+    public void testThreadsLimitAScheduledReplay() throws Exception {
+        addSession("1", FIRST, FIRST + 100);
+        addSession("2", FIRST, FIRST + 100);
+        addSession("3", FIRST, FIRST + 100);
+        ReplayScheduler scheduler = new ReplayScheduler(1, FIRST);
+        QueryBenchmark benchmark = new QueryBenchmark(new SimulatedExecutor(SimulatedDatabase.configure("fixed:50ms")));
+        benchmark.setScheduler(scheduler);
+
+        new SessionReplay(benchmark, "", "", "", 1).replay(sessions);
+
+        // the sessions run one after another, the second one starts after the 150 ms of the first
+        assertEquals(6, benchmark.getExecutedStatements());
+        assertTrue(scheduler.getLateStatements() >= 2);
+        assertTrue(scheduler.getMaxLag() >= 100);
+    }
+
+    private void addSession(String connectionID, long... timestamps) {
+        List<LogEntry> entries = new ArrayList<LogEntry>();
+        for (long timestamp : timestamps) {
+            entries.add(new LogEntry(connectionID, timestamp, "select 1"));
+        }
+        sessions.put(connectionID, entries);
+    }
+}
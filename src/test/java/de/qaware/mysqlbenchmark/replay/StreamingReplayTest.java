@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.qaware.mysqlbenchmark.replay;
+
+import de.qaware.mysqlbenchmark.QueryBenchmark;
+import de.qaware.mysqlbenchmark.filter.StatementFilter;
+import de.qaware.mysqlbenchmark.logfile.LogEntry;
+import de.qaware.mysqlbenchmark.simulation.SimulatedDatabase;
+import de.qaware.mysqlbenchmark.simulation.SimulatedExecutor;
+import de.qaware.mysqlbenchmark.sql.StatementExecutor;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests the bounded queues between the reader of the log and the replay threads of the {@link StreamingReplay}: every
+ * statement is replayed in order before the replay returns, a full queue blocks the reader and a failure on either
+ * side ends the replay instead of blocking it.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class StreamingReplayTest extends TestCase {
+    private static final int CONNECTIONS = 3;
+    private static final int STATEMENTS = 10;
+
+    private final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    public void testAllStatementsAreReplayedInLogOrder() throws Exception {
+        QueryBenchmark benchmark = createBenchmark("fixed:0", null);
+        StreamingReplay replay = new StreamingReplay(benchmark, "", "", "", 1, 4);
+
+        replay.replay(writeLog().getPath(), null, null);
+
+        assertEquals(CONNECTIONS * STATEMENTS, replay.getParsedStatements());
+        assertEquals(CONNECTIONS * STATEMENTS, benchmark.getExecutedStatements());
+        assertEquals(getStatements(), executed);
+        // one thread replays all statements on one connection
+        assertEquals(1, connections.get());
+        assertEquals(0, openConnections.get());
+    }
+
+    public void testConnectionsAreReplayedOnTheirOwnConnection() throws Exception {
+        QueryBenchmark benchmark = createBenchmark("fixed:0", null);
+        StreamingReplay replay = new StreamingReplay(benchmark, "", "", "", 2, 2);
+
+        replay.replay(writeLog().getPath(), null, null);
+
+        assertEquals(CONNECTIONS * STATEMENTS, benchmark.getExecutedStatements());
+        for (int connection = 1; connection <= CONNECTIONS; connection++) {
+            List<String> ofConnection = new ArrayList<String>();
+            for (String statement : executed) {
+                if (statement.startsWith("select " + connection + ",")) {
+                    ofConnection.add(statement);
+                }
+            }
+            assertEquals(getStatements(connection), ofConnection);
+        }
+        assertEquals(CONNECTIONS, connections.get());
+        assertEquals(0, openConnections.get());
+    }
+
+    public void testFullQueueBlocksTheReader() throws Exception {
+        final QueryBenchmark benchmark = createBenchmark("fixed:2ms", null);
+        final StreamingReplay replay = new StreamingReplay(benchmark, "", "", "", 1, 1);
+        final AtomicLong maxBacklog = new AtomicLong();
+        Thread monitor = new Thread() {
+            @Override
+            public void run() {
+                while (!isInterrupted()) {
+                    // read the parsed statements first, so the backlog is never overestimated
+                    long parsed = replay.getParsedStatements();
+                    maxBacklog.set(Math.max(maxBacklog.get(), parsed - benchmark.getExecutedStatements()));
+                }
+            }
+        };
+        monitor.start();
+        try {
+            replay.replay(writeLog().getPath(), null, null);
+        } finally {
+            monitor.interrupt();
+            monitor.join();
+        }
+
+        assertEquals(CONNECTIONS * STATEMENTS, benchmark.getExecutedStatements());
+        // one statement in the queue, one executed and one the reader waits to queue
+        assertTrue("Backlog of " + maxBacklog.get(), maxBacklog.get() <= 3);
+    }
+
+    public void testFailingStatementIsSkipped() throws Exception {
+        QueryBenchmark benchmark = createBenchmark("fixed:0", "select 2, 5");
+        StreamingReplay replay = new StreamingReplay(benchmark, "", "", "", 2, 1);
+
+        replay.replay(writeLog().getPath(), null, null);
+
+        assertEquals(CONNECTIONS * STATEMENTS, benchmark.getExecutedStatements());
+        assertEquals(1, benchmark.getFailedStatements());
+        assertEquals(0, openConnections.get());
+    }
+
+    public void testFailingReaderEndsTheReplay() throws Exception {
+        QueryBenchmark benchmark = createBenchmark("fixed:1ms", null);
+        StreamingReplay replay = new StreamingReplay(benchmark, "", "", "", 2, 1);
+        replay.setFilter(new FailingFilter(5));
+
+        try {
+            replay.replay(writeLog().getPath(), null, null);
+            fail("The reader failed");
+        } catch (IllegalStateException e) {
+            assertEquals("Unreadable statement", e.getMessage());
+        }
+        assertTrue(benchmark.getExecutedStatements() < 5);
+        assertEquals(0, openConnections.get());
+    }
+
+    public void testStoppedReplayThreadEndsTheReplay() throws Exception {
+        QueryBenchmark benchmark = createBenchmark("fixed:0", null);
+        benchmark.setExecutor(new RecordingExecutor(SimulatedDatabase.configure("fixed:0"), null) {
+            @Override
+            public StatementExecutor newExecutor() {
+                return this;
+            }
+
+            @Override
+            public boolean executeStatement(String name) {
+                if (name.startsWith("select 1, 2")) {
+                    // not an exception, the replay thread can't skip the statement
+                    throw new StackOverflowError("Replay thread stopped");
+                }
+                return super.executeStatement(name);
+            }
+        });
+        StreamingReplay replay = new StreamingReplay(benchmark, "", "", "", 1, 1);
+
+        try {
+            replay.replay(writeLog().getPath(), null, null);
+            fail("The replay thread stopped");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().startsWith("A replay thread stopped"));
+        }
+        assertTrue(replay.getParsedStatements() < CONNECTIONS * STATEMENTS);
+    }
+
+    private QueryBenchmark createBenchmark(String latency, String failing) throws IOException {
+        return new QueryBenchmark(new RecordingExecutor(SimulatedDatabase.configure(latency), failing));
+    }
+
+    /**
+     * Write a log of {@link #CONNECTIONS} interleaved connections with {@link #STATEMENTS} statements each. The
+     * statements name their connection and position, e.g. {@code select 2, 5}.
+     *
+     * @return the log file
+     * @throws IOException if the file can't be written
+     */
+    private static File writeLog() throws IOException {
+        File log = File.createTempFile("mysqlbenchmark", ".log");
+        log.deleteOnExit();
+        Writer writer = new OutputStreamWriter(new FileOutputStream(log), "UTF-8");
+        try {
+            writer.write("140520 10:32:01\t    1 Connect\troot@localhost on test\n");
+            for (String statement : getStatements()) {
+                writer.write(String.format(Locale.ENGLISH, "\t\t    %s Query\t%s\n",
+                        statement.substring(7, statement.indexOf(',')), statement));
+            }
+            for (int connection = 1; connection <= CONNECTIONS; connection++) {
+                writer.write("\t\t    " + connection + " Quit\t\n");
+            }
+        } finally {
+            writer.close();
+        }
+        return log;
+    }
+
+    /**
+     * The statements of the log in log order
+     *
+     * @return statements
+     */
+    private static List<String> getStatements() {
+        List<String> statements = new ArrayList<String>();
+        for (int i = 0; i < STATEMENTS; i++) {
+            for (int connection = 1; connection <= CONNECTIONS; connection++) {
+                statements.add("select " + connection + ", " + i);
+            }
+        }
+        return statements;
+    }
+
+    private static List<String> getStatements(int connection) {
+        List<String> statements = new ArrayList<String>();
+        for (int i = 0; i < STATEMENTS; i++) {
+            statements.add("select " + connection + ", " + i);
+        }
+        return statements;
+    }
+
+    /**
+     * Records the executed statements and open connections of all its executors, and fails one statement with an
+     * exception
+     */
+    private class RecordingExecutor extends SimulatedExecutor {
+        private final SimulatedDatabase database;
+        private final String failing;
+
+        RecordingExecutor(SimulatedDatabase database, String failing) {
+            super(database);
+            this.database = database;
+            this.failing = failing;
+        }
+
+        @Override
+        public StatementExecutor newExecutor() {
+            return new RecordingExecutor(database, failing);
+        }
+
+        @Override
+        public void initConnection(String connectionString, String username, String password) {
+            connections.incrementAndGet();
+            openConnections.incrementAndGet();
+        }
+
+        @Override
+        public void closeConnection() {
+            openConnections.decrementAndGet();
+        }
+
+        @Override
+        public boolean executeStatement(String name) {
+            if (name.equals(failing)) {
+                throw new IllegalArgumentException("Not replayable");
+            }
+            executed.add(name);
+            return super.executeStatement(name);
+        }
+    }
+
+    /**
+     * Fails while reading a statement of the log
+     */
+    private static class FailingFilter extends StatementFilter {
+        private final int failingStatement;
+        private int statements;
+
+        FailingFilter(int failingStatement) {
+            this.failingStatement = failingStatement;
+            addRule("include prefix select");
+        }
+
+        @Override
+        public boolean accept(LogEntry entry) {
+            if (++statements == failingStatement) {
+                throw new IllegalStateException("Unreadable statement");
+            }
+            return super.accept(entry);
+        }
+    }
+}
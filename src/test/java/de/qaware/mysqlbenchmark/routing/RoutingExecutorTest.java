@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.qaware.mysqlbenchmark.routing;
+
+import de.qaware.mysqlbenchmark.simulation.SimulatedDatabase;
+import de.qaware.mysqlbenchmark.simulation.SimulatedExecutor;
+import de.qaware.mysqlbenchmark.simulation.SimulationRule;
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Tests that the {@link RoutingExecutor} sends reads to the replicas and keeps a connection on one endpoint for the
+ * whole transaction, against a simulated primary and two replicas.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class RoutingExecutorTest extends TestCase {
+    private SimulatedDatabase database;
+    private RoutingStatistics routing;
+    private RoutingExecutor executor;
+
+    @Override
+    protected void setUp() throws Exception {
+        database = new SimulatedDatabase(Collections.<SimulationRule>emptyList());
+        routing = new RoutingStatistics("jdbc:mysql://primary/", Arrays.asList("jdbc:mysql://replica1/",
+                "jdbc:mysql://replica2/"), RoutingPolicy.ROUND_ROBIN);
+        executor = new RoutingExecutor(new SimulatedExecutor(database), routing, "shop");
+        executor.initConnection("jdbc:mysql://primary/shop", "user", "password");
+        routing.start();
+    }
+
+    public void testReadsAreSpreadOverTheReplicas() {
+        assertTrue(executor.executeStatement("SELECT * FROM t"));
+        assertTrue(executor.executeStatement("SELECT * FROM t"));
+        assertNotNull(executor.executeAndFetch("SELECT * FROM t"));
+        assertTrue(executor.executeStatement("UPDATE t SET a = 1"));
+        assertTrue(executor.executeStatement("SELECT LAST_INSERT_ID()"));
+
+        assertEquals(0, routing.getPrimary().getReads());
+        assertEquals(2, routing.getPrimary().getWrites());
+        assertEquals(2, routing.getReplicas().get(0).getReads());
+        assertEquals(1, routing.getReplicas().get(1).getReads());
+    }
+
+    public void testTransactionStaysOnThePrimary() {
+        executor.executeStatement("BEGIN");
+        executor.executeStatement("SELECT * FROM t");
+        executor.executeStatement("UPDATE t SET a = 1");
+        executor.executeStatement("SELECT * FROM t");
+        executor.executeStatement("COMMIT");
+        assertEquals(5, getStatements(routing.getPrimary()));
+        assertEquals(0, getStatements(routing.getReplicas().get(0)) + getStatements(routing.getReplicas().get(1)));
+
+        // after the commit reads go to the replicas again
+        executor.executeStatement("SELECT * FROM t");
+        assertEquals(5, getStatements(routing.getPrimary()));
+        assertEquals(1, routing.getReplicas().get(0).getReads());
+    }
+
+    public void testReadOnlyTransactionStaysOnOneReplica() {
+        executor.executeStatement("SELECT * FROM t");
+        executor.executeStatement("START TRANSACTION READ ONLY");
+        executor.executeStatement("SELECT * FROM t");
+        executor.executeStatement("SELECT * FROM u");
+        executor.executeStatement("SELECT * FROM v");
+        executor.executeStatement("ROLLBACK");
+
+        // the transaction started on the second replica, round robin would have changed the replica for every read
+        assertEquals(1, getStatements(routing.getReplicas().get(0)));
+        assertEquals(3, routing.getReplicas().get(1).getReads());
+        assertEquals(2, routing.getReplicas().get(1).getWrites());
+        assertEquals(0, getStatements(routing.getPrimary()));
+
+        executor.executeStatement("SELECT * FROM t");
+        assertEquals(2, getStatements(routing.getReplicas().get(0)));
+    }
+
+    public void testTransactionOnAnotherEndpointIsCommittedImplicitly() {
+        executor.executeStatement("START TRANSACTION READ ONLY");
+        executor.executeStatement("SELECT * FROM t");
+        executor.executeStatement("BEGIN");
+        executor.executeStatement("SELECT * FROM t");
+        executor.executeStatement("COMMIT");
+
+        assertEquals(2, getStatements(routing.getReplicas().get(0)));
+        assertEquals(3, getStatements(routing.getPrimary()));
+        // the COMMIT sent to the replica is not measured
+        assertEquals(6, database.getInjectedLatencies().getCount());
+    }
+
+    public void testReadsWithoutAutocommitStayOnThePrimary() {
+        executor.executeStatement("SET autocommit=0");
+        executor.executeStatement("SELECT * FROM t");
+        executor.executeStatement("COMMIT");
+        executor.executeStatement("SELECT * FROM t");
+        assertEquals(4, getStatements(routing.getPrimary()));
+
+        executor.executeStatement("SET autocommit=1");
+        executor.executeStatement("SELECT * FROM t");
+        assertEquals(5, getStatements(routing.getPrimary()));
+        assertEquals(1, routing.getReplicas().get(0).getReads());
+    }
+
+    public void testTransactionsOfTheReplayStayOnThePrimary() {
+        assertTrue(executor.begin());
+        executor.executeStatement("SELECT * FROM t");
+        executor.executeStatement("SELECT * FROM t");
+        assertTrue(executor.end(true));
+        assertEquals(3, getStatements(routing.getPrimary()));
+
+        assertTrue(executor.setAutoCommit(false));
+        executor.executeStatement("SELECT * FROM t");
+        assertTrue(executor.setAutoCommit(true));
+        executor.executeStatement("SELECT * FROM t");
+        assertEquals(4, getStatements(routing.getPrimary()));
+        assertEquals(1, routing.getReplicas().get(0).getReads());
+    }
+
+    public void testSessionStatementsAreAppliedToAllEndpoints() {
+        executor.executeStatement("SET NAMES utf8");
+        executor.executeStatement("/*!40101 SET character_set_client = utf8 */");
+
+        assertEquals(2, getStatements(routing.getPrimary()));
+        assertEquals(0, getStatements(routing.getReplicas().get(0)) + getStatements(routing.getReplicas().get(1)));
+        assertEquals(6, database.getInjectedLatencies().getCount());
+    }
+
+    public void testClosingEndsTheTransaction() throws Exception {
+        executor.executeStatement("START TRANSACTION READ ONLY");
+        executor.closeConnection();
+        executor.initConnection("jdbc:mysql://primary/shop", "user", "password");
+        executor.executeStatement("SELECT * FROM t");
+        executor.executeStatement("SELECT * FROM t");
+
+        assertEquals(1, routing.getReplicas().get(0).getWrites());
+        assertEquals(1, routing.getReplicas().get(1).getReads());
+        assertEquals(1, routing.getReplicas().get(0).getReads());
+    }
+
+    private static long getStatements(Endpoint endpoint) {
+        return endpoint.getReads() + endpoint.getWrites();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.qaware.mysqlbenchmark.routing;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the classification of statements for the read/write split.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class StatementKindTest extends TestCase {
+
+    public void testReads() {
+        assertEquals(StatementKind.READ, StatementKind.of("SELECT * FROM t WHERE id = 1"));
+        assertEquals(StatementKind.READ, StatementKind.of("  (select a from t) union (select b from u)"));
+        assertEquals(StatementKind.READ, StatementKind.of("SHOW TABLES"));
+        assertEquals(StatementKind.READ, StatementKind.of("DESCRIBE t"));
+        assertEquals(StatementKind.READ, StatementKind.of("desc t"));
+        assertEquals(StatementKind.READ, StatementKind.of("EXPLAIN SELECT * FROM t"));
+    }
+
+    public void testSessionStatements() {
+        assertEquals(StatementKind.SESSION, StatementKind.of("SET NAMES utf8"));
+        assertEquals(StatementKind.SESSION, StatementKind.of("set @a = 1"));
+        assertEquals(StatementKind.SESSION, StatementKind.of("USE shop"));
+    }
+
+    public void testWrites() {
+        assertEquals(StatementKind.WRITE, StatementKind.of("INSERT INTO t VALUES (1)"));
+        assertEquals(StatementKind.WRITE, StatementKind.of("UPDATE t SET a = 1"));
+        assertEquals(StatementKind.WRITE, StatementKind.of("DELETE FROM t"));
+        assertEquals(StatementKind.WRITE, StatementKind.of("CREATE TABLE t (a INT)"));
+        assertEquals(StatementKind.WRITE, StatementKind.of("CALL p()"));
+        assertEquals(StatementKind.WRITE, StatementKind.of(""));
+        assertEquals(StatementKind.WRITE, StatementKind.of("EXPLAIN ANALYZE UPDATE t SET a = 1"));
+    }
+
+    public void testCommonTableExpressions() {
+        assertEquals(StatementKind.READ, StatementKind.of("WITH c AS (SELECT a FROM t) SELECT * FROM c"));
+        assertEquals(StatementKind.READ,
+                StatementKind.of("with recursive n (i) as (select 1 union all select i + 1 from n where i < 5) "
+                        + "select i from n"));
+        assertEquals(StatementKind.WRITE,
+                StatementKind.of("WITH c AS (SELECT id FROM t) UPDATE u JOIN c ON u.id = c.id SET u.a = 1"));
+        assertEquals(StatementKind.WRITE, StatementKind.of("WITH c AS (SELECT id FROM t) DELETE FROM u"));
+    }
+
+    public void testLockingReads() {
+        assertEquals(StatementKind.WRITE, StatementKind.of("SELECT * FROM t WHERE id = 1 FOR UPDATE"));
+        assertEquals(StatementKind.WRITE, StatementKind.of("select * from t where id = 1 for\nupdate nowait"));
+        assertEquals(StatementKind.WRITE, StatementKind.of("SELECT * FROM t FOR SHARE"));
+        assertEquals(StatementKind.WRITE, StatementKind.of("SELECT * FROM t LOCK IN SHARE MODE"));
+        assertEquals(StatementKind.WRITE, StatementKind.of("SELECT GET_LOCK('a', 10)"));
+        assertEquals(StatementKind.WRITE, StatementKind.of("SELECT RELEASE_LOCK('a')"));
+    }
+
+    public void testSelectInto() {
+        assertEquals(StatementKind.WRITE, StatementKind.of("SELECT a INTO @a FROM t"));
+        assertEquals(StatementKind.WRITE, StatementKind.of("SELECT * FROM t INTO OUTFILE '/tmp/t.csv'"));
+        assertEquals(StatementKind.WRITE, StatementKind.of("SELECT * INTO DUMPFILE '/tmp/t' FROM t"));
+        // a word within an identifier is no keyword
+        assertEquals(StatementKind.READ, StatementKind.of("SELECT updated_at, intoxicated FROM t"));
+    }
+
+    public void testReadsDependingOnThePreviousStatement() {
+        assertEquals(StatementKind.WRITE, StatementKind.of("SELECT LAST_INSERT_ID()"));
+        assertEquals(StatementKind.WRITE, StatementKind.of("select last_insert_id ( )"));
+        assertEquals(StatementKind.WRITE, StatementKind.of("SELECT FOUND_ROWS()"));
+        assertEquals(StatementKind.WRITE, StatementKind.of("SELECT SQL_CALC_FOUND_ROWS * FROM t LIMIT 10"));
+        assertEquals(StatementKind.WRITE, StatementKind.of("SELECT ROW_COUNT()"));
+        assertEquals(StatementKind.WRITE, StatementKind.of("SELECT NEXT VALUE FOR s"));
+    }
+
+    public void testLiteralsContainingKeywords() {
+        // literals are not skipped, in doubt the statement goes to the primary
+        assertEquals(StatementKind.WRITE, StatementKind.of("SELECT * FROM t WHERE a = 'insert'"));
+    }
+
+    public void testComments() {
+        assertEquals(StatementKind.READ, StatementKind.of("/* app:42 */ SELECT * FROM t"));
+        assertEquals(StatementKind.READ, StatementKind.of("-- report\nSELECT * FROM t"));
+        assertEquals(StatementKind.READ, StatementKind.of("# report\nSELECT * FROM t"));
+        assertEquals(StatementKind.WRITE, StatementKind.of("/* SELECT */ DELETE FROM t"));
+        assertEquals(StatementKind.WRITE, StatementKind.of("/* unterminated SELECT"));
+    }
+
+    public void testExecutableComments() {
+        assertEquals(StatementKind.SESSION, StatementKind.of("/*!40101 SET NAMES utf8 */"));
+        assertEquals(StatementKind.SESSION, StatementKind.of("/*!SET @a = 1*/"));
+        assertEquals(StatementKind.READ, StatementKind.of("/*!40001 */ SELECT * FROM t"));
+        assertEquals(StatementKind.READ, StatementKind.of("SELECT /*!40001 SQL_NO_CACHE */ * FROM t"));
+        assertEquals(StatementKind.WRITE, StatementKind.of("/*!40000 ALTER TABLE t DISABLE KEYS */"));
+        assertEquals(StatementKind.WRITE, StatementKind.of("/*!50001 SELECT * FROM t FOR UPDATE */"));
+    }
+
+    public void testReadOnlyTransactions() {
+        assertTrue(StatementKind.isReadOnlyTransaction("START TRANSACTION READ ONLY"));
+        assertTrue(StatementKind.isReadOnlyTransaction("start transaction with consistent snapshot, read only;"));
+        assertTrue(StatementKind.isReadOnlyTransaction(" START\nTRANSACTION READ  ONLY"));
+        assertFalse(StatementKind.isReadOnlyTransaction("START TRANSACTION"));
+        assertFalse(StatementKind.isReadOnlyTransaction("START TRANSACTION READ WRITE"));
+        assertFalse(StatementKind.isReadOnlyTransaction("BEGIN"));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.qaware.mysqlbenchmark.simulation;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests parsing the latency distributions of the simulated database and the latencies they draw.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class LatencyDistributionTest extends TestCase {
+    private static final int SAMPLES = 100000;
+    private static final long MS = 1000000;
+
+    private final Random random = new Random(42);
+
+    public void testDurations() {
+        assertEquals(250, LatencyDistribution.parseDuration("250ns"));
+        assertEquals(1500, LatencyDistribution.parseDuration("1.5us"));
+        assertEquals(2 * MS, LatencyDistribution.parseDuration("2ms"));
+        assertEquals(2 * MS, LatencyDistribution.parseDuration(" 2 MS "));
+        assertEquals(3 * MS, LatencyDistribution.parseDuration("3"));
+        assertEquals(1500 * MS, LatencyDistribution.parseDuration("1.5s"));
+        assertEquals(0, LatencyDistribution.parseDuration("0"));
+        assertInvalidDuration("");
+        assertInvalidDuration("ms");
+        assertInvalidDuration("1min");
+        assertInvalidDuration("-1ms");
+    }
+
+    public void testFixed() {
+        LatencyDistribution distribution = LatencyDistribution.parse("fixed:2ms");
+        for (int i = 0; i < 10; i++) {
+            assertEquals(2 * MS, distribution.sample(random));
+        }
+        assertEquals("fixed:2ms", distribution.toString());
+        assertEquals(0, LatencyDistribution.parse("FIXED:0").sample(random));
+    }
+
+    public void testUniform() {
+        LatencyDistribution distribution = LatencyDistribution.parse("uniform:1ms-3ms");
+        long[] samples = sample(distribution);
+        assertTrue(samples[0] >= MS);
+        assertTrue(samples[SAMPLES - 1] < 3 * MS);
+        assertEquals(2 * MS, mean(samples), 0.01 * MS);
+
+        // the upper bound is at least the lower bound
+        assertEquals(5 * MS, LatencyDistribution.parse("uniform:5ms-1ms").sample(random));
+    }
+
+    public void testExponential() {
+        long[] samples = sample(LatencyDistribution.parse("exp:1ms"));
+        assertTrue(samples[0] >= 0);
+        assertEquals(MS, mean(samples), 0.02 * MS);
+        // the median of an exponential distribution is ln 2 times its mean
+        assertEquals(Math.log(2) * MS, samples[SAMPLES / 2], 0.02 * MS);
+    }
+
+    public void testLogNormal() {
+        long[] samples = sample(LatencyDistribution.parse("lognormal:1ms-20ms"));
+        assertTrue(samples[0] > 0);
+        assertEquals(MS, samples[SAMPLES / 2], 0.03 * MS);
+        assertEquals(20 * MS, samples[SAMPLES * 99 / 100], 1.5 * MS);
+    }
+
+    public void testInvalidDistributions() {
+        assertInvalidDistribution("1ms");
+        assertInvalidDistribution("gauss:1ms");
+        assertInvalidDistribution("fixed:1ms-2ms");
+        assertInvalidDistribution("uniform:1ms");
+        assertInvalidDistribution("lognormal:1ms");
+        assertInvalidDistribution("exp:soon");
+    }
+
+    /**
+     * Draw sorted samples
+     *
+     * @param distribution the distribution
+     * @return {@link #SAMPLES} latencies in ascending order
+     */
+    private long[] sample(LatencyDistribution distribution) {
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            samples[i] = distribution.sample(random);
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    private static double mean(long[] samples) {
+        double sum = 0;
+        for (long sample : samples) {
+            sum += sample;
+        }
+        return sum / samples.length;
+    }
+
+    private static void assertInvalidDuration(String text) {
+        try {
+            LatencyDistribution.parseDuration(text);
+            fail("'" + text + "' is no duration");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static void assertInvalidDistribution(String text) {
+        try {
+            LatencyDistribution.parse(text);
+            fail("'" + text + "' is no distribution");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.qaware.mysqlbenchmark.simulation;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests which rule of the simulated database applies to a statement, the latency it waits and the errors it injects.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class SimulatedDatabaseTest extends TestCase {
+    private static final long MS = 1000000;
+
+    private final Random random = new Random(42);
+
+    public void testFirstMatchingRuleApplies() {
+        SimulatedDatabase database = new SimulatedDatabase(Arrays.asList(
+                SimulationRule.parse("fixed:0 100% ^select.*from orders"),
+                SimulationRule.parse("fixed:0 ^select")));
+
+        assertFalse(database.execute("SELECT * FROM orders", random));
+        assertTrue(database.execute("SELECT * FROM customers", random));
+        assertTrue(database.execute("select 1", random));
+        assertEquals(1, database.getErrors());
+        assertEquals(3, database.getInjectedLatencies().getCount());
+    }
+
+    public void testStatementsWithoutRuleSucceedAtOnce() {
+        SimulatedDatabase database = new SimulatedDatabase(Arrays.asList(SimulationRule.parse("fixed:1s ^select")));
+
+        long start = System.nanoTime();
+        assertTrue(database.execute("UPDATE t SET a = 1", random));
+        assertTrue(System.nanoTime() - start < 500 * MS);
+        assertEquals(1, database.getInjectedLatencies().getCount());
+        assertEquals(0, database.getInjectedLatencies().getMax());
+    }
+
+    public void testLatencyIsWaited() throws IOException {
+        SimulatedDatabase database = SimulatedDatabase.configure("fixed:20ms");
+
+        long start = System.nanoTime();
+        assertTrue(database.execute("select 1", random));
+        long elapsed = System.nanoTime() - start;
+
+        assertTrue(elapsed >= 20 * MS);
+        assertTrue(elapsed < 500 * MS);
+        assertEquals(20, database.getInjectedLatencies().getMean() / MS, 0.1);
+    }
+
+    public void testErrorRate() throws IOException {
+        SimulatedDatabase database = SimulatedDatabase.configure("fixed:0 30%");
+
+        int failed = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (!database.execute("select " + i, random)) {
+                failed++;
+            }
+        }
+
+        assertEquals(3000, failed, 200);
+        assertEquals(failed, database.getErrors());
+    }
+
+    public void testConfigureAllStatements() throws IOException {
+        SimulatedDatabase database = SimulatedDatabase.configure("exp:1ms 0.1%");
+
+        assertEquals(1, database.getRules().size());
+        SimulationRule rule = database.getRules().get(0);
+        assertEquals("exp:1ms", rule.getLatency().toString());
+        assertEquals(0.001, rule.getErrorRate(), 1e-9);
+        assertTrue(rule.matches("UPDATE t SET a = 1"));
+        assertTrue(rule.matches(""));
+    }
+
+    public void testConfigureFromAFile() throws IOException {
+        File rules = File.createTempFile("simulation", ".txt");
+        rules.deleteOnExit();
+        Writer writer = new FileWriter(rules);
+        try {
+            writer.write("# slow reports\nfixed:0 100% from reports\n\n  # everything else\nfixed:0 .*\n");
+        } finally {
+            writer.close();
+        }
+        SimulatedDatabase database = SimulatedDatabase.configure(rules.getPath());
+
+        assertEquals(2, database.getRules().size());
+        assertFalse(database.execute("select * from reports", random));
+        assertTrue(database.execute("select * from orders", random));
+    }
+
+    public void testInvalidConfiguration() throws IOException {
+        try {
+            SimulatedDatabase.configure("1ms");
+            fail("'1ms' is no distribution");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testClear() throws IOException {
+        SimulatedDatabase database = SimulatedDatabase.configure("fixed:0 100%");
+        database.execute("select 1", random);
+        assertTrue(database.getSummary().startsWith("Simulated 1 statements, 1 injected errors"));
+
+        database.clear();
+        assertEquals(0, database.getErrors());
+        assertEquals(0, database.getInjectedLatencies().getCount());
+    }
+}
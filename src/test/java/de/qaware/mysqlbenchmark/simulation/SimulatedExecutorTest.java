@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.qaware.mysqlbenchmark.simulation;
+
+import de.qaware.mysqlbenchmark.QueryBenchmark;
+import de.qaware.mysqlbenchmark.histogram.LatencyHistogram;
+import de.qaware.mysqlbenchmark.logfile.LogEntry;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Replays statements through the {@link QueryBenchmark} against a simulated database: the benchmark measures at
+ * least the injected latency and counts the injected errors as failed statements.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class SimulatedExecutorTest extends TestCase {
+    private static final long MS = 1000000;
+
+    private final List<LogEntry> entries = new ArrayList<LogEntry>();
+    private SimulatedDatabase database;
+    private QueryBenchmark benchmark;
+
+    @Override
+    protected void setUp() {
+        database = new SimulatedDatabase(Arrays.asList(SimulationRule.parse("fixed:20ms ^update"),
+                SimulationRule.parse("fixed:0 100% ^delete"), SimulationRule.parse("fixed:10ms ^insert"),
+                SimulationRule.parse("fixed:5ms ^commit")));
+        benchmark = new QueryBenchmark(new SimulatedExecutor(database));
+    }
+
+    public void testReplay() {
+        add("select 1", "update t set a = 1 where id = 1", "select 1", "delete from t",
+                "update t set a = 1 where id = 1");
+
+        benchmark.processEntries(entries);
+
+        assertEquals(5, benchmark.getExecutedStatements());
+        assertEquals(1, benchmark.getFailedStatements());
+        assertEquals(5, database.getInjectedLatencies().getCount());
+        assertEquals(1, database.getErrors());
+        LatencyHistogram updates = getHistogram("update t set a = 1 where id = 1");
+        assertEquals(2, updates.getCount());
+        assertTrue(updates.getValueAtPercentile(0) >= 20 * MS);
+        assertTrue(updates.getMax() < 500 * MS);
+        // the benchmark can't be faster than the database
+        assertTrue(benchmark.getLatencies().getMean() >= database.getInjectedLatencies().getMean());
+    }
+
+    public void testBatchIsOneRoundTrip() {
+        add("insert into t values (1)", "insert into t values (2)", "insert into t values (3)", "select 1");
+        benchmark.setBatchSize(2);
+
+        benchmark.processEntries(entries);
+
+        assertEquals(4, benchmark.getExecutedStatements());
+        assertEquals(0, benchmark.getFailedStatements());
+        // a full batch of two inserts, the remaining insert before the select, and the select
+        assertEquals(3, database.getInjectedLatencies().getCount());
+        assertEquals(10 * MS, database.getInjectedLatencies().getValueAtPercentile(100), 0.01 * 10 * MS);
+    }
+
+    public void testCommitIsOneRoundTrip() {
+        add("BEGIN", "update t set a = 1 where id = 1", "COMMIT", "select 1");
+        benchmark.setTransactional(true);
+
+        benchmark.processEntries(entries);
+
+        assertEquals(4, benchmark.getExecutedStatements());
+        // BEGIN is not sent to the database, like with JDBC
+        assertEquals(3, database.getInjectedLatencies().getCount());
+        LatencyHistogram commits = getHistogram("Commit");
+        assertEquals(1, commits.getCount());
+        assertTrue(commits.getValueAtPercentile(0) >= 5 * MS);
+    }
+
+    private void add(String... statements) {
+        for (String statement : statements) {
+            entries.add(new LogEntry("1", LogEntry.NO_TIMESTAMP, statement));
+        }
+    }
+
+    /**
+     * Latencies measured by the benchmark for one statement
+     *
+     * @param statement the statement, or the name of the measurement point of commits
+     * @return histogram of the only measurement point containing the statement
+     */
+    private LatencyHistogram getHistogram(String statement) {
+        LatencyHistogram found = null;
+        for (String pointName : benchmark.getLatencyStatistics().getPointNames()) {
+            if (pointName.endsWith(statement)) {
+                assertNull("More than one point for " + statement, found);
+                found = benchmark.getLatencyStatistics().getHistogram(pointName);
+            }
+        }
+        assertNotNull("No point for " + statement, found);
+        return found;
+    }
+}
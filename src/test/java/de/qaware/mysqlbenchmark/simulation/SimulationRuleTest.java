@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.qaware.mysqlbenchmark.simulation;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests parsing the rules of the simulated database and matching statements against them.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class SimulationRuleTest extends TestCase {
+
+    public void testRuleWithoutErrorRate() {
+        SimulationRule rule = SimulationRule.parse("fixed:1ms ^select");
+
+        assertEquals("fixed:1ms", rule.getLatency().toString());
+        assertEquals(0d, rule.getErrorRate());
+        assertTrue(rule.matches("SELECT * FROM t"));
+        assertTrue(rule.matches("select 1"));
+        assertFalse(rule.matches(" update t set a = 'select'"));
+    }
+
+    public void testRuleWithErrorRate() {
+        assertEquals(0.25, SimulationRule.parse("exp:1ms 0.25 insert").getErrorRate(), 1e-9);
+        assertEquals(0.005, SimulationRule.parse("exp:1ms 0.5% insert").getErrorRate(), 1e-9);
+        assertEquals(1d, SimulationRule.parse("exp:1ms 100% insert").getErrorRate(), 1e-9);
+        assertTrue(SimulationRule.parse("exp:1ms 0.5% insert").matches("INSERT INTO t VALUES (1)"));
+    }
+
+    public void testPatternWithWhitespace() {
+        SimulationRule rule = SimulationRule.parse("  fixed:1ms   from orders where ");
+
+        assertTrue(rule.matches("SELECT * FROM orders WHERE id = 1"));
+        assertFalse(rule.matches("SELECT * FROM orders"));
+        // the pattern is found anywhere, also across lines
+        assertTrue(SimulationRule.parse("fixed:1ms select.*orders").matches("select *\nfrom orders"));
+    }
+
+    public void testNumberStartingThePattern() {
+        SimulationRule rule = SimulationRule.parse("fixed:1ms 0.5% 42 rows");
+
+        assertEquals(0.005, rule.getErrorRate(), 1e-9);
+        assertTrue(rule.matches("select '42 rows'"));
+    }
+
+    public void testToStringIsParsedAgain() {
+        SimulationRule rule = SimulationRule.parse(SimulationRule.parse("uniform:1ms-2ms 12.5% ^update").toString());
+
+        assertEquals("uniform:1ms-2ms", rule.getLatency().toString());
+        assertEquals(0.125, rule.getErrorRate(), 1e-9);
+        assertTrue(rule.matches("UPDATE t SET a = 1"));
+    }
+
+    public void testInvalidRules() {
+        assertInvalid("");
+        assertInvalid("fixed:1ms");
+        assertInvalid("fixed:1ms 10%");
+        assertInvalid("select");
+        assertInvalid("never:1ms select");
+        assertInvalid("fixed:1ms 150% select");
+        assertInvalid("fixed:1ms select (");
+    }
+
+    private static void assertInvalid(String line) {
+        try {
+            SimulationRule.parse(line);
+            fail("'" + line + "' is no rule");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
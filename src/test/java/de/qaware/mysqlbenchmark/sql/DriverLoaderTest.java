@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.qaware.mysqlbenchmark.sql;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.sql.Driver;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Tests loading JDBC drivers from jar files in their own class loader, with the mysql driver of the tool as jar.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class DriverLoaderTest extends TestCase {
+
+    public void testDriverRegisteredAsService() throws Exception {
+        Driver driver = DriverLoader.load(getMysqlJar(), null);
+
+        assertTrue(DriverLoader.describe(driver).startsWith("com.mysql."));
+        // the driver is not the one of the tool
+        assertNotSame(Class.forName(DriverLoader.MYSQL_DRIVER_CLASS).getClassLoader(),
+                driver.getClass().getClassLoader());
+    }
+
+    public void testDriverClass() throws Exception {
+        Driver driver = DriverLoader.load(getMysqlJar(), DriverLoader.MYSQL_DRIVER_CLASS);
+
+        assertEquals(DriverLoader.MYSQL_DRIVER_CLASS, driver.getClass().getName());
+        assertNotSame(Class.forName(DriverLoader.MYSQL_DRIVER_CLASS), driver.getClass());
+        assertTrue(driver.acceptsURL("jdbc:mysql://localhost:3306/"));
+        assertEquals(DriverLoader.MYSQL_DRIVER_CLASS + " " + driver.getMajorVersion() + "."
+                + driver.getMinorVersion(), DriverLoader.describe(driver));
+    }
+
+    public void testMissingJar() throws Exception {
+        assertInvalid(getMysqlJar() + File.pathSeparator + "no-such-driver.jar", null);
+    }
+
+    public void testJarWithoutDriver() throws IOException {
+        File jar = File.createTempFile("empty", ".jar");
+        jar.deleteOnExit();
+        new JarOutputStream(new FileOutputStream(jar)).close();
+
+        assertInvalid(jar.getPath(), null);
+    }
+
+    public void testInvalidDriverClass() throws Exception {
+        assertInvalid(getMysqlJar(), "com.example.NoSuchDriver");
+        assertInvalid(getMysqlJar(), "java.lang.String");
+    }
+
+    /**
+     * The jar of the mysql driver on the class path of the tests
+     *
+     * @return path of the jar
+     * @throws Exception if the driver is not found
+     */
+    private static String getMysqlJar() throws Exception {
+        return new File(Class.forName(DriverLoader.MYSQL_DRIVER_CLASS).getProtectionDomain().getCodeSource()
+                .getLocation().toURI()).getPath();
+    }
+
+    private static void assertInvalid(String jars, String driverClass) {
+        try {
+            DriverLoader.load(jars, driverClass);
+            fail("No driver in " + jars);
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.sql;
+
+import junit.framework.TestCase;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Tests which literals the {@link StatementTemplate} extracts and which stay in the template.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class StatementTemplateTest extends TestCase {
+
+    public void testStringsAndNumbers() {
+        assertTemplate("select * from t where a = ? and b = ? and c = ? and d = ?",
+                "select * from t where a = 'x' and b = 42 and c = 1.50 and d = 2e-3",
+                "x", 42L, new BigDecimal("1.50"), 2e-3);
+        assertTemplate("select * from t where a = ?", "select * from t where a = 99999999999999999999",
+                new BigDecimal("99999999999999999999"));
+        assertTemplate("select * from t where a = ?", "select * from t where a = .5", new BigDecimal(".5"));
+    }
+
+    public void testEscapedQuotes() {
+        assertTemplate("update t set a = ?, b = ?, c = ? where d = ?",
+                "update t set a = 'it\\'s', b = 'it''s', c = \"say \\\"hi\\\"\" where d = 'x\\\\'",
+                "it's", "it's", "say \"hi\"", "x\\");
+        assertTemplate("select * from t where a like ? and b = ?",
+                "select * from t where a like '50\\%\\_' and b = 'tab\\tnew\\nline'", "50\\%\\_", "tab\tnew\nline");
+    }
+
+    public void testNegativeNumbersKeepTheirSign() {
+        assertTemplate("select * from t where a = -? and b = a-?", "select * from t where a = -5 and b = a-1", 5L, 1L);
+    }
+
+    public void testHexBitAndIntroducedStringsStay() {
+        assertTemplate("select * from t where a = 0xFF and b = X'0f' and c = b'101' and d = 0b11 and e = _utf8'x'"
+                        + " and f = ?",
+                "select * from t where a = 0xFF and b = X'0f' and c = b'101' and d = 0b11 and e = _utf8'x' and f = 1",
+                1L);
+    }
+
+    public void testTypedDateLiteralsStay() {
+        assertTemplate("select * from t where a > DATE '2014-01-01' and b < timestamp '2014-01-01 10:00:00'"
+                        + " and date = ?",
+                "select * from t where a > DATE '2014-01-01' and b < timestamp '2014-01-01 10:00:00'"
+                        + " and date = '2014-01-02'",
+                "2014-01-02");
+    }
+
+    public void testLimit() {
+        assertTemplate("select * from t where a = ? limit ?, ?", "select * from t where a = 1 limit 10, 20",
+                1L, 10L, 20L);
+        assertTemplate("select * from t limit ? offset ?", "select * from t limit 5 offset 10", 5L, 10L);
+    }
+
+    public void testPositionalColumnsStay() {
+        assertTemplate("select a, b, count(*) from t where c = ? group by 1, 2 order by 3 desc, 1",
+                "select a, b, count(*) from t where c = 7 group by 1, 2 order by 3 desc, 1", 7L);
+        assertTemplate("select a from t order by a + ? limit ?", "select a from t order by a + 1 limit 3", 1L, 3L);
+    }
+
+    public void testIdentifiersContainingDigits() {
+        assertTemplate("select col1, t2.c3, `4x`, 5abc from t2 where a1b = ?",
+                "select col1, t2.c3, `4x`, 5abc from t2 where a1b = 6", 6L);
+    }
+
+    public void testComments() {
+        assertTemplate("select /* 1 */ * from t where a = ? -- 2\nand b = ? # 'c'",
+                "select /* 1 */ * from t where a = 3 -- 2\nand b = 4 # 'c'", 3L, 4L);
+        assertTemplate("select /*!40001 SQL_NO_CACHE 1 */ ?", "select /*!40001 SQL_NO_CACHE 1 */ 'x'", "x");
+    }
+
+    public void testAdjacentStringsAreOneLiteral() {
+        assertTemplate("select * from t where a = ? and b = ?", "select * from t where a = 'ab' 'cd' and b = 'e'",
+                "abcd", "e");
+    }
+
+    public void testInsertValues() {
+        assertTemplate("insert into t (a, b) values (?, ?), (?, NULL)",
+                "insert into t (a, b) values (1, 'x'), (2, NULL)", 1L, "x", 2L);
+    }
+
+    public void testOnlyDmlIsParsed() {
+        assertUnchanged("create table t (a int default 5)");
+        assertUnchanged("set autocommit=0");
+        assertUnchanged("select * from t");
+        assertTemplate("(select ?) union (select ?)", "(select 1) union (select 2)", 1L, 2L);
+    }
+
+    public void testIsWrite() {
+        assertTrue(StatementTemplate.isWrite("INSERT INTO t VALUES (1)"));
+        assertTrue(StatementTemplate.isWrite(" replace into t values (1)"));
+        assertTrue(StatementTemplate.isWrite("update t set a = 1"));
+        assertTrue(StatementTemplate.isWrite("delete from t"));
+        assertFalse(StatementTemplate.isWrite("select * from t"));
+        assertFalse(StatementTemplate.isWrite("insertion"));
+    }
+
+    private static void assertTemplate(String template, String sql, Object... binds) {
+        StatementTemplate parsed = StatementTemplate.parse(sql);
+        assertEquals(sql, template, parsed.getTemplate());
+        assertEquals(sql, Arrays.asList(binds), parsed.getBinds());
+    }
+
+    private static void assertUnchanged(String sql) {
+        StatementTemplate parsed = StatementTemplate.parse(sql);
+        assertEquals(sql, parsed.getTemplate());
+        assertEquals(Collections.emptyList(), parsed.getBinds());
+    }
+}
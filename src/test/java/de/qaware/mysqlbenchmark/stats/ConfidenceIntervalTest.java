@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package de.qaware.mysqlbenchmark.stats;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Tests the {@link ConfidenceInterval} against values computed by hand.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class ConfidenceIntervalTest extends TestCase {
+    private static final double DELTA = 1e-4;
+
+    public void testSeveralValues() {
+        ConfidenceInterval interval = ConfidenceInterval.of(Arrays.asList(1d, 2d, 3d, 4d, 5d));
+
+        // s = sqrt(10 / 4), half width = t(4) * s / sqrt(5)
+        assertEquals(5, interval.getCount());
+        assertEquals(3, interval.getMean(), DELTA);
+        assertEquals(1.5811, interval.getStandardDeviation(), DELTA);
+        assertEquals(1.9629, interval.getHalfWidth(), DELTA);
+        assertEquals(1.0371, interval.getLower(), DELTA);
+        assertEquals(4.9629, interval.getUpper(), DELTA);
+        assertEquals(65.4309, interval.getRelativeHalfWidth(), DELTA);
+    }
+
+    public void testEqualValues() {
+        ConfidenceInterval interval = ConfidenceInterval.of(Arrays.asList(7d, 7d, 7d));
+
+        assertEquals(7, interval.getMean(), DELTA);
+        assertEquals(0, interval.getHalfWidth(), DELTA);
+    }
+
+    public void testLessThanTwoValues() {
+        ConfidenceInterval single = ConfidenceInterval.of(Collections.singletonList(42d));
+        ConfidenceInterval empty = ConfidenceInterval.of(Collections.<Double>emptyList());
+
+        assertEquals(42, single.getMean(), DELTA);
+        assertEquals(0, single.getHalfWidth(), DELTA);
+        assertEquals(0, single.getStandardDeviation(), DELTA);
+        assertEquals(0, empty.getCount());
+        assertEquals(0, empty.getMean(), DELTA);
+        assertEquals(0, empty.getRelativeHalfWidth(), DELTA);
+    }
+
+    public void testNegativeMean() {
+        ConfidenceInterval interval = ConfidenceInterval.of(Arrays.asList(-1d, -3d));
+
+        // s = sqrt(2), half width = t(1) * s / sqrt(2) = t(1)
+        assertEquals(-2, interval.getMean(), DELTA);
+        assertEquals(12.706, interval.getHalfWidth(), DELTA);
+        assertEquals(635.3, interval.getRelativeHalfWidth(), DELTA);
+    }
+
+    public void testQuantiles() {
+        assertEquals(12.706, ConfidenceInterval.tQuantile(1), DELTA);
+        assertEquals(2.228, ConfidenceInterval.tQuantile(10), DELTA);
+        assertEquals(2.042, ConfidenceInterval.tQuantile(30), DELTA);
+        assertEquals(1.960, ConfidenceInterval.tQuantile(31), DELTA);
+        assertEquals(1.960, ConfidenceInterval.tQuantile(Integer.MAX_VALUE), DELTA);
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2014 QAware GmbH (http://www.qaware.de/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.qaware.mysqlbenchmark.sweep;
+
+import de.qaware.mysqlbenchmark.sql.DriverLoader;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * Tests parsing the configurations of a driver sweep and the connection properties every configuration connects with.
+ *
+ * @author Felix Kelm felix.kelm@qaware.de
+ */
+public class SweepConfigurationTest extends TestCase {
+    private static final String URL = "jdbc:sweeptest://localhost/";
+
+    private final RecordingDriver driver = new RecordingDriver();
+
+    @Override
+    protected void setUp() throws SQLException {
+        DriverManager.registerDriver(driver);
+    }
+
+    @Override
+    protected void tearDown() throws SQLException {
+        DriverManager.deregisterDriver(driver);
+    }
+
+    public void testConfigurationNamedByItsValues() {
+        List<SweepConfiguration> configurations = SweepConfiguration.parse("useCompression=true  cachePrepStmts=true");
+
+        assertEquals(1, configurations.size());
+        assertEquals("useCompression=true cachePrepStmts=true", configurations.get(0).getName());
+        assertEquals("jdbc:mysql://db/", configurations.get(0).getServer("jdbc:mysql://db/"));
+    }
+
+    public void testConfigurationWithoutKeys() {
+        SweepConfiguration configuration = SweepConfiguration.parse("baseline").get(0);
+
+        assertEquals("baseline", configuration.getName());
+        assertEquals("baseline (mysql driver of the tool)", configuration.toString());
+    }
+
+    public void testEveryCombinationOfAlternatives() {
+        List<SweepConfiguration> configurations = SweepConfiguration.parse("tuned a=1|2 b=x|y c=z");
+
+        assertEquals(4, configurations.size());
+        assertEquals("tuned a=1 b=x", configurations.get(0).getName());
+        assertEquals("tuned a=1 b=y", configurations.get(1).getName());
+        assertEquals("tuned a=2 b=x", configurations.get(2).getName());
+        assertEquals("tuned a=2 b=y", configurations.get(3).getName());
+    }
+
+    public void testServer() {
+        List<SweepConfiguration> configurations = SweepConfiguration.parse(
+                "url=jdbc:mysql://primary:3306/|jdbc:mysql://replica:3306/");
+
+        assertEquals("url=jdbc:mysql://primary:3306/", configurations.get(0).getName());
+        assertEquals("jdbc:mysql://primary:3306/", configurations.get(0).getServer("jdbc:mysql://db/"));
+        assertEquals("jdbc:mysql://replica:3306/", configurations.get(1).getServer("jdbc:mysql://db/"));
+    }
+
+    public void testInvalidConfigurations() {
+        String[] invalid = {"", "  ", "a=", "=1", "name a", "a=1|", "a=|1", "a=1||2", "a=1 a=2",
+                "driverClass=com.mysql.jdbc.Driver", "driver=no-such-driver.jar"};
+        for (String line : invalid) {
+            try {
+                SweepConfiguration.parse(line);
+                fail("'" + line + "' is no configuration");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    public void testConfigureFromAFile() throws IOException {
+        File file = createFile("# compression\ncompressed useCompression=true|false\n\n  # batches\n"
+                + "rewritten rewriteBatchedStatements=true\n");
+
+        List<SweepConfiguration> configurations = SweepConfiguration.configure(file.getPath());
+
+        assertEquals(3, configurations.size());
+        assertEquals("compressed useCompression=true", configurations.get(0).getName());
+        assertEquals("compressed useCompression=false", configurations.get(1).getName());
+        assertEquals("rewritten", configurations.get(2).getName());
+    }
+
+    public void testConfigureFromTheCommandLine() throws IOException {
+        assertEquals(2, SweepConfiguration.configure("useCompression=true|false").size());
+    }
+
+    public void testFileWithoutConfiguration() throws IOException {
+        File file = createFile("# nothing to sweep\n\n");
+        try {
+            SweepConfiguration.configure(file.getPath());
+            fail("The file has no configuration");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testPropertiesOfEveryPoint() throws SQLException {
+        List<SweepConfiguration> configurations = SweepConfiguration.parse("useCompression=true|false");
+
+        for (SweepConfiguration configuration : configurations) {
+            connect(configuration, 0, false);
+        }
+
+        assertEquals(2, driver.connections.size());
+        assertEquals("true", driver.connections.get(0).getProperty("useCompression"));
+        assertEquals("false", driver.connections.get(1).getProperty("useCompression"));
+        for (Properties properties : driver.connections) {
+            assertEquals("user", properties.getProperty("user"));
+            assertEquals("password", properties.getProperty("password"));
+            assertNull(properties.getProperty("useServerPrepStmts"));
+            assertNull(properties.getProperty("rewriteBatchedStatements"));
+        }
+    }
+
+    public void testPropertiesOfThePointOverrideTheCommandLine() throws SQLException {
+        connect(SweepConfiguration.parse("rewriteBatchedStatements=false").get(0), 16, true);
+        connect(SweepConfiguration.parse("useServerPrepStmts=false").get(0), 16, true);
+
+        assertEquals("false", driver.connections.get(0).getProperty("rewriteBatchedStatements"));
+        assertEquals("true", driver.connections.get(0).getProperty("useServerPrepStmts"));
+        assertEquals("true", driver.connections.get(1).getProperty("rewriteBatchedStatements"));
+        assertEquals("false", driver.connections.get(1).getProperty("useServerPrepStmts"));
+    }
+
+    public void testDriverOfEveryPoint() throws Exception {
+        String jar = new File(Class.forName(DriverLoader.MYSQL_DRIVER_CLASS).getProtectionDomain().getCodeSource()
+                .getLocation().toURI()).getPath();
+
+        List<SweepConfiguration> configurations = SweepConfiguration.parse("isolated driver=" + jar
+                + " driverClass=" + DriverLoader.MYSQL_DRIVER_CLASS + " useSSL=true|false");
+
+        assertEquals(2, configurations.size());
+        assertEquals("isolated useSSL=true", configurations.get(0).getName());
+        assertTrue(configurations.get(0).toString().startsWith("isolated useSSL=true ("
+                + DriverLoader.MYSQL_DRIVER_CLASS + " "));
+        assertTrue(configurations.get(0).toString().endsWith(", {useSSL=true})"));
+    }
+
+    private static void connect(SweepConfiguration configuration, int statementCacheSize, boolean rewriteBatched)
+            throws SQLException {
+        configuration.createExecutor(statementCacheSize, rewriteBatched).initConnection(configuration.getServer(URL),
+                "user", "password");
+    }
+
+    private static File createFile(String content) throws IOException {
+        File file = File.createTempFile("sweep", ".txt");
+        file.deleteOnExit();
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    /**
+     * Driver for {@link #URL}, records the properties of every connection and returns connections doing nothing
+     */
+    private static class RecordingDriver implements Driver {
+        private final List<Properties> connections = new ArrayList<Properties>();
+
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            connections.add(info);
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            return null;
+                        }
+                    });
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith(URL);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+}